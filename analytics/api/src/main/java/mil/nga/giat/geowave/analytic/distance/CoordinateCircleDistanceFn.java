@@ -9,7 +9,7 @@ import org.opengis.referencing.operation.TransformException;
 import com.vividsolutions.jts.geom.Coordinate;
 
 public class CoordinateCircleDistanceFn implements
-		DistanceFn<Coordinate>
+		MetricDistanceFn<Coordinate>
 {
 
 	/**
@@ -59,4 +59,9 @@ public class CoordinateCircleDistanceFn implements
 		return DEFAULT_CRS;
 	}
 
+	@Override
+	public boolean isMetric() {
+		return true;
+	}
+
 }
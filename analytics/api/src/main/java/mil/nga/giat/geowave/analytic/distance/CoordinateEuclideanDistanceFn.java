@@ -3,7 +3,7 @@ package mil.nga.giat.geowave.analytic.distance;
 import com.vividsolutions.jts.geom.Coordinate;
 
 public class CoordinateEuclideanDistanceFn implements
-		DistanceFn<Coordinate>
+		MetricDistanceFn<Coordinate>
 {
 
 	/**
@@ -29,4 +29,9 @@ public class CoordinateEuclideanDistanceFn implements
 		return (Double.isNaN(x)) ? 0 : x;
 	}
 
+	@Override
+	public boolean isMetric() {
+		return true;
+	}
+
 }
@@ -12,7 +12,7 @@ import com.vividsolutions.jts.geom.Geometry;
  * 
  */
 public class FeatureCentroidDistanceFn implements
-		DistanceFn<SimpleFeature>
+		MetricDistanceFn<SimpleFeature>
 {
 
 	/**
@@ -56,4 +56,11 @@ public class FeatureCentroidDistanceFn implements
 				getGeometry(
 						y).getCentroid().getCoordinate());
 	}
+
+	@Override
+	public boolean isMetric() {
+		// the distance between centroids is a metric if the coordinate
+		// distance is a metric
+		return (coordinateDistanceFunction instanceof MetricDistanceFn) && ((MetricDistanceFn<Coordinate>) coordinateDistanceFunction).isMetric();
+	}
 }
@@ -10,7 +10,7 @@ import com.vividsolutions.jts.geom.Geometry;
  * 
  */
 public class GeometryCentroidDistanceFn implements
-		DistanceFn<Geometry>
+		MetricDistanceFn<Geometry>
 {
 
 	/**
@@ -46,4 +46,10 @@ public class GeometryCentroidDistanceFn implements
 				y.getCentroid().getCoordinate());
 	}
 
+	@Override
+	public boolean isMetric() {
+		// the distance between centroids is a metric if the coordinate
+		// distance is a metric
+		return (coordinateDistanceFunction instanceof MetricDistanceFn) && ((MetricDistanceFn<Coordinate>) coordinateDistanceFunction).isMetric();
+	}
 }
@@ -0,0 +1,20 @@
+package mil.nga.giat.geowave.analytic.distance;
+
+/**
+ * A distance function that can report whether it is a metric, satisfying the
+ * triangle inequality. Nearest neighbor searches may use the triangle
+ * inequality to avoid measuring the distance to every candidate, which is
+ * only exact if the distance function is a metric.
+ * 
+ * @param <T>
+ */
+public interface MetricDistanceFn<T> extends
+		DistanceFn<T>
+{
+	/**
+	 * 
+	 * @return true if the distance between any two items is never greater
+	 *         than the sum of their distances to a third item
+	 */
+	public boolean isMetric();
+}
@@ -1,17 +1,40 @@
 package mil.nga.giat.geowave.analytic.kmeans;
 
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
 import mil.nga.giat.geowave.analytic.AnalyticItemWrapper;
 import mil.nga.giat.geowave.analytic.clustering.CentroidPairing;
 import mil.nga.giat.geowave.analytic.distance.DistanceFn;
+import mil.nga.giat.geowave.analytic.distance.MetricDistanceFn;
 
 /**
  * Compute the distance of a points to the closest centroid, providing the
  * resulting distance using a provided distance function.
  * 
+ * If the distance function is a metric and there are enough centroids, the
+ * distances between the centroids are used to avoid measuring the distance to
+ * every centroid. The index of the centroids is cached for each target set, so
+ * an instance is not thread-safe.
+ * 
  */
 public class CentroidAssociationFn<T>
 {
+	/**
+	 * The minimum number of centroids for which the nearest centroid is found
+	 * using the distances between the centroids, if the distance function is
+	 * a metric. Otherwise, the distance to every centroid is measured.
+	 */
+	public static final int DEFAULT_MIN_INDEXED_CENTROIDS = 8;
+	// the target sets are generally the centroids of a few groups that are
+	// reused for many points
+	private static final int MAX_CACHED_INDICES = 64;
+
 	private DistanceFn<T> distanceFunction;
+	private int minIndexedCentroids = DEFAULT_MIN_INDEXED_CENTROIDS;
+	private final Map<Iterable<AnalyticItemWrapper<T>>, NearestCentroidIndex<T>> indexCache = new IdentityHashMap<Iterable<AnalyticItemWrapper<T>>, NearestCentroidIndex<T>>();
+	private final double[] distanceHolder = new double[1];
 
 	public DistanceFn<T> getDistanceFunction() {
 		return distanceFunction;
@@ -20,40 +43,116 @@ public class CentroidAssociationFn<T>
 	public void setDistanceFunction(
 			final DistanceFn<T> distanceFunction ) {
 		this.distanceFunction = distanceFunction;
+		indexCache.clear();
+	}
+
+	public int getMinIndexedCentroids() {
+		return minIndexedCentroids;
+	}
+
+	/**
+	 * 
+	 * @param minIndexedCentroids
+	 *            the minimum number of centroids for which the triangle
+	 *            inequality is used to avoid measuring the distance to every
+	 *            centroid, or {@link Integer#MAX_VALUE} to always measure
+	 *            every centroid
+	 */
+	public void setMinIndexedCentroids(
+			final int minIndexedCentroids ) {
+		this.minIndexedCentroids = minIndexedCentroids;
+		indexCache.clear();
 	}
 
 	public double compute(
 			final AnalyticItemWrapper<T> point,
 			final Iterable<AnalyticItemWrapper<T>> targetSet,
 			final AssociationNotification<T> associationNotification ) {
-		final CentroidPairing<T> pairing = new CentroidPairing<T>(
-				null,
+		return compute(
 				point,
-				Double.POSITIVE_INFINITY);
-		for (final AnalyticItemWrapper<T> y : targetSet) {
-			final double distance = distanceFunction.measure(
-					point.getWrappedItem(),
-					y.getWrappedItem());
-			if (distance < pairing.getDistance()) {
-				pairing.setDistance(distance);
-				pairing.setCentroid(y);
-			}
-		}
-		associationNotification.notify(pairing);
-		return pairing.getDistance();
+				targetSet,
+				getIndex(targetSet),
+				associationNotification);
 	}
 
 	public double compute(
 			final Iterable<AnalyticItemWrapper<T>> pointSet,
 			final Iterable<AnalyticItemWrapper<T>> targetSet,
 			final AssociationNotification<T> associationNotification ) {
+		// the target set does not change while the points are associated
+		final NearestCentroidIndex<T> index = getIndex(targetSet);
 		double sum = 0.0;
 		for (final AnalyticItemWrapper<T> point : pointSet) {
 			sum += this.compute(
 					point,
 					targetSet,
+					index,
 					associationNotification);
 		}
 		return sum;
 	}
+
+	private double compute(
+			final AnalyticItemWrapper<T> point,
+			final Iterable<AnalyticItemWrapper<T>> targetSet,
+			final NearestCentroidIndex<T> index,
+			final AssociationNotification<T> associationNotification ) {
+		final CentroidPairing<T> pairing = new CentroidPairing<T>(
+				null,
+				point,
+				Double.POSITIVE_INFINITY);
+		if (index != null) {
+			final AnalyticItemWrapper<T> centroid = index.findNearest(
+					point,
+					distanceHolder);
+			if (centroid != null) {
+				pairing.setDistance(distanceHolder[0]);
+				pairing.setCentroid(centroid);
+			}
+		}
+		else {
+			for (final AnalyticItemWrapper<T> y : targetSet) {
+				final double distance = distanceFunction.measure(
+						point.getWrappedItem(),
+						y.getWrappedItem());
+				if (distance < pairing.getDistance()) {
+					pairing.setDistance(distance);
+					pairing.setCentroid(y);
+				}
+			}
+		}
+		associationNotification.notify(pairing);
+		return pairing.getDistance();
+	}
+
+	/**
+	 * 
+	 * @return an index of the target set, or null if the distance to every
+	 *         centroid should be measured
+	 */
+	private NearestCentroidIndex<T> getIndex(
+			final Iterable<AnalyticItemWrapper<T>> targetSet ) {
+		if (!(distanceFunction instanceof MetricDistanceFn) || !((MetricDistanceFn<T>) distanceFunction).isMetric()) {
+			return null;
+		}
+		NearestCentroidIndex<T> index = indexCache.get(targetSet);
+		// the target set may have been modified since it was indexed
+		if ((index == null) || !index.isIndexOf(targetSet)) {
+			final List<AnalyticItemWrapper<T>> centroids = NearestCentroidIndex.toList(targetSet);
+			if (centroids.size() < minIndexedCentroids) {
+				indexCache.remove(targetSet);
+				return null;
+			}
+			if (indexCache.size() >= MAX_CACHED_INDICES) {
+				indexCache.clear();
+			}
+			index = new NearestCentroidIndex<T>(
+					distanceFunction,
+					centroids);
+			indexCache.put(
+					targetSet,
+					index);
+		}
+		return index;
+	}
 }
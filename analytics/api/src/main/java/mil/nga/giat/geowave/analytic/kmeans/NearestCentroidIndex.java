@@ -0,0 +1,209 @@
+package mil.nga.giat.geowave.analytic.kmeans;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import mil.nga.giat.geowave.analytic.AnalyticItemWrapper;
+import mil.nga.giat.geowave.analytic.distance.DistanceFn;
+
+/**
+ * Find the nearest centroid to a point using the distances between the
+ * centroids to avoid measuring the distance to most of them (Orchard's
+ * algorithm, with the same triangle inequality bound used by Elkan's k-means).
+ * For each centroid the other centroids are sorted by their distance to it. A
+ * search measures the distance from the point to a seed centroid and visits
+ * its neighbors in order of distance, moving on to the neighbors of any
+ * centroid that is nearer to the point. The search stops once the triangle
+ * inequality guarantees that the remaining neighbors of the nearest centroid
+ * are further away than it is.
+ *
+ * The seed is the nearest centroid of the previous search, since consecutive
+ * points tend to be near one another. The results are identical to measuring
+ * every centroid, including which of equally distant centroids is chosen, as
+ * long as the distance function is a metric. This is not thread-safe.
+ *
+ * @param <T>
+ */
+public class NearestCentroidIndex<T>
+{
+	// allow for rounding error in distances that satisfy the triangle
+	// inequality in theory
+	private static final double TOLERANCE = 1e-9;
+
+	private final DistanceFn<T> distanceFunction;
+	private final AnalyticItemWrapper<T>[] centroids;
+	// for each centroid, the indices of all of the centroids (including
+	// itself) in order of distance and the corresponding distances
+	private final int[][] neighbors;
+	private final double[][] neighborDistances;
+	private final int[] visited;
+	private int visitStamp = 0;
+	private int seed = 0;
+
+	@SuppressWarnings("unchecked")
+	public NearestCentroidIndex(
+			final DistanceFn<T> distanceFunction,
+			final List<AnalyticItemWrapper<T>> centroids ) {
+		this.distanceFunction = distanceFunction;
+		this.centroids = centroids.toArray(new AnalyticItemWrapper[centroids.size()]);
+		final int k = this.centroids.length;
+		final double[][] distances = new double[k][k];
+		for (int i = 0; i < k; i++) {
+			for (int j = i + 1; j < k; j++) {
+				distances[i][j] = distances[j][i] = distanceFunction.measure(
+						this.centroids[i].getWrappedItem(),
+						this.centroids[j].getWrappedItem());
+			}
+		}
+		visited = new int[k];
+		neighbors = new int[k][];
+		neighborDistances = new double[k][];
+		for (int i = 0; i < k; i++) {
+			final double[] distancesFromI = distances[i];
+			final Integer[] order = new Integer[k];
+			for (int j = 0; j < k; j++) {
+				order[j] = j;
+			}
+			Arrays.sort(
+					order,
+					new Comparator<Integer>() {
+						@Override
+						public int compare(
+								final Integer o1,
+								final Integer o2 ) {
+							return Double.compare(
+									distancesFromI[o1],
+									distancesFromI[o2]);
+						}
+					});
+			neighbors[i] = new int[k];
+			neighborDistances[i] = new double[k];
+			for (int j = 0; j < k; j++) {
+				neighbors[i][j] = order[j];
+				neighborDistances[i][j] = distancesFromI[order[j]];
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return true if the centroids are the same, in the same order, as those
+	 *         that were indexed
+	 */
+	public boolean isIndexOf(
+			final Iterable<AnalyticItemWrapper<T>> targetSet ) {
+		int i = 0;
+		for (final AnalyticItemWrapper<T> centroid : targetSet) {
+			if ((i >= centroids.length) || (centroids[i] != centroid)) {
+				return false;
+			}
+			i++;
+		}
+		return i == centroids.length;
+	}
+
+	/**
+	 * Find the nearest centroid to the point
+	 *
+	 * @param point
+	 * @param distance
+	 *            the distance to the nearest centroid is returned in the first
+	 *            element
+	 * @return the nearest centroid, or null if there are none
+	 */
+	public AnalyticItemWrapper<T> findNearest(
+			final AnalyticItemWrapper<T> point,
+			final double[] distance ) {
+		if (centroids.length == 0) {
+			distance[0] = Double.POSITIVE_INFINITY;
+			return null;
+		}
+		final double seedDistance = distanceFunction.measure(
+				point.getWrappedItem(),
+				centroids[seed].getWrappedItem());
+		if (Double.isNaN(seedDistance) || Double.isInfinite(seedDistance)) {
+			// the triangle inequality is of no use, so measure every centroid
+			return findNearestLinear(
+					point,
+					distance);
+		}
+		if (++visitStamp == Integer.MAX_VALUE) {
+			Arrays.fill(
+					visited,
+					0);
+			visitStamp = 1;
+		}
+		visited[seed] = visitStamp;
+		int nearest = seed;
+		double nearestDistance = seedDistance;
+		boolean improved = true;
+		while (improved) {
+			improved = false;
+			final int[] nearestNeighbors = neighbors[nearest];
+			final double[] nearestNeighborDistances = neighborDistances[nearest];
+			// no centroid that is more than twice as far from the nearest
+			// centroid as the point can be nearer to the point
+			final double limit = 2 * nearestDistance * (1 + TOLERANCE);
+			for (int n = 0; n < nearestNeighbors.length; n++) {
+				if (nearestNeighborDistances[n] > limit) {
+					break;
+				}
+				final int candidate = nearestNeighbors[n];
+				// centroids that have already been measured lost to a
+				// centroid that is no nearer than the current one
+				if (visited[candidate] == visitStamp) {
+					continue;
+				}
+				visited[candidate] = visitStamp;
+				final double candidateDistance = distanceFunction.measure(
+						point.getWrappedItem(),
+						centroids[candidate].getWrappedItem());
+				// ties go to the centroid that comes first in the target
+				// set, as they would for a linear scan
+				if ((candidateDistance < nearestDistance) || ((candidateDistance == nearestDistance) && (candidate < nearest))) {
+					nearest = candidate;
+					nearestDistance = candidateDistance;
+					// continue from the neighbors of the new nearest centroid
+					improved = true;
+					break;
+				}
+			}
+		}
+		seed = nearest;
+		distance[0] = nearestDistance;
+		return centroids[nearest];
+	}
+
+	private AnalyticItemWrapper<T> findNearestLinear(
+			final AnalyticItemWrapper<T> point,
+			final double[] distance ) {
+		AnalyticItemWrapper<T> nearest = null;
+		double nearestDistance = Double.POSITIVE_INFINITY;
+		for (final AnalyticItemWrapper<T> centroid : centroids) {
+			final double candidateDistance = distanceFunction.measure(
+					point.getWrappedItem(),
+					centroid.getWrappedItem());
+			if (candidateDistance < nearestDistance) {
+				nearest = centroid;
+				nearestDistance = candidateDistance;
+			}
+		}
+		distance[0] = nearestDistance;
+		return nearest;
+	}
+
+	@SuppressWarnings("unchecked")
+	protected static <T> List<AnalyticItemWrapper<T>> toList(
+			final Iterable<AnalyticItemWrapper<T>> targetSet ) {
+		if (targetSet instanceof List) {
+			return (List<AnalyticItemWrapper<T>>) targetSet;
+		}
+		final List<AnalyticItemWrapper<T>> list = new ArrayList<AnalyticItemWrapper<T>>();
+		for (final AnalyticItemWrapper<T> centroid : targetSet) {
+			list.add(centroid);
+		}
+		return list;
+	}
+}
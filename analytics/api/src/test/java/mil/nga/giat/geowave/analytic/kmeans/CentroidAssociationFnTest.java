@@ -1,14 +1,17 @@
 package mil.nga.giat.geowave.analytic.kmeans;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 import mil.nga.giat.geowave.analytic.AnalyticItemWrapper;
 import mil.nga.giat.geowave.analytic.clustering.CentroidPairing;
 import mil.nga.giat.geowave.analytic.clustering.LongCentroid;
 import mil.nga.giat.geowave.analytic.distance.DistanceFn;
+import mil.nga.giat.geowave.analytic.distance.MetricDistanceFn;
 import mil.nga.giat.geowave.analytic.kmeans.AssociationNotification;
 import mil.nga.giat.geowave.analytic.kmeans.CentroidAssociationFn;
 
@@ -125,4 +128,74 @@ public class CentroidAssociationFnTest
 				0.0001);
 	}
 
+	@Test
+	public void testIndexedMatchesLinear() {
+		// integer distances produce many ties, which must be resolved the
+		// same way by both searches
+		final MetricDistanceFn<Long> distanceFn = new MetricDistanceFn<Long>() {
+			/**
+			 * 
+			 */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double measure(
+					final Long x,
+					final Long y ) {
+				return Math.abs(x.longValue() - y.longValue());
+			}
+
+			@Override
+			public boolean isMetric() {
+				return true;
+			}
+		};
+		final CentroidAssociationFn<Long> indexedFn = new CentroidAssociationFn<Long>();
+		indexedFn.setDistanceFunction(distanceFn);
+		final CentroidAssociationFn<Long> linearFn = new CentroidAssociationFn<Long>();
+		linearFn.setDistanceFunction(distanceFn);
+		linearFn.setMinIndexedCentroids(Integer.MAX_VALUE);
+
+		final Random random = new Random(
+				3452);
+		final List<AnalyticItemWrapper<Long>> centroidSet = new ArrayList<AnalyticItemWrapper<Long>>();
+		for (int i = 0; i < 50; i++) {
+			centroidSet.add(new LongCentroid(
+					random.nextInt(1000),
+					"",
+					0));
+		}
+		for (int i = 0; i < 1000; i++) {
+			final AnalyticItemWrapper<Long> point = new LongCentroid(
+					random.nextInt(1200) - 100,
+					"",
+					0);
+			final List<CentroidPairing<Long>> pairings = new ArrayList<CentroidPairing<Long>>();
+			final AssociationNotification<Long> notification = new AssociationNotification<Long>() {
+				@Override
+				public void notify(
+						final CentroidPairing<Long> pairing ) {
+					pairings.add(pairing);
+				}
+			};
+			final double indexedDistance = indexedFn.compute(
+					point,
+					centroidSet,
+					notification);
+			final double linearDistance = linearFn.compute(
+					point,
+					centroidSet,
+					notification);
+			Assert.assertEquals(
+					linearDistance,
+					indexedDistance,
+					0);
+			Assert.assertSame(
+					pairings.get(
+							1).getCentroid(),
+					pairings.get(
+							0).getCentroid());
+		}
+	}
+
 }
@@ -42,6 +42,7 @@ import org.opengis.feature.simple.SimpleFeature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 
 /**
@@ -217,6 +218,17 @@ public class DBScanMapReduce
 			}
 		}
 
+		/**
+		 * The distances between cluster items are measured by
+		 * {@link ClusterItemDistanceFn}, between the nearest points of their
+		 * geometries.
+		 */
+		@Override
+		protected Envelope getEnvelope(
+				final ClusterItem item ) {
+			return (item.getGeometry() == null) ? null : item.getGeometry().getEnvelopeInternal();
+		}
+
 		public NeighborListFactory<ClusterItem> createNeighborsListFactory(
 				Map<ByteArrayId, Cluster<ClusterItem>> summary ) {
 			return (firstIteration) ? new SingleItemClusterListFactory(
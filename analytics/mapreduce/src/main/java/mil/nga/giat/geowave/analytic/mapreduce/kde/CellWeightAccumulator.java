@@ -0,0 +1,130 @@
+package mil.nga.giat.geowave.analytic.mapreduce.kde;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.Mapper.Context;
+
+/**
+ * This accumulates cell weights within a mapper so that each cell is written
+ * to the context once per flush rather than once for every feature that
+ * contributes to it. The weights are summed in an open-addressing table of
+ * primitive longs and doubles which grows until it would exceed the configured
+ * memory limit, after which it is flushed to the context whenever it fills up.
+ * The remaining weights must be flushed when the mapper is cleaned up.
+ */
+public class CellWeightAccumulator
+{
+	// a key, a weight and an occupied flag per slot
+	private static final int BYTES_PER_SLOT = 17;
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final double LOAD_FACTOR = 0.75;
+
+	private final Context context;
+	private final int maxCapacity;
+	private final LongWritable outputKey = new LongWritable();
+	private final DoubleWritable outputValue = new DoubleWritable();
+	private long[] cellIds;
+	private double[] weights;
+	private boolean[] occupied;
+	private int size;
+	private int threshold;
+
+	public CellWeightAccumulator(
+			final Context context,
+			final long maxMemoryBytes ) {
+		this.context = context;
+		int maxCapacity = 16;
+		while (((maxCapacity * 2L * BYTES_PER_SLOT) <= maxMemoryBytes) && (maxCapacity < (1 << 30))) {
+			maxCapacity *= 2;
+		}
+		this.maxCapacity = maxCapacity;
+		allocate(Math.min(
+				INITIAL_CAPACITY,
+				maxCapacity));
+	}
+
+	public void add(
+			final long cellId,
+			final double weight )
+			throws IOException,
+			InterruptedException {
+		final int mask = cellIds.length - 1;
+		int slot = hash(cellId) & mask;
+		while (occupied[slot]) {
+			if (cellIds[slot] == cellId) {
+				weights[slot] += weight;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		occupied[slot] = true;
+		cellIds[slot] = cellId;
+		weights[slot] = weight;
+		size++;
+		if (size >= threshold) {
+			if (cellIds.length < maxCapacity) {
+				grow();
+			}
+			else {
+				flush();
+			}
+		}
+	}
+
+	/**
+	 * Write the accumulated weight of every cell to the context and clear them
+	 */
+	public void flush()
+			throws IOException,
+			InterruptedException {
+		for (int i = 0; i < cellIds.length; i++) {
+			if (occupied[i]) {
+				outputKey.set(cellIds[i]);
+				outputValue.set(weights[i]);
+				context.write(
+						outputKey,
+						outputValue);
+				occupied[i] = false;
+			}
+		}
+		size = 0;
+	}
+
+	private void allocate(
+			final int capacity ) {
+		cellIds = new long[capacity];
+		weights = new double[capacity];
+		occupied = new boolean[capacity];
+		threshold = (int) (capacity * LOAD_FACTOR);
+	}
+
+	private void grow() {
+		final long[] oldCellIds = cellIds;
+		final double[] oldWeights = weights;
+		final boolean[] oldOccupied = occupied;
+		allocate(cellIds.length * 2);
+		final int mask = cellIds.length - 1;
+		for (int i = 0; i < oldCellIds.length; i++) {
+			if (oldOccupied[i]) {
+				int slot = hash(oldCellIds[i]) & mask;
+				while (occupied[slot]) {
+					slot = (slot + 1) & mask;
+				}
+				occupied[slot] = true;
+				cellIds[slot] = oldCellIds[i];
+				weights[slot] = oldWeights[i];
+			}
+		}
+	}
+
+	private static int hash(
+			final long cellId ) {
+		// cell IDs are sequential within a row so they are mixed to avoid
+		// clustering in the table
+		long h = cellId * 0x9e3779b97f4a7c15L;
+		h ^= h >>> 32;
+		return (int) h;
+	}
+}
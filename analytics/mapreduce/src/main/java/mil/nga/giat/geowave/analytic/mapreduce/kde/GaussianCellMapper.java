@@ -24,11 +24,23 @@ public class GaussianCellMapper extends
 {
 	private final static Logger LOGGER = Logger.getLogger(AccumuloDataStore.class);
 	protected static final String CQL_FILTER_KEY = "CQL_FILTER";
+	/**
+	 * The memory in bytes used to sum cell weights within each mapper before
+	 * they are written, or 0 to write every increment directly. The table
+	 * holding the weights is allocated from the mapper's heap, so this must be
+	 * well within the mapper's heap size (mapreduce.map.java.opts) alongside
+	 * the map output buffer (mapreduce.task.io.sort.mb). The sums written are
+	 * the same as the sums of the individual increments, apart from floating
+	 * point rounding.
+	 */
+	public static final String IN_MAPPER_COMBINING_MEMORY_KEY = "IN_MAPPER_COMBINING_MEMORY";
+	public static final long DEFAULT_IN_MAPPER_COMBINING_MEMORY = 0;
 	protected int minLevel;
 	protected int maxLevel;
 	protected int tileSize;
 	protected Filter filter;
 	protected Map<Integer, LevelStore> levelStoreMap;
+	protected CellWeightAccumulator accumulator;
 
 	@Override
 	protected void setup(
@@ -57,6 +69,14 @@ public class GaussianCellMapper extends
 						e);
 			}
 		}
+		final long inMapperCombiningMemory = context.getConfiguration().getLong(
+				IN_MAPPER_COMBINING_MEMORY_KEY,
+				DEFAULT_IN_MAPPER_COMBINING_MEMORY);
+		if (inMapperCombiningMemory > 0) {
+			accumulator = new CellWeightAccumulator(
+					context,
+					inMapperCombiningMemory);
+		}
 		levelStoreMap = new HashMap<Integer, LevelStore>();
 
 		for (int level = maxLevel; level >= minLevel; level--) {
@@ -89,7 +109,19 @@ public class GaussianCellMapper extends
 								context,
 								level,
 								minLevel,
-								maxLevel)));
+								maxLevel,
+								accumulator)));
+	}
+
+	@Override
+	protected void cleanup(
+			final Context context )
+			throws IOException,
+			InterruptedException {
+		if (accumulator != null) {
+			accumulator.flush();
+		}
+		super.cleanup(context);
 	}
 
 	@Override
@@ -14,16 +14,37 @@ public class MapContextCellCounter implements
 	private final long maxLevel;
 	private final long numLevels;
 	private final long level;
+	private final CellWeightAccumulator accumulator;
 
 	public MapContextCellCounter(
 			final Context context,
 			final long level,
 			final long minLevel,
 			final long maxLevel ) {
+		this(
+				context,
+				level,
+				minLevel,
+				maxLevel,
+				null);
+	}
+
+	/**
+	 * @param accumulator
+	 *            if non-null, increments are summed by the accumulator rather
+	 *            than written directly to the context
+	 */
+	public MapContextCellCounter(
+			final Context context,
+			final long level,
+			final long minLevel,
+			final long maxLevel,
+			final CellWeightAccumulator accumulator ) {
 		this.context = context;
 		this.level = level;
 		this.minLevel = minLevel;
 		this.maxLevel = maxLevel;
+		this.accumulator = accumulator;
 		numLevels = (maxLevel - minLevel) + 1;
 	}
 
@@ -33,11 +54,18 @@ public class MapContextCellCounter implements
 			final double weight ) {
 		if (weight > 0) {
 			try {
-				context.write(
-						new LongWritable(
-								getCellId(cellId)),
-						new DoubleWritable(
-								weight));
+				if (accumulator != null) {
+					accumulator.add(
+							getCellId(cellId),
+							weight);
+				}
+				else {
+					context.write(
+							new LongWritable(
+									getCellId(cellId)),
+							new DoubleWritable(
+									weight));
+				}
 			}
 			catch (IOException | InterruptedException e) {
 				e.printStackTrace();
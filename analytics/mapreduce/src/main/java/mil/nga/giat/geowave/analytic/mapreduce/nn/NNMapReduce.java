@@ -4,13 +4,16 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import mil.nga.giat.geowave.analytic.AdapterWithObjectWritable;
 import mil.nga.giat.geowave.analytic.ConfigurationWrapper;
+import mil.nga.giat.geowave.analytic.distance.CoordinateCircleDistanceFn;
 import mil.nga.giat.geowave.analytic.distance.DistanceFn;
+import mil.nga.giat.geowave.analytic.distance.FeatureCentroidDistanceFn;
 import mil.nga.giat.geowave.analytic.distance.FeatureGeometryDistanceFn;
 import mil.nga.giat.geowave.analytic.log.LoggingConfigurationWrapper;
 import mil.nga.giat.geowave.analytic.mapreduce.JobContextConfigurationWrapper;
@@ -39,6 +42,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.primitives.SignedBytes;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
 
 /**
  * Find the nearest neighbors to a each item.
@@ -49,7 +55,9 @@ import com.google.common.primitives.SignedBytes;
  * number of nearest neighbors inspected in a partition may exceed memory.
  * Selecting the appropriate partitioning is critical. It may be best to work
  * bottom up, partitioning at a finer grain and iterating through larger
- * partitions.
+ * partitions. Within a partition, items with geometries are indexed by a
+ * {@link NeighborGrid}, so that each item is only compared with the items that
+ * may be within the maximum distance of it.
  * 
  * The reducer has four extension points:
  * 
@@ -258,47 +266,45 @@ public class NNMapReduce
 
 			LOGGER.warn("Processing " + key.toString() + " with primary = " + primaries.size() + " and other = " + others.size());
 
+			// the primaries are numbered before the others, in the order that
+			// they are inspected
+			final List<Map.Entry<ByteArrayId, VALUEIN>> items = new ArrayList<Map.Entry<ByteArrayId, VALUEIN>>(
+					primaries.size() + others.size());
+			items.addAll(primaries.entrySet());
+			items.addAll(others.entrySet());
+			final NeighborGrid grid = createNeighborGrid(items);
+
 			final NeighborIndex<VALUEIN> index = new NeighborIndex<VALUEIN>(
 					this.createNeighborsListFactory(summary));
 
-			final Iterator<Map.Entry<ByteArrayId, VALUEIN>> primaryIt = primaries.entrySet().iterator();
-			while (primaryIt.hasNext()) {
-				final Map.Entry<ByteArrayId, VALUEIN> primary = primaryIt.next();
+			for (int p = 0; p < primaries.size(); p++) {
+				final Map.Entry<ByteArrayId, VALUEIN> primary = items.get(p);
 				final NeighborList<VALUEIN> primaryList = index.init(primary);
-				for (final Map.Entry<ByteArrayId, VALUEIN> anotherPrimary : primaries.entrySet()) {
-					if (anotherPrimary.getKey().equals(
-							primary.getKey())) {
+				// without a grid, every item is a candidate
+				final int[] candidates = (grid == null) ? null : grid.getCandidates(p);
+				final int candidateCount = (candidates == null) ? items.size() : candidates.length;
+				for (int c = 0; c < candidateCount; c++) {
+					final int i = (candidates == null) ? c : candidates[c];
+					// the primaries already processed have discovered their
+					// neighbors among the remaining primaries
+					if (i <= p) {
 						continue;
 					}
-					if (!primaryList.contains(anotherPrimary.getKey())) {
-						final DistanceProfile<?> distanceProfile = distanceProfileFn.computeProfile(
-								primary.getValue(),
-								anotherPrimary.getValue());
-						if (distanceProfile.getDistance() <= maxDistance) {
-							index.add(
-									distanceProfile,
-									primary,
-									anotherPrimary,
-									true);
-						}
-					}
-				}
-				context.progress();
-				for (final Map.Entry<ByteArrayId, VALUEIN> anOther : others.entrySet()) {
-					if (anOther.getKey().equals(
+					final Map.Entry<ByteArrayId, VALUEIN> neighbor = items.get(i);
+					if (neighbor.getKey().equals(
 							primary.getKey())) {
 						continue;
 					}
-					if (!primaryList.contains(anOther.getKey())) {
+					if (!primaryList.contains(neighbor.getKey())) {
 						final DistanceProfile<?> distanceProfile = distanceProfileFn.computeProfile(
 								primary.getValue(),
-								anOther.getValue());
+								neighbor.getValue());
 						if (distanceProfile.getDistance() <= maxDistance) {
 							index.add(
 									distanceProfile,
 									primary,
-									anOther,
-									false);
+									neighbor,
+									i < primaries.size());
 						}
 					}
 				}
@@ -316,7 +322,6 @@ public class NNMapReduce
 				// child classes may use there on collections to retain neighbor
 				// list, if needed.
 				index.empty(primary.getKey());
-				primaryIt.remove();
 			}
 
 			processSummary(
@@ -325,6 +330,77 @@ public class NNMapReduce
 					context);
 		}
 
+		/**
+		 * Index the items of a partition by their envelopes, so that each
+		 * primary is only compared with the items that may be within the
+		 * maximum distance of it.
+		 * 
+		 * @return the grid, or null if any item has no envelope or the search
+		 *         windows cannot be bounded, in which case each primary is
+		 *         compared with every item
+		 */
+		protected NeighborGrid createNeighborGrid(
+				final List<Map.Entry<ByteArrayId, VALUEIN>> items ) {
+			final Envelope[] envelopes = new Envelope[items.size()];
+			for (int i = 0; i < envelopes.length; i++) {
+				envelopes[i] = getEnvelope(items.get(
+						i).getValue());
+				if (envelopes[i] == null) {
+					return null;
+				}
+			}
+			return NeighborGrid.createOrthodromicGrid(
+					envelopes,
+					maxDistance);
+		}
+
+		/**
+		 * The envelope must contain every point from which the distance
+		 * function may measure the distance to another item, and the distance
+		 * must be the orthodromic distance in meters within EPSG:4326, as it is
+		 * for the default {@link FeatureGeometryDistanceFn}.
+		 * 
+		 * @return the envelope of the item in EPSG:4326, or null if the
+		 *         distance between items cannot be bounded by their envelopes
+		 */
+		protected Envelope getEnvelope(
+				final VALUEIN item ) {
+			if ((item instanceof SimpleFeature) && isOrthodromic(distanceFn)) {
+				final Geometry geometry = getGeometry((SimpleFeature) item);
+				return (geometry == null) ? null : geometry.getEnvelopeInternal();
+			}
+			return null;
+		}
+
+		/**
+		 * @return whether the distance function measures the orthodromic
+		 *         distance between points of the geometries of two features
+		 */
+		private static boolean isOrthodromic(
+				final DistanceFn<?> distanceFn ) {
+			DistanceFn<Coordinate> coordinateDistanceFn = null;
+			if (distanceFn instanceof FeatureGeometryDistanceFn) {
+				coordinateDistanceFn = ((FeatureGeometryDistanceFn) distanceFn).getCoordinateDistanceFunction();
+			}
+			else if (distanceFn instanceof FeatureCentroidDistanceFn) {
+				coordinateDistanceFn = ((FeatureCentroidDistanceFn) distanceFn).getCoordinateDistanceFunction();
+			}
+			return (coordinateDistanceFn != null) && (coordinateDistanceFn.getClass() == CoordinateCircleDistanceFn.class);
+		}
+
+		/**
+		 * @return the geometry measured by the feature distance functions
+		 */
+		private static Geometry getGeometry(
+				final SimpleFeature feature ) {
+			for (final Object attr : feature.getAttributes()) {
+				if (attr instanceof Geometry) {
+					return (Geometry) attr;
+				}
+			}
+			return (Geometry) feature.getDefaultGeometry();
+		}
+
 		public NeighborListFactory<VALUEIN> createNeighborsListFactory(
 				PARTITION_SUMMARY summary ) {
 			return new DefaultNeighborList.DefaultNeighborListFactory<VALUEIN>();
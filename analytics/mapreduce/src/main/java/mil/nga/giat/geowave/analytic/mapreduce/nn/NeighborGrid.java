@@ -0,0 +1,237 @@
+package mil.nga.giat.geowave.analytic.mapreduce.nn;
+
+import java.util.Arrays;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * A uniform grid over the envelopes of the items of a partition, used to find
+ * the candidate neighbors of an item without comparing it to every other item
+ * of the partition. The cells are at least as large as the search window, so
+ * the candidates of an item are found within the few cells that its window
+ * overlaps.
+ *
+ * The items are numbered by their position in the array of envelopes, and the
+ * candidates are returned in that order, so that neighbors are discovered in
+ * the same order as they would be by inspecting every item.
+ */
+public class NeighborGrid
+{
+	// the minimum length of a degree of latitude, at the equator
+	private static final double MIN_METERS_PER_DEGREE_LATITUDE = 110574;
+	// the semi-minor axis of WGS84, which understates the length of any
+	// great circle distance on the ellipsoid
+	private static final double MIN_EARTH_RADIUS_METERS = 6356752;
+	// allow for the difference between the ellipsoid and the sphere
+	private static final double WINDOW_MARGIN = 1.01;
+
+	private final Envelope[] envelopes;
+	private final double searchWidth;
+	private final double searchHeight;
+	private final double minX;
+	private final double minY;
+	private final double cellWidth;
+	private final double cellHeight;
+	private final int columns;
+	private final int rows;
+	// the items of cell c are from cellItems[cellOffsets[c]] up to
+	// cellItems[cellOffsets[c + 1]]
+	private final int[] cellOffsets;
+	private final int[] cellItems;
+	// the items already seen by the current search are marked with its number
+	private final int[] searchMarks;
+	private int searchNumber = 0;
+
+	/**
+	 * @param envelopes
+	 *            the envelope of each item
+	 * @param searchWidth
+	 *            the distance along the x axis from the envelope of an item
+	 *            within which its candidates are found
+	 * @param searchHeight
+	 *            the distance along the y axis from the envelope of an item
+	 *            within which its candidates are found
+	 */
+	public NeighborGrid(
+			final Envelope[] envelopes,
+			final double searchWidth,
+			final double searchHeight ) {
+		this.envelopes = envelopes;
+		this.searchWidth = searchWidth;
+		this.searchHeight = searchHeight;
+		final Envelope bounds = new Envelope();
+		for (final Envelope envelope : envelopes) {
+			bounds.expandToInclude(envelope);
+		}
+		minX = bounds.isNull() ? 0 : bounds.getMinX();
+		minY = bounds.isNull() ? 0 : bounds.getMinY();
+		// keep the number of cells no more than the number of items
+		final int maxCellsPerAxis = Math.max(
+				1,
+				(int) Math.sqrt(envelopes.length));
+		cellWidth = Math.max(
+				searchWidth,
+				bounds.getWidth() / maxCellsPerAxis);
+		cellHeight = Math.max(
+				searchHeight,
+				bounds.getHeight() / maxCellsPerAxis);
+		columns = cellCount(
+				bounds.getWidth(),
+				cellWidth,
+				maxCellsPerAxis);
+		rows = cellCount(
+				bounds.getHeight(),
+				cellHeight,
+				maxCellsPerAxis);
+
+		// count the items of each cell, then place them in item order
+		cellOffsets = new int[(columns * rows) + 1];
+		for (final Envelope envelope : envelopes) {
+			for (int row = row(envelope.getMinY()); row <= row(envelope.getMaxY()); row++) {
+				for (int column = column(envelope.getMinX()); column <= column(envelope.getMaxX()); column++) {
+					cellOffsets[(row * columns) + column + 1]++;
+				}
+			}
+		}
+		for (int c = 0; c < (columns * rows); c++) {
+			cellOffsets[c + 1] += cellOffsets[c];
+		}
+		cellItems = new int[cellOffsets[columns * rows]];
+		final int[] cellSizes = new int[columns * rows];
+		for (int i = 0; i < envelopes.length; i++) {
+			final Envelope envelope = envelopes[i];
+			for (int row = row(envelope.getMinY()); row <= row(envelope.getMaxY()); row++) {
+				for (int column = column(envelope.getMinX()); column <= column(envelope.getMaxX()); column++) {
+					final int cell = (row * columns) + column;
+					cellItems[cellOffsets[cell] + cellSizes[cell]++] = i;
+				}
+			}
+		}
+		searchMarks = new int[envelopes.length];
+	}
+
+	/**
+	 * Create a grid over envelopes in longitude and latitude, for items whose
+	 * neighbors are those within an orthodromic distance.
+	 *
+	 * @param envelopes
+	 *            the envelope of each item in EPSG:4326
+	 * @param maxDistance
+	 *            the maximum orthodromic distance in meters between an item
+	 *            and its neighbors
+	 * @return the grid, or null if the search windows would cross the date line
+	 *         or a pole, in which case every item must be inspected
+	 */
+	public static NeighborGrid createOrthodromicGrid(
+			final Envelope[] envelopes,
+			final double maxDistance ) {
+		final Envelope bounds = new Envelope();
+		for (final Envelope envelope : envelopes) {
+			bounds.expandToInclude(envelope);
+		}
+		if (bounds.isNull()) {
+			return null;
+		}
+		// the distance along a meridian is no more than the distance between
+		// two points
+		final double searchHeight = (WINDOW_MARGIN * maxDistance) / MIN_METERS_PER_DEGREE_LATITUDE;
+		// the difference in longitude for a given distance is greatest
+		// between two points at the latitude furthest from the equator
+		final double maxLatitude = Math.max(
+				Math.abs(bounds.getMinY()),
+				Math.abs(bounds.getMaxY()));
+		final double halfAngleSine = Math.sin((WINDOW_MARGIN * maxDistance) / (2 * MIN_EARTH_RADIUS_METERS)) / Math.cos(Math.toRadians(maxLatitude));
+		if ((halfAngleSine >= 1) || ((maxLatitude + searchHeight) >= 90)) {
+			return null;
+		}
+		final double searchWidth = Math.toDegrees(2 * Math.asin(halfAngleSine));
+		if (((bounds.getMinX() - searchWidth) < -180) || ((bounds.getMaxX() + searchWidth) > 180)) {
+			return null;
+		}
+		return new NeighborGrid(
+				envelopes,
+				searchWidth,
+				searchHeight);
+	}
+
+	/**
+	 * @param item
+	 *            the number of an item
+	 * @return the numbers of the items, in order and including the given item,
+	 *         whose envelopes are within the search window of the envelope of
+	 *         the given item
+	 */
+	public int[] getCandidates(
+			final int item ) {
+		final Envelope window = new Envelope(
+				envelopes[item]);
+		window.expandBy(
+				searchWidth,
+				searchHeight);
+		searchNumber++;
+		int[] candidates = new int[16];
+		int count = 0;
+		final int maxRow = row(window.getMaxY());
+		final int maxColumn = column(window.getMaxX());
+		for (int row = row(window.getMinY()); row <= maxRow; row++) {
+			for (int column = column(window.getMinX()); column <= maxColumn; column++) {
+				final int cell = (row * columns) + column;
+				for (int i = cellOffsets[cell]; i < cellOffsets[cell + 1]; i++) {
+					final int candidate = cellItems[i];
+					if ((searchMarks[candidate] != searchNumber) && window.intersects(envelopes[candidate])) {
+						searchMarks[candidate] = searchNumber;
+						if (count == candidates.length) {
+							candidates = Arrays.copyOf(
+									candidates,
+									count * 2);
+						}
+						candidates[count++] = candidate;
+					}
+				}
+			}
+		}
+		candidates = Arrays.copyOf(
+				candidates,
+				count);
+		Arrays.sort(candidates);
+		return candidates;
+	}
+
+	private int column(
+			final double x ) {
+		return clamp(
+				(int) Math.floor((x - minX) / cellWidth),
+				columns);
+	}
+
+	private int row(
+			final double y ) {
+		return clamp(
+				(int) Math.floor((y - minY) / cellHeight),
+				rows);
+	}
+
+	private static int clamp(
+			final int cell,
+			final int cells ) {
+		return Math.min(
+				Math.max(
+						cell,
+						0),
+				cells - 1);
+	}
+
+	private static int cellCount(
+			final double extent,
+			final double cellSize,
+			final int maxCells ) {
+		if (!(cellSize > 0)) {
+			return 1;
+		}
+		return (int) Math.max(
+				1,
+				Math.min(
+						maxCells,
+						Math.ceil(extent / cellSize)));
+	}
+}
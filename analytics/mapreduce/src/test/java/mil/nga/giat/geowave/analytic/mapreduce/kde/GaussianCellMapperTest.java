@@ -0,0 +1,127 @@
+package mil.nga.giat.geowave.analytic.mapreduce.kde;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.datastore.accumulo.mapreduce.input.GeoWaveInputKey;
+
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mrunit.mapreduce.MapDriver;
+import org.apache.hadoop.mrunit.types.Pair;
+import org.geotools.data.DataUtilities;
+import org.geotools.feature.SchemaException;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+public class GaussianCellMapperTest
+{
+	private static final double EPSILON = 1e-9;
+
+	@Test
+	public void testCombinedOutputEqualsUncombinedOutput()
+			throws IOException,
+			SchemaException {
+		final Map<Long, Double> uncombined = runMapper(0);
+		assertTrue(uncombined.size() > 0);
+
+		// a memory limit large enough to hold every cell
+		assertCellWeightsEqual(
+				uncombined,
+				runMapper(1024 * 1024));
+
+		// a memory limit small enough that the cells are flushed whenever
+		// the table fills up
+		assertCellWeightsEqual(
+				uncombined,
+				runMapper(1024));
+	}
+
+	@Test
+	public void testCombiningIsOffByDefault() {
+		assertEquals(
+				0,
+				GaussianCellMapper.DEFAULT_IN_MAPPER_COMBINING_MEMORY);
+	}
+
+	private static void assertCellWeightsEqual(
+			final Map<Long, Double> expected,
+			final Map<Long, Double> actual ) {
+		assertEquals(
+				expected.keySet(),
+				actual.keySet());
+		for (final Entry<Long, Double> cell : expected.entrySet()) {
+			assertEquals(
+					cell.getValue(),
+					actual.get(cell.getKey()),
+					EPSILON * Math.max(
+							1,
+							Math.abs(cell.getValue())));
+		}
+	}
+
+	/**
+	 * Map features that share cells at every level and sum the weights written
+	 * for each cell
+	 */
+	private static Map<Long, Double> runMapper(
+			final long inMapperCombiningMemory )
+			throws IOException,
+			SchemaException {
+		final MapDriver<GeoWaveInputKey, SimpleFeature, LongWritable, DoubleWritable> mapDriver = MapDriver.newMapDriver(new GaussianCellMapper());
+		mapDriver.getConfiguration().setInt(
+				KDEJobRunner.MIN_LEVEL_KEY,
+				2);
+		mapDriver.getConfiguration().setInt(
+				KDEJobRunner.MAX_LEVEL_KEY,
+				5);
+		mapDriver.getConfiguration().setLong(
+				GaussianCellMapper.IN_MAPPER_COMBINING_MEMORY_KEY,
+				inMapperCombiningMemory);
+
+		final SimpleFeatureType type = DataUtilities.createType(
+				"kde",
+				"geometry:Point:srid=4326");
+		final GeometryFactory factory = new GeometryFactory();
+		for (int i = 0; i < 20; i++) {
+			final SimpleFeatureBuilder builder = new SimpleFeatureBuilder(
+					type);
+			builder.set(
+					"geometry",
+					factory.createPoint(new Coordinate(
+							10 + ((i % 5) * 0.5),
+							20 + ((i / 5) * 0.5))));
+			final String id = Integer.toString(i);
+			mapDriver.withInput(
+					new GeoWaveInputKey(
+							new ByteArrayId(
+									"kde"),
+							new ByteArrayId(
+									id)),
+					builder.buildFeature(id));
+		}
+
+		final List<Pair<LongWritable, DoubleWritable>> results = mapDriver.run();
+		final Map<Long, Double> cellWeights = new HashMap<Long, Double>();
+		for (final Pair<LongWritable, DoubleWritable> result : results) {
+			final Long cellId = result.getFirst().get();
+			final Double weight = cellWeights.get(cellId);
+			cellWeights.put(
+					cellId,
+					(weight == null ? 0 : weight) + result.getSecond().get());
+		}
+		return cellWeights;
+	}
+}
@@ -0,0 +1,137 @@
+package mil.nga.giat.geowave.analytic.mapreduce.nn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import mil.nga.giat.geowave.analytic.distance.CoordinateCircleDistanceFn;
+
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+
+public class NeighborGridTest
+{
+	@Test
+	public void testCandidatesIncludeNeighbors() {
+		final CoordinateCircleDistanceFn distanceFn = new CoordinateCircleDistanceFn();
+		final Random random = new Random(
+				3256);
+		for (final double latitude : new double[] {
+			0,
+			45,
+			70
+		}) {
+			final double maxDistance = 5000;
+			final Envelope[] envelopes = new Envelope[500];
+			for (int i = 0; i < envelopes.length; i++) {
+				final double x = 10 + (random.nextDouble() * 0.5);
+				final double y = latitude + (random.nextDouble() * 0.5);
+				envelopes[i] = new Envelope(
+						x,
+						x,
+						y,
+						y);
+			}
+			final NeighborGrid grid = NeighborGrid.createOrthodromicGrid(
+					envelopes,
+					maxDistance);
+			int candidateCount = 0;
+			int neighborCount = 0;
+			for (int i = 0; i < envelopes.length; i++) {
+				final int[] candidates = grid.getCandidates(i);
+				final int[] sorted = candidates.clone();
+				Arrays.sort(sorted);
+				assertTrue(Arrays.equals(
+						sorted,
+						candidates));
+				candidateCount += candidates.length;
+				for (int j = 0; j < envelopes.length; j++) {
+					if (distanceFn.measure(
+							new Coordinate(
+									envelopes[i].getMinX(),
+									envelopes[i].getMinY()),
+							new Coordinate(
+									envelopes[j].getMinX(),
+									envelopes[j].getMinY())) <= maxDistance) {
+						neighborCount++;
+						assertTrue(Arrays.binarySearch(
+								candidates,
+								j) >= 0);
+					}
+				}
+			}
+			// the grid should spare most of the comparisons
+			assertTrue(candidateCount < ((envelopes.length * envelopes.length) / 4));
+			assertTrue(candidateCount >= neighborCount);
+		}
+	}
+
+	@Test
+	public void testGeometriesSpanningCells() {
+		final Envelope[] envelopes = new Envelope[] {
+			new Envelope(
+					0,
+					1,
+					0,
+					1),
+			new Envelope(
+					0.5,
+					0.5,
+					0.5,
+					0.5),
+			new Envelope(
+					1.5,
+					2,
+					0,
+					0.1),
+			new Envelope(
+					0.9,
+					0.9,
+					1.05,
+					1.05)
+		};
+		final NeighborGrid grid = new NeighborGrid(
+				envelopes,
+				0.1,
+				0.1);
+		assertTrue(Arrays.equals(
+				new int[] {
+					0,
+					1,
+					3
+				},
+				grid.getCandidates(0)));
+		assertTrue(Arrays.equals(
+				new int[] {
+					0,
+					1
+				},
+				grid.getCandidates(1)));
+		assertEquals(
+				1,
+				grid.getCandidates(2).length);
+	}
+
+	@Test
+	public void testDateLine() {
+		assertNull(NeighborGrid.createOrthodromicGrid(
+				new Envelope[] {
+					new Envelope(
+							179.99,
+							179.99,
+							0,
+							0),
+					new Envelope(
+							-179.99,
+							-179.99,
+							0,
+							0)
+				},
+				5000));
+	}
+}
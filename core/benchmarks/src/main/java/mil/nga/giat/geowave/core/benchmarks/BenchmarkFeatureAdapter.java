@@ -0,0 +1,239 @@
+package mil.nga.giat.geowave.core.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import mil.nga.giat.geowave.core.geotime.store.dimension.GeometryWrapper;
+import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.core.store.adapter.AbstractDataAdapter;
+import mil.nga.giat.geowave.core.store.adapter.NativeFieldHandler;
+import mil.nga.giat.geowave.core.store.adapter.NativeFieldHandler.RowBuilder;
+import mil.nga.giat.geowave.core.store.adapter.PersistentIndexFieldHandler;
+import mil.nga.giat.geowave.core.store.data.PersistentValue;
+import mil.nga.giat.geowave.core.store.data.field.FieldReader;
+import mil.nga.giat.geowave.core.store.data.field.FieldUtils;
+import mil.nga.giat.geowave.core.store.data.field.FieldWriter;
+import mil.nga.giat.geowave.core.store.index.CommonIndexValue;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * A minimal spatial data adapter with a geometry, an ID and two attributes,
+ * used to produce and decode synthetic rows without depending on GeoTools.
+ */
+public class BenchmarkFeatureAdapter extends
+		AbstractDataAdapter<BenchmarkFeatureAdapter.BenchmarkFeature>
+{
+	private static final ByteArrayId ADAPTER_ID = new ByteArrayId(
+			"benchmark");
+	private static final ByteArrayId GEOM = new ByteArrayId(
+			"geom");
+	private static final ByteArrayId ID = new ByteArrayId(
+			"id");
+	private static final ByteArrayId NAME = new ByteArrayId(
+			"name");
+	private static final ByteArrayId VALUE = new ByteArrayId(
+			"value");
+
+	private static final PersistentIndexFieldHandler<BenchmarkFeature, ? extends CommonIndexValue, Object> GEOM_FIELD_HANDLER = new PersistentIndexFieldHandler<BenchmarkFeature, CommonIndexValue, Object>() {
+
+		@Override
+		public ByteArrayId[] getNativeFieldIds() {
+			return new ByteArrayId[] {
+				GEOM
+			};
+		}
+
+		@Override
+		public CommonIndexValue toIndexValue(
+				final BenchmarkFeature row ) {
+			return new GeometryWrapper(
+					row.geometry,
+					new byte[0]);
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public PersistentValue<Object>[] toNativeValues(
+				final CommonIndexValue indexValue ) {
+			return new PersistentValue[] {
+				new PersistentValue<Object>(
+						GEOM,
+						((GeometryWrapper) indexValue).getGeometry())
+			};
+		}
+
+		@Override
+		public byte[] toBinary() {
+			return new byte[0];
+		}
+
+		@Override
+		public void fromBinary(
+				final byte[] bytes ) {}
+	};
+
+	private static final List<PersistentIndexFieldHandler<BenchmarkFeature, ? extends CommonIndexValue, Object>> COMMON_FIELD_HANDLER_LIST = new ArrayList<PersistentIndexFieldHandler<BenchmarkFeature, ? extends CommonIndexValue, Object>>();
+	private static final List<NativeFieldHandler<BenchmarkFeature, Object>> NATIVE_FIELD_HANDLER_LIST = new ArrayList<NativeFieldHandler<BenchmarkFeature, Object>>();
+	static {
+		COMMON_FIELD_HANDLER_LIST.add(GEOM_FIELD_HANDLER);
+		NATIVE_FIELD_HANDLER_LIST.add(new NativeFieldHandler<BenchmarkFeature, Object>() {
+			@Override
+			public ByteArrayId getFieldId() {
+				return ID;
+			}
+
+			@Override
+			public Object getFieldValue(
+					final BenchmarkFeature row ) {
+				return row.id;
+			}
+		});
+		NATIVE_FIELD_HANDLER_LIST.add(new NativeFieldHandler<BenchmarkFeature, Object>() {
+			@Override
+			public ByteArrayId getFieldId() {
+				return NAME;
+			}
+
+			@Override
+			public Object getFieldValue(
+					final BenchmarkFeature row ) {
+				return row.name;
+			}
+		});
+		NATIVE_FIELD_HANDLER_LIST.add(new NativeFieldHandler<BenchmarkFeature, Object>() {
+			@Override
+			public ByteArrayId getFieldId() {
+				return VALUE;
+			}
+
+			@Override
+			public Object getFieldValue(
+					final BenchmarkFeature row ) {
+				return row.value;
+			}
+		});
+	}
+
+	public BenchmarkFeatureAdapter() {
+		super(
+				COMMON_FIELD_HANDLER_LIST,
+				NATIVE_FIELD_HANDLER_LIST);
+	}
+
+	@Override
+	public ByteArrayId getAdapterId() {
+		return ADAPTER_ID;
+	}
+
+	@Override
+	public boolean isSupported(
+			final BenchmarkFeature entry ) {
+		return true;
+	}
+
+	@Override
+	public ByteArrayId getDataId(
+			final BenchmarkFeature entry ) {
+		return new ByteArrayId(
+				entry.id);
+	}
+
+	@SuppressWarnings({
+		"unchecked",
+		"rawtypes"
+	})
+	@Override
+	public FieldReader getReader(
+			final ByteArrayId fieldId ) {
+		if (fieldId.equals(GEOM)) {
+			return FieldUtils.getDefaultReaderForClass(Geometry.class);
+		}
+		else if (fieldId.equals(VALUE)) {
+			return FieldUtils.getDefaultReaderForClass(Double.class);
+		}
+		else if (fieldId.equals(ID) || fieldId.equals(NAME)) {
+			return FieldUtils.getDefaultReaderForClass(String.class);
+		}
+		return null;
+	}
+
+	@SuppressWarnings({
+		"unchecked",
+		"rawtypes"
+	})
+	@Override
+	public FieldWriter getWriter(
+			final ByteArrayId fieldId ) {
+		if (fieldId.equals(GEOM)) {
+			return FieldUtils.getDefaultWriterForClass(Geometry.class);
+		}
+		else if (fieldId.equals(VALUE)) {
+			return FieldUtils.getDefaultWriterForClass(Double.class);
+		}
+		else if (fieldId.equals(ID) || fieldId.equals(NAME)) {
+			return FieldUtils.getDefaultWriterForClass(String.class);
+		}
+		return null;
+	}
+
+	@Override
+	protected RowBuilder<BenchmarkFeature, Object> newBuilder() {
+		return new RowBuilder<BenchmarkFeature, Object>() {
+			private Geometry geometry;
+			private String id;
+			private String name;
+			private Double value;
+
+			@Override
+			public void setField(
+					final PersistentValue<Object> fieldValue ) {
+				if (fieldValue.getId().equals(
+						GEOM)) {
+					geometry = (Geometry) fieldValue.getValue();
+				}
+				else if (fieldValue.getId().equals(
+						ID)) {
+					id = (String) fieldValue.getValue();
+				}
+				else if (fieldValue.getId().equals(
+						NAME)) {
+					name = (String) fieldValue.getValue();
+				}
+				else if (fieldValue.getId().equals(
+						VALUE)) {
+					value = (Double) fieldValue.getValue();
+				}
+			}
+
+			@Override
+			public BenchmarkFeature buildRow(
+					final ByteArrayId dataId ) {
+				return new BenchmarkFeature(
+						geometry,
+						id,
+						name,
+						value);
+			}
+		};
+	}
+
+	public static class BenchmarkFeature
+	{
+		private final Geometry geometry;
+		private final String id;
+		private final String name;
+		private final Double value;
+
+		public BenchmarkFeature(
+				final Geometry geometry,
+				final String id,
+				final String name,
+				final Double value ) {
+			this.geometry = geometry;
+			this.id = id;
+			this.name = name;
+			this.value = value;
+		}
+	}
+}
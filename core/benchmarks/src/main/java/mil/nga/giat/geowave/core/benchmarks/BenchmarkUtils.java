@@ -0,0 +1,64 @@
+package mil.nga.giat.geowave.core.benchmarks;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Shared synthetic data for the benchmarks. All data is generated from a fixed
+ * seed so that runs are comparable across commits.
+ */
+public class BenchmarkUtils
+{
+	public static final long SEED = 8675309L;
+	// a power of two so that the cursor can wrap with a mask
+	public static final int SAMPLE_SIZE = 1024;
+	// 2015-01-01T00:00:00Z
+	public static final long START_TIME_MILLIS = 1420070400000L;
+	public static final long ONE_YEAR_MILLIS = 365L * 24L * 60L * 60L * 1000L;
+
+	/**
+	 * @return longitude/latitude pairs distributed uniformly over the globe
+	 */
+	public static double[][] randomPoints(
+			final Random random,
+			final int count ) {
+		final double[][] points = new double[count][];
+		for (int i = 0; i < count; i++) {
+			points[i] = new double[] {
+				(random.nextDouble() * 360) - 180,
+				(random.nextDouble() * 180) - 90
+			};
+		}
+		return points;
+	}
+
+	/**
+	 * @return times in milliseconds distributed uniformly over one year
+	 */
+	public static long[] randomTimes(
+			final Random random,
+			final int count ) {
+		final long[] times = new long[count];
+		for (int i = 0; i < count; i++) {
+			times[i] = START_TIME_MILLIS + (long) (random.nextDouble() * ONE_YEAR_MILLIS);
+		}
+		return times;
+	}
+
+	/**
+	 * Per-thread position within the sample data so that threads do not contend
+	 * on a shared counter
+	 */
+	@State(Scope.Thread)
+	public static class Cursor
+	{
+		private int position = 0;
+
+		public int next() {
+			position = (position + 1) & (SAMPLE_SIZE - 1);
+			return position;
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package mil.nga.giat.geowave.core.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.core.index.ByteArrayRange;
+import mil.nga.giat.geowave.core.index.CompoundIndexStrategy;
+import mil.nga.giat.geowave.core.index.dimension.BasicDimensionDefinition;
+import mil.nga.giat.geowave.core.index.dimension.NumericDimensionDefinition;
+import mil.nga.giat.geowave.core.index.sfc.SFCFactory.SFCType;
+import mil.nga.giat.geowave.core.index.sfc.data.BasicNumericDataset;
+import mil.nga.giat.geowave.core.index.sfc.data.MultiDimensionalNumericData;
+import mil.nga.giat.geowave.core.index.sfc.data.NumericData;
+import mil.nga.giat.geowave.core.index.sfc.data.NumericRange;
+import mil.nga.giat.geowave.core.index.sfc.data.NumericValue;
+import mil.nga.giat.geowave.core.index.sfc.tiered.TieredSFCIndexFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures a compound index strategy made of a one dimensional strategy and a
+ * spatial strategy, which includes the cost of composing and decomposing the
+ * IDs of the sub-strategies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CompoundIndexStrategyBenchmark
+{
+	private CompoundIndexStrategy compoundIndexStrategy;
+	private MultiDimensionalNumericData[] pointData;
+	private ByteArrayId[] insertionIds;
+	private MultiDimensionalNumericData query;
+
+	@Setup
+	public void setup() {
+		compoundIndexStrategy = new CompoundIndexStrategy(
+				TieredSFCIndexFactory.createSingleTierStrategy(
+						new NumericDimensionDefinition[] {
+							new BasicDimensionDefinition(
+									0,
+									1000)
+						},
+						new int[] {
+							16
+						},
+						SFCType.HILBERT),
+				TieredSFCIndexFactory.createSingleTierStrategy(
+						new NumericDimensionDefinition[] {
+							new BasicDimensionDefinition(
+									-180,
+									180),
+							new BasicDimensionDefinition(
+									-90,
+									90)
+						},
+						new int[] {
+							16,
+							16
+						},
+						SFCType.HILBERT));
+		final Random random = new Random(
+				BenchmarkUtils.SEED);
+		final double[][] points = BenchmarkUtils.randomPoints(
+				random,
+				BenchmarkUtils.SAMPLE_SIZE);
+		pointData = new MultiDimensionalNumericData[points.length];
+		insertionIds = new ByteArrayId[points.length];
+		for (int i = 0; i < points.length; i++) {
+			pointData[i] = new BasicNumericDataset(
+					new NumericData[] {
+						new NumericValue(
+								random.nextDouble() * 1000),
+						new NumericValue(
+								points[i][0]),
+						new NumericValue(
+								points[i][1])
+					});
+			insertionIds[i] = compoundIndexStrategy.getInsertionIds(
+					pointData[i]).get(
+					0);
+		}
+		query = new BasicNumericDataset(
+				new NumericData[] {
+					new NumericRange(
+							2,
+							4),
+					new NumericRange(
+							50.0,
+							50.025),
+					new NumericRange(
+							-20.5,
+							-20.455)
+				});
+	}
+
+	@Benchmark
+	public List<ByteArrayId> getInsertionIds(
+			final BenchmarkUtils.Cursor cursor ) {
+		return compoundIndexStrategy.getInsertionIds(pointData[cursor.next()]);
+	}
+
+	@Benchmark
+	public List<ByteArrayRange> getQueryRanges() {
+		return compoundIndexStrategy.getQueryRanges(query);
+	}
+
+	@Benchmark
+	public MultiDimensionalNumericData getRangeForId(
+			final BenchmarkUtils.Cursor cursor ) {
+		return compoundIndexStrategy.getRangeForId(insertionIds[cursor.next()]);
+	}
+}
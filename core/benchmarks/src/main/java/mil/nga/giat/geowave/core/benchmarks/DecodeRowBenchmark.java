@@ -0,0 +1,104 @@
+package mil.nga.giat.geowave.core.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import mil.nga.giat.geowave.core.geotime.IndexType;
+import mil.nga.giat.geowave.core.store.data.visibility.UnconstrainedVisibilityHandler;
+import mil.nga.giat.geowave.core.store.data.visibility.UniformVisibilityWriter;
+import mil.nga.giat.geowave.core.store.index.Index;
+import mil.nga.giat.geowave.datastore.accumulo.util.AccumuloUtils;
+
+import org.apache.accumulo.core.data.ColumnUpdate;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.user.WholeRowIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * Measures decoding of whole rows into native entries, which is done for every
+ * result of every query. The rows are synthetic keys and values encoded the
+ * same way that the whole row iterator returns them from a scan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DecodeRowBenchmark
+{
+	private BenchmarkFeatureAdapter adapter;
+	private Index index;
+	private Key[] keys;
+	private Value[] values;
+
+	@Setup
+	public void setup()
+			throws IOException {
+		adapter = new BenchmarkFeatureAdapter();
+		index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+		final GeometryFactory factory = new GeometryFactory();
+		final Random random = new Random(
+				BenchmarkUtils.SEED);
+		final double[][] points = BenchmarkUtils.randomPoints(
+				random,
+				BenchmarkUtils.SAMPLE_SIZE);
+		keys = new Key[points.length];
+		values = new Value[points.length];
+		for (int i = 0; i < points.length; i++) {
+			final List<Mutation> mutations = AccumuloUtils.entryToMutations(
+					adapter,
+					index,
+					new BenchmarkFeatureAdapter.BenchmarkFeature(
+							factory.createPoint(new Coordinate(
+									points[i][0],
+									points[i][1])),
+							"feature_" + i,
+							"name_" + random.nextInt(1000),
+							random.nextDouble()),
+					new UniformVisibilityWriter<BenchmarkFeatureAdapter.BenchmarkFeature>(
+							new UnconstrainedVisibilityHandler<BenchmarkFeatureAdapter.BenchmarkFeature, Object>()));
+			// a point has a single row, encode it the way the whole row
+			// iterator would
+			final Mutation mutation = mutations.get(0);
+			final List<Key> rowKeys = new ArrayList<Key>();
+			final List<Value> rowValues = new ArrayList<Value>();
+			for (final ColumnUpdate update : mutation.getUpdates()) {
+				rowKeys.add(new Key(
+						mutation.getRow(),
+						update.getColumnFamily(),
+						update.getColumnQualifier(),
+						update.getColumnVisibility(),
+						update.getTimestamp()));
+				rowValues.add(new Value(
+						update.getValue()));
+			}
+			keys[i] = rowKeys.get(0);
+			values[i] = WholeRowIterator.encodeRow(
+					rowKeys,
+					rowValues);
+		}
+	}
+
+	@Benchmark
+	public Object decodeRow(
+			final BenchmarkUtils.Cursor cursor ) {
+		final int i = cursor.next();
+		return AccumuloUtils.decodeRow(
+				keys[i],
+				values[i],
+				adapter,
+				index);
+	}
+}
@@ -0,0 +1,121 @@
+package mil.nga.giat.geowave.core.benchmarks;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import mil.nga.giat.geowave.core.store.data.field.FieldReader;
+import mil.nga.giat.geowave.core.store.data.field.FieldUtils;
+import mil.nga.giat.geowave.core.store.data.field.FieldWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * Measures the default field readers and writers registered through the field
+ * serialization provider SPI, for the field types most commonly stored per
+ * entry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FieldSerializationBenchmark
+{
+	@Param({
+		"STRING",
+		"DOUBLE",
+		"LONG",
+		"DATE",
+		"DOUBLE_ARRAY",
+		"POINT",
+		"POLYGON"
+	})
+	public String fieldType;
+
+	private FieldWriter<?, Object> writer;
+	private FieldReader<Object> reader;
+	private Object value;
+	private byte[] binary;
+
+	@SuppressWarnings("unchecked")
+	@Setup
+	public void setup() {
+		final GeometryFactory factory = new GeometryFactory();
+		final Class<?> fieldClass;
+		switch (fieldType) {
+			case "STRING":
+				fieldClass = String.class;
+				value = "benchmark_entry_0123456789";
+				break;
+			case "DOUBLE":
+				fieldClass = Double.class;
+				value = 1234.5678;
+				break;
+			case "LONG":
+				fieldClass = Long.class;
+				value = BenchmarkUtils.START_TIME_MILLIS;
+				break;
+			case "DATE":
+				fieldClass = Date.class;
+				value = new Date(
+						BenchmarkUtils.START_TIME_MILLIS);
+				break;
+			case "DOUBLE_ARRAY":
+				fieldClass = double[].class;
+				value = new double[] {
+					1,
+					2,
+					3,
+					4,
+					5,
+					6,
+					7,
+					8
+				};
+				break;
+			case "POINT":
+				fieldClass = Geometry.class;
+				value = factory.createPoint(new Coordinate(
+						-77.0365,
+						38.8977));
+				break;
+			default:
+				fieldClass = Geometry.class;
+				// a closed ring of 64 vertices
+				final Coordinate[] coordinates = new Coordinate[65];
+				for (int i = 0; i < 64; i++) {
+					final double angle = (2 * Math.PI * i) / 64;
+					coordinates[i] = new Coordinate(
+							-77.0365 + (0.01 * Math.cos(angle)),
+							38.8977 + (0.01 * Math.sin(angle)));
+				}
+				coordinates[64] = coordinates[0];
+				value = factory.createPolygon(
+						factory.createLinearRing(coordinates),
+						null);
+				break;
+		}
+		writer = (FieldWriter<?, Object>) FieldUtils.getDefaultWriterForClass(fieldClass);
+		reader = (FieldReader<Object>) FieldUtils.getDefaultReaderForClass(fieldClass);
+		binary = writer.writeField(value);
+	}
+
+	@Benchmark
+	public byte[] writeField() {
+		return writer.writeField(value);
+	}
+
+	@Benchmark
+	public Object readField() {
+		return reader.readField(binary);
+	}
+}
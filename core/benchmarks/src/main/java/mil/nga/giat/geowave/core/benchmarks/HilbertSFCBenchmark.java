@@ -0,0 +1,98 @@
+package mil.nga.giat.geowave.core.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import mil.nga.giat.geowave.core.geotime.index.dimension.LatitudeDefinition;
+import mil.nga.giat.geowave.core.geotime.index.dimension.LongitudeDefinition;
+import mil.nga.giat.geowave.core.index.sfc.RangeDecomposition;
+import mil.nga.giat.geowave.core.index.sfc.SFCDimensionDefinition;
+import mil.nga.giat.geowave.core.index.sfc.SFCFactory;
+import mil.nga.giat.geowave.core.index.sfc.SFCFactory.SFCType;
+import mil.nga.giat.geowave.core.index.sfc.SpaceFillingCurve;
+import mil.nga.giat.geowave.core.index.sfc.data.BasicNumericDataset;
+import mil.nga.giat.geowave.core.index.sfc.data.MultiDimensionalNumericData;
+import mil.nga.giat.geowave.core.index.sfc.data.NumericData;
+import mil.nga.giat.geowave.core.index.sfc.data.NumericRange;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the throughput of encoding points to Hilbert SFC IDs, decoding IDs
+ * back to ranges, and decomposing a query into SFC ranges. The curve is shared
+ * by all benchmark threads, so running with increasing thread counts (-t) shows
+ * how well these operations scale with cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class HilbertSFCBenchmark
+{
+	@Param({
+		"31",
+		"48"
+	})
+	public int bitsPerDimension;
+
+	private SpaceFillingCurve hilbertSFC;
+	private double[][] points;
+	private byte[][] ids;
+	private MultiDimensionalNumericData query;
+
+	@Setup
+	public void setup() {
+		hilbertSFC = SFCFactory.createSpaceFillingCurve(
+				new SFCDimensionDefinition[] {
+					new SFCDimensionDefinition(
+							new LongitudeDefinition(),
+							bitsPerDimension),
+					new SFCDimensionDefinition(
+							new LatitudeDefinition(),
+							bitsPerDimension)
+				},
+				SFCType.HILBERT);
+		points = BenchmarkUtils.randomPoints(
+				new Random(
+						BenchmarkUtils.SEED),
+				BenchmarkUtils.SAMPLE_SIZE);
+		ids = new byte[points.length][];
+		for (int i = 0; i < points.length; i++) {
+			ids[i] = hilbertSFC.getId(points[i]);
+		}
+		query = new BasicNumericDataset(
+				new NumericData[] {
+					new NumericRange(
+							10,
+							11),
+					new NumericRange(
+							25,
+							26)
+				});
+	}
+
+	@Benchmark
+	public byte[] getId(
+			final BenchmarkUtils.Cursor cursor ) {
+		return hilbertSFC.getId(points[cursor.next()]);
+	}
+
+	@Benchmark
+	public MultiDimensionalNumericData getRanges(
+			final BenchmarkUtils.Cursor cursor ) {
+		return hilbertSFC.getRanges(ids[cursor.next()]);
+	}
+
+	@Benchmark
+	public RangeDecomposition decomposeQuery() {
+		return hilbertSFC.decomposeQuery(
+				query,
+				100);
+	}
+}
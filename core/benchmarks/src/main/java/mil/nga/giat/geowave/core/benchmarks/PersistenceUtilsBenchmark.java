@@ -0,0 +1,64 @@
+package mil.nga.giat.geowave.core.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import mil.nga.giat.geowave.core.geotime.IndexType;
+import mil.nga.giat.geowave.core.geotime.index.dimension.LongitudeDefinition;
+import mil.nga.giat.geowave.core.index.Persistable;
+import mil.nga.giat.geowave.core.index.PersistenceUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the generic persistable serialization that is used for indices,
+ * adapters, statistics and filters, ranging from a single dimension definition
+ * to a full spatial-temporal index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PersistenceUtilsBenchmark
+{
+	@Param({
+		"DIMENSION_DEFINITION",
+		"SPATIAL_INDEX_STRATEGY",
+		"SPATIAL_TEMPORAL_INDEX"
+	})
+	public String persistableType;
+
+	private Persistable persistable;
+	private byte[] binary;
+
+	@Setup
+	public void setup() {
+		if ("SPATIAL_TEMPORAL_INDEX".equals(persistableType)) {
+			persistable = IndexType.SPATIAL_TEMPORAL_VECTOR.createDefaultIndex();
+		}
+		else if ("SPATIAL_INDEX_STRATEGY".equals(persistableType)) {
+			persistable = IndexType.SPATIAL_VECTOR.createDefaultIndexStrategy();
+		}
+		else {
+			persistable = new LongitudeDefinition();
+		}
+		binary = PersistenceUtils.toBinary(persistable);
+	}
+
+	@Benchmark
+	public byte[] toBinary() {
+		return PersistenceUtils.toBinary(persistable);
+	}
+
+	@Benchmark
+	public Persistable fromBinary() {
+		return PersistenceUtils.fromBinary(
+				binary,
+				Persistable.class);
+	}
+}
@@ -0,0 +1,207 @@
+package mil.nga.giat.geowave.core.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import mil.nga.giat.geowave.core.geotime.IndexType;
+import mil.nga.giat.geowave.core.geotime.store.dimension.GeometryWrapper;
+import mil.nga.giat.geowave.core.geotime.store.dimension.Time;
+import mil.nga.giat.geowave.core.geotime.store.dimension.TimeField;
+import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.core.index.StringUtils;
+import mil.nga.giat.geowave.core.index.sfc.data.BasicNumericDataset;
+import mil.nga.giat.geowave.core.index.sfc.data.BinnedNumericDataset;
+import mil.nga.giat.geowave.core.index.sfc.data.MultiDimensionalNumericData;
+import mil.nga.giat.geowave.core.index.sfc.data.NumericData;
+import mil.nga.giat.geowave.core.index.sfc.data.NumericRange;
+import mil.nga.giat.geowave.core.store.data.IndexedPersistenceEncoding;
+import mil.nga.giat.geowave.core.store.data.PersistentDataset;
+import mil.nga.giat.geowave.core.store.data.PersistentValue;
+import mil.nga.giat.geowave.core.store.dimension.DimensionField;
+import mil.nga.giat.geowave.core.store.filter.BasicQueryFilter;
+import mil.nga.giat.geowave.core.store.index.CommonIndexValue;
+import mil.nga.giat.geowave.core.store.index.Index;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * Measures the fine-grained filtering of rows by the constraints of a query,
+ * which is done for every scanned row within the tablet servers. The compiled
+ * constraints of the basic query filter are compared against a binned
+ * constraint lookup by hash map, as the filter previously performed it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class QueryFilterBenchmark
+{
+	@Param({
+		"SPATIAL_VECTOR",
+		"SPATIAL_TEMPORAL_VECTOR"
+	})
+	public IndexType indexType;
+
+	private BasicQueryFilter filter;
+	private MapLookupQueryFilter mapLookupFilter;
+	private IndexedPersistenceEncoding[] encodings;
+
+	@Setup
+	public void setup() {
+		final Index index = indexType.createDefaultIndex();
+		final DimensionField<? extends CommonIndexValue>[] dimensions = index.getIndexModel().getDimensions();
+		// a quarter of the globe over three years, so that the temporal
+		// constraints span several yearly bins
+		final NumericData[] constraintsPerDimension = new NumericData[dimensions.length];
+		ByteArrayId geometryFieldId = null;
+		ByteArrayId timeFieldId = null;
+		for (int d = 0; d < dimensions.length; d++) {
+			if (dimensions[d] instanceof TimeField) {
+				timeFieldId = dimensions[d].getFieldId();
+				constraintsPerDimension[d] = new NumericRange(
+						BenchmarkUtils.START_TIME_MILLIS - BenchmarkUtils.ONE_YEAR_MILLIS,
+						BenchmarkUtils.START_TIME_MILLIS + (2 * BenchmarkUtils.ONE_YEAR_MILLIS));
+			}
+			else {
+				geometryFieldId = dimensions[d].getFieldId();
+				final double extent = dimensions[d].getRange() / 4;
+				constraintsPerDimension[d] = new NumericRange(
+						-extent,
+						extent);
+			}
+		}
+		final MultiDimensionalNumericData constraints = new BasicNumericDataset(
+				constraintsPerDimension);
+		filter = new BasicQueryFilter(
+				constraints,
+				dimensions);
+		mapLookupFilter = new MapLookupQueryFilter(
+				constraints,
+				dimensions);
+
+		final GeometryFactory factory = new GeometryFactory();
+		final Random random = new Random(
+				BenchmarkUtils.SEED);
+		final double[][] points = BenchmarkUtils.randomPoints(
+				random,
+				BenchmarkUtils.SAMPLE_SIZE);
+		final long[] times = BenchmarkUtils.randomTimes(
+				random,
+				BenchmarkUtils.SAMPLE_SIZE);
+		encodings = new IndexedPersistenceEncoding[points.length];
+		for (int i = 0; i < points.length; i++) {
+			final PersistentDataset<CommonIndexValue> commonData = new PersistentDataset<CommonIndexValue>();
+			commonData.addValue(new PersistentValue<CommonIndexValue>(
+					geometryFieldId,
+					new GeometryWrapper(
+							factory.createPoint(new Coordinate(
+									points[i][0],
+									points[i][1])))));
+			if (timeFieldId != null) {
+				commonData.addValue(new PersistentValue<CommonIndexValue>(
+						timeFieldId,
+						new Time.Timestamp(
+								times[i],
+								new byte[0])));
+			}
+			encodings[i] = new IndexedPersistenceEncoding(
+					new ByteArrayId(
+							StringUtils.stringToBinary("adapter")),
+					new ByteArrayId(
+							StringUtils.stringToBinary("data" + i)),
+					index.getId(),
+					0,
+					commonData);
+		}
+	}
+
+	@Benchmark
+	public boolean accept(
+			final BenchmarkUtils.Cursor cursor ) {
+		return filter.accept(encodings[cursor.next()]);
+	}
+
+	@Benchmark
+	public boolean acceptWithMapLookup(
+			final BenchmarkUtils.Cursor cursor ) {
+		return mapLookupFilter.accept(encodings[cursor.next()]);
+	}
+
+	/**
+	 * The baseline, which applies the bins to every row and looks up the
+	 * constraints of each bin by a new bin ID key
+	 */
+	private static class MapLookupQueryFilter
+	{
+		private final Map<ByteArrayId, List<MultiDimensionalNumericData>> binnedConstraints = new HashMap<ByteArrayId, List<MultiDimensionalNumericData>>();
+		private final DimensionField<?>[] dimensionFields;
+
+		private MapLookupQueryFilter(
+				final MultiDimensionalNumericData constraints,
+				final DimensionField<?>[] dimensionFields ) {
+			this.dimensionFields = dimensionFields;
+			for (final BinnedNumericDataset q : BinnedNumericDataset.applyBins(
+					constraints,
+					dimensionFields)) {
+				final ByteArrayId binId = new ByteArrayId(
+						q.getBinId());
+				List<MultiDimensionalNumericData> ranges = binnedConstraints.get(binId);
+				if (ranges == null) {
+					ranges = new ArrayList<MultiDimensionalNumericData>();
+					binnedConstraints.put(
+							binId,
+							ranges);
+				}
+				ranges.add(q);
+			}
+		}
+
+		private boolean accept(
+				final IndexedPersistenceEncoding persistenceEncoding ) {
+			final BinnedNumericDataset[] dataRanges = BinnedNumericDataset.applyBins(
+					persistenceEncoding.getNumericData(dimensionFields),
+					dimensionFields);
+			for (final BinnedNumericDataset dataRange : dataRanges) {
+				final List<MultiDimensionalNumericData> queries = binnedConstraints.get(new ByteArrayId(
+						dataRange.getBinId()));
+				if (queries != null) {
+					for (final MultiDimensionalNumericData query : queries) {
+						if (overlaps(
+								query,
+								dataRange)) {
+							return true;
+						}
+					}
+				}
+			}
+			return false;
+		}
+
+		private boolean overlaps(
+				final MultiDimensionalNumericData queryRange,
+				final MultiDimensionalNumericData dataRange ) {
+			final NumericData[] queryRangePerDimension = queryRange.getDataPerDimension();
+			final double[] minPerDimension = dataRange.getMinValuesPerDimension();
+			final double[] maxPerDimension = dataRange.getMaxValuesPerDimension();
+			for (int d = 0; d < dimensionFields.length; d++) {
+				if ((maxPerDimension[d] < queryRangePerDimension[d].getMin()) || (minPerDimension[d] > queryRangePerDimension[d].getMax())) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package mil.nga.giat.geowave.core.benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import mil.nga.giat.geowave.core.geotime.index.dimension.TemporalBinningStrategy;
+import mil.nga.giat.geowave.core.geotime.index.dimension.TemporalBinningStrategy.Unit;
+import mil.nga.giat.geowave.core.index.dimension.bin.BinRange;
+import mil.nga.giat.geowave.core.index.dimension.bin.BinValue;
+import mil.nga.giat.geowave.core.index.sfc.data.NumericData;
+import mil.nga.giat.geowave.core.index.sfc.data.NumericRange;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures binning of individual times and of time ranges that span several
+ * bins for each temporal unit. Times are binned both in random order and in
+ * ascending order, as they typically are during ingest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TemporalBinningStrategyBenchmark
+{
+	@Param({
+		"DAY",
+		"MONTH",
+		"YEAR"
+	})
+	public Unit unit;
+
+	private TemporalBinningStrategy binningStrategy;
+	private long[] times;
+	private long[] ascendingTimes;
+	private NumericData[] ranges;
+
+	@Setup
+	public void setup() {
+		binningStrategy = new TemporalBinningStrategy(
+				unit);
+		times = BenchmarkUtils.randomTimes(
+				new Random(
+						BenchmarkUtils.SEED),
+				BenchmarkUtils.SAMPLE_SIZE);
+		ascendingTimes = Arrays.copyOf(
+				times,
+				times.length);
+		Arrays.sort(ascendingTimes);
+		ranges = new NumericData[times.length];
+		// each range covers roughly three bins
+		final long rangeMillis;
+		switch (unit) {
+			case DAY:
+				rangeMillis = 3L * 24L * 60L * 60L * 1000L;
+				break;
+			case MONTH:
+				rangeMillis = BenchmarkUtils.ONE_YEAR_MILLIS / 4;
+				break;
+			default:
+				rangeMillis = 3L * BenchmarkUtils.ONE_YEAR_MILLIS;
+				break;
+		}
+		for (int i = 0; i < times.length; i++) {
+			ranges[i] = new NumericRange(
+					times[i],
+					times[i] + rangeMillis);
+		}
+	}
+
+	@Benchmark
+	public BinValue getBinnedValue(
+			final BenchmarkUtils.Cursor cursor ) {
+		return binningStrategy.getBinnedValue(times[cursor.next()]);
+	}
+
+	@Benchmark
+	public BinValue getBinnedValueAscending(
+			final BenchmarkUtils.Cursor cursor ) {
+		return binningStrategy.getBinnedValue(ascendingTimes[cursor.next()]);
+	}
+
+	@Benchmark
+	public BinRange[] getNormalizedRanges(
+			final BenchmarkUtils.Cursor cursor ) {
+		return binningStrategy.getNormalizedRanges(ranges[cursor.next()]);
+	}
+}
@@ -0,0 +1,138 @@
+package mil.nga.giat.geowave.core.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import mil.nga.giat.geowave.core.geotime.IndexType;
+import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.core.index.ByteArrayRange;
+import mil.nga.giat.geowave.core.index.NumericIndexStrategy;
+import mil.nga.giat.geowave.core.index.sfc.data.BasicNumericDataset;
+import mil.nga.giat.geowave.core.index.sfc.data.MultiDimensionalNumericData;
+import mil.nga.giat.geowave.core.index.sfc.data.NumericData;
+import mil.nga.giat.geowave.core.index.sfc.data.NumericRange;
+import mil.nga.giat.geowave.core.index.sfc.data.NumericValue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures insertion ID generation and query range decomposition for the
+ * default tiered spatial and spatial-temporal index strategies. The
+ * spatial-temporal strategy also exercises the temporal binning strategy on
+ * every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TieredSFCIndexStrategyBenchmark
+{
+	@Param({
+		"SPATIAL_VECTOR",
+		"SPATIAL_TEMPORAL_VECTOR"
+	})
+	public IndexType indexType;
+
+	private NumericIndexStrategy indexStrategy;
+	private MultiDimensionalNumericData[] pointData;
+	private MultiDimensionalNumericData[] boxData;
+	private MultiDimensionalNumericData query;
+
+	@Setup
+	public void setup() {
+		indexStrategy = indexType.createDefaultIndexStrategy();
+		final boolean temporal = indexStrategy.getOrderedDimensionDefinitions().length > 2;
+		final Random random = new Random(
+				BenchmarkUtils.SEED);
+		final double[][] points = BenchmarkUtils.randomPoints(
+				random,
+				BenchmarkUtils.SAMPLE_SIZE);
+		final long[] times = BenchmarkUtils.randomTimes(
+				random,
+				BenchmarkUtils.SAMPLE_SIZE);
+		pointData = new MultiDimensionalNumericData[points.length];
+		boxData = new MultiDimensionalNumericData[points.length];
+		for (int i = 0; i < points.length; i++) {
+			final double lon = Math.min(
+					points[i][0],
+					179);
+			final double lat = Math.min(
+					points[i][1],
+					89);
+			pointData[i] = toDataset(
+					temporal,
+					new NumericValue(
+							lon),
+					new NumericValue(
+							lat),
+					new NumericValue(
+							times[i]));
+			// a polygon roughly the size of a city block
+			boxData[i] = toDataset(
+					temporal,
+					new NumericRange(
+							lon,
+							lon + 0.01),
+					new NumericRange(
+							lat,
+							lat + 0.01),
+					new NumericValue(
+							times[i]));
+		}
+		query = toDataset(
+				temporal,
+				new NumericRange(
+						10,
+						11),
+				new NumericRange(
+						25,
+						26),
+				new NumericRange(
+						BenchmarkUtils.START_TIME_MILLIS,
+						BenchmarkUtils.START_TIME_MILLIS + (BenchmarkUtils.ONE_YEAR_MILLIS / 12)));
+	}
+
+	private static MultiDimensionalNumericData toDataset(
+			final boolean temporal,
+			final NumericData lon,
+			final NumericData lat,
+			final NumericData time ) {
+		if (temporal) {
+			return new BasicNumericDataset(
+					new NumericData[] {
+						lon,
+						lat,
+						time
+					});
+		}
+		return new BasicNumericDataset(
+				new NumericData[] {
+					lon,
+					lat
+				});
+	}
+
+	@Benchmark
+	public List<ByteArrayId> getInsertionIdsForPoint(
+			final BenchmarkUtils.Cursor cursor ) {
+		return indexStrategy.getInsertionIds(pointData[cursor.next()]);
+	}
+
+	@Benchmark
+	public List<ByteArrayId> getInsertionIdsForBox(
+			final BenchmarkUtils.Cursor cursor ) {
+		return indexStrategy.getInsertionIds(boxData[cursor.next()]);
+	}
+
+	@Benchmark
+	public List<ByteArrayRange> getQueryRanges() {
+		return indexStrategy.getQueryRanges(query);
+	}
+}
@@ -47,6 +47,41 @@ public enum DimensionalityType {
 		return defaultIndexModel;
 	}
 
+	/**
+	 * @param persistGeometryEnvelope
+	 *            whether the spatial fields of the index model write the
+	 *            envelope of each geometry ahead of it
+	 * @return the default index model, with spatial fields that persist the
+	 *         geometry envelope if requested
+	 */
+	public CommonIndexModel getIndexModel(
+			final boolean persistGeometryEnvelope ) {
+		if (!persistGeometryEnvelope || (defaultIndexModel == null)) {
+			return defaultIndexModel;
+		}
+		final DimensionField<?>[] defaultDimensions = defaultIndexModel.getDimensions();
+		final DimensionField<?>[] dimensions = new DimensionField<?>[defaultDimensions.length];
+		for (int i = 0; i < defaultDimensions.length; i++) {
+			if (defaultDimensions[i] instanceof LongitudeField) {
+				dimensions[i] = new LongitudeField(
+						defaultDimensions[i].getBaseDefinition(),
+						defaultDimensions[i].getFieldId(),
+						true);
+			}
+			else if (defaultDimensions[i] instanceof LatitudeField) {
+				dimensions[i] = new LatitudeField(
+						defaultDimensions[i].getBaseDefinition(),
+						defaultDimensions[i].getFieldId(),
+						true);
+			}
+			else {
+				dimensions[i] = defaultDimensions[i];
+			}
+		}
+		return new BasicIndexModel(
+				dimensions);
+	}
+
 	public NumericIndexStrategyFactory getIndexStrategyFactory() {
 		return indexStrategyFactory;
 	}
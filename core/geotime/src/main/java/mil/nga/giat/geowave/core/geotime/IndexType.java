@@ -52,9 +52,22 @@ public enum IndexType {
 	}
 
 	public Index createDefaultIndex() {
+		return createDefaultIndex(false);
+	}
+
+	/**
+	 * @param persistGeometryEnvelope
+	 *            whether the envelope of each non-point geometry is written
+	 *            ahead of it so that spatial filters can skip decoding it; rows
+	 *            written this way cannot be read by versions that precede the
+	 *            envelope
+	 * @return the default index
+	 */
+	public Index createDefaultIndex(
+			final boolean persistGeometryEnvelope ) {
 		return new CustomIdIndex(
 				createDefaultIndexStrategy(),
-				getDefaultIndexModel(),
+				dimensionalityType.getIndexModel(persistGeometryEnvelope),
 				new ByteArrayId(
 						getDefaultId()));
 	}
@@ -67,8 +67,13 @@ public class TemporalBinningStrategy implements
 		TWO_DIGIT_NUMBER.setMaximumIntegerDigits(2);
 	}
 
+	// the number of recently used bins that are retained, which must be a
+	// power of two
+	private static final int BIN_CACHE_SIZE = 16;
+
 	private Unit unit;
 	private String timezone;
+	private transient BinCalculator binCalculator;
 
 	protected TemporalBinningStrategy() {}
 
@@ -103,18 +108,25 @@ public class TemporalBinningStrategy implements
 	@Override
 	public BinValue getBinnedValue(
 			final double value ) {
-		// convert to a calendar and subtract the epoch for the bin
-		final Calendar epochCal = Calendar.getInstance(TimeZone.getTimeZone(timezone));
-		epochCal.setTimeInMillis((long) value);
-		setToEpoch(epochCal);
-		// use the value to get the bin ID (although the epoch should work fine
-		// too)
-		final Calendar valueCal = Calendar.getInstance(TimeZone.getTimeZone(timezone));
-		valueCal.setTimeInMillis((long) value);
-
+		// subtract the epoch of the bin from the value
+		final long millis = (long) value;
+		final Bin bin = getBinCalculator().getBin(
+				millis);
 		return new BinValue(
-				getBinId(valueCal),
-				valueCal.getTimeInMillis() - epochCal.getTimeInMillis());
+				bin.binId,
+				millis - bin.startMillis);
+	}
+
+	private BinCalculator getBinCalculator() {
+		// the calculator is created lazily because the unit and timezone are
+		// not known until this is deserialized
+		BinCalculator calculator = binCalculator;
+		if (calculator == null) {
+			calculator = new BinCalculator(
+					TimeZone.getTimeZone(timezone));
+			binCalculator = calculator;
+		}
+		return calculator;
 	}
 
 	private long getBinSizeMillis() {
@@ -204,7 +216,7 @@ public class TemporalBinningStrategy implements
 	private Calendar getStartEpoch(
 			final byte[] binId ) {
 		final String str = StringUtils.stringFromBinary(binId);
-		final Calendar cal = Calendar.getInstance(TimeZone.getTimeZone(timezone));
+		final Calendar cal = Calendar.getInstance(getBinCalculator().timeZone);
 		switch (unit) {
 			case DAY:
 				final int day = Integer.parseInt(str.substring(
@@ -236,15 +248,12 @@ public class TemporalBinningStrategy implements
 	@Override
 	public BinRange[] getNormalizedRanges(
 			final NumericData range ) {
-		final Calendar startEpoch = Calendar.getInstance(TimeZone.getTimeZone(timezone));
-		final long binSizeMillis = getBinSizeMillis();
-		// initialize the epoch to the range min and then reset appropriate
-		// values to 0 based on the units
-		startEpoch.setTimeInMillis((long) range.getMin());
-		setToEpoch(startEpoch);
+		final BinCalculator calculator = getBinCalculator();
+		// the first bin is the bin of the range min
+		Bin bin = calculator.getBin((long) range.getMin());
 		// now make sure all bin definitions between the start and end bins
 		// are covered
-		final long startEpochMillis = startEpoch.getTimeInMillis();
+		final long startEpochMillis = bin.startMillis;
 		long epochIterator = startEpochMillis;
 		final List<BinRange> bins = new ArrayList<BinRange>();
 		// track this, so that we can easily declare a range to be the full
@@ -252,19 +261,8 @@ public class TemporalBinningStrategy implements
 		boolean firstBin = ((long) range.getMin() != startEpochMillis);
 		boolean lastBin = false;
 		do {
-			// because not every year has 366 days, and not every month has 31
-			// days we need to reset next epoch to the actual epoch
-			final Calendar nextEpochCal = Calendar.getInstance(TimeZone.getTimeZone(timezone));
-			// set it to a value in the middle of the bin just to be sure (for
-			// example if the bin size does not get to the next epoch as is
-			// the case when units are days and the timezone accounts for
-			// daylight savings time)
-			nextEpochCal.setTimeInMillis(epochIterator + (long) (binSizeMillis * 1.5));
-			setToEpoch(nextEpochCal);
-			final long nextEpoch = nextEpochCal.getTimeInMillis();
+			final long nextEpoch = bin.endMillis;
 			final long maxOfBin = nextEpoch - 1;
-			final Calendar cal = Calendar.getInstance(TimeZone.getTimeZone(timezone));
-			cal.setTimeInMillis(epochIterator);
 			long startMillis, endMillis;
 			boolean fullExtent;
 			if ((long) range.getMax() <= maxOfBin) {
@@ -288,11 +286,14 @@ public class TemporalBinningStrategy implements
 			// we have the millis for range, but to normalize for this bin we
 			// need to subtract the epoch of the bin
 			bins.add(new BinRange(
-					getBinId(cal),
+					bin.binId,
 					startMillis - epochIterator,
 					endMillis - epochIterator,
 					fullExtent));
 			epochIterator = nextEpoch;
+			if (!lastBin) {
+				bin = calculator.getBin(epochIterator);
+			}
 			// iterate until we reach our end epoch
 		}
 		while (!lastBin);
@@ -317,6 +318,7 @@ public class TemporalBinningStrategy implements
 		buffer.get(timeZoneName);
 		unit = Unit.getUnit(unitCalendarEnum);
 		timezone = StringUtils.stringFromBinary(timeZoneName);
+		binCalculator = null;
 	}
 
 	@Override
@@ -373,4 +375,99 @@ public class TemporalBinningStrategy implements
 				minMillis,
 				maxMillis);
 	}
+
+	/**
+	 * A bin is the interval from the epoch of a unit of time up to the epoch of
+	 * the next unit, within the timezone of this strategy
+	 */
+	private static class Bin
+	{
+		private final long startMillis;
+		// exclusive
+		private final long endMillis;
+		// shared by every value within the bin, and never modified
+		private final byte[] binId;
+
+		private Bin(
+				final long startMillis,
+				final long endMillis,
+				final byte[] binId ) {
+			this.startMillis = startMillis;
+			this.endMillis = endMillis;
+			this.binId = binId;
+		}
+
+		private boolean contains(
+				final long millis ) {
+			return (millis >= startMillis) && (millis < endMillis);
+		}
+	}
+
+	/**
+	 * This calculates the bin of a time, retaining the most recently used bins
+	 * so that the bin of a time that falls within one of them is found with
+	 * only a couple of comparisons. Otherwise the bin boundaries are computed
+	 * using a calendar in the timezone of this strategy, which is looked up
+	 * only once. Times are typically ingested and queried in clusters, so most
+	 * times fall within a recently used bin.
+	 */
+	private class BinCalculator
+	{
+		private final TimeZone timeZone;
+		// each bin is immutable, so the cache can be read and written by
+		// concurrent threads without synchronization
+		private final Bin[] recentBins = new Bin[BIN_CACHE_SIZE];
+		private final long binSizeMillis;
+
+		private BinCalculator(
+				final TimeZone timeZone ) {
+			this.timeZone = timeZone;
+			binSizeMillis = getBinSizeMillis();
+		}
+
+		private Bin getBin(
+				final long millis ) {
+			final int slot = getSlot(millis);
+			final Bin recentBin = recentBins[slot];
+			if ((recentBin != null) && recentBin.contains(millis)) {
+				return recentBin;
+			}
+			final Bin bin = calculateBin(millis);
+			recentBins[slot] = bin;
+			return bin;
+		}
+
+		private int getSlot(
+				final long millis ) {
+			// successive bins are generally in successive slots
+			long binIndex = millis / binSizeMillis;
+			if ((millis < 0) && ((binIndex * binSizeMillis) != millis)) {
+				binIndex--;
+			}
+			return (int) (binIndex & (BIN_CACHE_SIZE - 1));
+		}
+
+		private Bin calculateBin(
+				final long millis ) {
+			final Calendar cal = Calendar.getInstance(timeZone);
+			cal.setTimeInMillis(millis);
+			// the bin ID only depends on the fields that are retained by the
+			// epoch
+			final byte[] binId = getBinId(cal);
+			setToEpoch(cal);
+			final long startMillis = cal.getTimeInMillis();
+			// because not every year has 366 days, and not every month has 31
+			// days we need to reset next epoch to the actual epoch; set it to a
+			// value in the middle of the next bin just to be sure (for example
+			// if the bin size does not get to the next epoch as is the case
+			// when units are days and the timezone accounts for daylight
+			// savings time)
+			cal.setTimeInMillis(startMillis + (long) (binSizeMillis * 1.5));
+			setToEpoch(cal);
+			return new Bin(
+					startMillis,
+					cal.getTimeInMillis(),
+					binId);
+		}
+	}
 }
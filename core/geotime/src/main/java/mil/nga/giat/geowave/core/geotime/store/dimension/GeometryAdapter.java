@@ -1,5 +1,8 @@
 package mil.nga.giat.geowave.core.geotime.store.dimension;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 import mil.nga.giat.geowave.core.geotime.GeometryUtils;
 import mil.nga.giat.geowave.core.index.ByteArrayId;
 import mil.nga.giat.geowave.core.index.ByteArrayUtils;
@@ -7,10 +10,18 @@ import mil.nga.giat.geowave.core.index.StringUtils;
 import mil.nga.giat.geowave.core.store.data.field.FieldReader;
 import mil.nga.giat.geowave.core.store.data.field.FieldWriter;
 
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+
 /**
  * This adapter can be used for reading and writing Geometry fields within
  * GeoWave. The GeometryWrapper wraps JTS geometries with a visibility tag. This
- * enables spatial field definitions that can use JTS geometries.
+ * enables spatial field definitions that can use JTS geometries. Geometries are
+ * written as well-known binary by default. If the envelope is persisted, the
+ * envelope of any geometry other than a point is written ahead of its
+ * well-known binary so that the geometry can be filtered without decoding it.
+ * Fields are read in either format, because well-known binary always begins
+ * with its byte order.
  * 
  */
 public class GeometryAdapter implements
@@ -25,17 +36,65 @@ public class GeometryAdapter implements
 						0
 					}));
 
-	public GeometryAdapter() {}
+	// distinct from the byte order marks of well-known binary, which are 0 and
+	// 1
+	private final static byte ENVELOPE_PREFIX = (byte) 0xFE;
+	private final static int ENVELOPE_LENGTH = 1 + (4 * 8);
+
+	private final boolean persistEnvelope;
+
+	public GeometryAdapter() {
+		this(
+				false);
+	}
+
+	public GeometryAdapter(
+			final boolean persistEnvelope ) {
+		this.persistEnvelope = persistEnvelope;
+	}
+
+	public boolean isPersistEnvelope() {
+		return persistEnvelope;
+	}
 
 	@Override
 	public byte[] writeField(
 			final GeometryWrapper geometry ) {
-		return GeometryUtils.geometryToBinary(geometry.getGeometry());
+		final Geometry geom = geometry.getGeometry();
+		final byte[] geometryBinary = GeometryUtils.geometryToBinary(geom);
+		// the envelope of a point is no cheaper to test than the point itself
+		if (!persistEnvelope || geom.isEmpty() || (geom.getNumPoints() <= 1)) {
+			return geometryBinary;
+		}
+		final Envelope envelope = geom.getEnvelopeInternal();
+		final ByteBuffer buf = ByteBuffer.allocate(ENVELOPE_LENGTH + geometryBinary.length);
+		buf.put(ENVELOPE_PREFIX);
+		buf.putDouble(envelope.getMinX());
+		buf.putDouble(envelope.getMaxX());
+		buf.putDouble(envelope.getMinY());
+		buf.putDouble(envelope.getMaxY());
+		buf.put(geometryBinary);
+		return buf.array();
 	}
 
 	@Override
 	public GeometryWrapper readField(
 			final byte[] fieldData ) {
+		if ((fieldData.length > ENVELOPE_LENGTH) && (fieldData[0] == ENVELOPE_PREFIX)) {
+			final ByteBuffer buf = ByteBuffer.wrap(fieldData);
+			buf.get();
+			final Envelope envelope = new Envelope(
+					buf.getDouble(),
+					buf.getDouble(),
+					buf.getDouble(),
+					buf.getDouble());
+			return new GeometryWrapper(
+					envelope,
+					Arrays.copyOfRange(
+							fieldData,
+							ENVELOPE_LENGTH,
+							fieldData.length));
+		}
 		return new GeometryWrapper(
 				GeometryUtils.geometryFromBinary(fieldData));
 	}
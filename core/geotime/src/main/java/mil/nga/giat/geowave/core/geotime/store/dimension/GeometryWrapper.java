@@ -1,5 +1,6 @@
 package mil.nga.giat.geowave.core.geotime.store.dimension;
 
+import mil.nga.giat.geowave.core.geotime.GeometryUtils;
 import mil.nga.giat.geowave.core.index.sfc.data.NumericData;
 import mil.nga.giat.geowave.core.index.sfc.data.NumericRange;
 import mil.nga.giat.geowave.core.store.dimension.DimensionField;
@@ -11,14 +12,18 @@ import com.vividsolutions.jts.geom.Envelope;
 
 /**
  * This class wraps JTS geometry with visibility so that it can be used within
- * GeoWave as a CommonIndexValue
+ * GeoWave as a CommonIndexValue. A geometry that is read along with its
+ * persisted envelope is only decoded once it is needed, so that it can be
+ * filtered by its envelope alone.
  * 
  */
 public class GeometryWrapper implements
 		CommonIndexValue
 {
 	private byte[] visibility;
-	private final com.vividsolutions.jts.geom.Geometry geometry;
+	private com.vividsolutions.jts.geom.Geometry geometry;
+	private Envelope envelope;
+	private byte[] geometryBinary;
 	private static final double DOUBLE_TOLERANCE = 1E-12d;
 
 	public GeometryWrapper(
@@ -33,6 +38,20 @@ public class GeometryWrapper implements
 		this.geometry = geometry;
 	}
 
+	/**
+	 * @param envelope
+	 *            the persisted envelope of the geometry
+	 * @param geometryBinary
+	 *            the well-known binary of the geometry, which is decoded the
+	 *            first time the geometry is needed
+	 */
+	public GeometryWrapper(
+			final Envelope envelope,
+			final byte[] geometryBinary ) {
+		this.envelope = envelope;
+		this.geometryBinary = geometryBinary;
+	}
+
 	@Override
 	public void setVisibility(
 			final byte[] visibility ) {
@@ -45,9 +64,37 @@ public class GeometryWrapper implements
 	}
 
 	public com.vividsolutions.jts.geom.Geometry getGeometry() {
+		if ((geometry == null) && (geometryBinary != null)) {
+			geometry = GeometryUtils.geometryFromBinary(geometryBinary);
+			geometryBinary = null;
+		}
 		return geometry;
 	}
 
+	/**
+	 * @return the envelope of the geometry, which does not require the geometry
+	 *         to be decoded if its envelope was persisted, or null if there is
+	 *         no geometry
+	 */
+	public Envelope getEnvelope() {
+		if (envelope != null) {
+			return envelope;
+		}
+		final com.vividsolutions.jts.geom.Geometry geom = getGeometry();
+		if (geom == null) {
+			return null;
+		}
+		return geom.getEnvelopeInternal();
+	}
+
+	/**
+	 * @return whether the envelope of the geometry was persisted, in which case
+	 *         the geometry has not necessarily been decoded
+	 */
+	public boolean hasPersistedEnvelope() {
+		return envelope != null;
+	}
+
 	/**
 	 * Expects Longitude before Latitude
 	 */
@@ -59,7 +106,7 @@ public class GeometryWrapper implements
 		final int latPosition = fields[0] instanceof LatitudeField ? 0 : 1;
 		final int longPosition = fields[0] instanceof LatitudeField ? 1 : 0;
 		if (fields.length == 1) {
-			final Envelope env = geometry.getEnvelopeInternal();
+			final Envelope env = getEnvelope();
 			final NumericRange r = latPosition == 0 ? new NumericRange(
 					env.getMinY(),
 					env.getMaxY()) : new NumericRange(
@@ -73,6 +120,7 @@ public class GeometryWrapper implements
 					r.getMin(),
 					DOUBLE_TOLERANCE));
 		}
+		final com.vividsolutions.jts.geom.Geometry geometry = getGeometry();
 		return geometry.getFactory().createPolygon(
 				new Coordinate[] {
 					new Coordinate(
@@ -34,6 +34,16 @@ public class LatitudeField extends
 				fieldId);
 	}
 
+	public LatitudeField(
+			final NumericDimensionDefinition baseDefinition,
+			final ByteArrayId fieldId,
+			final boolean persistEnvelope ) {
+		super(
+				baseDefinition,
+				fieldId,
+				persistEnvelope);
+	}
+
 	@Override
 	public NumericData getNumericData(
 			final GeometryWrapper geometry ) {
@@ -34,6 +34,16 @@ public class LongitudeField extends
 				fieldId);
 	}
 
+	public LongitudeField(
+			final NumericDimensionDefinition baseDefinition,
+			final ByteArrayId fieldId,
+			final boolean persistEnvelope ) {
+		super(
+				baseDefinition,
+				fieldId,
+				persistEnvelope);
+	}
+
 	@Override
 	public NumericData getNumericData(
 			final GeometryWrapper geometry ) {
@@ -20,7 +20,7 @@ abstract public class SpatialField implements
 		DimensionField<GeometryWrapper>
 {
 	private NumericDimensionDefinition baseDefinition;
-	private final GeometryAdapter geometryAdapter;
+	private GeometryAdapter geometryAdapter;
 	private ByteArrayId fieldId;
 
 	protected SpatialField() {
@@ -42,9 +42,30 @@ abstract public class SpatialField implements
 	public SpatialField(
 			final NumericDimensionDefinition baseDefinition,
 			final ByteArrayId fieldId ) {
+		this(
+				baseDefinition,
+				fieldId,
+				false);
+	}
+
+	/**
+	 * @param persistEnvelope
+	 *            whether the envelope of each geometry is written ahead of it,
+	 *            which lets spatial filters skip decoding most geometries but
+	 *            cannot be read by versions that precede the envelope
+	 */
+	public SpatialField(
+			final NumericDimensionDefinition baseDefinition,
+			final ByteArrayId fieldId,
+			final boolean persistEnvelope ) {
 		this.baseDefinition = baseDefinition;
 		this.fieldId = fieldId;
-		geometryAdapter = new GeometryAdapter();
+		geometryAdapter = new GeometryAdapter(
+				persistEnvelope);
+	}
+
+	public boolean isPersistEnvelope() {
+		return geometryAdapter.isPersistEnvelope();
 	}
 
 	@Override
@@ -118,7 +139,14 @@ abstract public class SpatialField implements
 	public byte[] toBinary() {
 		final byte[] dimensionBinary = PersistenceUtils.toBinary(baseDefinition);
 		final ByteBuffer buf = ByteBuffer.allocate(dimensionBinary.length + fieldId.getBytes().length + 4);
-		buf.putInt(fieldId.getBytes().length);
+		// a negative length marks a persisted envelope, so that fields without
+		// one are persisted as they always have been
+		if (geometryAdapter.isPersistEnvelope()) {
+			buf.putInt(-fieldId.getBytes().length - 1);
+		}
+		else {
+			buf.putInt(fieldId.getBytes().length);
+		}
 		buf.put(fieldId.getBytes());
 		buf.put(dimensionBinary);
 		return buf.array();
@@ -128,7 +156,13 @@ abstract public class SpatialField implements
 	public void fromBinary(
 			final byte[] bytes ) {
 		final ByteBuffer buf = ByteBuffer.wrap(bytes);
-		final int fieldIdLength = buf.getInt();
+		int fieldIdLength = buf.getInt();
+		final boolean persistEnvelope = fieldIdLength < 0;
+		if (persistEnvelope) {
+			fieldIdLength = -fieldIdLength - 1;
+		}
+		geometryAdapter = new GeometryAdapter(
+				persistEnvelope);
 		final byte[] fieldIdBinary = new byte[fieldIdLength];
 		buf.get(fieldIdBinary);
 		fieldId = new ByteArrayId(
@@ -149,6 +183,7 @@ abstract public class SpatialField implements
 		result = (prime * result) + ((className == null) ? 0 : className.hashCode());
 		result = (prime * result) + ((baseDefinition == null) ? 0 : baseDefinition.hashCode());
 		result = (prime * result) + ((fieldId == null) ? 0 : fieldId.hashCode());
+		result = (prime * result) + (geometryAdapter.isPersistEnvelope() ? 1231 : 1237);
 		return result;
 	}
 
@@ -181,6 +216,9 @@ abstract public class SpatialField implements
 		else if (!fieldId.equals(other.fieldId)) {
 			return false;
 		}
+		if (geometryAdapter.isPersistEnvelope() != other.geometryAdapter.isPersistEnvelope()) {
+			return false;
+		}
 		return true;
 	}
 }
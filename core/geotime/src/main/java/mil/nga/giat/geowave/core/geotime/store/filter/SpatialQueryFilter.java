@@ -21,13 +21,18 @@ import mil.nga.giat.geowave.core.store.dimension.DimensionField;
 import mil.nga.giat.geowave.core.store.filter.BasicQueryFilter;
 import mil.nga.giat.geowave.core.store.filter.GenericTypeResolver;
 
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.prep.PreparedGeometry;
 import com.vividsolutions.jts.geom.prep.PreparedGeometryFactory;
 
 /**
  * This filter can perform fine-grained acceptance testing (intersection test
- * with a query geometry) with JTS geometry
+ * with a query geometry) with JTS geometry. A geometry that was persisted with
+ * its envelope is first tested by its envelope, and is only decoded if its
+ * envelope is neither disjoint from the query envelope nor contained within a
+ * rectangle that lies inside the query geometry.
  * 
  */
 public class SpatialQueryFilter extends
@@ -130,7 +135,7 @@ public class SpatialQueryFilter extends
 					fieldId);
 			if ((geomObj != null) && (geomObj instanceof GeometryWrapper)) {
 				final GeometryWrapper geom = (GeometryWrapper) geomObj;
-				if (geometryPasses(geom.getGeometry())) {
+				if (geometryPasses(geom)) {
 					geometryPasses = true;
 					break;
 				}
@@ -148,6 +153,20 @@ public class SpatialQueryFilter extends
 		return super.accept(persistenceEncoding);
 	}
 
+	private boolean geometryPasses(
+			final GeometryWrapper dataGeometry ) {
+		if (dataGeometry.hasPersistedEnvelope()) {
+			final Envelope dataEnvelope = dataGeometry.getEnvelope();
+			if (!preparedGeometryImage.envelope.intersects(dataEnvelope)) {
+				return false;
+			}
+			if ((preparedGeometryImage.interiorEnvelope != null) && preparedGeometryImage.interiorEnvelope.contains(dataEnvelope)) {
+				return true;
+			}
+		}
+		return geometryPasses(dataGeometry.getGeometry());
+	}
+
 	private boolean geometryPasses(
 			final Geometry dataGeometry ) {
 		if (dataGeometry == null) {
@@ -234,15 +253,22 @@ public class SpatialQueryFilter extends
 	 */
 	public static class GeometryImage
 	{
+		// the number of times the rectangle around the interior point of the
+		// geometry is halved in search of a rectangle inside the geometry
+		private static final int INTERIOR_SEARCH_STEPS = 6;
 
 		byte[] geometryBinary;
 		PreparedGeometry preparedGeometry = null;
+		Envelope envelope = null;
+		// a rectangle inside the geometry, or null if none was found
+		Envelope interiorEnvelope = null;
 
 		public GeometryImage(
 				PreparedGeometry preparedGeometry ) {
 			super();
 			this.preparedGeometry = preparedGeometry;
 			geometryBinary = GeometryUtils.geometryToBinary(preparedGeometry.getGeometry());
+			initEnvelopes();
 		}
 
 		public GeometryImage(
@@ -252,7 +278,37 @@ public class SpatialQueryFilter extends
 		}
 
 		public synchronized void init() {
-			if (preparedGeometry == null) preparedGeometry = FACTORY.create(GeometryUtils.geometryFromBinary(geometryBinary));
+			if (preparedGeometry == null) {
+				preparedGeometry = FACTORY.create(GeometryUtils.geometryFromBinary(geometryBinary));
+				initEnvelopes();
+			}
+		}
+
+		private void initEnvelopes() {
+			final Geometry geometry = preparedGeometry.getGeometry();
+			envelope = geometry.getEnvelopeInternal();
+			if (geometry.isRectangle()) {
+				interiorEnvelope = envelope;
+			}
+			else if (geometry.getDimension() == 2) {
+				final Coordinate center = geometry.getInteriorPoint().getCoordinate();
+				double halfWidth = envelope.getWidth() / 2;
+				double halfHeight = envelope.getHeight() / 2;
+				for (int i = 0; i < INTERIOR_SEARCH_STEPS; i++) {
+					halfWidth /= 2;
+					halfHeight /= 2;
+					final Envelope candidate = new Envelope(
+							center.x - halfWidth,
+							center.x + halfWidth,
+							center.y - halfHeight,
+							center.y + halfHeight);
+					if (preparedGeometry.contains(geometry.getFactory().toGeometry(
+							candidate))) {
+						interiorEnvelope = candidate;
+						break;
+					}
+				}
+			}
 		}
 
 		public PreparedGeometry getGeometry() {
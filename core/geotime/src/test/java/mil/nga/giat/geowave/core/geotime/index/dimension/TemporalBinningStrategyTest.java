@@ -1,11 +1,17 @@
 package mil.nga.giat.geowave.core.geotime.index.dimension;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
 import java.util.TimeZone;
 
 import mil.nga.giat.geowave.core.geotime.index.dimension.TemporalBinningStrategy;
 import mil.nga.giat.geowave.core.geotime.index.dimension.TemporalBinningStrategy.Unit;
+import mil.nga.giat.geowave.core.index.StringUtils;
 import mil.nga.giat.geowave.core.index.dimension.bin.BinRange;
+import mil.nga.giat.geowave.core.index.dimension.bin.BinValue;
 import mil.nga.giat.geowave.core.index.sfc.data.NumericRange;
 
 import org.junit.Assert;
@@ -14,6 +20,8 @@ import org.junit.Test;
 
 public class TemporalBinningStrategyTest
 {
+	private static final long MILLIS_PER_HOUR = 3600000L;
+
 	@Before
 	public void setTimezoneToGMT() {
 		TimeZone.setDefault(TimeZone.getTimeZone("GMT"));
@@ -379,4 +387,152 @@ public class TemporalBinningStrategyTest
 		Assert.assertTrue(ranges[1].getNormalizedMin() == ranges[1].getNormalizedMax());
 		Assert.assertTrue(ranges[1].getNormalizedMin() == binStrategy.getBinMin());
 	}
+
+	@Test
+	public void testBinsMatchCalendarCalculation() {
+		final Random random = new Random(
+				8675309L);
+		final String[] timezones = new String[] {
+			"GMT",
+			"America/New_York",
+			"Australia/Lord_Howe",
+			"Asia/Kolkata"
+		};
+		// roughly 1900 through 2100
+		final long minTime = -2208988800000L;
+		final long timeExtent = 6311433600000L;
+		for (final Unit unit : Unit.values()) {
+			for (final String timezone : timezones) {
+				final TemporalBinningStrategy binStrategy = new TemporalBinningStrategy(
+						unit,
+						timezone);
+				// ascending times fall within recently used bins and random
+				// times generally do not
+				long ascendingTime = minTime + (long) (random.nextDouble() * timeExtent);
+				for (int i = 0; i < 2000; i++) {
+					final long time;
+					if ((i % 2) == 0) {
+						ascendingTime += (long) (random.nextDouble() * MILLIS_PER_HOUR * 6);
+						time = ascendingTime;
+					}
+					else {
+						time = minTime + (long) (random.nextDouble() * timeExtent);
+					}
+					final BinValue binValue = binStrategy.getBinnedValue(time);
+					final Calendar epochCal = Calendar.getInstance(TimeZone.getTimeZone(timezone));
+					epochCal.setTimeInMillis(time);
+					binStrategy.setToEpoch(epochCal);
+					Assert.assertEquals(
+							getExpectedBinId(
+									unit,
+									timezone,
+									time),
+							StringUtils.stringFromBinary(binValue.getBinId()));
+					Assert.assertEquals(
+							time - epochCal.getTimeInMillis(),
+							(long) binValue.getNormalizedValue());
+
+					final NumericRange range = new NumericRange(
+							time,
+							time + (long) (random.nextDouble() * TemporalBinningStrategy.MILLIS_PER_DAY * 100));
+					final BinRange[] expectedRanges = getExpectedNormalizedRanges(
+							binStrategy,
+							unit,
+							timezone,
+							range);
+					final BinRange[] ranges = binStrategy.getNormalizedRanges(range);
+					Assert.assertEquals(
+							expectedRanges.length,
+							ranges.length);
+					for (int r = 0; r < ranges.length; r++) {
+						Assert.assertTrue(Arrays.equals(
+								expectedRanges[r].getBinId(),
+								ranges[r].getBinId()));
+						Assert.assertTrue(expectedRanges[r].getNormalizedMin() == ranges[r].getNormalizedMin());
+						Assert.assertTrue(expectedRanges[r].getNormalizedMax() == ranges[r].getNormalizedMax());
+						Assert.assertEquals(
+								expectedRanges[r].isFullExtent(),
+								ranges[r].isFullExtent());
+					}
+				}
+			}
+		}
+	}
+
+	private static String getExpectedBinId(
+			final Unit unit,
+			final String timezone,
+			final long time ) {
+		final Calendar cal = Calendar.getInstance(TimeZone.getTimeZone(timezone));
+		cal.setTimeInMillis(time);
+		switch (unit) {
+			case YEAR:
+			default:
+				return Integer.toString(cal.get(Calendar.YEAR));
+			case MONTH:
+				return String.format(
+						"%d_%02d",
+						cal.get(Calendar.YEAR),
+						cal.get(Calendar.MONTH));
+			case DAY:
+				return String.format(
+						"%d_%02d_%02d",
+						cal.get(Calendar.YEAR),
+						cal.get(Calendar.MONTH),
+						cal.get(Calendar.DAY_OF_MONTH));
+		}
+	}
+
+	/**
+	 * The normalized ranges calculated with a calendar for every bin
+	 */
+	private static BinRange[] getExpectedNormalizedRanges(
+			final TemporalBinningStrategy binStrategy,
+			final Unit unit,
+			final String timezone,
+			final NumericRange range ) {
+		final long binSizeMillis = (long) binStrategy.getBinMax() + 1;
+		final Calendar startEpoch = Calendar.getInstance(TimeZone.getTimeZone(timezone));
+		startEpoch.setTimeInMillis((long) range.getMin());
+		binStrategy.setToEpoch(startEpoch);
+		long epochIterator = startEpoch.getTimeInMillis();
+		boolean firstBin = ((long) range.getMin() != epochIterator);
+		boolean lastBin = false;
+		final List<BinRange> bins = new ArrayList<BinRange>();
+		do {
+			final Calendar nextEpochCal = Calendar.getInstance(TimeZone.getTimeZone(timezone));
+			nextEpochCal.setTimeInMillis(epochIterator + (long) (binSizeMillis * 1.5));
+			binStrategy.setToEpoch(nextEpochCal);
+			final long maxOfBin = nextEpochCal.getTimeInMillis() - 1;
+			final long startMillis, endMillis;
+			final boolean fullExtent;
+			if ((long) range.getMax() <= maxOfBin) {
+				lastBin = true;
+				endMillis = (long) range.getMax();
+				fullExtent = range.getMax() == maxOfBin;
+			}
+			else {
+				endMillis = maxOfBin;
+				fullExtent = !firstBin;
+			}
+			if (firstBin) {
+				startMillis = (long) range.getMin();
+				firstBin = false;
+			}
+			else {
+				startMillis = epochIterator;
+			}
+			bins.add(new BinRange(
+					StringUtils.stringToBinary(getExpectedBinId(
+							unit,
+							timezone,
+							epochIterator)),
+					startMillis - epochIterator,
+					endMillis - epochIterator,
+					fullExtent));
+			epochIterator = maxOfBin + 1;
+		}
+		while (!lastBin);
+		return bins.toArray(new BinRange[bins.size()]);
+	}
 }
@@ -1,6 +1,13 @@
 package mil.nga.giat.geowave.core.geotime.index.sfc.hilbert;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import mil.nga.giat.geowave.core.geotime.index.dimension.LatitudeDefinition;
 import mil.nga.giat.geowave.core.geotime.index.dimension.LongitudeDefinition;
@@ -273,5 +280,76 @@ public class HilbertSFCTest
 
 	}
 
+	@Test
+	public void testGetId_2DSpatialConcurrent()
+			throws Exception {
+
+		int LATITUDE_BITS = 31;
+		int LONGITUDE_BITS = 31;
+
+		SFCDimensionDefinition[] SPATIAL_DIMENSIONS = new SFCDimensionDefinition[] {
+			new SFCDimensionDefinition(
+					new LongitudeDefinition(),
+					LONGITUDE_BITS),
+			new SFCDimensionDefinition(
+					new LatitudeDefinition(),
+					LATITUDE_BITS)
+		};
+
+		final SpaceFillingCurve hilbertSFC = SFCFactory.createSpaceFillingCurve(
+				SPATIAL_DIMENSIONS,
+				SFCType.HILBERT);
+
+		final Random random = new Random(
+				42);
+		final double[][] testValues = new double[1000][];
+		final byte[][] expectedIds = new byte[testValues.length][];
+		for (int i = 0; i < testValues.length; i++) {
+			testValues[i] = new double[] {
+				(random.nextDouble() * 360) - 180,
+				(random.nextDouble() * 180) - 90
+			};
+			expectedIds[i] = hilbertSFC.getId(testValues[i]);
+		}
+
+		// every thread should see exactly the same IDs as a single thread
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for (int t = 0; t < 8; t++) {
+				results.add(executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() {
+						for (int i = 0; i < testValues.length; i++) {
+							final byte[] id = hilbertSFC.getId(testValues[i]);
+							if (!ByteBuffer.wrap(
+									id).equals(
+									ByteBuffer.wrap(expectedIds[i]))) {
+								return false;
+							}
+							// the centroid of the decoded cell should encode
+							// back
+							// to the same ID
+							final byte[] centroidId = hilbertSFC.getId(hilbertSFC.getRanges(
+									id).getCentroidPerDimension());
+							if (!ByteBuffer.wrap(
+									centroidId).equals(
+									ByteBuffer.wrap(expectedIds[i]))) {
+								return false;
+							}
+						}
+						return true;
+					}
+				}));
+			}
+			for (final Future<Boolean> result : results) {
+				Assert.assertTrue(result.get());
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
 	/* public void testDecomposeQuery_2DSpatialRanges() {} */
 }
@@ -1,7 +1,14 @@
 package mil.nga.giat.geowave.core.geotime.store.dimension;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import mil.nga.giat.geowave.core.geotime.GeometryUtils;
+import mil.nga.giat.geowave.core.geotime.index.dimension.LatitudeDefinition;
 import mil.nga.giat.geowave.core.geotime.store.dimension.GeometryWrapper;
 import mil.nga.giat.geowave.core.geotime.store.dimension.LatitudeField;
 import mil.nga.giat.geowave.core.geotime.store.dimension.LongitudeField;
@@ -138,4 +145,79 @@ public class GeometryWrapperTest
 
 	}
 
+	@Test
+	public void testPersistedEnvelope() {
+		final GeometryAdapter adapter = new GeometryAdapter(
+				true);
+		final Geometry line = factory.createLineString(new Coordinate[] {
+			new Coordinate(
+					-99.22,
+					33.75),
+			new Coordinate(
+					-99.15,
+					33.8)
+		});
+		final GeometryWrapper readLine = adapter.readField(adapter.writeField(new GeometryWrapper(
+				line)));
+		assertTrue(readLine.hasPersistedEnvelope());
+		assertEquals(
+				line.getEnvelopeInternal(),
+				readLine.getEnvelope());
+		assertEquals(
+				line,
+				readLine.getGeometry());
+
+		// points are written without an envelope
+		final Geometry point = factory.createPoint(new Coordinate(
+				-99.22,
+				33.75));
+		final GeometryWrapper readPoint = adapter.readField(adapter.writeField(new GeometryWrapper(
+				point)));
+		assertFalse(readPoint.hasPersistedEnvelope());
+		assertEquals(
+				point,
+				readPoint.getGeometry());
+
+		// fields written without an envelope are still read
+		final GeometryWrapper readLegacyLine = adapter.readField(GeometryUtils.geometryToBinary(line));
+		assertFalse(readLegacyLine.hasPersistedEnvelope());
+		assertEquals(
+				line,
+				readLegacyLine.getGeometry());
+
+		// by default geometries are written without an envelope
+		assertArrayEquals(
+				GeometryUtils.geometryToBinary(line),
+				new GeometryAdapter().writeField(new GeometryWrapper(
+						line)));
+	}
+
+	@Test
+	public void testSpatialFieldPersistence() {
+		final LatitudeField defaultField = new LatitudeField();
+		final LatitudeField envelopeField = new LatitudeField(
+				new LatitudeDefinition(),
+				defaultField.getFieldId(),
+				true);
+		// the default field is persisted as it was before the envelope
+		assertEquals(
+				defaultField.getFieldId().getBytes().length,
+				ByteBuffer.wrap(
+						defaultField.toBinary()).getInt());
+
+		final LatitudeField readDefaultField = new LatitudeField();
+		readDefaultField.fromBinary(defaultField.toBinary());
+		assertFalse(readDefaultField.isPersistEnvelope());
+		assertEquals(
+				defaultField,
+				readDefaultField);
+
+		final LatitudeField readEnvelopeField = new LatitudeField();
+		readEnvelopeField.fromBinary(envelopeField.toBinary());
+		assertTrue(readEnvelopeField.isPersistEnvelope());
+		assertEquals(
+				envelopeField,
+				readEnvelopeField);
+		assertFalse(readEnvelopeField.equals(readDefaultField));
+	}
 }
@@ -0,0 +1,147 @@
+package mil.nga.giat.geowave.core.geotime.store.filter;
+
+import java.util.List;
+import java.util.Random;
+
+import mil.nga.giat.geowave.core.geotime.IndexType;
+import mil.nga.giat.geowave.core.geotime.store.dimension.GeometryAdapter;
+import mil.nga.giat.geowave.core.geotime.store.dimension.GeometryWrapper;
+import mil.nga.giat.geowave.core.geotime.store.query.SpatialQuery;
+import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.core.index.StringUtils;
+import mil.nga.giat.geowave.core.store.data.IndexedPersistenceEncoding;
+import mil.nga.giat.geowave.core.store.data.PersistentDataset;
+import mil.nga.giat.geowave.core.store.data.PersistentValue;
+import mil.nga.giat.geowave.core.store.filter.QueryFilter;
+import mil.nga.giat.geowave.core.store.index.CommonIndexValue;
+import mil.nga.giat.geowave.core.store.index.Index;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+public class SpatialQueryFilterTest
+{
+	private final GeometryFactory factory = new GeometryFactory();
+
+	@Test
+	public void testEnvelopeFilteringMatchesGeometryFiltering() {
+		// a concave query geometry, whose envelope is not inside it
+		final Geometry queryGeometry = factory.createPolygon(new Coordinate[] {
+			new Coordinate(
+					0,
+					0),
+			new Coordinate(
+					10,
+					0),
+			new Coordinate(
+					10,
+					10),
+			new Coordinate(
+					5,
+					4),
+			new Coordinate(
+					0,
+					10),
+			new Coordinate(
+					0,
+					0)
+		});
+		final Index index = IndexType.SPATIAL_VECTOR.createDefaultIndex(true);
+		final List<QueryFilter> filters = new SpatialQuery(
+				queryGeometry).createFilters(index.getIndexModel());
+		final SpatialQueryFilter filter = (SpatialQueryFilter) filters.get(0);
+		// the filter as it is used by a tablet server
+		final SpatialQueryFilter serverFilter = new SpatialQueryFilter();
+		serverFilter.fromBinary(filter.toBinary());
+
+		final ByteArrayId fieldId = index.getIndexModel().getDimensions()[0].getFieldId();
+		final GeometryAdapter geometryAdapter = (GeometryAdapter) index.getIndexModel().getDimensions()[0].getWriter();
+		final Random random = new Random(
+				8675309L);
+		for (int i = 0; i < 1000; i++) {
+			final double x = (random.nextDouble() * 16) - 3;
+			final double y = (random.nextDouble() * 16) - 3;
+			final Geometry geometry = factory.createLineString(new Coordinate[] {
+				new Coordinate(
+						x,
+						y),
+				new Coordinate(
+						x + random.nextDouble(),
+						y + random.nextDouble())
+			});
+			final GeometryWrapper persisted = geometryAdapter.readField(geometryAdapter.writeField(new GeometryWrapper(
+					geometry)));
+			Assert.assertTrue(persisted.hasPersistedEnvelope());
+			final boolean expected = queryGeometry.intersects(geometry);
+			Assert.assertEquals(
+					expected,
+					filter.accept(createEncoding(
+							fieldId,
+							new GeometryWrapper(
+									geometry))));
+			Assert.assertEquals(
+					expected,
+					serverFilter.accept(createEncoding(
+							fieldId,
+							persisted)));
+		}
+	}
+
+	@Test
+	public void testEnvelopeFilteringDoesNotDecode() {
+		final Geometry queryGeometry = factory.toGeometry(new Envelope(
+				0,
+				10,
+				0,
+				10));
+		final Index index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+		final SpatialQueryFilter filter = (SpatialQueryFilter) new SpatialQuery(
+				queryGeometry).createFilters(
+				index.getIndexModel()).get(
+				0);
+		final ByteArrayId fieldId = index.getIndexModel().getDimensions()[0].getFieldId();
+		// the binary is not a valid geometry, so the geometry would not pass if
+		// it were decoded
+		Assert.assertTrue(filter.accept(createEncoding(
+				fieldId,
+				new GeometryWrapper(
+						new Envelope(
+								2,
+								3,
+								2,
+								3),
+						new byte[0]))));
+		Assert.assertFalse(filter.accept(createEncoding(
+				fieldId,
+				new GeometryWrapper(
+						new Envelope(
+								12,
+								13,
+								2,
+								3),
+						new byte[0]))));
+	}
+
+	private static IndexedPersistenceEncoding createEncoding(
+			final ByteArrayId fieldId,
+			final GeometryWrapper geometry ) {
+		final PersistentDataset<CommonIndexValue> commonData = new PersistentDataset<CommonIndexValue>();
+		commonData.addValue(new PersistentValue<CommonIndexValue>(
+				fieldId,
+				geometry));
+		return new IndexedPersistenceEncoding(
+				new ByteArrayId(
+						StringUtils.stringToBinary("adapter")),
+				new ByteArrayId(
+						StringUtils.stringToBinary("data")),
+				new ByteArrayId(
+						StringUtils.stringToBinary("index")),
+				0,
+				commonData);
+	}
+}
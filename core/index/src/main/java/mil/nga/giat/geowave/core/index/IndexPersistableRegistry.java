@@ -0,0 +1,53 @@
+package mil.nga.giat.geowave.core.index;
+
+import mil.nga.giat.geowave.core.index.dimension.BasicDimensionDefinition;
+import mil.nga.giat.geowave.core.index.dimension.UnboundedDimensionDefinition;
+import mil.nga.giat.geowave.core.index.sfc.SFCDimensionDefinition;
+import mil.nga.giat.geowave.core.index.sfc.hilbert.HilbertSFC;
+import mil.nga.giat.geowave.core.index.sfc.tiered.SingleTierSubStrategy;
+import mil.nga.giat.geowave.core.index.sfc.tiered.TieredSFCIndexStrategy;
+import mil.nga.giat.geowave.core.index.sfc.zorder.ZOrderSFC;
+
+/**
+ * Registers the persistables of the core index module, using IDs 100-199
+ */
+public class IndexPersistableRegistry implements
+		PersistableRegistrySpi
+{
+
+	@Override
+	public PersistableIdAndClass[] getSupportedPersistables() {
+		return new PersistableIdAndClass[] {
+			new PersistableIdAndClass(
+					(short) 100,
+					BasicDimensionDefinition.class),
+			new PersistableIdAndClass(
+					(short) 101,
+					UnboundedDimensionDefinition.class),
+			new PersistableIdAndClass(
+					(short) 102,
+					SFCDimensionDefinition.class),
+			new PersistableIdAndClass(
+					(short) 103,
+					HilbertSFC.class),
+			new PersistableIdAndClass(
+					(short) 104,
+					ZOrderSFC.class),
+			new PersistableIdAndClass(
+					(short) 105,
+					TieredSFCIndexStrategy.class),
+			new PersistableIdAndClass(
+					(short) 106,
+					SingleTierSubStrategy.class),
+			new PersistableIdAndClass(
+					(short) 107,
+					CompoundIndexStrategy.class),
+			new PersistableIdAndClass(
+					(short) 108,
+					NullNumericIndexStrategy.class),
+			new PersistableIdAndClass(
+					(short) 109,
+					NumericIndexStrategyWrapper.class)
+		};
+	}
+}
@@ -0,0 +1,252 @@
+package mil.nga.giat.geowave.core.index;
+
+import java.lang.reflect.Constructor;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import mil.nga.giat.geowave.core.index.PersistableRegistrySpi.PersistableIdAndClass;
+
+import org.apache.log4j.Logger;
+
+/**
+ * This class instantiates persistables for deserialization. It maintains the
+ * mapping between registered persistable types and their numeric IDs (see
+ * {@link PersistableRegistrySpi}) and caches the no-arg constructor of every
+ * type it instantiates so that the class lookup and reflective constructor
+ * resolution is only performed once per type.
+ */
+public class PersistableFactory
+{
+	private final static Logger LOGGER = Logger.getLogger(PersistableFactory.class);
+	private static volatile Map<Class<?>, Short> classToIdRegistry = new HashMap<Class<?>, Short>();
+	private static volatile Map<Short, Constructor<?>> idToConstructorRegistry = new HashMap<Short, Constructor<?>>();
+	private static final Set<ClassLoader> SCANNED_CLASS_LOADERS = Collections.newSetFromMap(new WeakHashMap<ClassLoader, Boolean>());
+	private static final Set<String> SCANNED_REGISTRIES = new HashSet<String>();
+	private static final Map<String, Constructor<?>> CONSTRUCTOR_CACHE = new ConcurrentHashMap<String, Constructor<?>>();
+
+	/**
+	 * Registries are discovered from every class loader that persistables are
+	 * handled from, rather than only once from the first one, because class
+	 * loaders such as the per-table contexts of Accumulo iterators may only be
+	 * created after the first persistable has been handled
+	 * 
+	 * @return whether any new persistables were registered
+	 */
+	private static boolean scanRegistries(
+			final ClassLoader... classLoaders ) {
+		boolean unscanned = false;
+		synchronized (SCANNED_CLASS_LOADERS) {
+			for (final ClassLoader classLoader : classLoaders) {
+				if ((classLoader != null) && !SCANNED_CLASS_LOADERS.contains(classLoader)) {
+					unscanned = true;
+					break;
+				}
+			}
+		}
+		if (!unscanned) {
+			return false;
+		}
+		return registerPersistables(classLoaders);
+	}
+
+	private static synchronized boolean registerPersistables(
+			final ClassLoader... classLoaders ) {
+		final Map<Class<?>, Short> classToId = new HashMap<Class<?>, Short>(
+				classToIdRegistry);
+		final Map<Short, Constructor<?>> idToConstructor = new HashMap<Short, Constructor<?>>(
+				idToConstructorRegistry);
+		for (final ClassLoader classLoader : classLoaders) {
+			if (classLoader == null) {
+				continue;
+			}
+			synchronized (SCANNED_CLASS_LOADERS) {
+				if (!SCANNED_CLASS_LOADERS.add(classLoader)) {
+					continue;
+				}
+			}
+			final Iterator<PersistableRegistrySpi> registries = ServiceLoader.load(
+					PersistableRegistrySpi.class,
+					classLoader).iterator();
+			while (registries.hasNext()) {
+				final PersistableRegistrySpi registry;
+				try {
+					registry = registries.next();
+				}
+				catch (final ServiceConfigurationError e) {
+					LOGGER.warn(
+							"Unable to load persistable registry",
+							e);
+					continue;
+				}
+				if ((registry == null) || !SCANNED_REGISTRIES.add(registry.getClass().getName())) {
+					continue;
+				}
+				register(
+						registry,
+						classToId,
+						idToConstructor);
+			}
+		}
+		if (idToConstructor.size() == idToConstructorRegistry.size()) {
+			return false;
+		}
+		idToConstructorRegistry = idToConstructor;
+		classToIdRegistry = classToId;
+		return true;
+	}
+
+	private static void register(
+			final PersistableRegistrySpi registry,
+			final Map<Class<?>, Short> classToId,
+			final Map<Short, Constructor<?>> idToConstructor ) {
+		for (final PersistableIdAndClass persistable : registry.getSupportedPersistables()) {
+			final short id = persistable.getPersistableId();
+			final Class<? extends Persistable> persistableClass = persistable.getPersistableClass();
+			if (id <= 0) {
+				LOGGER.warn("Persistable ID " + id + " for " + persistableClass.getName() + " must be positive; not able to register it");
+			}
+			else if (idToConstructor.containsKey(id)) {
+				LOGGER.warn("Persistable ID " + id + " is already registered; not able to add " + persistableClass.getName());
+			}
+			else if (classToId.containsKey(persistableClass)) {
+				LOGGER.warn("Persistable " + persistableClass.getName() + " is already registered; not able to add it with ID " + id);
+			}
+			else {
+				final Constructor<?> constructor = getNoArgConstructor(persistableClass);
+				if (constructor != null) {
+					classToId.put(
+							persistableClass,
+							id);
+					idToConstructor.put(
+							id,
+							constructor);
+				}
+			}
+		}
+	}
+
+	/**
+	 * If the class is not yet registered, the registries of its class loader
+	 * and the thread's context class loader are discovered first
+	 * 
+	 * @return the registered ID of this exact class or null if it is not
+	 *         registered
+	 */
+	public static Short getRegisteredId(
+			final Class<?> persistableClass ) {
+		Short persistableId = classToIdRegistry.get(persistableClass);
+		if ((persistableId == null) && scanRegistries(
+				PersistableFactory.class.getClassLoader(),
+				Thread.currentThread().getContextClassLoader(),
+				persistableClass.getClassLoader())) {
+			persistableId = classToIdRegistry.get(persistableClass);
+		}
+		return persistableId;
+	}
+
+	/**
+	 * Instantiate the persistable registered with the given ID. If the ID is
+	 * not yet registered, the registries of the thread's context class loader
+	 * and the class loader of the expected type are discovered first.
+	 * 
+	 * @return the new instance or null if the ID is not registered or the
+	 *         instance is not of the expected type
+	 */
+	public static <T> T newInstance(
+			final short persistableId,
+			final Class<T> expectedType ) {
+		Constructor<?> constructor = idToConstructorRegistry.get(persistableId);
+		if ((constructor == null) && scanRegistries(
+				PersistableFactory.class.getClassLoader(),
+				Thread.currentThread().getContextClassLoader(),
+				expectedType.getClassLoader())) {
+			constructor = idToConstructorRegistry.get(persistableId);
+		}
+		if (constructor == null) {
+			LOGGER.warn("error creating class: persistable ID " + persistableId + " is not registered");
+			return null;
+		}
+		return newInstance(
+				constructor,
+				expectedType);
+	}
+
+	/**
+	 * Instantiate the given class by name using its no-arg constructor, which
+	 * is cached after the first lookup
+	 * 
+	 * @return the new instance or null if the class cannot be created or the
+	 *         instance is not of the expected type
+	 */
+	public static <T> T newInstance(
+			final String className,
+			final Class<T> expectedType ) {
+		Constructor<?> constructor = CONSTRUCTOR_CACHE.get(className);
+		if (constructor == null) {
+			Class<?> factoryType = null;
+			try {
+				factoryType = Class.forName(className);
+			}
+			catch (final Throwable e) {
+				LOGGER.warn(
+						"error creating class: could not find class " + className,
+						e);
+				return null;
+			}
+			constructor = getNoArgConstructor(factoryType);
+			if (constructor == null) {
+				return null;
+			}
+			CONSTRUCTOR_CACHE.put(
+					className,
+					constructor);
+		}
+		return newInstance(
+				constructor,
+				expectedType);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T newInstance(
+			final Constructor<?> constructor,
+			final Class<T> expectedType ) {
+		final Class<?> factoryType = constructor.getDeclaringClass();
+		if (!expectedType.isAssignableFrom(factoryType)) {
+			LOGGER.warn("error creating class: " + factoryType.getName() + " does not implement " + expectedType.getCanonicalName());
+			return null;
+		}
+		try {
+			return (T) constructor.newInstance();
+		}
+		catch (final Throwable e) {
+			LOGGER.warn(
+					"error creating class: could not create class " + factoryType.getName(),
+					e);
+		}
+		return null;
+	}
+
+	private static Constructor<?> getNoArgConstructor(
+			final Class<?> factoryType ) {
+		try {
+			// use the no arg constructor and make sure its accessible
+			final Constructor<?> noArgConstructor = factoryType.getDeclaredConstructor();
+			noArgConstructor.setAccessible(true);
+			return noArgConstructor;
+		}
+		catch (final Throwable e) {
+			LOGGER.warn(
+					"error creating class: could not create class " + factoryType.getName(),
+					e);
+		}
+		return null;
+	}
+}
@@ -0,0 +1,40 @@
+package mil.nga.giat.geowave.core.index;
+
+/**
+ * A registry of persistable types that are assigned compact numeric IDs.
+ * Registered persistables are serialized with a two byte ID instead of their
+ * fully qualified class name and are instantiated from a cached constructor
+ * when they are deserialized. Registries are discovered using SPI, so an
+ * implementation must be listed in
+ * META-INF/services/mil.nga.giat.geowave.core.index.PersistableRegistrySpi.
+ * 
+ * The IDs are persisted, so once assigned an ID must never be changed or reused
+ * for another type. IDs must be positive and unique across all registries; each
+ * module is given its own block of IDs (core index 100-199, core store 200-299,
+ * core geotime 300-399).
+ */
+public interface PersistableRegistrySpi
+{
+	public PersistableIdAndClass[] getSupportedPersistables();
+
+	public static class PersistableIdAndClass
+	{
+		private final short persistableId;
+		private final Class<? extends Persistable> persistableClass;
+
+		public PersistableIdAndClass(
+				final short persistableId,
+				final Class<? extends Persistable> persistableClass ) {
+			this.persistableId = persistableId;
+			this.persistableClass = persistableClass;
+		}
+
+		public short getPersistableId() {
+			return persistableId;
+		}
+
+		public Class<? extends Persistable> getPersistableClass() {
+			return persistableClass;
+		}
+	}
+}
@@ -1,13 +1,10 @@
 package mil.nga.giat.geowave.core.index;
 
-import java.lang.reflect.Constructor;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
-import org.apache.log4j.Logger;
-
 /**
  * A set of convenience methods for serializing and deserializing persistable
  * objects
@@ -15,8 +12,6 @@ import org.apache.log4j.Logger;
  */
 public class PersistenceUtils
 {
-	private final static Logger LOGGER = Logger.getLogger(PersistenceUtils.class);
-
 	public static byte[] toBinary(
 			final Collection<Persistable> persistables ) {
 		if (persistables.isEmpty()) {
@@ -41,10 +36,19 @@ public class PersistenceUtils
 
 	public static byte[] toBinary(
 			final Persistable persistable ) {
+		final byte[] persistableBinary = persistable.toBinary();
+		final Short persistableId = PersistableFactory.getRegisteredId(persistable.getClass());
+		if (persistableId != null) {
+			// registered types are prefaced with the negated ID, which can
+			// never be confused with the (positive) length of a class name
+			final ByteBuffer buf = ByteBuffer.allocate(2 + persistableBinary.length);
+			buf.putShort((short) -persistableId);
+			buf.put(persistableBinary);
+			return buf.array();
+		}
 		// preface the payload with the class name and a length of the class
 		// name
 		final byte[] className = StringUtils.stringToBinary(persistable.getClass().getName());
-		final byte[] persistableBinary = persistable.toBinary();
 		final int classNameLength = className.length;
 		final ByteBuffer buf = ByteBuffer.allocate(4 + classNameLength + persistableBinary.length);
 		buf.putInt(classNameLength);
@@ -77,63 +81,39 @@ public class PersistenceUtils
 			final byte[] bytes,
 			final Class<T> expectedType ) {
 		final ByteBuffer buf = ByteBuffer.wrap(bytes);
-		final int classNameLength = buf.getInt();
-		final byte[] classNameBinary = new byte[classNameLength];
-		final byte[] persistableBinary = new byte[bytes.length - classNameLength - 4];
-		buf.get(classNameBinary);
+		final T retVal;
+		if ((bytes.length >= 2) && (bytes[0] < 0)) {
+			// a registered type, the class name length would always have a
+			// leading zero byte
+			final short persistableId = (short) -buf.getShort();
+			retVal = PersistableFactory.newInstance(
+					persistableId,
+					expectedType);
+		}
+		else {
+			final int classNameLength = buf.getInt();
+			final byte[] classNameBinary = new byte[classNameLength];
+			buf.get(classNameBinary);
 
-		final String className = StringUtils.stringFromBinary(classNameBinary);
+			final String className = StringUtils.stringFromBinary(classNameBinary);
 
-		final T retVal = classFactory(
-				className,
-				expectedType);
+			retVal = classFactory(
+					className,
+					expectedType);
+		}
 		if (retVal != null) {
+			final byte[] persistableBinary = new byte[buf.remaining()];
 			buf.get(persistableBinary);
 			retVal.fromBinary(persistableBinary);
 		}
 		return retVal;
 	}
 
-	@SuppressWarnings("unchecked")
 	public static <T> T classFactory(
 			final String className,
 			final Class<T> expectedType ) {
-		Class<?> factoryType = null;
-
-		try {
-			factoryType = Class.forName(className);
-		}
-		catch (final Throwable e) {
-			LOGGER.warn(
-					"error creating class: could not find class " + className,
-					e);
-		}
-
-		if (factoryType != null) {
-			Object factoryClassInst = null;
-
-			try {
-				// use the no arg constructor and make sure its accessible
-				final Constructor<?> noArgConstructor = factoryType.getDeclaredConstructor();
-				noArgConstructor.setAccessible(true);
-				factoryClassInst = noArgConstructor.newInstance();
-			}
-			catch (final Throwable e) {
-				LOGGER.warn(
-						"error creating class: could not create class " + className,
-						e);
-			}
-
-			if (factoryClassInst != null) {
-				if (!expectedType.isAssignableFrom(factoryClassInst.getClass())) {
-					LOGGER.warn("error creating class: " + className + " does not implement " + expectedType.getCanonicalName());
-				}
-				else {
-					return ((T) factoryClassInst);
-				}
-			}
-		}
-
-		return null;
+		return PersistableFactory.newInstance(
+				className,
+				expectedType);
 	}
 }
@@ -0,0 +1,22 @@
+package mil.nga.giat.geowave.core.index;
+
+/**
+ * This estimates how many rows of an index fall within a range of row IDs so
+ * that an index strategy can weigh the rows that a coarser decomposition of a
+ * query would scan against the seeks that a finer decomposition would require.
+ */
+public interface RowCountEstimator
+{
+	/**
+	 * 
+	 * @param start
+	 *            the first row ID of the range
+	 * @param end
+	 *            the last row ID of the range, which includes every row ID that
+	 *            it is a prefix of
+	 * @return the estimated number of rows within the range
+	 */
+	public double getEstimatedRowCount(
+			ByteArrayId start,
+			ByteArrayId end );
+}
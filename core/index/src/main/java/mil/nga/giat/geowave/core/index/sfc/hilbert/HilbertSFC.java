@@ -23,7 +23,9 @@ import com.google.uzaygezen.core.MultiDimensionalSpec;
 public class HilbertSFC implements
 		SpaceFillingCurve
 {
-	protected CompactHilbertCurve compactHilbertCurve;
+	// the compact hilbert curve keeps intermediate state while indexing so
+	// each thread is given its own instance rather than locking a shared one
+	protected ThreadLocal<CompactHilbertCurve> compactHilbertCurve;
 	protected SFCDimensionDefinition[] dimensionDefinitions;
 	protected int totalPrecision;
 
@@ -54,9 +56,15 @@ public class HilbertSFC implements
 			totalPrecision += dimension.getBitsOfPrecision();
 		}
 
-		compactHilbertCurve = new CompactHilbertCurve(
-				new MultiDimensionalSpec(
-						bitsPerDimension));
+		final MultiDimensionalSpec spec = new MultiDimensionalSpec(
+				bitsPerDimension);
+		compactHilbertCurve = new ThreadLocal<CompactHilbertCurve>() {
+			@Override
+			protected CompactHilbertCurve initialValue() {
+				return new CompactHilbertCurve(
+						spec);
+			}
+		};
 
 		dimensionDefinitions = dimensionDefs;
 		setOptimalOperations(
@@ -115,7 +123,7 @@ public class HilbertSFC implements
 			final double[] values ) {
 		return getIdOperations.convertToHilbert(
 				values,
-				compactHilbertCurve,
+				compactHilbertCurve.get(),
 				dimensionDefinitions);
 	}
 
@@ -143,7 +151,7 @@ public class HilbertSFC implements
 		}
 		return decomposeQueryOperations.decomposeRange(
 				query.getDataPerDimension(),
-				compactHilbertCurve,
+				compactHilbertCurve.get(),
 				dimensionDefinitions,
 				totalPrecision,
 				maxFilteredIndexedRanges,
@@ -269,7 +277,7 @@ public class HilbertSFC implements
 			final byte[] id ) {
 		return getIdOperations.convertFromHilbert(
 				id,
-				compactHilbertCurve,
+				compactHilbertCurve.get(),
 				dimensionDefinitions);
 	}
 
@@ -278,7 +286,7 @@ public class HilbertSFC implements
 			final byte[] id ) {
 		return getIdOperations.indicesFromHilbert(
 				id,
-				compactHilbertCurve,
+				compactHilbertCurve.get(),
 				dimensionDefinitions);
 	}
 
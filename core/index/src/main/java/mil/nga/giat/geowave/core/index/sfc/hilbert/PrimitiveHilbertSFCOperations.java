@@ -39,6 +39,8 @@ import com.google.uzaygezen.core.ranges.LongRangeHome;
  * for query decomposition it is currently used if the total precision is <= 62
  * bits.
  * 
+ * The operations themselves are stateless, but the compact hilbert curve that
+ * is passed in is not thread-safe and must not be shared between threads.
  * 
  */
 public class PrimitiveHilbertSFCOperations implements
@@ -125,12 +127,10 @@ public class PrimitiveHilbertSFCOperations implements
 			bitVectors[i] = BitVectorFactories.OPTIMAL.apply(dimensionDefinitions[i].getBitsOfPrecision());
 			bitVectors[i].copyFrom(values.get(i));
 		}
-		synchronized (compactHilbertCurve) {
-			compactHilbertCurve.index(
-					bitVectors,
-					0,
-					hilbertBitVector);
-		}
+		compactHilbertCurve.index(
+				bitVectors,
+				0,
+				hilbertBitVector);
 		return hilbertBitVector;
 	}
 
@@ -194,11 +194,9 @@ public class PrimitiveHilbertSFCOperations implements
 			perDimensionBitVectors[i] = BitVectorFactories.OPTIMAL.apply(dimensionDefinitions[i].getBitsOfPrecision());
 		}
 
-		synchronized (compactHilbertCurve) {
-			compactHilbertCurve.indexInverse(
-					hilbertBitVector,
-					perDimensionBitVectors);
-		}
+		compactHilbertCurve.indexInverse(
+				hilbertBitVector,
+				perDimensionBitVectors);
 		return perDimensionBitVectors;
 	}
 
@@ -359,11 +357,9 @@ public class PrimitiveHilbertSFCOperations implements
 				removeVacuum,
 				LongRangeHome.INSTANCE,
 				zero);
-		synchronized (compactHilbertCurve) {
-			compactHilbertCurve.accept(new ZoomingSpaceVisitorAdapter(
-					compactHilbertCurve,
-					queryBuilder));
-		}
+		compactHilbertCurve.accept(new ZoomingSpaceVisitorAdapter(
+				compactHilbertCurve,
+				queryBuilder));
 		final List<FilteredIndexRange<LongRange, LongRange>> hilbertRanges = queryBuilder.get().getFilteredIndexRanges();
 
 		final ByteArrayRange[] sfcRanges = new ByteArrayRange[hilbertRanges.size()];
@@ -4,16 +4,20 @@ import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import mil.nga.giat.geowave.core.index.ByteArrayId;
 import mil.nga.giat.geowave.core.index.ByteArrayRange;
 import mil.nga.giat.geowave.core.index.ByteArrayUtils;
 import mil.nga.giat.geowave.core.index.HierarchicalNumericIndexStrategy;
 import mil.nga.giat.geowave.core.index.PersistenceUtils;
+import mil.nga.giat.geowave.core.index.RowCountEstimator;
 import mil.nga.giat.geowave.core.index.StringUtils;
 import mil.nga.giat.geowave.core.index.dimension.NumericDimensionDefinition;
 import mil.nga.giat.geowave.core.index.dimension.bin.BinRange;
@@ -29,6 +33,7 @@ import org.apache.log4j.Logger;
 
 import com.google.common.collect.ImmutableBiMap;
 import com.google.common.collect.ImmutableBiMap.Builder;
+import com.google.common.primitives.UnsignedBytes;
 
 /**
  * This class uses multiple SpaceFillingCurve objects, one per tier, to
@@ -97,6 +102,205 @@ public class TieredSFCIndexStrategy implements
 		return queryRanges;
 	}
 
+	/**
+	 * Returns a list of query ranges for the tiers and bins that are known to
+	 * contain data, skipping all others. The range decomposition is split
+	 * evenly among the tiers and bins that remain rather than among every tier
+	 * and bin. The result is empty if none of the tiers and bins intersecting
+	 * the query contain data, which, unlike an empty list returned by the other
+	 * methods, does not imply an unconstrained query.
+	 * 
+	 * @param indexedRange
+	 *            defines the numeric range for the query
+	 * @param maxRangeDecomposition
+	 *            the maximum number of ranges to decompose the query into
+	 * @param occupiedTierAndBinIds
+	 *            the tier ID followed by the bin ID of every tier and bin that
+	 *            contains data, or null to query every tier and bin
+	 * @return a List of query ranges
+	 */
+	public List<ByteArrayRange> getQueryRanges(
+			final MultiDimensionalNumericData indexedRange,
+			final int maxRangeDecomposition,
+			final Set<ByteArrayId> occupiedTierAndBinIds ) {
+		if (occupiedTierAndBinIds == null) {
+			return getQueryRanges(
+					indexedRange,
+					maxRangeDecomposition);
+		}
+		final BinnedNumericDataset[] binnedQueries = BinnedNumericDataset.applyBins(
+				indexedRange,
+				baseDefinitions);
+		final List<SpaceFillingCurve> occupiedSfcs = new ArrayList<SpaceFillingCurve>();
+		final List<BinnedNumericDataset> occupiedQueries = new ArrayList<BinnedNumericDataset>();
+		final List<byte[]> occupiedTierAndBinIdBytes = new ArrayList<byte[]>();
+		for (int sfcIndex = orderedSfcs.length - 1; sfcIndex >= 0; sfcIndex--) {
+			final byte tier = orderedSfcIndexToTierId.get(sfcIndex);
+			for (final BinnedNumericDataset binnedQuery : binnedQueries) {
+				final byte[] tierAndBinId = getTierAndBinId(
+						tier,
+						binnedQuery);
+				if (occupiedTierAndBinIds.contains(new ByteArrayId(
+						tierAndBinId))) {
+					occupiedSfcs.add(orderedSfcs[sfcIndex]);
+					occupiedQueries.add(binnedQuery);
+					occupiedTierAndBinIdBytes.add(tierAndBinId);
+				}
+			}
+		}
+		int maxRangeDecompositionPerBin = maxRangeDecomposition;
+		if ((maxRangeDecomposition > 1) && (occupiedQueries.size() > 1)) {
+			maxRangeDecompositionPerBin = (int) Math.ceil((double) maxRangeDecomposition / (double) occupiedQueries.size());
+		}
+		final List<ByteArrayRange> queryRanges = new ArrayList<ByteArrayRange>();
+		for (int i = 0; i < occupiedQueries.size(); i++) {
+			addQueryRanges(
+					occupiedQueries.get(i),
+					occupiedSfcs.get(i),
+					maxRangeDecompositionPerBin,
+					occupiedTierAndBinIdBytes.get(i),
+					queryRanges);
+		}
+		return queryRanges;
+	}
+
+	/**
+	 * Returns a list of query ranges that are decomposed according to the
+	 * estimated distribution of rows rather than uniformly. The range
+	 * decomposition is split among the tiers and bins in proportion to the rows
+	 * they are estimated to contain within the query, so that the ranges are
+	 * finest where the data is densest. Adjacent ranges are then merged
+	 * whenever fewer rows are estimated to lie between them than the cost of
+	 * seeking to the second range. No tier or bin is skipped, because an
+	 * estimate of zero rows may only mean that the rows were written without
+	 * being estimated, so those that are not estimated to contain any rows are
+	 * queried with a single range.
+	 * 
+	 * @param indexedRange
+	 *            defines the numeric range for the query
+	 * @param maxRangeDecomposition
+	 *            the maximum number of ranges to decompose the query into
+	 * @param rowCountEstimator
+	 *            estimates the rows within ranges of row IDs, or null to
+	 *            decompose the query uniformly
+	 * @param seekCostInRows
+	 *            the number of rows that can be scanned in the time it takes to
+	 *            seek to another range
+	 * @return a List of query ranges
+	 */
+	public List<ByteArrayRange> getQueryRanges(
+			final MultiDimensionalNumericData indexedRange,
+			final int maxRangeDecomposition,
+			final RowCountEstimator rowCountEstimator,
+			final double seekCostInRows ) {
+		if (rowCountEstimator == null) {
+			return getQueryRanges(
+					indexedRange,
+					maxRangeDecomposition);
+		}
+		final BinnedNumericDataset[] binnedQueries = BinnedNumericDataset.applyBins(
+				indexedRange,
+				baseDefinitions);
+		final List<SpaceFillingCurve> sfcs = new ArrayList<SpaceFillingCurve>();
+		final List<BinnedNumericDataset> queries = new ArrayList<BinnedNumericDataset>();
+		final List<byte[]> tierAndBinIdBytes = new ArrayList<byte[]>();
+		final List<Double> estimatedRowCounts = new ArrayList<Double>();
+		double totalEstimatedRowCount = 0;
+		for (int sfcIndex = orderedSfcs.length - 1; sfcIndex >= 0; sfcIndex--) {
+			final byte tier = orderedSfcIndexToTierId.get(sfcIndex);
+			for (final BinnedNumericDataset binnedQuery : binnedQueries) {
+				final byte[] tierAndBinId = getTierAndBinId(
+						tier,
+						binnedQuery);
+				// the coarsest decomposition bounds the rows that any finer
+				// decomposition could scan within this tier and bin
+				final List<ByteArrayRange> coarseRanges = new ArrayList<ByteArrayRange>();
+				addQueryRanges(
+						binnedQuery,
+						orderedSfcs[sfcIndex],
+						1,
+						tierAndBinId,
+						coarseRanges);
+				double estimatedRowCount = 0;
+				for (final ByteArrayRange range : coarseRanges) {
+					estimatedRowCount += rowCountEstimator.getEstimatedRowCount(
+							range.getStart(),
+							range.getEnd());
+				}
+				sfcs.add(orderedSfcs[sfcIndex]);
+				queries.add(binnedQuery);
+				tierAndBinIdBytes.add(tierAndBinId);
+				estimatedRowCounts.add(estimatedRowCount);
+				totalEstimatedRowCount += estimatedRowCount;
+			}
+		}
+		final List<ByteArrayRange> queryRanges = new ArrayList<ByteArrayRange>();
+		for (int i = 0; i < queries.size(); i++) {
+			int maxRanges = 1;
+			if (totalEstimatedRowCount > 0) {
+				maxRanges = Math.max(
+						1,
+						(int) Math.round((maxRangeDecomposition * estimatedRowCounts.get(i)) / totalEstimatedRowCount));
+			}
+			final List<ByteArrayRange> ranges = new ArrayList<ByteArrayRange>();
+			addQueryRanges(
+					queries.get(i),
+					sfcs.get(i),
+					maxRanges,
+					tierAndBinIdBytes.get(i),
+					ranges);
+			queryRanges.addAll(mergeSparseGaps(
+					ranges,
+					rowCountEstimator,
+					seekCostInRows));
+		}
+		return queryRanges;
+	}
+
+	private static List<ByteArrayRange> mergeSparseGaps(
+			final List<ByteArrayRange> ranges,
+			final RowCountEstimator rowCountEstimator,
+			final double seekCostInRows ) {
+		if (ranges.size() < 2) {
+			return ranges;
+		}
+		final Comparator<byte[]> comparator = UnsignedBytes.lexicographicalComparator();
+		Collections.sort(
+				ranges,
+				new Comparator<ByteArrayRange>() {
+					@Override
+					public int compare(
+							final ByteArrayRange o1,
+							final ByteArrayRange o2 ) {
+						return comparator.compare(
+								o1.getStart().getBytes(),
+								o2.getStart().getBytes());
+					}
+				});
+		final List<ByteArrayRange> mergedRanges = new ArrayList<ByteArrayRange>();
+		ByteArrayRange currentRange = ranges.get(0);
+		for (int i = 1; i < ranges.size(); i++) {
+			final ByteArrayRange nextRange = ranges.get(i);
+			// the estimate includes the rows at either end of the gap, which
+			// are within the ranges, so this errs on the side of seeking
+			if (rowCountEstimator.getEstimatedRowCount(
+					currentRange.getEnd(),
+					nextRange.getStart()) <= seekCostInRows) {
+				currentRange = new ByteArrayRange(
+						currentRange.getStart(),
+						comparator.compare(
+								currentRange.getEnd().getBytes(),
+								nextRange.getEnd().getBytes()) >= 0 ? currentRange.getEnd() : nextRange.getEnd());
+			}
+			else {
+				mergedRanges.add(currentRange);
+				currentRange = nextRange;
+			}
+		}
+		mergedRanges.add(currentRange);
+		return mergedRanges;
+	}
+
 	protected static List<ByteArrayRange> getQueryRanges(
 			final BinnedNumericDataset[] binnedQueries,
 			final SpaceFillingCurve sfc,
@@ -109,31 +313,70 @@ public class TieredSFCIndexStrategy implements
 			maxRangeDecompositionPerBin = (int) Math.ceil((double) maxRanges / (double) binnedQueries.length);
 		}
 		for (final BinnedNumericDataset binnedQuery : binnedQueries) {
-			final RangeDecomposition rangeDecomp = sfc.decomposeQuery(
+			addQueryRanges(
 					binnedQuery,
-					maxRangeDecompositionPerBin);
-			final byte[] tierAndBinId = ByteArrayUtils.combineArrays(
-					new byte[] {
-						tier
-					// we're assuming tiers only go to 127 (the max byte
-					// value)
-					},
-					binnedQuery.getBinId());
-			for (final ByteArrayRange range : rangeDecomp.getRanges()) {
-				queryRanges.add(new ByteArrayRange(
-						new ByteArrayId(
-								ByteArrayUtils.combineArrays(
-										tierAndBinId,
-										range.getStart().getBytes())),
-						new ByteArrayId(
-								ByteArrayUtils.combineArrays(
-										tierAndBinId,
-										range.getEnd().getBytes()))));
-			}
+					sfc,
+					maxRangeDecompositionPerBin,
+					getTierAndBinId(
+							tier,
+							binnedQuery),
+					queryRanges);
 		}
 		return queryRanges;
 	}
 
+	private static void addQueryRanges(
+			final BinnedNumericDataset binnedQuery,
+			final SpaceFillingCurve sfc,
+			final int maxRanges,
+			final byte[] tierAndBinId,
+			final List<ByteArrayRange> queryRanges ) {
+		final RangeDecomposition rangeDecomp = sfc.decomposeQuery(
+				binnedQuery,
+				maxRanges);
+		for (final ByteArrayRange range : rangeDecomp.getRanges()) {
+			queryRanges.add(new ByteArrayRange(
+					new ByteArrayId(
+							ByteArrayUtils.combineArrays(
+									tierAndBinId,
+									range.getStart().getBytes())),
+					new ByteArrayId(
+							ByteArrayUtils.combineArrays(
+									tierAndBinId,
+									range.getEnd().getBytes()))));
+		}
+	}
+
+	private static byte[] getTierAndBinId(
+			final byte tier,
+			final BinnedNumericDataset binnedQuery ) {
+		return ByteArrayUtils.combineArrays(
+				new byte[] {
+					tier
+				// we're assuming tiers only go to 127 (the max byte
+				// value)
+				},
+				binnedQuery.getBinId());
+	}
+
+	/**
+	 * Returns the length of the prefix of every row ID that identifies the tier
+	 * and bin of the row, which is a byte for the tier followed by the fixed
+	 * size bin ID of each binned dimension
+	 * 
+	 * @return the length of the tier and bin ID prefix of each row ID
+	 */
+	public int getTierAndBinIdLength() {
+		// one for the tier
+		int length = 1;
+		for (final NumericDimensionDefinition dimension : baseDefinitions) {
+			length += Math.max(
+					0,
+					dimension.getFixedBinIdSize());
+		}
+		return length;
+	}
+
 	/**
 	 * Returns a list of query ranges for an specified numeric range.
 	 * 
@@ -0,0 +1,184 @@
+package mil.nga.giat.geowave.core.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import mil.nga.giat.geowave.core.index.dimension.BasicDimensionDefinition;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PersistenceUtilsTest
+{
+
+	@Test
+	public void testRegisteredPersistable() {
+		final BasicDimensionDefinition dimension = new BasicDimensionDefinition(
+				-180,
+				180);
+		final byte[] bytes = PersistenceUtils.toBinary(dimension);
+		// a registered persistable only needs a two byte prefix
+		Assert.assertEquals(
+				dimension.toBinary().length + 2,
+				bytes.length);
+		Assert.assertEquals(
+				dimension,
+				PersistenceUtils.fromBinary(
+						bytes,
+						BasicDimensionDefinition.class));
+	}
+
+	@Test
+	public void testUnregisteredPersistable() {
+		final TestPersistable persistable = new TestPersistable(
+				42);
+		final byte[] bytes = PersistenceUtils.toBinary(persistable);
+		Assert.assertEquals(
+				4 + StringUtils.stringToBinary(TestPersistable.class.getName()).length + 4,
+				bytes.length);
+		Assert.assertEquals(
+				42,
+				PersistenceUtils.fromBinary(
+						bytes,
+						TestPersistable.class).value);
+	}
+
+	@Test
+	public void testClassNameEncodingOfRegisteredPersistable() {
+		// binaries persisted before a type was registered are prefaced with
+		// the class name and must still be readable
+		final BasicDimensionDefinition dimension = new BasicDimensionDefinition(
+				-90,
+				90);
+		final byte[] className = StringUtils.stringToBinary(BasicDimensionDefinition.class.getName());
+		final byte[] persistableBinary = dimension.toBinary();
+		final ByteBuffer buf = ByteBuffer.allocate(4 + className.length + persistableBinary.length);
+		buf.putInt(className.length);
+		buf.put(className);
+		buf.put(persistableBinary);
+		Assert.assertEquals(
+				dimension,
+				PersistenceUtils.fromBinary(
+						buf.array(),
+						BasicDimensionDefinition.class));
+	}
+
+	@Test
+	public void testUnexpectedType() {
+		final byte[] bytes = PersistenceUtils.toBinary(new BasicDimensionDefinition(
+				0,
+				1));
+		Assert.assertNull(PersistenceUtils.fromBinary(
+				bytes,
+				NumericIndexStrategy.class));
+	}
+
+	@Test
+	public void testRegistryOfLaterClassLoader()
+			throws IOException {
+		final byte[] persistableBinary = new LateRegisteredPersistable(
+				7).toBinary();
+		final ByteBuffer buf = ByteBuffer.allocate(2 + persistableBinary.length);
+		buf.putShort((short) -LateRegistry.LATE_REGISTERED_ID);
+		buf.put(persistableBinary);
+		final byte[] bytes = buf.array();
+		Assert.assertNull(PersistenceUtils.fromBinary(
+				bytes,
+				LateRegisteredPersistable.class));
+
+		// a class loader created later, such as an Accumulo per-table
+		// context, registers the persistable
+		final File classPath = Files.createTempDirectory(
+				"persistable-registry").toFile();
+		final File services = new File(
+				classPath,
+				"META-INF/services/" + PersistableRegistrySpi.class.getName());
+		services.getParentFile().mkdirs();
+		Files.write(
+				services.toPath(),
+				StringUtils.stringToBinary(LateRegistry.class.getName()));
+		final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+		try (URLClassLoader classLoader = new URLClassLoader(
+				new URL[] {
+					classPath.toURI().toURL()
+				},
+				PersistenceUtilsTest.class.getClassLoader())) {
+			Thread.currentThread().setContextClassLoader(
+					classLoader);
+			Assert.assertEquals(
+					7,
+					((TestPersistable) PersistenceUtils.fromBinary(
+							bytes,
+							LateRegisteredPersistable.class)).value);
+		}
+		finally {
+			Thread.currentThread().setContextClassLoader(
+					contextClassLoader);
+			services.delete();
+			services.getParentFile().delete();
+			services.getParentFile().getParentFile().delete();
+			classPath.delete();
+		}
+		Assert.assertEquals(
+				Short.valueOf(LateRegistry.LATE_REGISTERED_ID),
+				PersistableFactory.getRegisteredId(LateRegisteredPersistable.class));
+	}
+
+	public static class LateRegistry implements
+			PersistableRegistrySpi
+	{
+		private static final short LATE_REGISTERED_ID = 32000;
+
+		@Override
+		public PersistableIdAndClass[] getSupportedPersistables() {
+			return new PersistableIdAndClass[] {
+				new PersistableIdAndClass(
+						LATE_REGISTERED_ID,
+						LateRegisteredPersistable.class)
+			};
+		}
+	}
+
+	public static class LateRegisteredPersistable extends
+			TestPersistable
+	{
+		protected LateRegisteredPersistable() {}
+
+		public LateRegisteredPersistable(
+				final int value ) {
+			super(
+					value);
+		}
+	}
+
+	public static class TestPersistable implements
+			Persistable
+	{
+		private int value;
+
+		protected TestPersistable() {}
+
+		public TestPersistable(
+				final int value ) {
+			this.value = value;
+		}
+
+		@Override
+		public byte[] toBinary() {
+			return ByteBuffer.allocate(
+					4).putInt(
+					value).array();
+		}
+
+		@Override
+		public void fromBinary(
+				final byte[] bytes ) {
+			value = ByteBuffer.wrap(
+					bytes).getInt();
+		}
+	}
+}
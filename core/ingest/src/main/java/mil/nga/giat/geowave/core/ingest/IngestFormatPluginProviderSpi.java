@@ -34,7 +34,9 @@ public interface IngestFormatPluginProviderSpi<I, O>
 	/**
 	 * This plugin will be used by the ingestion framework to read data from a
 	 * local file system, and translate supported files into the data entries
-	 * that will be written directly in GeoWave.
+	 * that will be written directly in GeoWave. Files may be parsed on several
+	 * threads, each of which is given its own plugin, so a new plugin should be
+	 * returned each time this is called unless the plugin is thread safe.
 	 * 
 	 * @return The plugin for ingesting data from a local file system directly
 	 *         into GeoWave
@@ -77,7 +79,9 @@ public interface IngestFormatPluginProviderSpi<I, O>
 	/**
 	 * This plugin will be used by the ingestion framework to stage intermediate
 	 * data from a local filesystem (for example to HDFS for map reduce ingest
-	 * or to kafka for kafka ingest).
+	 * or to kafka for kafka ingest). Kafka messages may be ingested on several
+	 * threads, each of which is given its own plugin, so a new plugin should be
+	 * returned each time this is called unless the plugin is thread safe.
 	 * 
 	 * @return The plugin for staging to avro if it is supported
 	 * @throws UnsupportedOperationException
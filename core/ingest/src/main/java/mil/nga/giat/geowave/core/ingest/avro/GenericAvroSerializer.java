@@ -28,7 +28,15 @@ public class GenericAvroSerializer<T>
 	private static final EncoderFactory ef = EncoderFactory.get();
 	private static final DecoderFactory df = DecoderFactory.get();
 	private static final Map<String, SpecificDatumWriter> writers = new HashMap<>();
-	private static final Map<String, SpecificDatumReader> readers = new HashMap<>();
+	// readers are not thread-safe, so each thread deserializes with its own
+	// readers rather than contending for a global lock
+	private static final ThreadLocal<Map<String, SpecificDatumReader>> readers = new ThreadLocal<Map<String, SpecificDatumReader>>() {
+		@Override
+		protected Map<String, SpecificDatumReader> initialValue() {
+			return new HashMap<>();
+		}
+	};
+	private static final ThreadLocal<BinaryDecoder> decoders = new ThreadLocal<>();
 
 	public GenericAvroSerializer() {}
 
@@ -63,22 +71,24 @@ public class GenericAvroSerializer<T>
 		}
 	}
 
-	synchronized public static <T> T deserialize(
+	public static <T> T deserialize(
 			final byte[] avroData,
 			final Schema avroSchema ) {
 		try {
 			final BinaryDecoder decoder = df.binaryDecoder(
 					avroData,
-					null);
+					decoders.get());
+			decoders.set(decoder);
 
 			final String schemaName = getSchemaName(avroSchema);
-			if (!readers.containsKey(schemaName)) {
-				readers.put(
+			final Map<String, SpecificDatumReader> threadReaders = readers.get();
+			if (!threadReaders.containsKey(schemaName)) {
+				threadReaders.put(
 						schemaName,
 						new SpecificDatumReader<T>(
 								avroSchema));
 			}
-			final SpecificDatumReader<T> reader = readers.get(schemaName);
+			final SpecificDatumReader<T> reader = threadReaders.get(schemaName);
 			return reader.read(
 					null,
 					decoder);
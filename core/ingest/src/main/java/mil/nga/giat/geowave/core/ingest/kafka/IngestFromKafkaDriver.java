@@ -3,9 +3,11 @@ package mil.nga.giat.geowave.core.ingest.kafka;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -45,6 +47,7 @@ public class IngestFromKafkaDriver extends
 		AbstractIngestCommandLineDriver
 {
 	private final static Logger LOGGER = Logger.getLogger(IngestFromKafkaDriver.class);
+	private final static String AUTO_COMMIT_PROPERTY = "auto.commit.enable";
 
 	private KafkaConsumerCommandLineOptions kafkaOptions;
 	private AccumuloCommandLineOptions accumuloOptions;
@@ -76,7 +79,8 @@ public class IngestFromKafkaDriver extends
 		final DataStore dataStore = new AccumuloDataStore(
 				operations);
 
-		final List<String> queue = new ArrayList<String>();
+		// the consumers of each topic remove its plugin once they are listening
+		final List<String> queue = Collections.synchronizedList(new ArrayList<String>());
 		addPluginsToQueue(
 				pluginProviders,
 				queue);
@@ -89,8 +93,11 @@ public class IngestFromKafkaDriver extends
 		int counter = 0;
 		while (queue.size() > 0) {
 			if (counter > 30) {
-				for (final String pluginFormatName : queue) {
-					LOGGER.error("Unable to start up Kafka consumer for plugin [" + pluginFormatName + "]");
+				// the consumer threads may still be removing plugins
+				synchronized (queue) {
+					for (final String pluginFormatName : queue) {
+						LOGGER.error("Unable to start up Kafka consumer for plugin [" + pluginFormatName + "]");
+					}
 				}
 				break;
 			}
@@ -110,8 +117,10 @@ public class IngestFromKafkaDriver extends
 		}
 		else {
 			LOGGER.warn("Unable to setup Kafka consumers for the following format plugins:");
-			for (final String formatPluginName : queue) {
-				LOGGER.warn("\t[" + formatPluginName + "]");
+			synchronized (queue) {
+				for (final String formatPluginName : queue) {
+					LOGGER.warn("\t[" + formatPluginName + "]");
+				}
 			}
 		}
 	}
@@ -143,14 +152,12 @@ public class IngestFromKafkaDriver extends
 					final IngestPluginBase<?, ?> ingestWithAvroPlugin = avroFormatPlugin.getIngestWithAvroPlugin();
 					final WritableDataAdapter<?>[] dataAdapters = ingestWithAvroPlugin.getDataAdapters(ingestOptions.getVisibility());
 					adapters.addAll(Arrays.asList(dataAdapters));
-					final IngestRunData runData = new IngestRunData(
-							adapters,
-							dataStore);
 
-					launchTopicConsumer(
-							pluginProvider.getIngestFormatName(),
+					launchTopicConsumers(
+							pluginProvider,
 							avroFormatPlugin,
-							runData,
+							adapters,
+							dataStore,
 							queue);
 				}
 				catch (final UnsupportedOperationException e) {
@@ -169,43 +176,86 @@ public class IngestFromKafkaDriver extends
 	}
 
 	private ConsumerConnector buildKafkaConsumer() {
-
+		final Properties properties = new Properties();
+		properties.putAll(kafkaOptions.getProperties());
+		// offsets are committed only after the messages they cover have been
+		// flushed, so that messages are not lost if the consumer fails
+		properties.put(
+				AUTO_COMMIT_PROPERTY,
+				"false");
 		final ConsumerConnector consumer = Consumer.createJavaConsumerConnector(new ConsumerConfig(
-				kafkaOptions.getProperties()));
+				properties));
 
 		return consumer;
 	}
 
-	private void launchTopicConsumer(
-			final String formatPluginName,
+	/**
+	 * Each consumer thread has its own connector to the topic within the same
+	 * consumer group, so that Kafka assigns each thread a share of the
+	 * topic's partitions and each thread commits only the offsets of the
+	 * messages it has flushed. Each thread also writes through its own index
+	 * writers so that the threads do not contend with each other. Format
+	 * plugins are not required to be thread safe, so each thread asks the
+	 * plugin provider for its own plugin, and if the provider returns the same
+	 * plugin to more than one thread the messages are processed one at a time
+	 * by that plugin.
+	 */
+	private void launchTopicConsumers(
+			final IngestFormatPluginProviderSpi<?, ?> pluginProvider,
 			final AvroFormatPlugin<?, ?> avroFormatPlugin,
-			final IngestRunData ingestRunData,
+			final List<WritableDataAdapter<?>> adapters,
+			final DataStore dataStore,
 			final List<String> queue )
 			throws Exception {
-		final ExecutorService executorService = Executors.newFixedThreadPool(queue.size());
-		executorService.execute(new Runnable() {
-
-			@Override
-			public void run() {
-				try {
-					consumeFromTopic(
-							formatPluginName,
-							avroFormatPlugin,
-							ingestRunData,
-							queue);
-				}
-				catch (final Exception e) {
-					LOGGER.error(
-							"Error consuming from Kafka topic [" + formatPluginName + "]",
-							e);
+		final String formatPluginName = pluginProvider.getIngestFormatName();
+		final int consumerThreads = kafkaOptions.getConsumerThreads();
+		final ExecutorService executorService = Executors.newFixedThreadPool(consumerThreads);
+		boolean sharedPlugin = false;
+		final AvroFormatPlugin<?, ?>[] consumerPlugins = new AvroFormatPlugin<?, ?>[consumerThreads];
+		consumerPlugins[0] = avroFormatPlugin;
+		for (int i = 1; i < consumerThreads; i++) {
+			consumerPlugins[i] = pluginProvider.getAvroFormatPlugin();
+			for (int j = 0; j < i; j++) {
+				if (consumerPlugins[i] == consumerPlugins[j]) {
+					sharedPlugin = true;
 				}
 			}
-		});
+		}
+		if (sharedPlugin) {
+			LOGGER.warn("Plugin provider for ingest type '" + formatPluginName + "' does not return a new avro format plugin each time, so its messages will be processed one at a time");
+		}
+		final boolean processSerially = sharedPlugin;
+		for (int i = 0; i < consumerThreads; i++) {
+			final AvroFormatPlugin<?, ?> consumerPlugin = consumerPlugins[i];
+			executorService.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					try (final IngestRunData ingestRunData = new IngestRunData(
+							adapters,
+							dataStore)) {
+						consumeFromTopic(
+								formatPluginName,
+								consumerPlugin,
+								processSerially,
+								ingestRunData,
+								queue);
+					}
+					catch (final Exception e) {
+						LOGGER.error(
+								"Error consuming from Kafka topic [" + formatPluginName + "]",
+								e);
+					}
+				}
+			});
+		}
+		executorService.shutdown();
 	}
 
 	public <T> void consumeFromTopic(
 			final String formatPluginName,
 			final AvroFormatPlugin<T, ?> avroFormatPlugin,
+			final boolean processSerially,
 			final IngestRunData ingestRunData,
 			final List<String> queue )
 			throws Exception {
@@ -229,18 +279,30 @@ public class IngestFromKafkaDriver extends
 			consumeMessages(
 					formatPluginName,
 					avroFormatPlugin,
+					processSerially,
 					ingestRunData,
+					consumer,
 					streams.get(0));
 		}
 		finally {
+			flushAndCommit(
+					ingestRunData,
+					consumer);
 			consumer.shutdown();
 		}
 	}
 
+	/**
+	 * @param processSerially
+	 *            whether the plugin is shared with other consumer threads, in
+	 *            which case messages are processed while holding its lock
+	 */
 	protected <T> void consumeMessages(
 			final String formatPluginName,
 			final AvroFormatPlugin<T, ?> avroFormatPlugin,
+			final boolean processSerially,
 			final IngestRunData ingestRunData,
+			final ConsumerConnector consumer,
 			final KafkaStream<byte[], byte[]> stream ) {
 		int currentBatchId = 0;
 		final int batchSize = kafkaOptions.getBatchSize();
@@ -248,19 +310,33 @@ public class IngestFromKafkaDriver extends
 			final ConsumerIterator<byte[], byte[]> messageIterator = stream.iterator();
 			while (messageIterator.hasNext()) {
 				final byte[] msg = messageIterator.next().message();
-				LOGGER.info("[" + formatPluginName + "] message received");
+				if (LOGGER.isDebugEnabled()) {
+					LOGGER.debug("[" + formatPluginName + "] message received");
+				}
 				final T dataRecord = GenericAvroSerializer.deserialize(
 						msg,
 						avroFormatPlugin.getAvroSchema());
 
 				if (dataRecord != null) {
 					try {
-						processMessage(
-								dataRecord,
-								ingestRunData,
-								avroFormatPlugin);
+						if (processSerially) {
+							synchronized (avroFormatPlugin) {
+								processMessage(
+										dataRecord,
+										ingestRunData,
+										avroFormatPlugin);
+							}
+						}
+						else {
+							processMessage(
+									dataRecord,
+									ingestRunData,
+									avroFormatPlugin);
+						}
 						if (++currentBatchId > batchSize) {
-							ingestRunData.flush();
+							flushAndCommit(
+									ingestRunData,
+									consumer);
 							currentBatchId = 0;
 						}
 					}
@@ -278,12 +354,16 @@ public class IngestFromKafkaDriver extends
 						"Consumer timed out from Kafka topic [" + formatPluginName + "... ",
 						te);
 				if (currentBatchId > 0) {
-					ingestRunData.flush();
+					flushAndCommit(
+							ingestRunData,
+							consumer);
 				}
 				consumeMessages(
 						formatPluginName,
 						avroFormatPlugin,
+						processSerially,
 						ingestRunData,
+						consumer,
 						stream);
 			}
 			else {
@@ -300,7 +380,14 @@ public class IngestFromKafkaDriver extends
 
 	}
 
-	synchronized protected <T> void processMessage(
+	private static void flushAndCommit(
+			final IngestRunData ingestRunData,
+			final ConsumerConnector consumer ) {
+		ingestRunData.flush();
+		consumer.commitOffsets();
+	}
+
+	protected <T> void processMessage(
 			final T dataRecord,
 			final IngestRunData ingestRunData,
 			final AvroFormatPlugin<T, ?> plugin )
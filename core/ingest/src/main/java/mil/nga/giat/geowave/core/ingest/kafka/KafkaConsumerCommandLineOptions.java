@@ -39,19 +39,35 @@ public class KafkaConsumerCommandLineOptions
 				false)
 	};
 	private static final int DEFAULT_BATCH_SIZE = 10000;
+	private static final int DEFAULT_CONSUMER_THREADS = 1;
 	private final static String RECONNECT_ON_TIMEOUT_KEY = "reconnectOnTimeout";
 	private final static String BATCH_SIZE_KEY = "batchSize";
+	private final static String CONSUMER_THREADS_KEY = "consumerThreads";
 	private final Properties kafkaProperties;
 	private final boolean flushAndReconnect;
 	private final int batchSize;
+	private final int consumerThreads;
 
 	public KafkaConsumerCommandLineOptions(
 			final Properties kafkaProperties,
 			final boolean flushAndReconnect,
 			final int batchSize ) {
+		this(
+				kafkaProperties,
+				flushAndReconnect,
+				batchSize,
+				DEFAULT_CONSUMER_THREADS);
+	}
+
+	public KafkaConsumerCommandLineOptions(
+			final Properties kafkaProperties,
+			final boolean flushAndReconnect,
+			final int batchSize,
+			final int consumerThreads ) {
 		this.kafkaProperties = kafkaProperties;
 		this.flushAndReconnect = flushAndReconnect;
 		this.batchSize = batchSize;
+		this.consumerThreads = consumerThreads;
 	}
 
 	public Properties getProperties() {
@@ -66,6 +82,10 @@ public class KafkaConsumerCommandLineOptions
 		return batchSize;
 	}
 
+	public int getConsumerThreads() {
+		return consumerThreads;
+	}
+
 	public static void applyOptions(
 			final Options allOptions ) {
 		KafkaCommandLineOptions.applyOptions(allOptions);
@@ -87,6 +107,13 @@ public class KafkaConsumerCommandLineOptions
 				"The data will automatically flush after this number of entries (default is '" + DEFAULT_BATCH_SIZE + "')");
 		batchSizeOption.setRequired(false);
 		allOptions.addOption(batchSizeOption);
+
+		final Option consumerThreadsOption = new Option(
+				CONSUMER_THREADS_KEY,
+				true,
+				"The number of threads consuming each topic, each of which is assigned a share of the topic's partitions (default is '" + DEFAULT_CONSUMER_THREADS + "')");
+		consumerThreadsOption.setRequired(false);
+		allOptions.addOption(consumerThreadsOption);
 	}
 
 	public static KafkaConsumerCommandLineOptions parseOptions(
@@ -108,9 +135,24 @@ public class KafkaConsumerCommandLineOptions
 						e);
 			}
 		}
+		int consumerThreads = DEFAULT_CONSUMER_THREADS;
+		if (commandLine.hasOption(CONSUMER_THREADS_KEY)) {
+			try {
+				final String value = commandLine.getOptionValue(CONSUMER_THREADS_KEY);
+				consumerThreads = Math.max(
+						1,
+						Integer.parseInt(value));
+			}
+			catch (final Exception e) {
+				LOGGER.error(
+						"Error parsing '" + CONSUMER_THREADS_KEY + "' as an integer",
+						e);
+			}
+		}
 		return new KafkaConsumerCommandLineOptions(
 				baseOptions.getProperties(),
 				flushAndReconnect,
-				batchSize);
+				batchSize,
+				consumerThreads);
 	}
 }
@@ -54,9 +54,10 @@ abstract public class AbstractLocalFileDriver<P extends LocalPluginBase, R> exte
 		}
 		final File base = f.isDirectory() ? f : f.getParentFile();
 
-		for (final LocalPluginBase localPlugin : localPlugins.values()) {
-			localPlugin.init(base);
-		}
+		init(
+				base,
+				localPlugins,
+				runData);
 		Files.walkFileTree(
 				Paths.get(localInput.getInput()),
 				new LocalPluginFileVisitor<P, R>(
@@ -66,6 +67,19 @@ abstract public class AbstractLocalFileDriver<P extends LocalPluginBase, R> exte
 						localInput.getExtensions()));
 	}
 
+	/**
+	 * Initialize the plugins with the base directory of the input, before any
+	 * file is processed
+	 */
+	protected void init(
+			final File baseDirectory,
+			final Map<String, P> localPlugins,
+			final R runData ) {
+		for (final LocalPluginBase localPlugin : localPlugins.values()) {
+			localPlugin.init(baseDirectory);
+		}
+	}
+
 	abstract protected void processFile(
 			final File file,
 			String typeName,
@@ -34,6 +34,7 @@ public class LocalFileIngestDriver extends
 	private final static Logger LOGGER = Logger.getLogger(LocalFileIngestDriver.class);
 	protected AccumuloCommandLineOptions accumulo;
 	protected IngestCommandLineOptions ingestOptions;
+	protected LocalIngestPipelineCommandLineOptions pipelineOptions;
 
 	public LocalFileIngestDriver(
 			final String operation ) {
@@ -47,6 +48,7 @@ public class LocalFileIngestDriver extends
 			throws ParseException {
 		accumulo = AccumuloCommandLineOptions.parseOptions(commandLine);
 		ingestOptions = IngestCommandLineOptions.parseOptions(commandLine);
+		pipelineOptions = LocalIngestPipelineCommandLineOptions.parseOptions(commandLine);
 		super.parseOptionsInternal(commandLine);
 	}
 
@@ -55,6 +57,7 @@ public class LocalFileIngestDriver extends
 			final Options allOptions ) {
 		AccumuloCommandLineOptions.applyOptions(allOptions);
 		IngestCommandLineOptions.applyOptions(allOptions);
+		LocalIngestPipelineCommandLineOptions.applyOptions(allOptions);
 		super.applyOptionsInternal(allOptions);
 	}
 
@@ -64,6 +67,7 @@ public class LocalFileIngestDriver extends
 			final List<IngestFormatPluginProviderSpi<?, ?>> pluginProviders ) {
 		// first collect the local file ingest plugins
 		final Map<String, LocalFileIngestPlugin<?>> localFileIngestPlugins = new HashMap<String, LocalFileIngestPlugin<?>>();
+		final Map<String, IngestFormatPluginProviderSpi<?, ?>> localFileIngestPluginProviders = new HashMap<String, IngestFormatPluginProviderSpi<?, ?>>();
 		final List<WritableDataAdapter<?>> adapters = new ArrayList<WritableDataAdapter<?>>();
 		for (final IngestFormatPluginProviderSpi<?, ?> pluginProvider : pluginProviders) {
 			LocalFileIngestPlugin<?> localFileIngestPlugin = null;
@@ -89,6 +93,9 @@ public class LocalFileIngestDriver extends
 			localFileIngestPlugins.put(
 					pluginProvider.getIngestFormatName(),
 					localFileIngestPlugin);
+			localFileIngestPluginProviders.put(
+					pluginProvider.getIngestFormatName(),
+					pluginProvider);
 			adapters.addAll(Arrays.asList(localFileIngestPlugin.getDataAdapters(ingestOptions.getVisibility())));
 		}
 
@@ -109,7 +116,12 @@ public class LocalFileIngestDriver extends
 		}
 		final DataStore dataStore = new AccumuloDataStore(
 				operations);
-		try (IngestRunData runData = new IngestRunData(
+		try (IngestRunData runData = pipelineOptions.isPipelined() ? new PipelinedIngestRunData(
+				adapters,
+				dataStore,
+				ingestOptions,
+				pipelineOptions,
+				localFileIngestPluginProviders) : new IngestRunData(
 				adapters,
 				dataStore)) {
 			processInput(
@@ -123,6 +135,20 @@ public class LocalFileIngestDriver extends
 		}
 	}
 
+	@Override
+	protected void init(
+			final File baseDirectory,
+			final Map<String, LocalFileIngestPlugin<?>> localPlugins,
+			final IngestRunData runData ) {
+		super.init(
+				baseDirectory,
+				localPlugins,
+				runData);
+		if (runData instanceof PipelinedIngestRunData) {
+			((PipelinedIngestRunData) runData).init(baseDirectory);
+		}
+	}
+
 	@Override
 	protected void processFile(
 			final File file,
@@ -130,6 +156,14 @@ public class LocalFileIngestDriver extends
 			final LocalFileIngestPlugin<?> plugin,
 			final IngestRunData ingestRunData )
 			throws IOException {
+		if (ingestRunData instanceof PipelinedIngestRunData) {
+			// the file is parsed with the plugin of the parse thread it is
+			// queued for
+			((PipelinedIngestRunData) ingestRunData).ingest(
+					file,
+					typeName);
+			return;
+		}
 		IngestUtils.ingest(
 				file,
 				ingestOptions,
@@ -0,0 +1,95 @@
+package mil.nga.giat.geowave.core.ingest.local;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.log4j.Logger;
+
+/**
+ * This class encapsulates the options for ingesting local files with a
+ * pipeline of threads. Files are parsed by the parse threads and the resulting
+ * entries are encoded and written by a single write thread, with bounded
+ * queues between the stages. With a single parse thread, files are ingested
+ * serially on the thread that visits them.
+ */
+public class LocalIngestPipelineCommandLineOptions
+{
+	private final static Logger LOGGER = Logger.getLogger(LocalIngestPipelineCommandLineOptions.class);
+	private static final String PARSE_THREADS_KEY = "parseThreads";
+	private static final String QUEUE_SIZE_KEY = "queueSize";
+	private static final int DEFAULT_PARSE_THREADS = 1;
+	private static final int DEFAULT_QUEUE_SIZE = 1000;
+
+	private final int parseThreads;
+	private final int queueSize;
+
+	public LocalIngestPipelineCommandLineOptions(
+			final int parseThreads,
+			final int queueSize ) {
+		this.parseThreads = parseThreads;
+		this.queueSize = queueSize;
+	}
+
+	public int getParseThreads() {
+		return parseThreads;
+	}
+
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	public boolean isPipelined() {
+		return parseThreads > 1;
+	}
+
+	public static LocalIngestPipelineCommandLineOptions parseOptions(
+			final CommandLine commandLine ) {
+		return new LocalIngestPipelineCommandLineOptions(
+				parsePositiveInt(
+						commandLine,
+						PARSE_THREADS_KEY,
+						DEFAULT_PARSE_THREADS),
+				parsePositiveInt(
+						commandLine,
+						QUEUE_SIZE_KEY,
+						DEFAULT_QUEUE_SIZE));
+	}
+
+	private static int parsePositiveInt(
+			final CommandLine commandLine,
+			final String key,
+			final int defaultValue ) {
+		if (commandLine.hasOption(key)) {
+			try {
+				final int value = Integer.parseInt(commandLine.getOptionValue(key));
+				if (value > 0) {
+					return value;
+				}
+				LOGGER.error("'" + key + "' must be positive, using the default of " + defaultValue);
+			}
+			catch (final Exception e) {
+				LOGGER.error(
+						"Error parsing '" + key + "' as an integer",
+						e);
+			}
+		}
+		return defaultValue;
+	}
+
+	public static void applyOptions(
+			final Options allOptions ) {
+		final Option parseThreadsOption = new Option(
+				PARSE_THREADS_KEY,
+				true,
+				"The number of threads that parse input files, more than one parse thread will ingest files in a pipeline with a single thread writing the parsed entries (optional; default is '" + DEFAULT_PARSE_THREADS + "')");
+		parseThreadsOption.setRequired(false);
+		allOptions.addOption(parseThreadsOption);
+
+		final Option queueSizeOption = new Option(
+				QUEUE_SIZE_KEY,
+				true,
+				"The number of parsed entries that can wait to be written when ingesting files in a pipeline, after which parsing blocks (optional; default is '" + DEFAULT_QUEUE_SIZE + "')");
+		queueSizeOption.setRequired(false);
+		allOptions.addOption(queueSizeOption);
+	}
+}
@@ -0,0 +1,522 @@
+package mil.nga.giat.geowave.core.ingest.local;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.core.ingest.IngestCommandLineOptions;
+import mil.nga.giat.geowave.core.ingest.IngestFormatPluginProviderSpi;
+import mil.nga.giat.geowave.core.ingest.IngestUtils;
+import mil.nga.giat.geowave.core.store.DataStore;
+import mil.nga.giat.geowave.core.store.IndexWriter;
+import mil.nga.giat.geowave.core.store.adapter.WritableDataAdapter;
+import mil.nga.giat.geowave.core.store.index.Index;
+
+import org.apache.log4j.Logger;
+
+/**
+ * This ingests local files in a pipeline of two stages connected by bounded
+ * queues. Files are parsed into entries by a pool of parse threads and the
+ * entries are encoded and written by a single write thread, so that parsing is
+ * not serialized behind writing. Entries are encoded and written on one thread
+ * because data adapters and index writers are not required to be thread safe.
+ * Ingest plugins are not required to be thread safe either, so each parse
+ * thread parses with its own plugin instances, and the files of a plugin
+ * provider that does not return a new instance each time are parsed one at a
+ * time. When a queue is full the stage feeding it blocks, which bounds the
+ * memory used by files and entries that have not yet been written. The row IDs
+ * returned for an entry are those it is written with, so reading them waits
+ * for the entry to be written. The first failure in either stage stops the
+ * remaining files from being parsed and is thrown when the next file is
+ * submitted or when this is closed.
+ */
+public class PipelinedIngestRunData extends
+		IngestRunData
+{
+	private final static Logger LOGGER = Logger.getLogger(PipelinedIngestRunData.class);
+	private static final FileTask END_OF_FILES = new FileTask(
+			null,
+			null);
+	private static final EntryTask END_OF_ENTRIES = new EntryTask(
+			new Callable<List<ByteArrayId>>() {
+				@Override
+				public List<ByteArrayId> call() {
+					return Collections.emptyList();
+				}
+			},
+			null);
+
+	private final IngestCommandLineOptions ingestOptions;
+	private final int parseThreads;
+	private final List<Map<String, LocalFileIngestPlugin<?>>> pluginsPerParseThread = new ArrayList<Map<String, LocalFileIngestPlugin<?>>>();
+	// plugins that were returned to more than one parse thread
+	private final Set<LocalFileIngestPlugin<?>> sharedPlugins = Collections.newSetFromMap(new IdentityHashMap<LocalFileIngestPlugin<?>, Boolean>());
+	private final BlockingQueue<FileTask> fileQueue;
+	private final BlockingQueue<EntryTask> entryQueue;
+	private final ExecutorService parseExecutor;
+	private final ExecutorService writeExecutor;
+	private final Map<ByteArrayId, IndexWriter> queuedIndexWriters = new HashMap<ByteArrayId, IndexWriter>();
+	private final long startTime = System.currentTimeMillis();
+	private final AtomicLong filesParsed = new AtomicLong();
+	private final AtomicLong entriesParsed = new AtomicLong();
+	private final AtomicLong entriesWritten = new AtomicLong();
+	private final AtomicLong parseBlockedNanos = new AtomicLong();
+	private volatile Throwable failure = null;
+	private boolean closed = false;
+
+	/**
+	 * @param pluginProviders
+	 *            the providers of the local file ingest plugins, keyed by the
+	 *            type name that files are ingested with, which are asked for
+	 *            the plugins of each parse thread
+	 */
+	public PipelinedIngestRunData(
+			final List<WritableDataAdapter<?>> adapters,
+			final DataStore dataStore,
+			final IngestCommandLineOptions ingestOptions,
+			final LocalIngestPipelineCommandLineOptions pipelineOptions,
+			final Map<String, IngestFormatPluginProviderSpi<?, ?>> pluginProviders ) {
+		super(
+				adapters,
+				dataStore);
+		this.ingestOptions = ingestOptions;
+		parseThreads = pipelineOptions.getParseThreads();
+		final Set<LocalFileIngestPlugin<?>> plugins = Collections.newSetFromMap(new IdentityHashMap<LocalFileIngestPlugin<?>, Boolean>());
+		for (int i = 0; i < parseThreads; i++) {
+			final Map<String, LocalFileIngestPlugin<?>> threadPlugins = new HashMap<String, LocalFileIngestPlugin<?>>();
+			for (final Entry<String, IngestFormatPluginProviderSpi<?, ?>> pluginProvider : pluginProviders.entrySet()) {
+				final LocalFileIngestPlugin<?> plugin = pluginProvider.getValue().getLocalFileIngestPlugin();
+				if (!plugins.add(plugin) && sharedPlugins.add(plugin)) {
+					LOGGER.warn("Plugin provider for ingest type '" + pluginProvider.getKey() + "' does not return a new local file ingest plugin each time, so its files will be parsed one at a time");
+				}
+				threadPlugins.put(
+						pluginProvider.getKey(),
+						plugin);
+			}
+			pluginsPerParseThread.add(threadPlugins);
+		}
+		fileQueue = new ArrayBlockingQueue<FileTask>(
+				parseThreads);
+		entryQueue = new ArrayBlockingQueue<EntryTask>(
+				pipelineOptions.getQueueSize());
+		parseExecutor = Executors.newFixedThreadPool(parseThreads);
+		for (int i = 0; i < parseThreads; i++) {
+			parseExecutor.execute(new ParseStage(
+					pluginsPerParseThread.get(i)));
+		}
+		writeExecutor = Executors.newSingleThreadExecutor();
+		writeExecutor.execute(new WriteStage());
+	}
+
+	/**
+	 * Initialize the plugins of every parse thread with the base directory of
+	 * the input
+	 */
+	public void init(
+			final File baseDirectory ) {
+		for (final Map<String, LocalFileIngestPlugin<?>> threadPlugins : pluginsPerParseThread) {
+			for (final LocalFileIngestPlugin<?> plugin : threadPlugins.values()) {
+				plugin.init(baseDirectory);
+			}
+		}
+	}
+
+	/**
+	 * Queue a file to be parsed, blocking while every parse thread is busy
+	 * 
+	 * @param typeName
+	 *            the type name of the plugin to parse the file with
+	 */
+	public void ingest(
+			final File file,
+			final String typeName )
+			throws IOException {
+		checkFailure();
+		try {
+			fileQueue.put(new FileTask(
+					file,
+					typeName));
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(
+					"Interrupted while queueing '" + file.getAbsolutePath() + "' for ingest",
+					e);
+		}
+	}
+
+	/**
+	 * This is called by the parse threads, so it returns a writer that queues
+	 * each entry for the write threads rather than writing it
+	 */
+	@Override
+	public synchronized IndexWriter getIndexWriter(
+			final Index index ) {
+		IndexWriter indexWriter = queuedIndexWriters.get(index.getId());
+		if (indexWriter == null) {
+			indexWriter = new QueuedIndexWriter(
+					super.getIndexWriter(index));
+			queuedIndexWriters.put(
+					index.getId(),
+					indexWriter);
+		}
+		return indexWriter;
+	}
+
+	public long getFilesParsed() {
+		return filesParsed.get();
+	}
+
+	public long getEntriesParsed() {
+		return entriesParsed.get();
+	}
+
+	public long getEntriesWritten() {
+		return entriesWritten.get();
+	}
+
+	/**
+	 * Waits for every queued file to be parsed and every parsed entry to be
+	 * written before closing the index writers
+	 */
+	@Override
+	public void close()
+			throws IOException {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		}
+		try {
+			for (int i = 0; i < parseThreads; i++) {
+				fileQueue.put(END_OF_FILES);
+			}
+			awaitTermination(parseExecutor);
+			entryQueue.put(END_OF_ENTRIES);
+			awaitTermination(writeExecutor);
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			parseExecutor.shutdownNow();
+			writeExecutor.shutdownNow();
+			throw new IOException(
+					"Interrupted while waiting for ingest to complete",
+					e);
+		}
+		finally {
+			super.close();
+			logThroughput();
+		}
+		checkFailure();
+	}
+
+	private static void awaitTermination(
+			final ExecutorService executor )
+			throws InterruptedException {
+		executor.shutdown();
+		while (!executor.awaitTermination(
+				1,
+				TimeUnit.MINUTES)) {
+			LOGGER.debug("Waiting for ingest threads to complete");
+		}
+	}
+
+	private void logThroughput() {
+		final double seconds = Math.max(
+				System.currentTimeMillis() - startTime,
+				1) / 1000.0;
+		LOGGER.info(String.format(
+				"Parsed %d files (%.1f/s) into %d entries (%.1f/s) and wrote %d entries (%.1f/s) in %.1f s; parsing was blocked on writing for %.1f s",
+				filesParsed.get(),
+				filesParsed.get() / seconds,
+				entriesParsed.get(),
+				entriesParsed.get() / seconds,
+				entriesWritten.get(),
+				entriesWritten.get() / seconds,
+				seconds,
+				parseBlockedNanos.get() / 1e9));
+	}
+
+	private void checkFailure()
+			throws IOException {
+		if (failure != null) {
+			throw new IOException(
+					"Unable to ingest local files",
+					failure);
+		}
+	}
+
+	private void fail(
+			final String message,
+			final Throwable t ) {
+		LOGGER.error(
+				message,
+				t);
+		if (failure == null) {
+			failure = t;
+		}
+	}
+
+	private static class FileTask
+	{
+		private final File file;
+		private final String typeName;
+
+		private FileTask(
+				final File file,
+				final String typeName ) {
+			this.file = file;
+			this.typeName = typeName;
+		}
+	}
+
+	/**
+	 * Writes an entry and holds the row IDs it was written with
+	 */
+	private static class EntryTask extends
+			FutureTask<List<ByteArrayId>>
+	{
+		private final IndexWriter indexWriter;
+
+		private EntryTask(
+				final Callable<List<ByteArrayId>> write,
+				final IndexWriter indexWriter ) {
+			super(
+					write);
+			this.indexWriter = indexWriter;
+		}
+	}
+
+	/**
+	 * The row IDs of an entry that has been queued to be written, which are
+	 * waited for when they are first read
+	 */
+	private static class QueuedRowIds extends
+			AbstractList<ByteArrayId>
+	{
+		private final EntryTask task;
+
+		private QueuedRowIds(
+				final EntryTask task ) {
+			this.task = task;
+		}
+
+		private List<ByteArrayId> getRowIds() {
+			try {
+				return task.get();
+			}
+			catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(
+						"Interrupted while waiting for entry to be written",
+						e);
+			}
+			catch (final ExecutionException e) {
+				throw new RuntimeException(
+						"Unable to write entry",
+						e.getCause());
+			}
+		}
+
+		@Override
+		public ByteArrayId get(
+				final int index ) {
+			return getRowIds().get(
+					index);
+		}
+
+		@Override
+		public int size() {
+			return getRowIds().size();
+		}
+	}
+
+	private class ParseStage implements
+			Runnable
+	{
+		private final Map<String, LocalFileIngestPlugin<?>> plugins;
+
+		private ParseStage(
+				final Map<String, LocalFileIngestPlugin<?>> plugins ) {
+			this.plugins = plugins;
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				final FileTask task;
+				try {
+					task = fileQueue.take();
+				}
+				catch (final InterruptedException e) {
+					return;
+				}
+				if (task == END_OF_FILES) {
+					return;
+				}
+				if (failure != null) {
+					// drain the remaining files without parsing them
+					continue;
+				}
+				try {
+					final LocalFileIngestPlugin<?> plugin = plugins.get(task.typeName);
+					if (plugin == null) {
+						throw new IOException(
+								"No local file ingest plugin for ingest type '" + task.typeName + "'");
+					}
+					if (sharedPlugins.contains(plugin)) {
+						synchronized (plugin) {
+							ingest(
+									task.file,
+									plugin);
+						}
+					}
+					else {
+						ingest(
+								task.file,
+								plugin);
+					}
+					filesParsed.incrementAndGet();
+				}
+				catch (final Exception e) {
+					fail(
+							"Unable to ingest file '" + task.file.getAbsolutePath() + "'",
+							e);
+				}
+			}
+		}
+
+		private void ingest(
+				final File file,
+				final LocalFileIngestPlugin<?> plugin )
+				throws IOException {
+			IngestUtils.ingest(
+					file,
+					ingestOptions,
+					plugin,
+					plugin,
+					PipelinedIngestRunData.this);
+		}
+	}
+
+	private class WriteStage implements
+			Runnable
+	{
+		@Override
+		public void run() {
+			while (true) {
+				final EntryTask task;
+				try {
+					task = entryQueue.take();
+				}
+				catch (final InterruptedException e) {
+					return;
+				}
+				if (task == END_OF_ENTRIES) {
+					return;
+				}
+				task.run();
+				try {
+					task.get();
+					entriesWritten.incrementAndGet();
+				}
+				catch (final InterruptedException e) {
+					return;
+				}
+				catch (final ExecutionException e) {
+					fail(
+							"Unable to write entry to index '" + task.indexWriter.getIndex().getId().getString() + "'",
+							e.getCause());
+				}
+			}
+		}
+	}
+
+	private class QueuedIndexWriter implements
+			IndexWriter
+	{
+		private final IndexWriter delegate;
+
+		private QueuedIndexWriter(
+				final IndexWriter delegate ) {
+			this.delegate = delegate;
+		}
+
+		/**
+		 * Queues the entry to be written, returning row IDs that wait for the
+		 * entry to be written when they are read
+		 */
+		@Override
+		public <T> List<ByteArrayId> write(
+				final WritableDataAdapter<T> writableAdapter,
+				final T entry ) {
+			final EntryTask task = new EntryTask(
+					new Callable<List<ByteArrayId>>() {
+						@Override
+						public List<ByteArrayId> call() {
+							return delegate.write(
+									writableAdapter,
+									entry);
+						}
+					},
+					delegate);
+			if (!entryQueue.offer(task)) {
+				final long blockedStart = System.nanoTime();
+				try {
+					entryQueue.put(task);
+				}
+				catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(
+							"Interrupted while queueing entry for writing",
+							e);
+				}
+				parseBlockedNanos.addAndGet(System.nanoTime() - blockedStart);
+			}
+			entriesParsed.incrementAndGet();
+			return new QueuedRowIds(
+					task);
+		}
+
+		@Override
+		public <T> void setupAdapter(
+				final WritableDataAdapter<T> writableAdapter ) {
+			delegate.setupAdapter(writableAdapter);
+		}
+
+		@Override
+		public Index getIndex() {
+			return delegate.getIndex();
+		}
+
+		@Override
+		public void flush() {
+			delegate.flush();
+		}
+
+		@Override
+		public void close()
+				throws IOException {
+			// the underlying writer is closed with the run data
+		}
+	}
+}
@@ -0,0 +1,270 @@
+package mil.nga.giat.geowave.core.ingest.local;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.core.ingest.IngestFormatPluginProviderSpi;
+import mil.nga.giat.geowave.core.store.DataStore;
+import mil.nga.giat.geowave.core.store.IndexWriter;
+import mil.nga.giat.geowave.core.store.adapter.WritableDataAdapter;
+import mil.nga.giat.geowave.core.store.index.CustomIdIndex;
+import mil.nga.giat.geowave.core.store.index.Index;
+
+import org.junit.Test;
+
+public class PipelinedIngestRunDataTest
+{
+	private static final Index INDEX = new CustomIdIndex(
+			null,
+			null,
+			new ByteArrayId(
+					"index"));
+
+	@Test
+	public void testPipelinedWithMultipleParseThreads() {
+		assertTrue(new LocalIngestPipelineCommandLineOptions(
+				4,
+				10).isPipelined());
+		assertFalse(new LocalIngestPipelineCommandLineOptions(
+				1,
+				10).isPipelined());
+	}
+
+	@Test
+	public void testEachParseThreadHasItsOwnPlugins()
+			throws IOException {
+		final List<Object> initializedPlugins = new ArrayList<Object>();
+		final IngestFormatPluginProviderSpi<?, ?> pluginProvider = (IngestFormatPluginProviderSpi<?, ?>) Proxy.newProxyInstance(
+				PipelinedIngestRunDataTest.class.getClassLoader(),
+				new Class<?>[] {
+					IngestFormatPluginProviderSpi.class
+				},
+				new InvocationHandler() {
+					@Override
+					public Object invoke(
+							final Object proxy,
+							final Method method,
+							final Object[] args ) {
+						if (method.getName().equals(
+								"getLocalFileIngestPlugin")) {
+							return createPlugin(initializedPlugins);
+						}
+						throw new UnsupportedOperationException(
+								method.getName());
+					}
+				});
+		final PipelinedIngestRunData runData = createRunData(
+				new RecordingIndexWriter(),
+				3,
+				Collections.<String, IngestFormatPluginProviderSpi<?, ?>> singletonMap(
+						"type",
+						pluginProvider));
+		runData.init(new File(
+				"."));
+		runData.close();
+		assertEquals(
+				3,
+				initializedPlugins.size());
+		assertEquals(
+				3,
+				new HashSet<Object>(
+						initializedPlugins).size());
+	}
+
+	@Test
+	public void testRowIdsAreThoseWritten()
+			throws IOException {
+		final RecordingIndexWriter indexWriter = new RecordingIndexWriter();
+		final PipelinedIngestRunData runData = createRunData(
+				indexWriter,
+				4,
+				Collections.<String, IngestFormatPluginProviderSpi<?, ?>> emptyMap());
+		final IndexWriter queuedWriter = runData.getIndexWriter(INDEX);
+		final List<List<ByteArrayId>> rowIds = new ArrayList<List<ByteArrayId>>();
+		for (int i = 0; i < 100; i++) {
+			rowIds.add(queuedWriter.write(
+					null,
+					"entry_" + i));
+		}
+		for (int i = 0; i < 100; i++) {
+			assertEquals(
+					Collections.singletonList(new ByteArrayId(
+							"row_entry_" + i)),
+					rowIds.get(i));
+		}
+		runData.close();
+
+		assertEquals(
+				100,
+				indexWriter.getEntries().size());
+		assertEquals(
+				100,
+				runData.getEntriesParsed());
+		assertEquals(
+				100,
+				runData.getEntriesWritten());
+		assertTrue(indexWriter.closed);
+	}
+
+	@Test
+	public void testWriteFailureIsThrown()
+			throws IOException {
+		final RecordingIndexWriter indexWriter = new RecordingIndexWriter();
+		final PipelinedIngestRunData runData = createRunData(
+				indexWriter,
+				2,
+				Collections.<String, IngestFormatPluginProviderSpi<?, ?>> emptyMap());
+		final IndexWriter queuedWriter = runData.getIndexWriter(INDEX);
+		queuedWriter.write(
+				null,
+				"entry");
+		final List<ByteArrayId> failedRowIds = queuedWriter.write(
+				null,
+				RecordingIndexWriter.FAILING_ENTRY);
+		try {
+			failedRowIds.size();
+			fail("Reading the row IDs of an entry that failed to be written should throw");
+		}
+		catch (final RuntimeException e) {
+			// expected
+		}
+		try {
+			runData.close();
+			fail("Closing after an entry failed to be written should throw");
+		}
+		catch (final IOException e) {
+			// expected
+		}
+		assertEquals(
+				1,
+				runData.getEntriesWritten());
+		assertTrue(indexWriter.closed);
+	}
+
+	private static LocalFileIngestPlugin<?> createPlugin(
+			final List<Object> initializedPlugins ) {
+		return (LocalFileIngestPlugin<?>) Proxy.newProxyInstance(
+				PipelinedIngestRunDataTest.class.getClassLoader(),
+				new Class<?>[] {
+					LocalFileIngestPlugin.class
+				},
+				new InvocationHandler() {
+					@Override
+					public Object invoke(
+							final Object proxy,
+							final Method method,
+							final Object[] args ) {
+						if (method.getName().equals(
+								"init")) {
+							initializedPlugins.add(proxy);
+							return null;
+						}
+						if (method.getName().equals(
+								"hashCode")) {
+							return System.identityHashCode(proxy);
+						}
+						if (method.getName().equals(
+								"equals")) {
+							return proxy == args[0];
+						}
+						throw new UnsupportedOperationException(
+								method.getName());
+					}
+				});
+	}
+
+	private static PipelinedIngestRunData createRunData(
+			final IndexWriter indexWriter,
+			final int parseThreads,
+			final Map<String, IngestFormatPluginProviderSpi<?, ?>> pluginProviders ) {
+		final DataStore dataStore = (DataStore) Proxy.newProxyInstance(
+				PipelinedIngestRunDataTest.class.getClassLoader(),
+				new Class<?>[] {
+					DataStore.class
+				},
+				new InvocationHandler() {
+					@Override
+					public Object invoke(
+							final Object proxy,
+							final Method method,
+							final Object[] args ) {
+						if (method.getName().equals(
+								"createIndexWriter")) {
+							return indexWriter;
+						}
+						throw new UnsupportedOperationException(
+								method.getName());
+					}
+				});
+		return new PipelinedIngestRunData(
+				new ArrayList<WritableDataAdapter<?>>(),
+				dataStore,
+				null,
+				new LocalIngestPipelineCommandLineOptions(
+						parseThreads,
+						10),
+				pluginProviders);
+	}
+
+	private static class RecordingIndexWriter implements
+			IndexWriter
+	{
+		private static final String FAILING_ENTRY = "failing_entry";
+		private final Set<Object> entries = new HashSet<Object>();
+		private volatile boolean closed = false;
+
+		@Override
+		public <T> List<ByteArrayId> write(
+				final WritableDataAdapter<T> writableAdapter,
+				final T entry ) {
+			if (FAILING_ENTRY.equals(entry)) {
+				throw new IllegalStateException(
+						"Unable to write " + entry);
+			}
+			synchronized (entries) {
+				entries.add(entry);
+			}
+			return Collections.singletonList(new ByteArrayId(
+					"row_" + entry));
+		}
+
+		private Set<Object> getEntries() {
+			synchronized (entries) {
+				return new HashSet<Object>(
+						entries);
+			}
+		}
+
+		@Override
+		public <T> void setupAdapter(
+				final WritableDataAdapter<T> writableAdapter ) {}
+
+		@Override
+		public Index getIndex() {
+			return INDEX;
+		}
+
+		@Override
+		public void flush() {}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+	}
+}
@@ -503,4 +503,48 @@ public interface DataStore
 			final Integer limit,
 			final ScanCallback<?> scanCallback,
 			final String... authorizations );
+
+	/**
+	 * Asynchronously queries the data in this data store that matches the query
+	 * parameter and matches the adapter within the index described by the index
+	 * passed in. The subscriber is given a subscription before this returns,
+	 * and results are only read and delivered to the subscriber as it requests
+	 * them, without holding a thread while it has not requested any.
+	 * 
+	 * @param adapter
+	 *            the data adapter to use for the query
+	 * @param index
+	 *            The index information to query against. All data within the
+	 *            index of this index ID will be queried and returned.
+	 * @param query
+	 *            The description of the query to be performed
+	 * @param subscriber
+	 *            the subscriber that requests and receives the results
+	 * @param authorizations
+	 *            The authorization used to override the default authorization
+	 *            for cell visibility.
+	 */
+	public <T> void queryAsync(
+			final DataAdapter<T> adapter,
+			final Index index,
+			final Query query,
+			final QuerySubscriber<T> subscriber,
+			final String... authorizations );
+
+	/**
+	 * Asynchronously queries all data in this data store that matches the query
+	 * parameter. All indices that are supported by the query will be queried
+	 * and all data types that match the query will be delivered as an instance
+	 * of the native data type that was originally ingested. The subscriber is
+	 * given a subscription before this returns, and results are only read and
+	 * delivered to the subscriber as it requests them.
+	 * 
+	 * @param query
+	 *            The description of the query to be performed
+	 * @param subscriber
+	 *            the subscriber that requests and receives the results
+	 */
+	public void queryAsync(
+			final Query query,
+			final QuerySubscriber<Object> subscriber );
 }
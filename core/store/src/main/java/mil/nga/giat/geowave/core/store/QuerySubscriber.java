@@ -0,0 +1,52 @@
+package mil.nga.giat.geowave.core.store;
+
+import java.util.List;
+
+/**
+ * This interface receives the results of an asynchronous query. No results are
+ * delivered until they are requested through the subscription, so a subscriber
+ * that cannot keep up with the results simply requests fewer of them. Each
+ * method is called by one thread at a time, but not necessarily by the same
+ * thread.
+ * 
+ * @param <T>
+ *            A generic type for the entries that are queried
+ */
+public interface QuerySubscriber<T>
+{
+	/**
+	 * This will be called once before any other method, with the subscription
+	 * used to request results or to cancel the query
+	 * 
+	 * @param subscription
+	 *            the subscription of this subscriber to the query
+	 */
+	public void onSubscribe(
+			final QuerySubscription subscription );
+
+	/**
+	 * This will be called with each batch of results, and all of the batches
+	 * together never contain more entries than have been requested
+	 * 
+	 * @param entries
+	 *            the next batch of entries that match the query
+	 */
+	public void onNext(
+			final List<T> entries );
+
+	/**
+	 * This will be called if the query fails, after which no other method is
+	 * called
+	 * 
+	 * @param error
+	 *            the reason the query failed
+	 */
+	public void onError(
+			final Throwable error );
+
+	/**
+	 * This will be called once every result has been delivered, after which no
+	 * other method is called
+	 */
+	public void onComplete();
+}
@@ -0,0 +1,25 @@
+package mil.nga.giat.geowave.core.store;
+
+/**
+ * This interface is used by a query subscriber to signal the demand for results
+ * of an asynchronous query, or to cancel the query
+ */
+public interface QuerySubscription
+{
+	/**
+	 * Request more results, which are added to any results that have been
+	 * requested but not yet delivered
+	 * 
+	 * @param entries
+	 *            the number of additional entries to deliver, which must be
+	 *            positive; Long.MAX_VALUE requests every result
+	 */
+	public void request(
+			final long entries );
+
+	/**
+	 * Stop delivering results and release the resources of the query. Results
+	 * that are already being delivered may still arrive.
+	 */
+	public void cancel();
+}
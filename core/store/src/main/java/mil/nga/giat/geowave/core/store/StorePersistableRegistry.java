@@ -0,0 +1,69 @@
+package mil.nga.giat.geowave.core.store;
+
+import mil.nga.giat.geowave.core.index.PersistableRegistrySpi;
+import mil.nga.giat.geowave.core.store.adapter.statistics.CountDataStatistics;
+import mil.nga.giat.geowave.core.store.adapter.statistics.RowRangeHistogramStatistics;
+import mil.nga.giat.geowave.core.store.adapter.statistics.TierOccupancyDataStatistics;
+import mil.nga.giat.geowave.core.store.filter.BasicQueryFilter;
+import mil.nga.giat.geowave.core.store.filter.DedupeFilter;
+import mil.nga.giat.geowave.core.store.filter.DistributableFilterList;
+import mil.nga.giat.geowave.core.store.filter.MultiIndexDedupeFilter;
+import mil.nga.giat.geowave.core.store.index.BasicIndexModel;
+import mil.nga.giat.geowave.core.store.index.CustomIdIndex;
+import mil.nga.giat.geowave.core.store.index.Index;
+import mil.nga.giat.geowave.core.store.index.NullIndex;
+import mil.nga.giat.geowave.core.store.query.BasicQuery;
+import mil.nga.giat.geowave.core.store.query.QueryOptions;
+
+/**
+ * Registers the persistables of the core store module, using IDs 200-299
+ */
+public class StorePersistableRegistry implements
+		PersistableRegistrySpi
+{
+
+	@Override
+	public PersistableIdAndClass[] getSupportedPersistables() {
+		return new PersistableIdAndClass[] {
+			new PersistableIdAndClass(
+					(short) 200,
+					Index.class),
+			new PersistableIdAndClass(
+					(short) 201,
+					CustomIdIndex.class),
+			new PersistableIdAndClass(
+					(short) 202,
+					NullIndex.class),
+			new PersistableIdAndClass(
+					(short) 203,
+					BasicIndexModel.class),
+			new PersistableIdAndClass(
+					(short) 204,
+					BasicQueryFilter.class),
+			new PersistableIdAndClass(
+					(short) 205,
+					DedupeFilter.class),
+			new PersistableIdAndClass(
+					(short) 206,
+					MultiIndexDedupeFilter.class),
+			new PersistableIdAndClass(
+					(short) 207,
+					DistributableFilterList.class),
+			new PersistableIdAndClass(
+					(short) 208,
+					BasicQuery.class),
+			new PersistableIdAndClass(
+					(short) 209,
+					QueryOptions.class),
+			new PersistableIdAndClass(
+					(short) 210,
+					CountDataStatistics.class),
+			new PersistableIdAndClass(
+					(short) 211,
+					TierOccupancyDataStatistics.class),
+			new PersistableIdAndClass(
+					(short) 212,
+					RowRangeHistogramStatistics.class)
+		};
+	}
+}
@@ -0,0 +1,392 @@
+package mil.nga.giat.geowave.core.store.adapter.statistics;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.core.index.Mergeable;
+import mil.nga.giat.geowave.core.index.RowCountEstimator;
+import mil.nga.giat.geowave.core.index.sfc.tiered.TieredSFCIndexStrategy;
+import mil.nga.giat.geowave.core.store.DataStoreEntryInfo;
+import mil.nga.giat.geowave.core.store.DeleteCallback;
+import mil.nga.giat.geowave.core.store.index.Index;
+
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * This keeps a histogram of the rows of a data adapter within each tier and bin
+ * of an index that uses a tiered index strategy. Each histogram divides the
+ * space filling curve IDs of its tier and bin into equal buckets, so that the
+ * number of rows within a range of row IDs can be estimated assuming that rows
+ * are uniformly distributed within a bucket. Like
+ * {@link TierOccupancyDataStatistics}, every row written is counted but only
+ * the row that is decoded is subtracted when an entry is deleted.
+ * 
+ * At most {@link #MAX_HISTOGRAMS} tiers and bins have their own histogram. The
+ * rows of any other tier and bin are only counted in total, and every range
+ * within such a tier and bin is estimated to contain all of them.
+ * 
+ * @param <T>
+ *            Entry type
+ */
+public class RowRangeHistogramStatistics<T> extends
+		AbstractDataStatistics<T> implements
+		DeleteCallback<T>,
+		RowCountEstimator
+{
+	public static final String STATS_TYPE = "ROW_RANGE_HISTOGRAM";
+	public static final int MAX_HISTOGRAMS = 1024;
+	private static final int BUCKET_BITS = 8;
+	private static final int BUCKET_COUNT = 1 << BUCKET_BITS;
+	private static final int MAX_POSITION_BYTES = 6;
+	private static final Comparator<ByteArrayId> TIER_AND_BIN_ID_COMPARATOR = new Comparator<ByteArrayId>() {
+		@Override
+		public int compare(
+				final ByteArrayId o1,
+				final ByteArrayId o2 ) {
+			return UnsignedBytes.lexicographicalComparator().compare(
+					o1.getBytes(),
+					o2.getBytes());
+		}
+	};
+
+	private int tierAndBinIdLength;
+	private long untrackedRowCount = 0;
+	private final TreeMap<ByteArrayId, long[]> histograms = new TreeMap<ByteArrayId, long[]>(
+			TIER_AND_BIN_ID_COMPARATOR);
+
+	protected RowRangeHistogramStatistics() {
+		super();
+	}
+
+	public RowRangeHistogramStatistics(
+			final ByteArrayId dataAdapterId,
+			final ByteArrayId indexId,
+			final int tierAndBinIdLength ) {
+		super(
+				dataAdapterId,
+				composeId(indexId));
+		this.tierAndBinIdLength = tierAndBinIdLength;
+	}
+
+	/**
+	 * 
+	 * @return the statistics for the index, or null if the index does not use a
+	 *         tiered index strategy
+	 */
+	public static <T> RowRangeHistogramStatistics<T> create(
+			final ByteArrayId dataAdapterId,
+			final Index index ) {
+		if (index.getIndexStrategy() instanceof TieredSFCIndexStrategy) {
+			return new RowRangeHistogramStatistics<T>(
+					dataAdapterId,
+					index.getId(),
+					((TieredSFCIndexStrategy) index.getIndexStrategy()).getTierAndBinIdLength());
+		}
+		return null;
+	}
+
+	public static ByteArrayId composeId(
+			final ByteArrayId indexId ) {
+		return composeId(
+				STATS_TYPE,
+				indexId.getString());
+	}
+
+	public boolean isEmpty() {
+		return histograms.isEmpty() && (untrackedRowCount == 0);
+	}
+
+	@Override
+	public double getEstimatedRowCount(
+			final ByteArrayId start,
+			final ByteArrayId end ) {
+		final byte[] startBytes = start.getBytes();
+		final byte[] endBytes = end.getBytes();
+		if ((startBytes.length < tierAndBinIdLength) || (endBytes.length < tierAndBinIdLength)) {
+			// the range is not within a single tier and bin, so count all of
+			// the rows rather than risk underestimating
+			return getRowCount(
+					histograms.values(),
+					0,
+					1) + untrackedRowCount;
+		}
+		final ByteArrayId startTierAndBinId = new ByteArrayId(
+				Arrays.copyOf(
+						startBytes,
+						tierAndBinIdLength));
+		final ByteArrayId endTierAndBinId = new ByteArrayId(
+				Arrays.copyOf(
+						endBytes,
+						tierAndBinIdLength));
+		final double startPosition = getPosition(
+				startBytes,
+				false);
+		final double endPosition = getPosition(
+				endBytes,
+				true);
+		final int comparison = TIER_AND_BIN_ID_COMPARATOR.compare(
+				startTierAndBinId,
+				endTierAndBinId);
+		if (comparison > 0) {
+			return 0;
+		}
+		if (comparison == 0) {
+			return getRowCount(
+					startTierAndBinId,
+					startPosition,
+					endPosition);
+		}
+		return getRowCount(
+				startTierAndBinId,
+				startPosition,
+				1) + getRowCount(
+				histograms.subMap(
+						startTierAndBinId,
+						false,
+						endTierAndBinId,
+						false).values(),
+				0,
+				1) + getRowCount(
+				endTierAndBinId,
+				0,
+				endPosition) + untrackedRowCount;
+	}
+
+	private double getRowCount(
+			final ByteArrayId tierAndBinId,
+			final double startPosition,
+			final double endPosition ) {
+		final long[] histogram = histograms.get(tierAndBinId);
+		if (histogram == null) {
+			// the tier and bin may be one of those that are only counted in
+			// total, so this errs on the side of overestimating
+			return untrackedRowCount;
+		}
+		return getRowCount(
+				Collections.singleton(histogram),
+				startPosition,
+				endPosition);
+	}
+
+	/**
+	 * 
+	 * @return the position of the row ID within its tier and bin as a fraction
+	 *         of the space filling curve, or the position immediately after
+	 *         every row ID that it is a prefix of if it is the end of a range
+	 */
+	private double getPosition(
+			final byte[] rowId,
+			final boolean isEnd ) {
+		final int length = Math.min(
+				rowId.length - tierAndBinIdLength,
+				MAX_POSITION_BYTES);
+		double position = 0;
+		double scale = 1;
+		for (int i = 0; i < length; i++) {
+			scale /= 256;
+			position += (rowId[tierAndBinIdLength + i] & 0xFF) * scale;
+		}
+		if (isEnd) {
+			position += scale;
+		}
+		return Math.min(
+				position,
+				1);
+	}
+
+	private static double getRowCount(
+			final Collection<long[]> histograms,
+			final double startPosition,
+			final double endPosition ) {
+		if (startPosition >= endPosition) {
+			return 0;
+		}
+		final double start = startPosition * BUCKET_COUNT;
+		final double end = endPosition * BUCKET_COUNT;
+		final int lastBucket = Math.min(
+				(int) Math.ceil(end),
+				BUCKET_COUNT);
+		double rowCount = 0;
+		for (final long[] histogram : histograms) {
+			for (int bucket = (int) Math.floor(start); bucket < lastBucket; bucket++) {
+				final double overlap = Math.min(
+						end,
+						bucket + 1) - Math.max(
+						start,
+						bucket);
+				if (overlap > 0) {
+					rowCount += overlap * histogram[bucket];
+				}
+			}
+		}
+		return rowCount;
+	}
+
+	@Override
+	public void entryIngested(
+			final DataStoreEntryInfo entryInfo,
+			final T entry ) {
+		for (final ByteArrayId rowId : entryInfo.getRowIds()) {
+			add(
+					rowId,
+					1);
+		}
+	}
+
+	@Override
+	public void entryDeleted(
+			final DataStoreEntryInfo entryInfo,
+			final T entry ) {
+		for (final ByteArrayId rowId : entryInfo.getRowIds()) {
+			add(
+					rowId,
+					-1);
+		}
+	}
+
+	private void add(
+			final ByteArrayId rowId,
+			final long count ) {
+		final byte[] rowIdBytes = rowId.getBytes();
+		if (rowIdBytes.length < tierAndBinIdLength) {
+			return;
+		}
+		increment(
+				new ByteArrayId(
+						Arrays.copyOf(
+								rowIdBytes,
+								tierAndBinIdLength)),
+				Math.min(
+						(int) (getPosition(
+								rowIdBytes,
+								false) * BUCKET_COUNT),
+						BUCKET_COUNT - 1),
+				count);
+	}
+
+	private void increment(
+			final ByteArrayId tierAndBinId,
+			final int bucket,
+			final long count ) {
+		long[] histogram = histograms.get(tierAndBinId);
+		if (histogram == null) {
+			if (histograms.size() >= MAX_HISTOGRAMS) {
+				untrackedRowCount += count;
+				return;
+			}
+			histogram = new long[BUCKET_COUNT];
+			histograms.put(
+					tierAndBinId,
+					histogram);
+		}
+		histogram[bucket] += count;
+	}
+
+	@Override
+	public void merge(
+			final Mergeable statistics ) {
+		if ((statistics != null) && (statistics instanceof RowRangeHistogramStatistics)) {
+			@SuppressWarnings("unchecked")
+			final RowRangeHistogramStatistics<T> tStats = (RowRangeHistogramStatistics<T>) statistics;
+			if (tierAndBinIdLength == 0) {
+				tierAndBinIdLength = tStats.tierAndBinIdLength;
+			}
+			untrackedRowCount += tStats.untrackedRowCount;
+			for (final Entry<ByteArrayId, long[]> histogram : tStats.histograms.entrySet()) {
+				final long[] buckets = histogram.getValue();
+				for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+					if (buckets[bucket] != 0) {
+						increment(
+								histogram.getKey(),
+								bucket,
+								buckets[bucket]);
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public byte[] toBinary() {
+		// only the buckets that contain rows are written
+		int size = 16;
+		for (final long[] histogram : histograms.values()) {
+			size += tierAndBinIdLength + 2 + (getOccupiedBucketCount(histogram) * 10);
+		}
+		final ByteBuffer buffer = super.binaryBuffer(size);
+		buffer.putInt(tierAndBinIdLength);
+		buffer.putLong(untrackedRowCount);
+		buffer.putInt(histograms.size());
+		for (final Entry<ByteArrayId, long[]> histogram : histograms.entrySet()) {
+			final long[] buckets = histogram.getValue();
+			buffer.put(histogram.getKey().getBytes());
+			buffer.putShort((short) getOccupiedBucketCount(buckets));
+			for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+				if (buckets[bucket] != 0) {
+					buffer.putShort((short) bucket);
+					buffer.putLong(buckets[bucket]);
+				}
+			}
+		}
+		return buffer.array();
+	}
+
+	private static int getOccupiedBucketCount(
+			final long[] histogram ) {
+		int count = 0;
+		for (final long bucket : histogram) {
+			if (bucket != 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public void fromBinary(
+			final byte[] bytes ) {
+		final ByteBuffer buffer = super.binaryBuffer(bytes);
+		tierAndBinIdLength = buffer.getInt();
+		untrackedRowCount = buffer.getLong();
+		final int histogramCount = buffer.getInt();
+		histograms.clear();
+		for (int i = 0; i < histogramCount; i++) {
+			final byte[] tierAndBinId = new byte[tierAndBinIdLength];
+			buffer.get(tierAndBinId);
+			final int bucketCount = buffer.getShort();
+			final long[] histogram = new long[BUCKET_COUNT];
+			for (int j = 0; j < bucketCount; j++) {
+				histogram[buffer.getShort()] = buffer.getLong();
+			}
+			histograms.put(
+					new ByteArrayId(
+							tierAndBinId),
+					histogram);
+		}
+	}
+
+	@Override
+	public String toString() {
+		final StringBuffer buffer = new StringBuffer();
+		buffer.append(
+				"row range histogram[adapter=").append(
+				super.getDataAdapterId().getString());
+		buffer.append(
+				", index=").append(
+				decomposeNameFromId(getStatisticsId()));
+		buffer.append(
+				", rows=").append(
+				getRowCount(
+						histograms.values(),
+						0,
+						1) + untrackedRowCount);
+		buffer.append("]");
+		return buffer.toString();
+	}
+}
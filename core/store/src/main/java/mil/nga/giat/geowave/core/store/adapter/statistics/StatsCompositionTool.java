@@ -2,7 +2,10 @@ package mil.nga.giat.geowave.core.store.adapter.statistics;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import mil.nga.giat.geowave.core.index.ByteArrayId;
 import mil.nga.giat.geowave.core.store.DataStoreEntryInfo;
@@ -10,12 +13,25 @@ import mil.nga.giat.geowave.core.store.DeleteCallback;
 import mil.nga.giat.geowave.core.store.IngestCallback;
 import mil.nga.giat.geowave.core.store.ScanCallback;
 import mil.nga.giat.geowave.core.store.adapter.DataAdapter;
+import mil.nga.giat.geowave.core.store.index.Index;
 
 /**
  * 
  * This tool does not react to callbacks if the provided statistics store is
  * null or the provided data adapter does not implement
- * {@link DataStatisticsStore}.
+ * {@link DataStatisticsStore}. If the index that the entries are written to is
+ * provided and uses a tiered index strategy, the requested types of
+ * {@link TierOccupancyDataStatistics} and {@link RowRangeHistogramStatistics}
+ * of the adapter within that index are maintained as well, for any data
+ * adapter, as entries are ingested and deleted. They are not maintained for
+ * scanned entries because a scan does not return the duplicated rows of an
+ * entry.
+ * 
+ * The statistics are updated in a number of shards, each of which is locked
+ * independently and chosen by the thread that reports an entry, so that threads
+ * writing or scanning concurrently do not contend on the statistics. The shards
+ * are merged when the statistics are flushed, either explicitly or once the
+ * flush interval has elapsed.
  * 
  * @param <T>
  *            Entry type
@@ -27,86 +43,242 @@ public class StatsCompositionTool<T> implements
 		AutoCloseable
 {
 	final DataStatisticsStore statisticsStore;
-	List<DataStatisticsBuilder<T>> statisticsBuilders = null;
+	final StatisticalDataAdapter<T> statisticalAdapter;
 	final boolean persistStats;
-	final Object MUTEX = new Object();
+	final ByteArrayId adapterId;
+	final Index index;
+	final Collection<String> indexStatisticsTypes;
+	final boolean persistIndexStats;
+	final List<StatisticsShard> shards;
+	long flushIntervalMillis = 0;
+	final AtomicLong nextFlushTime = new AtomicLong(
+			Long.MAX_VALUE);
+	final Object FLUSH_MUTEX = new Object();
 
 	public StatsCompositionTool() {
 		statisticsStore = null;
+		statisticalAdapter = null;
 		persistStats = false;
+		adapterId = null;
+		index = null;
+		indexStatisticsTypes = null;
+		persistIndexStats = false;
+		shards = null;
 	}
 
 	public StatsCompositionTool(
 			final DataAdapter<T> dataAdapter,
 			final DataStatisticsStore statisticsStore ) {
+		this(
+				dataAdapter,
+				statisticsStore,
+				null,
+				null);
+	}
+
+	/**
+	 * 
+	 * @param indexStatisticsTypes
+	 *            the types of the statistics of the data adapter within the
+	 *            index that are maintained
+	 */
+	public StatsCompositionTool(
+			final DataAdapter<T> dataAdapter,
+			final DataStatisticsStore statisticsStore,
+			final Index index,
+			final Collection<String> indexStatisticsTypes ) {
+		this(
+				dataAdapter,
+				statisticsStore,
+				index,
+				indexStatisticsTypes,
+				Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * 
+	 * @param indexStatisticsTypes
+	 *            the types of the statistics of the data adapter within the
+	 *            index that are maintained
+	 * @param shardCount
+	 *            the number of independently locked shards that the statistics
+	 *            are updated in, which should be about the number of threads
+	 *            that report entries concurrently
+	 */
+	public StatsCompositionTool(
+			final DataAdapter<T> dataAdapter,
+			final DataStatisticsStore statisticsStore,
+			final Index index,
+			final Collection<String> indexStatisticsTypes,
+			final int shardCount ) {
 		this.statisticsStore = statisticsStore;
+		adapterId = dataAdapter.getAdapterId();
+		this.index = (statisticsStore != null) ? index : null;
+		this.indexStatisticsTypes = indexStatisticsTypes;
+		persistIndexStats = (this.index != null) && (createIndexStatistics(
+				adapterId,
+				this.index,
+				indexStatisticsTypes) != null);
 		persistStats = (dataAdapter instanceof StatisticalDataAdapter) && (statisticsStore != null);
-		if (persistStats) {
-			final ByteArrayId[] statisticsIds = ((StatisticalDataAdapter<T>) dataAdapter).getSupportedStatisticsIds();
-			statisticsBuilders = new ArrayList<DataStatisticsBuilder<T>>(
-					statisticsIds.length);
-			for (final ByteArrayId id : statisticsIds) {
-				statisticsBuilders.add(new DataStatisticsBuilder<T>(
-						(StatisticalDataAdapter<T>) dataAdapter,
-						id));
+		statisticalAdapter = persistStats ? (StatisticalDataAdapter<T>) dataAdapter : null;
+		final int count = Math.max(
+				1,
+				shardCount);
+		shards = new ArrayList<StatisticsShard>(
+				count);
+		for (int i = 0; i < count; i++) {
+			shards.add(new StatisticsShard());
+		}
+	}
+
+	/**
+	 * 
+	 * @param statisticsTypes
+	 *            the types of the statistics to create
+	 * @return new instances of the statistics of the requested types that are
+	 *         maintained for the data adapter within the index as entries are
+	 *         ingested and deleted, or null if there are none
+	 */
+	public static <T> List<DataStatistics<T>> createIndexStatistics(
+			final ByteArrayId adapterId,
+			final Index index,
+			final Collection<String> statisticsTypes ) {
+		if ((statisticsTypes == null) || statisticsTypes.isEmpty()) {
+			return null;
+		}
+		final List<DataStatistics<T>> indexStatistics = new ArrayList<DataStatistics<T>>();
+		if (statisticsTypes.contains(TierOccupancyDataStatistics.STATS_TYPE)) {
+			final TierOccupancyDataStatistics<T> tierStatistics = TierOccupancyDataStatistics.create(
+					adapterId,
+					index);
+			if (tierStatistics != null) {
+				indexStatistics.add(tierStatistics);
 			}
 		}
+		if (statisticsTypes.contains(RowRangeHistogramStatistics.STATS_TYPE)) {
+			final RowRangeHistogramStatistics<T> histogramStatistics = RowRangeHistogramStatistics.create(
+					adapterId,
+					index);
+			if (histogramStatistics != null) {
+				indexStatistics.add(histogramStatistics);
+			}
+		}
+		return indexStatistics.isEmpty() ? null : indexStatistics;
 	}
 
 	public boolean isPersisting() {
-		return persistStats;
+		return persistStats || persistIndexStats;
+	}
+
+	/**
+	 * The statistics are flushed by the thread that reports an entry once this
+	 * interval has elapsed since they were last flushed, in addition to any
+	 * explicit flush. By default they are only flushed explicitly.
+	 * 
+	 * @param flushIntervalMillis
+	 *            the interval between flushes, or 0 to only flush explicitly
+	 */
+	public void setFlushIntervalMillis(
+			final long flushIntervalMillis ) {
+		this.flushIntervalMillis = flushIntervalMillis;
+		nextFlushTime.set(flushIntervalMillis > 0 ? System.currentTimeMillis() + flushIntervalMillis : Long.MAX_VALUE);
+	}
+
+	public long getFlushIntervalMillis() {
+		return flushIntervalMillis;
+	}
+
+	private StatisticsShard getShard() {
+		return shards.get((int) (Thread.currentThread().getId() % shards.size()));
+	}
+
+	private void flushIfDue() {
+		final long flushTime = nextFlushTime.get();
+		if ((flushTime != Long.MAX_VALUE) && (System.currentTimeMillis() >= flushTime) && nextFlushTime.compareAndSet(
+				flushTime,
+				System.currentTimeMillis() + flushIntervalMillis)) {
+			// only the thread that claims this interval flushes
+			flush();
+		}
 	}
 
 	@Override
 	public void entryDeleted(
 			final DataStoreEntryInfo entryInfo,
 			final T entry ) {
-		if (statisticsBuilders == null) {
+		if (!isPersisting()) {
 			return;
 		}
-		synchronized (MUTEX) {
-			for (final DataStatisticsBuilder<T> builder : statisticsBuilders) {
-				builder.entryDeleted(
-						entryInfo,
-						entry);
-			}
-		}
-
+		getShard().entryDeleted(
+				entryInfo,
+				entry);
+		flushIfDue();
 	}
 
 	@Override
 	public void entryScanned(
 			final DataStoreEntryInfo entryInfo,
 			final T entry ) {
-		if (statisticsBuilders == null) {
+		if (!persistStats) {
 			return;
 		}
+		getShard().entryScanned(
+				entryInfo,
+				entry);
+		flushIfDue();
+	}
 
-		synchronized (MUTEX) {
-			for (final DataStatisticsBuilder<T> builder : statisticsBuilders) {
-				builder.entryScanned(
-						entryInfo,
-						entry);
-			}
+	@Override
+	public void entryIngested(
+			final DataStoreEntryInfo entryInfo,
+			final T entry ) {
+		if (!isPersisting()) {
+			return;
 		}
-
+		getShard().entryIngested(
+				entryInfo,
+				entry);
+		flushIfDue();
 	}
 
 	/**
 	 * Update statistics store
 	 */
 	public void flush() {
-		if (statisticsBuilders == null) {
+		if (!isPersisting()) {
 			return;
 		}
 
-		synchronized (MUTEX) {
-			for (final DataStatisticsBuilder<T> builder : statisticsBuilders) {
-				final Collection<DataStatistics<T>> statistics = builder.getStatistics();
-				for (final DataStatistics<T> s : statistics) {
-					statisticsStore.incorporateStatistics(s);
+		synchronized (FLUSH_MUTEX) {
+			// merge the shards so that each statistic is only incorporated
+			// once for each visibility
+			final Map<ByteArrayId, Map<ByteArrayId, DataStatistics<T>>> mergedStatistics = new HashMap<ByteArrayId, Map<ByteArrayId, DataStatistics<T>>>();
+			for (final StatisticsShard shard : shards) {
+				for (final DataStatistics<T> statistics : shard.drain()) {
+					Map<ByteArrayId, DataStatistics<T>> visibilityMap = mergedStatistics.get(statistics.getStatisticsId());
+					if (visibilityMap == null) {
+						visibilityMap = new HashMap<ByteArrayId, DataStatistics<T>>();
+						mergedStatistics.put(
+								statistics.getStatisticsId(),
+								visibilityMap);
+					}
+					final ByteArrayId visibility = new ByteArrayId(
+							statistics.getVisibility() != null ? statistics.getVisibility() : new byte[] {});
+					final DataStatistics<T> merged = visibilityMap.get(visibility);
+					if (merged == null) {
+						visibilityMap.put(
+								visibility,
+								statistics);
+					}
+					else {
+						merged.merge(statistics);
+					}
+				}
+			}
+			for (final Map<ByteArrayId, DataStatistics<T>> visibilityMap : mergedStatistics.values()) {
+				for (final DataStatistics<T> statistics : visibilityMap.values()) {
+					statisticsStore.incorporateStatistics(statistics);
 				}
-				statistics.clear();
 			}
 		}
 	}
@@ -115,39 +287,121 @@ public class StatsCompositionTool<T> implements
 	 * Reset statistics, losing and updates since last flush
 	 */
 	public void reset() {
-		if (statisticsBuilders == null) {
+		if (!isPersisting()) {
 			return;
 		}
 
-		synchronized (MUTEX) {
-			for (final DataStatisticsBuilder<T> builder : statisticsBuilders) {
-				final Collection<DataStatistics<T>> statistics = builder.getStatistics();
-				statistics.clear();
+		synchronized (FLUSH_MUTEX) {
+			for (final StatisticsShard shard : shards) {
+				shard.drain();
 			}
 		}
 	}
 
 	@Override
-	public void entryIngested(
-			final DataStoreEntryInfo entryInfo,
-			final T entry ) {
-		if (statisticsBuilders == null) {
-			return;
+	public void close()
+			throws Exception {
+		flush();
+	}
+
+	private class StatisticsShard
+	{
+		private List<DataStatisticsBuilder<T>> statisticsBuilders = null;
+		private List<DataStatistics<T>> indexStatistics = null;
+
+		private synchronized void entryIngested(
+				final DataStoreEntryInfo entryInfo,
+				final T entry ) {
+			if (persistIndexStats) {
+				for (final DataStatistics<T> statistics : getIndexStatistics()) {
+					statistics.entryIngested(
+							entryInfo,
+							entry);
+				}
+			}
+			if (persistStats) {
+				for (final DataStatisticsBuilder<T> builder : getStatisticsBuilders()) {
+					builder.entryIngested(
+							entryInfo,
+							entry);
+				}
+			}
+		}
+
+		private synchronized void entryDeleted(
+				final DataStoreEntryInfo entryInfo,
+				final T entry ) {
+			if (persistIndexStats) {
+				for (final DataStatistics<T> statistics : getIndexStatistics()) {
+					if (statistics instanceof DeleteCallback) {
+						((DeleteCallback<T>) statistics).entryDeleted(
+								entryInfo,
+								entry);
+					}
+				}
+			}
+			if (persistStats) {
+				for (final DataStatisticsBuilder<T> builder : getStatisticsBuilders()) {
+					builder.entryDeleted(
+							entryInfo,
+							entry);
+				}
+			}
 		}
 
-		synchronized (MUTEX) {
-			for (final DataStatisticsBuilder<T> builder : statisticsBuilders) {
-				builder.entryIngested(
+		private synchronized void entryScanned(
+				final DataStoreEntryInfo entryInfo,
+				final T entry ) {
+			for (final DataStatisticsBuilder<T> builder : getStatisticsBuilders()) {
+				builder.entryScanned(
 						entryInfo,
 						entry);
 			}
 		}
-	}
 
-	@Override
-	public void close()
-			throws Exception {
-		flush();
-	}
+		private List<DataStatistics<T>> getIndexStatistics() {
+			if (indexStatistics == null) {
+				indexStatistics = createIndexStatistics(
+						adapterId,
+						index,
+						indexStatisticsTypes);
+			}
+			return indexStatistics;
+		}
+
+		private List<DataStatisticsBuilder<T>> getStatisticsBuilders() {
+			if (statisticsBuilders == null) {
+				final ByteArrayId[] statisticsIds = statisticalAdapter.getSupportedStatisticsIds();
+				statisticsBuilders = new ArrayList<DataStatisticsBuilder<T>>(
+						statisticsIds.length);
+				for (final ByteArrayId id : statisticsIds) {
+					statisticsBuilders.add(new DataStatisticsBuilder<T>(
+							statisticalAdapter,
+							id));
+				}
+			}
+			return statisticsBuilders;
+		}
 
+		/**
+		 * 
+		 * @return the statistics updated since the shard was last drained,
+		 *         which are no longer updated by the shard
+		 */
+		private synchronized List<DataStatistics<T>> drain() {
+			final List<DataStatistics<T>> drained = new ArrayList<DataStatistics<T>>();
+			if (indexStatistics != null) {
+				drained.addAll(indexStatistics);
+				indexStatistics = null;
+			}
+			if (statisticsBuilders != null) {
+				for (final DataStatisticsBuilder<T> builder : statisticsBuilders) {
+					final Collection<DataStatistics<T>> statistics = builder.getStatistics();
+					drained.addAll(statistics);
+					statistics.clear();
+				}
+			}
+			return drained;
+		}
+	}
 }
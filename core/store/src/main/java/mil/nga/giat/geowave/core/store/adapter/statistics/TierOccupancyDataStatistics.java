@@ -0,0 +1,265 @@
+package mil.nga.giat.geowave.core.store.adapter.statistics;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.core.index.Mergeable;
+import mil.nga.giat.geowave.core.index.sfc.tiered.TieredSFCIndexStrategy;
+import mil.nga.giat.geowave.core.store.DataStoreEntryInfo;
+import mil.nga.giat.geowave.core.store.DeleteCallback;
+import mil.nga.giat.geowave.core.store.index.Index;
+
+/**
+ * This tracks the number of rows of a data adapter within each tier and bin of
+ * an index that uses a tiered index strategy, so that queries can skip the
+ * tiers and bins that do not contain any rows. Every row written is counted,
+ * but only the row that is decoded is subtracted when an entry is deleted, so
+ * the counts may overstate, but never understate, the rows that remain.
+ * 
+ * The statistics also record whether they cover every row of the data adapter
+ * within the index. They are only complete if they were marked complete when
+ * the data adapter had no rows in the index, and rows written without
+ * maintaining them mark them incomplete for good. Queries must not skip any
+ * tier or bin unless the statistics are complete.
+ * 
+ * @param <T>
+ *            Entry type
+ */
+public class TierOccupancyDataStatistics<T> extends
+		AbstractDataStatistics<T> implements
+		DeleteCallback<T>
+{
+	public static final String STATS_TYPE = "TIER_OCCUPANCY";
+	// the coverage of merged statistics is the greatest of their coverages,
+	// so that an incomplete marker is never undone
+	private static final byte COVERAGE_UNKNOWN = 0;
+	private static final byte COVERAGE_COMPLETE = 1;
+	private static final byte COVERAGE_INCOMPLETE = 2;
+
+	private int tierAndBinIdLength;
+	private byte coverage = COVERAGE_UNKNOWN;
+	private final Map<ByteArrayId, Long> rowCounts = new HashMap<ByteArrayId, Long>();
+
+	protected TierOccupancyDataStatistics() {
+		super();
+	}
+
+	public TierOccupancyDataStatistics(
+			final ByteArrayId dataAdapterId,
+			final ByteArrayId indexId,
+			final int tierAndBinIdLength ) {
+		super(
+				dataAdapterId,
+				composeId(indexId));
+		this.tierAndBinIdLength = tierAndBinIdLength;
+	}
+
+	/**
+	 * 
+	 * @return the statistics for the index, or null if the index does not use a
+	 *         tiered index strategy
+	 */
+	public static <T> TierOccupancyDataStatistics<T> create(
+			final ByteArrayId dataAdapterId,
+			final Index index ) {
+		if (index.getIndexStrategy() instanceof TieredSFCIndexStrategy) {
+			return new TierOccupancyDataStatistics<T>(
+					dataAdapterId,
+					index.getId(),
+					((TieredSFCIndexStrategy) index.getIndexStrategy()).getTierAndBinIdLength());
+		}
+		return null;
+	}
+
+	/**
+	 * 
+	 * @param complete
+	 *            whether the data adapter has no rows in the index yet, so that
+	 *            the statistics maintained from now on count every row
+	 * @return empty statistics for the index that mark whether the statistics
+	 *         they are incorporated into are complete, or null if the index
+	 *         does not use a tiered index strategy
+	 */
+	public static <T> TierOccupancyDataStatistics<T> createCoverageMarker(
+			final ByteArrayId dataAdapterId,
+			final Index index,
+			final boolean complete ) {
+		final TierOccupancyDataStatistics<T> marker = create(
+				dataAdapterId,
+				index);
+		if (marker != null) {
+			marker.coverage = complete ? COVERAGE_COMPLETE : COVERAGE_INCOMPLETE;
+		}
+		return marker;
+	}
+
+	public static ByteArrayId composeId(
+			final ByteArrayId indexId ) {
+		return composeId(
+				STATS_TYPE,
+				indexId.getString());
+	}
+
+	/**
+	 * 
+	 * @return the tier ID followed by the bin ID of every tier and bin that
+	 *         contains rows
+	 */
+	public Set<ByteArrayId> getOccupiedTierAndBinIds() {
+		final Set<ByteArrayId> occupiedTierAndBinIds = new HashSet<ByteArrayId>();
+		for (final Entry<ByteArrayId, Long> entry : rowCounts.entrySet()) {
+			if (entry.getValue() > 0) {
+				occupiedTierAndBinIds.add(entry.getKey());
+			}
+		}
+		return occupiedTierAndBinIds;
+	}
+
+	public boolean isEmpty() {
+		return rowCounts.isEmpty();
+	}
+
+	/**
+	 * 
+	 * @return whether every row of the data adapter within the index is
+	 *         counted, which is necessary for any tier or bin to be skipped
+	 */
+	public boolean isComplete() {
+		return coverage == COVERAGE_COMPLETE;
+	}
+
+	public long getRowCount(
+			final ByteArrayId tierAndBinId ) {
+		final Long count = rowCounts.get(tierAndBinId);
+		return count == null ? 0 : count;
+	}
+
+	@Override
+	public void entryIngested(
+			final DataStoreEntryInfo entryInfo,
+			final T entry ) {
+		for (final ByteArrayId rowId : entryInfo.getRowIds()) {
+			add(
+					rowId,
+					1);
+		}
+	}
+
+	@Override
+	public void entryDeleted(
+			final DataStoreEntryInfo entryInfo,
+			final T entry ) {
+		for (final ByteArrayId rowId : entryInfo.getRowIds()) {
+			add(
+					rowId,
+					-1);
+		}
+	}
+
+	private void add(
+			final ByteArrayId rowId,
+			final long count ) {
+		final byte[] rowIdBytes = rowId.getBytes();
+		if (rowIdBytes.length < tierAndBinIdLength) {
+			return;
+		}
+		increment(
+				new ByteArrayId(
+						Arrays.copyOf(
+								rowIdBytes,
+								tierAndBinIdLength)),
+				count);
+	}
+
+	private void increment(
+			final ByteArrayId tierAndBinId,
+			final long count ) {
+		final Long existingCount = rowCounts.get(tierAndBinId);
+		final long newCount = existingCount == null ? count : existingCount + count;
+		if (newCount == 0) {
+			rowCounts.remove(tierAndBinId);
+		}
+		else {
+			rowCounts.put(
+					tierAndBinId,
+					newCount);
+		}
+	}
+
+	@Override
+	public void merge(
+			final Mergeable statistics ) {
+		if ((statistics != null) && (statistics instanceof TierOccupancyDataStatistics)) {
+			@SuppressWarnings("unchecked")
+			final TierOccupancyDataStatistics<T> tStats = (TierOccupancyDataStatistics<T>) statistics;
+			if (tierAndBinIdLength == 0) {
+				tierAndBinIdLength = tStats.tierAndBinIdLength;
+			}
+			coverage = (byte) Math.max(
+					coverage,
+					tStats.coverage);
+			for (final Entry<ByteArrayId, Long> entry : tStats.rowCounts.entrySet()) {
+				increment(
+						entry.getKey(),
+						entry.getValue());
+			}
+		}
+	}
+
+	@Override
+	public byte[] toBinary() {
+		final ByteBuffer buffer = super.binaryBuffer(9 + (rowCounts.size() * (tierAndBinIdLength + 8)));
+		buffer.putInt(tierAndBinIdLength);
+		buffer.putInt(rowCounts.size());
+		for (final Entry<ByteArrayId, Long> entry : rowCounts.entrySet()) {
+			buffer.put(entry.getKey().getBytes());
+			buffer.putLong(entry.getValue());
+		}
+		buffer.put(coverage);
+		return buffer.array();
+	}
+
+	@Override
+	public void fromBinary(
+			final byte[] bytes ) {
+		final ByteBuffer buffer = super.binaryBuffer(bytes);
+		tierAndBinIdLength = buffer.getInt();
+		final int size = buffer.getInt();
+		rowCounts.clear();
+		for (int i = 0; i < size; i++) {
+			final byte[] tierAndBinId = new byte[tierAndBinIdLength];
+			buffer.get(tierAndBinId);
+			rowCounts.put(
+					new ByteArrayId(
+							tierAndBinId),
+					buffer.getLong());
+		}
+		// statistics persisted before the coverage was recorded are unknown
+		coverage = buffer.hasRemaining() ? buffer.get() : COVERAGE_UNKNOWN;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuffer buffer = new StringBuffer();
+		buffer.append(
+				"tier occupancy[adapter=").append(
+				super.getDataAdapterId().getString());
+		buffer.append(
+				", index=").append(
+				decomposeNameFromId(getStatisticsId()));
+		buffer.append(
+				", occupied=").append(
+				getOccupiedTierAndBinIds().size());
+		buffer.append(
+				", complete=").append(
+				isComplete());
+		buffer.append("]");
+		return buffer.toString();
+	}
+}
@@ -25,7 +25,14 @@ import mil.nga.giat.geowave.core.store.dimension.DimensionField;
 public class BasicQueryFilter implements
 		DistributableQueryFilter
 {
+	/**
+	 * @deprecated the constraints are tested through
+	 *             {@link #compiledConstraints} and this is only kept for
+	 *             subclasses that read it
+	 */
+	@Deprecated
 	protected Map<ByteArrayId, List<MultiDimensionalNumericData>> binnedConstraints;
+	protected CompiledQueryConstraints compiledConstraints;
 	protected DimensionField<?>[] dimensionFields;
 	// this is referenced for serialization purposes only
 	protected MultiDimensionalNumericData constraints;
@@ -44,12 +51,11 @@ public class BasicQueryFilter implements
 			final MultiDimensionalNumericData constraints,
 			final DimensionField<?>[] dimensionFields ) {
 		this.dimensionFields = dimensionFields;
-
-		binnedConstraints = new HashMap<ByteArrayId, List<MultiDimensionalNumericData>>();
 		this.constraints = constraints;
 		final BinnedNumericDataset[] queries = BinnedNumericDataset.applyBins(
 				constraints,
 				dimensionFields);
+		binnedConstraints = new HashMap<ByteArrayId, List<MultiDimensionalNumericData>>();
 		for (final BinnedNumericDataset q : queries) {
 			final ByteArrayId binId = new ByteArrayId(
 					q.getBinId());
@@ -62,43 +68,32 @@ public class BasicQueryFilter implements
 			}
 			ranges.add(q);
 		}
+		compiledConstraints = new CompiledQueryConstraints(
+				queries,
+				dimensionFields);
 	}
 
+	/**
+	 * @deprecated {@link #accept(IndexedPersistenceEncoding)} no longer calls
+	 *             this, use
+	 *             {@link CompiledQueryConstraints#overlaps(MultiDimensionalNumericData, MultiDimensionalNumericData, int)}
+	 */
+	@Deprecated
 	protected boolean overlaps(
 			final MultiDimensionalNumericData queryRange,
 			final MultiDimensionalNumericData dataRange ) {
-		final NumericData[] queryRangePerDimension = queryRange.getDataPerDimension();
-		final double[] minPerDimension = dataRange.getMinValuesPerDimension();
-		final double[] maxPerDimension = dataRange.getMaxValuesPerDimension();
-		for (int d = 0; d < dimensionFields.length; d++) {
-			if ((maxPerDimension[d] < queryRangePerDimension[d].getMin()) || (minPerDimension[d] > queryRangePerDimension[d].getMax())) {
-				return false;
-			}
-		}
-		return true;
+		return CompiledQueryConstraints.overlaps(
+				queryRange,
+				dataRange,
+				dimensionFields.length);
 	}
 
 	@Override
 	public boolean accept(
 			final IndexedPersistenceEncoding persistenceEncoding ) {
-		final BinnedNumericDataset[] dataRanges = BinnedNumericDataset.applyBins(
-				persistenceEncoding.getNumericData(dimensionFields),
-				dimensionFields);
 		// check that at least one data range overlaps at least one query range
-		for (final BinnedNumericDataset dataRange : dataRanges) {
-			final List<MultiDimensionalNumericData> queries = binnedConstraints.get(new ByteArrayId(
-					dataRange.getBinId()));
-			if (queries != null) {
-				for (final MultiDimensionalNumericData query : queries) {
-					if ((query != null) && overlaps(
-							query,
-							dataRange)) {
-						return true;
-					}
-				}
-			}
-		}
-		return false;
+		// within the same bin
+		return compiledConstraints.overlaps(persistenceEncoding.getNumericData(dimensionFields));
 	}
 
 	@Override
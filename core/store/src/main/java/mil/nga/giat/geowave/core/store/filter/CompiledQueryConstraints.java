@@ -0,0 +1,259 @@
+package mil.nga.giat.geowave.core.store.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import mil.nga.giat.geowave.core.index.dimension.NumericDimensionDefinition;
+import mil.nga.giat.geowave.core.index.dimension.bin.BinRange;
+import mil.nga.giat.geowave.core.index.sfc.data.BinnedNumericDataset;
+import mil.nga.giat.geowave.core.index.sfc.data.MultiDimensionalNumericData;
+import mil.nga.giat.geowave.core.index.sfc.data.NumericData;
+
+/**
+ * The binned constraints of a query laid out in primitive arrays, so that
+ * testing whether data overlaps the constraints does not allocate anything
+ * beyond the normalized ranges of the data. The constraints are grouped by bin,
+ * and each bin is numbered by its position in an open-addressing table keyed by
+ * a hash of its bin ID. The bin ID of the data within each bin of every
+ * dimension is hashed and compared in place rather than concatenated, so that
+ * the table can be probed without creating a key object.
+ */
+public class CompiledQueryConstraints
+{
+	private final NumericDimensionDefinition[] dimensions;
+	private final byte[][] binIds;
+	// the constraints of bin b are from binOffsets[b] up to binOffsets[b + 1]
+	private final int[] binOffsets;
+	// the min and max of each dimension of each constraint, in order
+	private final double[] constraintMins;
+	private final double[] constraintMaxes;
+	// the bin number plus one in each slot, with 0 reserved for an empty slot
+	private final int[] table;
+	private final int tableMask;
+
+	public CompiledQueryConstraints(
+			final MultiDimensionalNumericData constraints,
+			final NumericDimensionDefinition[] dimensions ) {
+		this(
+				BinnedNumericDataset.applyBins(
+						constraints,
+						dimensions),
+				dimensions);
+	}
+
+	/**
+	 * @param queries
+	 *            the constraints with the bins of the dimensions already
+	 *            applied
+	 * @param dimensions
+	 *            the dimensions the bins were applied with
+	 */
+	public CompiledQueryConstraints(
+			final BinnedNumericDataset[] queries,
+			final NumericDimensionDefinition[] dimensions ) {
+		this.dimensions = dimensions;
+		// group the constraints by bin, in the order the bins are first seen
+		final List<byte[]> bins = new ArrayList<byte[]>();
+		final List<List<BinnedNumericDataset>> constraintsPerBin = new ArrayList<List<BinnedNumericDataset>>();
+		for (final BinnedNumericDataset q : queries) {
+			final byte[] binId = (q.getBinId() == null) ? new byte[0] : q.getBinId();
+			int b = 0;
+			while ((b < bins.size()) && !Arrays.equals(
+					bins.get(b),
+					binId)) {
+				b++;
+			}
+			if (b == bins.size()) {
+				bins.add(binId);
+				constraintsPerBin.add(new ArrayList<BinnedNumericDataset>());
+			}
+			constraintsPerBin.get(
+					b).add(
+					q);
+		}
+		binIds = bins.toArray(new byte[bins.size()][]);
+		binOffsets = new int[binIds.length + 1];
+		constraintMins = new double[queries.length * dimensions.length];
+		constraintMaxes = new double[queries.length * dimensions.length];
+		int c = 0;
+		for (int b = 0; b < binIds.length; b++) {
+			binOffsets[b] = c;
+			for (final BinnedNumericDataset q : constraintsPerBin.get(b)) {
+				final NumericData[] dataPerDimension = q.getDataPerDimension();
+				for (int d = 0; d < dimensions.length; d++) {
+					constraintMins[(c * dimensions.length) + d] = dataPerDimension[d].getMin();
+					constraintMaxes[(c * dimensions.length) + d] = dataPerDimension[d].getMax();
+				}
+				c++;
+			}
+		}
+		binOffsets[binIds.length] = c;
+
+		// keep the table at most half full
+		int capacity = 2;
+		while (capacity < (binIds.length * 2)) {
+			capacity <<= 1;
+		}
+		table = new int[capacity];
+		tableMask = capacity - 1;
+		for (int b = 0; b < binIds.length; b++) {
+			int slot = spread(hash(
+					1,
+					binIds[b])) & tableMask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & tableMask;
+			}
+			table[slot] = b + 1;
+		}
+	}
+
+	/**
+	 * @param data
+	 *            the data, in the same dimensions as the constraints
+	 * @return whether any bin of the data overlaps any constraint of the same
+	 *         bin
+	 */
+	public boolean overlaps(
+			final MultiDimensionalNumericData data ) {
+		if (binIds.length == 0) {
+			return false;
+		}
+		final NumericData[] dataPerDimension = data.getDataPerDimension();
+		final BinRange[][] rangesPerDimension = new BinRange[dimensions.length][];
+		int combinations = 1;
+		for (int d = 0; d < dimensions.length; d++) {
+			rangesPerDimension[d] = dimensions[d].getNormalizedRanges(dataPerDimension[d]);
+			combinations *= rangesPerDimension[d].length;
+		}
+		// the bin ranges are combined across dimensions the same way as
+		// BinnedNumericDataset.applyBins combines them
+		for (int i = 0; i < combinations; i++) {
+			final int bin = findBin(
+					rangesPerDimension,
+					i);
+			if ((bin >= 0) && overlaps(
+					bin,
+					rangesPerDimension,
+					i)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param queryRange
+	 *            a single constraint
+	 * @param dataRange
+	 *            the data, in the same bin as the constraint
+	 * @param dimensionCount
+	 *            the number of dimensions to compare
+	 * @return whether the data overlaps the constraint in every dimension
+	 */
+	public static boolean overlaps(
+			final MultiDimensionalNumericData queryRange,
+			final MultiDimensionalNumericData dataRange,
+			final int dimensionCount ) {
+		final NumericData[] queryRangePerDimension = queryRange.getDataPerDimension();
+		final double[] minPerDimension = dataRange.getMinValuesPerDimension();
+		final double[] maxPerDimension = dataRange.getMaxValuesPerDimension();
+		for (int d = 0; d < dimensionCount; d++) {
+			if ((maxPerDimension[d] < queryRangePerDimension[d].getMin()) || (minPerDimension[d] > queryRangePerDimension[d].getMax())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean overlaps(
+			final int bin,
+			final BinRange[][] rangesPerDimension,
+			final int combination ) {
+		for (int c = binOffsets[bin]; c < binOffsets[bin + 1]; c++) {
+			final int offset = c * dimensions.length;
+			boolean overlaps = true;
+			for (int d = 0; d < dimensions.length; d++) {
+				final BinRange range = rangesPerDimension[d][combination % rangesPerDimension[d].length];
+				if ((range.getNormalizedMax() < constraintMins[offset + d]) || (range.getNormalizedMin() > constraintMaxes[offset + d])) {
+					overlaps = false;
+					break;
+				}
+			}
+			if (overlaps) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the number of the bin whose ID is the concatenation of the bin
+	 *         IDs of the combination, or -1 if the constraints have no such bin
+	 */
+	private int findBin(
+			final BinRange[][] rangesPerDimension,
+			final int combination ) {
+		int hash = 1;
+		int length = 0;
+		for (int d = 0; d < rangesPerDimension.length; d++) {
+			final byte[] binId = rangesPerDimension[d][combination % rangesPerDimension[d].length].getBinId();
+			if (binId != null) {
+				hash = hash(
+						hash,
+						binId);
+				length += binId.length;
+			}
+		}
+		int slot = spread(hash) & tableMask;
+		while (table[slot] != 0) {
+			final int bin = table[slot] - 1;
+			if ((binIds[bin].length == length) && binIdEquals(
+					binIds[bin],
+					rangesPerDimension,
+					combination)) {
+				return bin;
+			}
+			slot = (slot + 1) & tableMask;
+		}
+		return -1;
+	}
+
+	private static boolean binIdEquals(
+			final byte[] binId,
+			final BinRange[][] rangesPerDimension,
+			final int combination ) {
+		int i = 0;
+		for (int d = 0; d < rangesPerDimension.length; d++) {
+			final byte[] dimensionBinId = rangesPerDimension[d][combination % rangesPerDimension[d].length].getBinId();
+			if (dimensionBinId != null) {
+				for (final byte b : dimensionBinId) {
+					if (binId[i++] != b) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Continue the hash of the bytes preceding the given bytes, so that the
+	 * hash of concatenated bytes does not depend on where they are split
+	 */
+	private static int hash(
+			final int precedingHash,
+			final byte[] bytes ) {
+		int hash = precedingHash;
+		for (final byte b : bytes) {
+			hash = (31 * hash) + b;
+		}
+		return hash;
+	}
+
+	private static int spread(
+			final int hash ) {
+		// mix the high bits into the low bits that are kept by the table mask
+		return hash ^ (hash >>> 16);
+	}
+}
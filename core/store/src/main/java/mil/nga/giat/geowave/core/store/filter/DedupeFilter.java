@@ -1,5 +1,6 @@
 package mil.nga.giat.geowave.core.store.filter;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -11,16 +12,48 @@ import mil.nga.giat.geowave.core.store.data.IndexedPersistenceEncoding;
 /**
  * This filter will perform de-duplication using the combination of data adapter
  * ID and data ID to determine uniqueness. It can be performed client-side
- * and/or distributed.
+ * and/or distributed. By default every visited ID is retained, but a memory
+ * limit can be given in which case the visited IDs are tracked by a compact
+ * {@link FingerprintSet} that stops recording new IDs once the limit is
+ * reached, after which duplicates may be let through but no entry is discarded
+ * that has not been visited.
  * 
  */
 public class DedupeFilter implements
 		DistributableQueryFilter
 {
-	private final Map<ByteArrayId, Set<ByteArrayId>> adapterIdToVisitedDataIdMap;
+	private Map<ByteArrayId, Set<ByteArrayId>> adapterIdToVisitedDataIdMap;
+	private FingerprintSet visitedFingerprints;
+	private long maxMemoryBytes;
 
 	public DedupeFilter() {
-		adapterIdToVisitedDataIdMap = new HashMap<ByteArrayId, Set<ByteArrayId>>();
+		this(
+				0);
+	}
+
+	/**
+	 * @param maxMemoryBytes
+	 *            the maximum number of bytes to use for tracking visited
+	 *            entries, if this is not positive every visited ID is retained
+	 *            exactly
+	 */
+	public DedupeFilter(
+			final long maxMemoryBytes ) {
+		init(maxMemoryBytes);
+	}
+
+	private void init(
+			final long maxMemoryBytes ) {
+		this.maxMemoryBytes = maxMemoryBytes;
+		if (maxMemoryBytes > 0) {
+			visitedFingerprints = new FingerprintSet(
+					maxMemoryBytes);
+			adapterIdToVisitedDataIdMap = null;
+		}
+		else {
+			adapterIdToVisitedDataIdMap = new HashMap<ByteArrayId, Set<ByteArrayId>>();
+			visitedFingerprints = null;
+		}
 	}
 
 	@Override
@@ -40,6 +73,11 @@ public class DedupeFilter implements
 		}
 		final ByteArrayId adapterId = persistenceEncoding.getAdapterId();
 		final ByteArrayId dataId = persistenceEncoding.getDataId();
+		if (visitedFingerprints != null) {
+			return visitedFingerprints.add(
+					adapterId.getBytes(),
+					dataId.getBytes());
+		}
 		Set<ByteArrayId> visitedDataIds = adapterIdToVisitedDataIdMap.get(adapterId);
 		if (visitedDataIds == null) {
 			visitedDataIds = new HashSet<ByteArrayId>();
@@ -58,13 +96,30 @@ public class DedupeFilter implements
 		return false;
 	}
 
+	public long getMaxMemoryBytes() {
+		return maxMemoryBytes;
+	}
+
 	@Override
 	public byte[] toBinary() {
-		return new byte[] {};
+		if (maxMemoryBytes <= 0) {
+			return new byte[] {};
+		}
+		final ByteBuffer buf = ByteBuffer.allocate(8);
+		buf.putLong(maxMemoryBytes);
+		return buf.array();
 	}
 
 	@Override
 	public void fromBinary(
-			final byte[] bytes ) {}
+			final byte[] bytes ) {
+		if (bytes.length >= 8) {
+			init(ByteBuffer.wrap(
+					bytes).getLong());
+		}
+		else {
+			init(0);
+		}
+	}
 
 }
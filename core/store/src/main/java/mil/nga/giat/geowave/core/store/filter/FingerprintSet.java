@@ -0,0 +1,188 @@
+package mil.nga.giat.geowave.core.store.filter;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A compact set of visited adapter ID and data ID pairs used for
+ * de-duplication. Each pair is reduced to a 128-bit fingerprint that is stored
+ * in an open-addressing table of primitive longs, so no objects are retained
+ * per visited entry. The table grows until it would exceed the configured
+ * memory limit, at which point it stops recording new entries. Entries recorded
+ * before then are still recognized as duplicates, but any other entry is
+ * reported as not visited, so that once the limit is reached duplicates may be
+ * let through but an entry is never discarded that has not been seen.
+ */
+public class FingerprintSet
+{
+	private final static Logger LOGGER = Logger.getLogger(FingerprintSet.class);
+	private static final int BYTES_PER_SLOT = 16;
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final long SEED1 = 0xcbf29ce484222325L;
+	private static final long PRIME1 = 0x100000001b3L;
+	private static final long SEED2 = 0x9e3779b97f4a7c15L;
+	private static final long PRIME2 = 0xc6a4a7935bd1e995L;
+
+	private final long maxMemoryBytes;
+	// pairs of longs with (0, 0) reserved for an empty slot
+	private long[] table;
+	private int size;
+	private boolean saturated = false;
+
+	public FingerprintSet(
+			final long maxMemoryBytes ) {
+		this.maxMemoryBytes = maxMemoryBytes;
+		int capacity = INITIAL_CAPACITY;
+		while (((long) capacity * BYTES_PER_SLOT > maxMemoryBytes) && (capacity > 16)) {
+			capacity >>= 1;
+		}
+		table = new long[capacity * 2];
+	}
+
+	/**
+	 * @return true if the pair had not been visited and has now been added,
+	 *         false if it is a duplicate
+	 */
+	public boolean add(
+			final byte[] adapterId,
+			final byte[] dataId ) {
+		long hash1 = hash(
+				SEED1,
+				PRIME1,
+				adapterId,
+				dataId);
+		final long hash2 = hash(
+				SEED2,
+				PRIME2,
+				adapterId,
+				dataId);
+		if ((hash1 == 0) && (hash2 == 0)) {
+			hash1 = 1;
+		}
+		if (saturated) {
+			return !tableContains(
+					hash1,
+					hash2);
+		}
+		if (!tableAdd(
+				hash1,
+				hash2)) {
+			return false;
+		}
+		size++;
+		if (size > (capacity() * 3L) / 4) {
+			grow();
+		}
+		return true;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return whether the memory limit has been reached, after which new
+	 *         entries are no longer recorded and their duplicates are let
+	 *         through
+	 */
+	public boolean isSaturated() {
+		return saturated;
+	}
+
+	private int capacity() {
+		return table.length / 2;
+	}
+
+	private boolean tableAdd(
+			final long hash1,
+			final long hash2 ) {
+		final int mask = capacity() - 1;
+		int slot = (int) (hash1 ^ (hash1 >>> 32)) & mask;
+		while (true) {
+			final int i = slot * 2;
+			if ((table[i] == 0) && (table[i + 1] == 0)) {
+				table[i] = hash1;
+				table[i + 1] = hash2;
+				return true;
+			}
+			if ((table[i] == hash1) && (table[i + 1] == hash2)) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	private boolean tableContains(
+			final long hash1,
+			final long hash2 ) {
+		final int mask = capacity() - 1;
+		int slot = (int) (hash1 ^ (hash1 >>> 32)) & mask;
+		while (true) {
+			final int i = slot * 2;
+			if ((table[i] == 0) && (table[i + 1] == 0)) {
+				return false;
+			}
+			if ((table[i] == hash1) && (table[i + 1] == hash2)) {
+				return true;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	private void grow() {
+		final long newCapacity = (long) capacity() * 2;
+		if (((newCapacity * BYTES_PER_SLOT) > maxMemoryBytes) || (newCapacity > (Integer.MAX_VALUE / 2))) {
+			LOGGER.warn("De-duplication of more than " + size + " entries exceeds the memory limit of " + maxMemoryBytes + " bytes; further duplicates may not be removed");
+			saturated = true;
+			return;
+		}
+		final long[] oldTable = table;
+		table = new long[(int) newCapacity * 2];
+		for (int i = 0; i < oldTable.length; i += 2) {
+			if ((oldTable[i] != 0) || (oldTable[i + 1] != 0)) {
+				tableAdd(
+						oldTable[i],
+						oldTable[i + 1]);
+			}
+		}
+	}
+
+	private static long hash(
+			final long seed,
+			final long prime,
+			final byte[] adapterId,
+			final byte[] dataId ) {
+		long h = mix(
+				seed,
+				prime,
+				adapterId);
+		// include the length so that the boundary between the IDs is
+		// unambiguous
+		h = (h ^ adapterId.length) * prime;
+		h = mix(
+				h,
+				prime,
+				dataId);
+		return fmix64(h ^ dataId.length);
+	}
+
+	private static long mix(
+			long h,
+			final long prime,
+			final byte[] bytes ) {
+		for (final byte b : bytes) {
+			h ^= (b & 0xff);
+			h *= prime;
+		}
+		return h;
+	}
+
+	private static long fmix64(
+			long k ) {
+		k ^= k >>> 33;
+		k *= 0xff51afd7ed558ccdL;
+		k ^= k >>> 33;
+		k *= 0xc4ceb9fe1a85ec53L;
+		k ^= k >>> 33;
+		return k;
+	}
+}
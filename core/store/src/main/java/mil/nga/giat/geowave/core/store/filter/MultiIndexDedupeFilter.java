@@ -1,5 +1,10 @@
 package mil.nga.giat.geowave.core.store.filter;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import mil.nga.giat.geowave.core.store.data.IndexedPersistenceEncoding;
+
 /**
  * This filter will perform de-duplication using the combination of data adapter
  * ID and data ID to determine uniqueness. This should only be used client-side
@@ -18,6 +23,20 @@ public class MultiIndexDedupeFilter extends
 		super();
 	}
 
+	public MultiIndexDedupeFilter(
+			final long maxMemoryBytes ) {
+		super(
+				maxMemoryBytes);
+	}
+
+	@Override
+	public synchronized boolean accept(
+			final IndexedPersistenceEncoding persistenceEncoding ) {
+		// the same instance is shared by every index in a query and the
+		// indices may be scanned concurrently
+		return super.accept(persistenceEncoding);
+	}
+
 	@Override
 	protected boolean supportsMultipleIndices() {
 		return multiIndexSupport;
@@ -30,9 +49,11 @@ public class MultiIndexDedupeFilter extends
 
 	@Override
 	public byte[] toBinary() {
-		return new byte[] {
-			(byte) (multiIndexSupport ? 0 : 1)
-		};
+		final byte[] superBinary = super.toBinary();
+		final ByteBuffer buf = ByteBuffer.allocate(1 + superBinary.length);
+		buf.put((byte) (multiIndexSupport ? 0 : 1));
+		buf.put(superBinary);
+		return buf.array();
 	}
 
 	@Override
@@ -40,6 +61,10 @@ public class MultiIndexDedupeFilter extends
 			final byte[] bytes ) {
 		if (bytes.length > 0) {
 			multiIndexSupport = (bytes[0] == 0);
+			super.fromBinary(Arrays.copyOfRange(
+					bytes,
+					1,
+					bytes.length));
 		}
 	}
 
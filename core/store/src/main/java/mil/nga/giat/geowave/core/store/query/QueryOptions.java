@@ -1,6 +1,7 @@
 package mil.nga.giat.geowave.core.store.query;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -22,7 +23,12 @@ public class QueryOptions implements
 	 * 
 	 */
 	private static final long serialVersionUID = 544085046847603372L;
+	// the binary form used to be only the comma-separated field IDs, and this
+	// marker can never start UTF-8 text so it identifies the versioned form
+	private static final byte VERSIONED_MARKER = (byte) 0xFF;
+	private static final byte VERSION = 1;
 	private Collection<String> fieldIds = Collections.emptyList();
+	private long dedupeMaxMemoryBytes = 0;
 
 	/**
 	 * @param fieldIds
@@ -68,25 +74,77 @@ public class QueryOptions implements
 		this.fieldIds = fieldIds;
 	}
 
+	/**
+	 * @return the maximum number of bytes that client-side and distributed
+	 *         de-duplication may use, not positive if de-duplication should
+	 *         retain every visited ID
+	 */
+	public long getDedupeMaxMemoryBytes() {
+		return dedupeMaxMemoryBytes;
+	}
+
+	/**
+	 * @param dedupeMaxMemoryBytes
+	 *            the maximum number of bytes that de-duplication may use; when
+	 *            positive, visited IDs are tracked as compact fingerprints and
+	 *            once the limit is reached duplicates may be let through
+	 */
+	public void setDedupeMaxMemoryBytes(
+			final long dedupeMaxMemoryBytes ) {
+		this.dedupeMaxMemoryBytes = dedupeMaxMemoryBytes;
+	}
+
 	@Override
 	public byte[] toBinary() {
-		if (fieldIds == null) return new byte[0];
 		final StringBuffer buffer = new StringBuffer();
-		for (final String fieldId : fieldIds) {
-			if (buffer.length() > 0) {
-				buffer.append(",");
+		if (fieldIds != null) {
+			for (final String fieldId : fieldIds) {
+				if (buffer.length() > 0) {
+					buffer.append(",");
+				}
+				buffer.append(fieldId);
 			}
-			buffer.append(fieldId);
 		}
-		return StringUtils.stringToBinary(buffer.toString());
+		final byte[] fieldIdsBinary = StringUtils.stringToBinary(buffer.toString());
+		final ByteBuffer buf = ByteBuffer.allocate(14 + fieldIdsBinary.length);
+		buf.put(VERSIONED_MARKER);
+		buf.put(VERSION);
+		buf.putInt(fieldIdsBinary.length);
+		buf.put(fieldIdsBinary);
+		buf.putLong(dedupeMaxMemoryBytes);
+		return buf.array();
 	}
 
 	@Override
 	public void fromBinary(
 			final byte[] bytes ) {
-		final String data = StringUtils.stringFromBinary(bytes);
-		final String[] ids = data.split(",");
-		fieldIds = Arrays.asList(ids);
+		if ((bytes.length == 0) || (bytes[0] != VERSIONED_MARKER)) {
+			// the previous form, which only has the field IDs and is decoded
+			// as it always was, so empty bytes are a single empty field ID
+			fieldIds = Arrays.asList(StringUtils.stringFromBinary(
+					bytes).split(
+					","));
+			dedupeMaxMemoryBytes = 0;
+			return;
+		}
+		final ByteBuffer buf = ByteBuffer.wrap(bytes);
+		buf.get();
+		final byte version = buf.get();
+		if (version != VERSION) {
+			throw new IllegalArgumentException(
+					"Unsupported query options version " + version);
+		}
+		final byte[] fieldIdsBinary = new byte[buf.getInt()];
+		buf.get(fieldIdsBinary);
+		if (fieldIdsBinary.length > 0) {
+			fieldIds = Arrays.asList(StringUtils.stringFromBinary(
+					fieldIdsBinary).split(
+					","));
+		}
+		else {
+			fieldIds = Collections.emptyList();
+		}
+		dedupeMaxMemoryBytes = buf.getLong();
 	}
 
 }
@@ -0,0 +1,542 @@
+package mil.nga.giat.geowave.core.store.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+
+import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.core.index.StringUtils;
+import mil.nga.giat.geowave.core.index.dimension.BasicDimensionDefinition;
+import mil.nga.giat.geowave.core.index.dimension.NumericDimensionDefinition;
+import mil.nga.giat.geowave.core.index.dimension.UnboundedDimensionDefinition;
+import mil.nga.giat.geowave.core.index.dimension.bin.BinRange;
+import mil.nga.giat.geowave.core.index.dimension.bin.BinValue;
+import mil.nga.giat.geowave.core.index.dimension.bin.BinningStrategy;
+import mil.nga.giat.geowave.core.index.sfc.data.BasicNumericDataset;
+import mil.nga.giat.geowave.core.index.sfc.data.BinnedNumericDataset;
+import mil.nga.giat.geowave.core.index.sfc.data.MultiDimensionalNumericData;
+import mil.nga.giat.geowave.core.index.sfc.data.NumericData;
+import mil.nga.giat.geowave.core.index.sfc.data.NumericRange;
+import mil.nga.giat.geowave.core.index.sfc.data.NumericValue;
+import mil.nga.giat.geowave.core.store.data.IndexedPersistenceEncoding;
+import mil.nga.giat.geowave.core.store.data.PersistentDataset;
+import mil.nga.giat.geowave.core.store.data.PersistentValue;
+import mil.nga.giat.geowave.core.store.data.field.FieldReader;
+import mil.nga.giat.geowave.core.store.data.field.FieldWriter;
+import mil.nga.giat.geowave.core.store.dimension.DimensionField;
+import mil.nga.giat.geowave.core.store.index.CommonIndexValue;
+
+import org.junit.Test;
+
+public class BasicQueryFilterTest
+{
+	// a binned dimension and a dimension without bins, as with time and
+	// space
+	private static final DimensionField<?>[] DIMENSIONS = new DimensionField<?>[] {
+		new TestDimensionField(
+				"binned10",
+				new UnboundedDimensionDefinition(
+						new TestBinningStrategy(
+								10))),
+		new TestDimensionField(
+				"unbinned",
+				new BasicDimensionDefinition(
+						-100,
+						100))
+	};
+	// two binned dimensions with different bin widths, so that bin IDs are
+	// concatenated
+	private static final DimensionField<?>[] MULTI_BINNED_DIMENSIONS = new DimensionField<?>[] {
+		DIMENSIONS[0],
+		new TestDimensionField(
+				"binned25",
+				new UnboundedDimensionDefinition(
+						new TestBinningStrategy(
+								25))),
+		DIMENSIONS[1]
+	};
+
+	@Test
+	public void testConstraintsAcrossBins() {
+		final Random random = new Random(
+				8675309L);
+		for (int q = 0; q < 50; q++) {
+			final NumericData[] constraints = randomConstraints(
+					random,
+					DIMENSIONS);
+			final BasicQueryFilter filter = new BasicQueryFilter(
+					new BasicNumericDataset(
+							constraints),
+					DIMENSIONS);
+			final LegacyQueryFilter legacyFilter = new LegacyQueryFilter(
+					new BasicNumericDataset(
+							constraints),
+					DIMENSIONS);
+			for (int i = 0; i < 200; i++) {
+				final NumericData[] data = randomData(
+						random,
+						DIMENSIONS,
+						i);
+				final boolean expected = overlaps(
+						constraints,
+						data);
+				final IndexedPersistenceEncoding encoding = createEncoding(
+						DIMENSIONS,
+						data);
+				assertEquals(
+						expected,
+						filter.accept(encoding));
+				assertEquals(
+						expected,
+						legacyFilter.accept(encoding));
+			}
+		}
+	}
+
+	@Test
+	public void testMultipleBinnedDimensionsMatchLegacy() {
+		// applying bins only pairs the bins of each dimension by position
+		// rather than forming every combination of them, so with more than
+		// one binned dimension the compiled constraints are compared with
+		// the map of binned constraints rather than with the original ranges
+		final Random random = new Random(
+				8675309L);
+		for (int q = 0; q < 50; q++) {
+			final NumericData[] constraints = randomConstraints(
+					random,
+					MULTI_BINNED_DIMENSIONS);
+			final BasicQueryFilter filter = new BasicQueryFilter(
+					new BasicNumericDataset(
+							constraints),
+					MULTI_BINNED_DIMENSIONS);
+			final LegacyQueryFilter legacyFilter = new LegacyQueryFilter(
+					new BasicNumericDataset(
+							constraints),
+					MULTI_BINNED_DIMENSIONS);
+			for (int i = 0; i < 200; i++) {
+				final IndexedPersistenceEncoding encoding = createEncoding(
+						MULTI_BINNED_DIMENSIONS,
+						randomData(
+								random,
+								MULTI_BINNED_DIMENSIONS,
+								i));
+				assertEquals(
+						legacyFilter.accept(encoding),
+						filter.accept(encoding));
+			}
+		}
+	}
+
+	@Test
+	public void testDataOutsideConstraintBins() {
+		final BasicQueryFilter filter = new BasicQueryFilter(
+				new BasicNumericDataset(
+						new NumericData[] {
+							new NumericRange(
+									5,
+									15),
+							new NumericRange(
+									5,
+									15)
+						}),
+				DIMENSIONS);
+		// the same normalized values within a different bin
+		assertFalse(filter.accept(createEncoding(
+				DIMENSIONS,
+				new NumericData[] {
+					new NumericValue(
+							36),
+					new NumericValue(
+							10)
+				})));
+		assertTrue(filter.accept(createEncoding(
+				DIMENSIONS,
+				new NumericData[] {
+					new NumericValue(
+							6),
+					new NumericValue(
+							10)
+				})));
+	}
+
+	@SuppressWarnings("deprecation")
+	@Test
+	public void testDeprecatedOverlaps() {
+		final BasicQueryFilter filter = new BasicQueryFilter(
+				new BasicNumericDataset(
+						new NumericData[] {
+							new NumericRange(
+									5,
+									15),
+							new NumericRange(
+									0,
+									10)
+						}),
+				DIMENSIONS);
+		// the constraint is split into the first two bins of the first
+		// dimension
+		assertEquals(
+				2,
+				filter.binnedConstraints.size());
+		final MultiDimensionalNumericData query = new BasicNumericDataset(
+				new NumericData[] {
+					new NumericRange(
+							0,
+							5),
+					new NumericRange(
+							0,
+							10)
+				});
+		assertTrue(filter.overlaps(
+				query,
+				new BasicNumericDataset(
+						new NumericData[] {
+							new NumericValue(
+									5),
+							new NumericValue(
+									0)
+						})));
+		assertFalse(filter.overlaps(
+				query,
+				new BasicNumericDataset(
+						new NumericData[] {
+							new NumericValue(
+									5),
+							new NumericValue(
+									11)
+						})));
+	}
+
+	private static boolean overlaps(
+			final NumericData[] constraints,
+			final NumericData[] data ) {
+		for (int d = 0; d < constraints.length; d++) {
+			if ((data[d].getMax() < constraints[d].getMin()) || (data[d].getMin() > constraints[d].getMax())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static NumericData[] randomConstraints(
+			final Random random,
+			final DimensionField<?>[] dimensions ) {
+		final NumericData[] constraints = new NumericData[dimensions.length];
+		for (int d = 0; d < dimensions.length; d++) {
+			// constraints span up to several bins
+			constraints[d] = randomRange(
+					random,
+					-80,
+					160,
+					60);
+		}
+		return constraints;
+	}
+
+	private static NumericData[] randomData(
+			final Random random,
+			final DimensionField<?>[] dimensions,
+			final int i ) {
+		final NumericData[] data = new NumericData[dimensions.length];
+		for (int d = 0; d < dimensions.length; d++) {
+			// half of the data are points
+			data[d] = (i % 2) == 0 ? randomRange(
+					random,
+					-100,
+					200,
+					50) : new NumericValue(
+					-100 + (random.nextDouble() * 200));
+		}
+		return data;
+	}
+
+	private static NumericRange randomRange(
+			final Random random,
+			final double min,
+			final double extent,
+			final double maxLength ) {
+		final double rangeMin = min + (random.nextDouble() * extent);
+		return new NumericRange(
+				rangeMin,
+				rangeMin + (random.nextDouble() * maxLength));
+	}
+
+	private static IndexedPersistenceEncoding createEncoding(
+			final DimensionField<?>[] dimensions,
+			final NumericData[] data ) {
+		final PersistentDataset<CommonIndexValue> commonData = new PersistentDataset<CommonIndexValue>();
+		for (int d = 0; d < dimensions.length; d++) {
+			commonData.addValue(new PersistentValue<CommonIndexValue>(
+					dimensions[d].getFieldId(),
+					new TestIndexValue(
+							data[d])));
+		}
+		return new IndexedPersistenceEncoding(
+				new ByteArrayId(
+						StringUtils.stringToBinary("adapter")),
+				new ByteArrayId(
+						StringUtils.stringToBinary("data")),
+				new ByteArrayId(
+						StringUtils.stringToBinary("index")),
+				0,
+				commonData);
+	}
+
+	/**
+	 * Accepts data the way the filter did before the constraints were compiled,
+	 * through the map of binned constraints that subclasses may still read
+	 */
+	private static class LegacyQueryFilter extends
+			BasicQueryFilter
+	{
+		private LegacyQueryFilter(
+				final MultiDimensionalNumericData constraints,
+				final DimensionField<?>[] dimensionFields ) {
+			super(
+					constraints,
+					dimensionFields);
+		}
+
+		@SuppressWarnings("deprecation")
+		@Override
+		public boolean accept(
+				final IndexedPersistenceEncoding persistenceEncoding ) {
+			final BinnedNumericDataset[] dataRanges = BinnedNumericDataset.applyBins(
+					persistenceEncoding.getNumericData(dimensionFields),
+					dimensionFields);
+			for (final BinnedNumericDataset dataRange : dataRanges) {
+				final List<MultiDimensionalNumericData> queries = binnedConstraints.get(new ByteArrayId(
+						dataRange.getBinId()));
+				if (queries != null) {
+					for (final MultiDimensionalNumericData query : queries) {
+						if (overlaps(
+								query,
+								dataRange)) {
+							return true;
+						}
+					}
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Bins values into consecutive bins of a fixed width, identified by the bin
+	 * number
+	 */
+	private static class TestBinningStrategy implements
+			BinningStrategy
+	{
+		private final double binWidth;
+
+		private TestBinningStrategy(
+				final double binWidth ) {
+			this.binWidth = binWidth;
+		}
+
+		@Override
+		public double getBinMin() {
+			return 0;
+		}
+
+		@Override
+		public double getBinMax() {
+			return binWidth;
+		}
+
+		@Override
+		public BinValue getBinnedValue(
+				final double value ) {
+			final int bin = (int) Math.floor(value / binWidth);
+			return new BinValue(
+					getBinId(bin),
+					value - (bin * binWidth));
+		}
+
+		@Override
+		public BinRange[] getNormalizedRanges(
+				final NumericData index ) {
+			final int minBin = (int) Math.floor(index.getMin() / binWidth);
+			final int maxBin = (int) Math.floor(index.getMax() / binWidth);
+			final BinRange[] ranges = new BinRange[(maxBin - minBin) + 1];
+			for (int bin = minBin; bin <= maxBin; bin++) {
+				final double binStart = bin * binWidth;
+				final double normalizedMin = Math.max(
+						index.getMin(),
+						binStart) - binStart;
+				final double normalizedMax = Math.min(
+						index.getMax(),
+						binStart + binWidth) - binStart;
+				ranges[bin - minBin] = new BinRange(
+						getBinId(bin),
+						normalizedMin,
+						normalizedMax,
+						(normalizedMin == 0) && (normalizedMax == binWidth));
+			}
+			return ranges;
+		}
+
+		@Override
+		public NumericRange getDenormalizedRanges(
+				final BinRange binnedRange ) {
+			final double binStart = ByteBuffer.wrap(
+					binnedRange.getBinId()).getInt() * binWidth;
+			return new NumericRange(
+					binStart + binnedRange.getNormalizedMin(),
+					binStart + binnedRange.getNormalizedMax());
+		}
+
+		@Override
+		public int getFixedBinIdSize() {
+			return 4;
+		}
+
+		private static byte[] getBinId(
+				final int bin ) {
+			return ByteBuffer.allocate(
+					4).putInt(
+					bin).array();
+		}
+
+		@Override
+		public byte[] toBinary() {
+			return new byte[0];
+		}
+
+		@Override
+		public void fromBinary(
+				final byte[] bytes ) {}
+	}
+
+	private static class TestIndexValue implements
+			CommonIndexValue
+	{
+		private final NumericData data;
+
+		private TestIndexValue(
+				final NumericData data ) {
+			this.data = data;
+		}
+
+		@Override
+		public byte[] getVisibility() {
+			return null;
+		}
+
+		@Override
+		public void setVisibility(
+				final byte[] visibility ) {}
+
+		@Override
+		public boolean overlaps(
+				final DimensionField[] dimensions,
+				final NumericData[] rangeData ) {
+			return true;
+		}
+	}
+
+	private static class TestDimensionField implements
+			DimensionField<TestIndexValue>
+	{
+		private final ByteArrayId fieldId;
+		private final NumericDimensionDefinition baseDefinition;
+
+		private TestDimensionField(
+				final String fieldId,
+				final NumericDimensionDefinition baseDefinition ) {
+			this.fieldId = new ByteArrayId(
+					fieldId);
+			this.baseDefinition = baseDefinition;
+		}
+
+		@Override
+		public NumericData getNumericData(
+				final TestIndexValue dataElement ) {
+			return dataElement.data;
+		}
+
+		@Override
+		public ByteArrayId getFieldId() {
+			return fieldId;
+		}
+
+		@Override
+		public FieldWriter<?, TestIndexValue> getWriter() {
+			return null;
+		}
+
+		@Override
+		public FieldReader<TestIndexValue> getReader() {
+			return null;
+		}
+
+		@Override
+		public NumericDimensionDefinition getBaseDefinition() {
+			return baseDefinition;
+		}
+
+		@Override
+		public double getRange() {
+			return baseDefinition.getRange();
+		}
+
+		@Override
+		public double normalize(
+				final double value ) {
+			return baseDefinition.normalize(value);
+		}
+
+		@Override
+		public double denormalize(
+				final double value ) {
+			return baseDefinition.denormalize(value);
+		}
+
+		@Override
+		public BinRange[] getNormalizedRanges(
+				final NumericData range ) {
+			return baseDefinition.getNormalizedRanges(range);
+		}
+
+		@Override
+		public NumericRange getDenormalizedRange(
+				final BinRange range ) {
+			return baseDefinition.getDenormalizedRange(range);
+		}
+
+		@Override
+		public int getFixedBinIdSize() {
+			return baseDefinition.getFixedBinIdSize();
+		}
+
+		@Override
+		public NumericRange getBounds() {
+			return baseDefinition.getBounds();
+		}
+
+		@Override
+		public NumericData getFullRange() {
+			return baseDefinition.getFullRange();
+		}
+
+		@Override
+		public boolean isCompatibleDefinition(
+				final NumericDimensionDefinition otherDimensionDefinition ) {
+			return baseDefinition.isCompatibleDefinition(otherDimensionDefinition);
+		}
+
+		@Override
+		public byte[] toBinary() {
+			return new byte[0];
+		}
+
+		@Override
+		public void fromBinary(
+				final byte[] bytes ) {}
+	}
+}
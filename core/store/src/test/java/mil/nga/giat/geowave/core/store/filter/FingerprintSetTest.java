@@ -0,0 +1,77 @@
+package mil.nga.giat.geowave.core.store.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import mil.nga.giat.geowave.core.index.StringUtils;
+
+import org.junit.Test;
+
+public class FingerprintSetTest
+{
+	private static final byte[] ADAPTER_ID = StringUtils.stringToBinary("adapter");
+
+	@Test
+	public void testExactWithinLimit() {
+		final FingerprintSet set = new FingerprintSet(
+				1024 * 1024);
+		for (int i = 0; i < 10000; i++) {
+			assertTrue(set.add(
+					ADAPTER_ID,
+					StringUtils.stringToBinary("id" + i)));
+		}
+		for (int i = 0; i < 10000; i++) {
+			assertFalse(set.add(
+					ADAPTER_ID,
+					StringUtils.stringToBinary("id" + i)));
+		}
+		assertEquals(
+				10000,
+				set.size());
+		assertFalse(set.isSaturated());
+	}
+
+	@Test
+	public void testAdapterIdIsPartOfIdentity() {
+		final FingerprintSet set = new FingerprintSet(
+				1024);
+		assertTrue(set.add(
+				StringUtils.stringToBinary("ab"),
+				StringUtils.stringToBinary("c")));
+		assertTrue(set.add(
+				StringUtils.stringToBinary("a"),
+				StringUtils.stringToBinary("bc")));
+		assertFalse(set.add(
+				StringUtils.stringToBinary("a"),
+				StringUtils.stringToBinary("bc")));
+	}
+
+	@Test
+	public void testSaturationNeverDiscardsNewEntries() {
+		final FingerprintSet set = new FingerprintSet(
+				4096);
+		for (int i = 0; i < 1000; i++) {
+			set.add(
+					ADAPTER_ID,
+					StringUtils.stringToBinary("id" + i));
+		}
+		assertTrue(set.isSaturated());
+		final int recorded = set.size();
+		// the entries recorded before the limit are still duplicates
+		for (int i = 0; i < recorded; i++) {
+			assertFalse(set.add(
+					ADAPTER_ID,
+					StringUtils.stringToBinary("id" + i)));
+		}
+		// entries that were never seen are always accepted
+		for (int i = 0; i < 100000; i++) {
+			assertTrue(set.add(
+					ADAPTER_ID,
+					StringUtils.stringToBinary("new" + i)));
+		}
+		assertEquals(
+				recorded,
+				set.size());
+	}
+}
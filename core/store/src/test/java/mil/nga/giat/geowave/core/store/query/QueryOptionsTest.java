@@ -2,6 +2,9 @@ package mil.nga.giat.geowave.core.store.query;
 
 import java.util.Arrays;
 
+import mil.nga.giat.geowave.core.index.StringUtils;
+
+import org.junit.Assert;
 import org.junit.Test;
 
 public class QueryOptionsTest
@@ -21,4 +24,47 @@ public class QueryOptionsTest
 		ops.getFieldIds().contains(
 				"|abc");
 	}
+
+	@Test
+	public void testDedupeMaxMemory() {
+		final QueryOptions ops = new QueryOptions(
+				"a,b");
+		ops.setDedupeMaxMemoryBytes(1024);
+		final QueryOptions other = new QueryOptions();
+		other.fromBinary(ops.toBinary());
+		Assert.assertEquals(
+				1024,
+				other.getDedupeMaxMemoryBytes());
+		Assert.assertEquals(
+				Arrays.asList(
+						"a",
+						"b"),
+				other.getFieldIds());
+	}
+
+	@Test
+	public void testPreviousFormat() {
+		final QueryOptions ops = new QueryOptions();
+		ops.setDedupeMaxMemoryBytes(1024);
+		// the field IDs were previously persisted as only the comma-separated
+		// IDs
+		ops.fromBinary(StringUtils.stringToBinary("a,b"));
+		Assert.assertEquals(
+				Arrays.asList(
+						"a",
+						"b"),
+				ops.getFieldIds());
+		Assert.assertEquals(
+				0,
+				ops.getDedupeMaxMemoryBytes());
+		// empty bytes in the previous form are still a single empty field ID
+		ops.fromBinary(new byte[0]);
+		Assert.assertEquals(
+				Arrays.asList(""),
+				ops.getFieldIds());
+
+		// whereas no field IDs in the current form are an empty list
+		ops.fromBinary(new QueryOptions().toBinary());
+		Assert.assertTrue(ops.getFieldIds().isEmpty());
+	}
 }
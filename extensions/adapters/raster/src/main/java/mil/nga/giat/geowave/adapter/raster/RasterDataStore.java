@@ -1,14 +1,28 @@
 package mil.nga.giat.geowave.adapter.raster;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.TreeMap;
 
+import mil.nga.giat.geowave.core.index.ByteArrayId;
 import mil.nga.giat.geowave.core.index.HierarchicalNumericIndexStrategy;
-import mil.nga.giat.geowave.core.index.NumericIndexStrategy;
 import mil.nga.giat.geowave.core.index.HierarchicalNumericIndexStrategy.SubStrategy;
+import mil.nga.giat.geowave.core.index.NumericIndexStrategy;
+import mil.nga.giat.geowave.core.index.sfc.data.MultiDimensionalNumericData;
 import mil.nga.giat.geowave.core.store.CloseableIterator;
+import mil.nga.giat.geowave.core.store.DataStoreEntryInfo;
+import mil.nga.giat.geowave.core.store.IndexWriter;
+import mil.nga.giat.geowave.core.store.IngestCallback;
+import mil.nga.giat.geowave.core.store.ScanCallback;
 import mil.nga.giat.geowave.core.store.adapter.AdapterStore;
 import mil.nga.giat.geowave.core.store.adapter.DataAdapter;
+import mil.nga.giat.geowave.core.store.adapter.WritableDataAdapter;
 import mil.nga.giat.geowave.core.store.adapter.statistics.DataStatisticsStore;
+import mil.nga.giat.geowave.core.store.data.VisibilityWriter;
 import mil.nga.giat.geowave.core.store.index.CustomIdIndex;
 import mil.nga.giat.geowave.core.store.index.Index;
 import mil.nga.giat.geowave.core.store.index.IndexStore;
@@ -16,10 +30,15 @@ import mil.nga.giat.geowave.core.store.query.Query;
 import mil.nga.giat.geowave.datastore.accumulo.AccumuloDataStore;
 import mil.nga.giat.geowave.datastore.accumulo.AccumuloOperations;
 import mil.nga.giat.geowave.datastore.accumulo.AccumuloOptions;
+import mil.nga.giat.geowave.datastore.accumulo.AccumuloRowId;
+import mil.nga.giat.geowave.datastore.accumulo.util.ParallelCloseableIterator;
+
+import org.opengis.coverage.grid.GridCoverage;
 
 public class RasterDataStore extends
 		AccumuloDataStore
 {
+	private RasterTileCache tileCache = null;
 
 	public RasterDataStore(
 			final AccumuloOperations accumuloOperations ) {
@@ -61,59 +80,83 @@ public class RasterDataStore extends
 				accumuloOperations);
 	}
 
+	public RasterTileCache getTileCache() {
+		return tileCache;
+	}
+
+	/**
+	 * Retain the tiles that are queried for a target resolution in the cache,
+	 * so that the tiles of subsequent queries that are already cached are not
+	 * queried and decoded again. Tiles that are written or deleted through this
+	 * data store are invalidated, but tiles written by other processes are only
+	 * refreshed once they expire from the cache.
+	 * 
+	 * @param tileCache
+	 *            the cache, or null to query every tile from the data store
+	 */
+	public void setTileCache(
+			final RasterTileCache tileCache ) {
+		this.tileCache = tileCache;
+	}
+
+	/**
+	 * Query each of the queries for the target resolution concurrently on up to
+	 * the number of query threads of this data store, returning the tiles of
+	 * all of them in the order that they are decoded. The scans begin
+	 * immediately rather than when the results are first read, and each scan
+	 * blocks once the query queue is full so that it does not run far ahead of
+	 * the caller.
+	 */
+	public <T> CloseableIterator<T> queryConcurrently(
+			final DataAdapter<T> adapter,
+			final Index index,
+			final List<Query> queries,
+			final double[] targetResolutionPerDimension ) {
+		final List<CloseableIterator<T>> results = new ArrayList<CloseableIterator<T>>(
+				queries.size());
+		for (final Query query : queries) {
+			results.add(query(
+					adapter,
+					index,
+					query,
+					targetResolutionPerDimension));
+		}
+		return new ParallelCloseableIterator<T>(
+				results,
+				accumuloOptions.getQueryThreads(),
+				accumuloOptions.getQueryQueueSize());
+	}
+
 	public <T> CloseableIterator<T> query(
 			final DataAdapter<T> adapter,
 			final Index index,
 			final Query query,
 			final double[] targetResolutionPerDimension ) {
 		// determine the correct tier to query for the given resolution
-		final NumericIndexStrategy strategy = index.getIndexStrategy();
-		if (strategy instanceof HierarchicalNumericIndexStrategy) {
-			final TreeMap<Double, SubStrategy> sortedStrategies = new TreeMap<Double, SubStrategy>();
-			SubStrategy targetIndexStrategy = null;
-			for (final SubStrategy subStrategy : ((HierarchicalNumericIndexStrategy) strategy).getSubStrategies()) {
-				final double[] idRangePerDimension = subStrategy.getIndexStrategy().getHighestPrecisionIdRangePerDimension();
-				double rangeSum = 0;
-				for (final double range : idRangePerDimension) {
-					rangeSum += range;
-				}
-				// sort by the sum of the range in each dimension
-				sortedStrategies.put(
-						rangeSum,
-						subStrategy);
-			}
-			for (final SubStrategy subStrategy : sortedStrategies.descendingMap().values()) {
-				final double[] highestPrecisionIdRangePerDimension = subStrategy.getIndexStrategy().getHighestPrecisionIdRangePerDimension();
-				// if the id range is less than or equal to the target
-				// resolution in each dimension, use this substrategy
-				boolean withinTargetResolution = true;
-				for (int d = 0; d < highestPrecisionIdRangePerDimension.length; d++) {
-					if (highestPrecisionIdRangePerDimension[d] > targetResolutionPerDimension[d]) {
-						withinTargetResolution = false;
-						break;
-					}
-				}
-				if (withinTargetResolution) {
-					targetIndexStrategy = subStrategy;
-					break;
-				}
-			}
-			if (targetIndexStrategy == null) {
-				// if there is not a substrategy that is within the target
-				// resolution, use the first substrategy (the lowest range per
-				// dimension, which is the highest precision)
-				targetIndexStrategy = sortedStrategies.firstEntry().getValue();
+		final NumericIndexStrategy tierStrategy = getTierIndexStrategy(
+				index,
+				targetResolutionPerDimension);
+		if (tierStrategy != null) {
+			final Index tierIndex = new CustomIdIndex(
+					// replace the index strategy with a single
+					// substrategy that fits the target resolution
+					tierStrategy,
+					index.getIndexModel(),
+					index.getId()); // make sure the index ID is the
+			// same as the orginal so that we
+			// are querying the correct table
+			// the cache can only be used for queries that return every tile
+			// within the index constraints, without any finer filters
+			if ((tileCache != null) && (query != null) && query.createFilters(
+					tierIndex.getIndexModel()).isEmpty()) {
+				return queryTiles(
+						adapter,
+						tierIndex,
+						query);
 			}
 			return super.query(
 					adapter,
-					new CustomIdIndex(
-							// replace the index strategy with a single
-							// substrategy that fits the target resolution
-							targetIndexStrategy.getIndexStrategy(),
-							index.getIndexModel(),
-							index.getId()), // make sure the index ID is the
-					// same as the orginal so that we
-					// are querying the correct table
+					tierIndex,
 					query);
 		}
 		else {
@@ -123,4 +166,366 @@ public class RasterDataStore extends
 					query);
 		}
 	}
+
+	/**
+	 * Determine the tier of a hierarchical index that is queried for a target
+	 * resolution, which is the coarsest tier whose cells are within the target
+	 * resolution in each dimension, or otherwise the finest tier. The cells of
+	 * that tier are the grid that the tiles of the query are stored on.
+	 * 
+	 * @param index
+	 *            the index to query
+	 * @param targetResolutionPerDimension
+	 *            the target resolution in each dimension
+	 * @return the index strategy of the tier, or null if the index is not
+	 *         hierarchical
+	 */
+	public NumericIndexStrategy getTierIndexStrategy(
+			final Index index,
+			final double[] targetResolutionPerDimension ) {
+		final NumericIndexStrategy strategy = index.getIndexStrategy();
+		if (!(strategy instanceof HierarchicalNumericIndexStrategy)) {
+			return null;
+		}
+		final TreeMap<Double, SubStrategy> sortedStrategies = new TreeMap<Double, SubStrategy>();
+		for (final SubStrategy subStrategy : ((HierarchicalNumericIndexStrategy) strategy).getSubStrategies()) {
+			final double[] idRangePerDimension = subStrategy.getIndexStrategy().getHighestPrecisionIdRangePerDimension();
+			double rangeSum = 0;
+			for (final double range : idRangePerDimension) {
+				rangeSum += range;
+			}
+			// sort by the sum of the range in each dimension
+			sortedStrategies.put(
+					rangeSum,
+					subStrategy);
+		}
+		for (final SubStrategy subStrategy : sortedStrategies.descendingMap().values()) {
+			final double[] highestPrecisionIdRangePerDimension = subStrategy.getIndexStrategy().getHighestPrecisionIdRangePerDimension();
+			// if the id range is less than or equal to the target
+			// resolution in each dimension, use this substrategy
+			boolean withinTargetResolution = true;
+			for (int d = 0; d < highestPrecisionIdRangePerDimension.length; d++) {
+				if (highestPrecisionIdRangePerDimension[d] > targetResolutionPerDimension[d]) {
+					withinTargetResolution = false;
+					break;
+				}
+			}
+			if (withinTargetResolution) {
+				return subStrategy.getIndexStrategy();
+			}
+		}
+		// if there is not a substrategy that is within the target
+		// resolution, use the first substrategy (the lowest range per
+		// dimension, which is the highest precision)
+		return sortedStrategies.firstEntry().getValue().getIndexStrategy();
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> CloseableIterator<T> queryTiles(
+			final DataAdapter<T> adapter,
+			final Index tierIndex,
+			final Query query ) {
+		final ByteArrayId adapterId = adapter.getAdapterId();
+		final ByteArrayId indexId = tierIndex.getId();
+		final NumericIndexStrategy strategy = tierIndex.getIndexStrategy();
+		final MultiDimensionalNumericData constraints = query.getIndexConstraints(strategy);
+		// only the tiles that overlap the query constraints are looked up,
+		// which are the tiles that the scan returns if they exist; the cells
+		// of the index include their minimum and exclude their maximum (see
+		// RasterUtils.getTileAlignedStripEdges), so a tile that only touches
+		// the maximum of the constraints is neither looked up nor scanned
+		final List<ByteArrayId> insertionIds = new ArrayList<ByteArrayId>();
+		for (final ByteArrayId insertionId : strategy.getInsertionIds(constraints)) {
+			if (overlaps(
+					strategy.getRangeForId(insertionId),
+					constraints)) {
+				insertionIds.add(insertionId);
+			}
+		}
+		// recorded before the scan, so that the tiles which are invalidated
+		// during the scan are not cached from its results
+		final long epoch = tileCache.getInvalidationEpoch();
+		final List<GridCoverage> cachedTiles = tileCache.getTiles(
+				adapterId,
+				indexId,
+				insertionIds);
+		if (cachedTiles != null) {
+			return new CloseableIterator.Wrapper<T>(
+					(Iterator<T>) cachedTiles.iterator());
+		}
+		// cache the tiles as they are decoded, and once every tile has been
+		// returned also cache that the remaining insertion IDs have no tile
+		final Set<ByteArrayId> emptyInsertionIds = new HashSet<ByteArrayId>(
+				insertionIds);
+		final CloseableIterator<T> results = super.query(
+				adapter,
+				tierIndex,
+				query,
+				(Integer) null,
+				new ScanCallback<T>() {
+					@Override
+					public void entryScanned(
+							final DataStoreEntryInfo entryInfo,
+							final T entry ) {
+						final ByteArrayId insertionId = new ByteArrayId(
+								new AccumuloRowId(
+										entryInfo.getRowIds().get(
+												0).getBytes()).getInsertionId());
+						emptyInsertionIds.remove(insertionId);
+						tileCache.putTile(
+								adapterId,
+								indexId,
+								insertionId,
+								(GridCoverage) entry,
+								epoch);
+					}
+				});
+		return new CloseableIterator<T>() {
+			private boolean complete = false;
+
+			@Override
+			public boolean hasNext() {
+				final boolean hasNext = results.hasNext();
+				if (!hasNext && !complete) {
+					complete = true;
+					for (final ByteArrayId insertionId : emptyInsertionIds) {
+						tileCache.putTile(
+								adapterId,
+								indexId,
+								insertionId,
+								null,
+								epoch);
+					}
+				}
+				return hasNext;
+			}
+
+			@Override
+			public T next() {
+				return results.next();
+			}
+
+			@Override
+			public void remove() {
+				results.remove();
+			}
+
+			@Override
+			public void close()
+					throws IOException {
+				results.close();
+			}
+		};
+	}
+
+	static boolean overlaps(
+			final MultiDimensionalNumericData tileRange,
+			final MultiDimensionalNumericData constraints ) {
+		final double[] tileMins = tileRange.getMinValuesPerDimension();
+		final double[] tileMaxes = tileRange.getMaxValuesPerDimension();
+		final double[] mins = constraints.getMinValuesPerDimension();
+		final double[] maxes = constraints.getMaxValuesPerDimension();
+		for (int d = 0; d < tileMins.length; d++) {
+			if ((tileMins[d] > maxes[d]) || (tileMaxes[d] < mins[d])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void invalidateTiles(
+			final ByteArrayId adapterId,
+			final ByteArrayId indexId,
+			final List<ByteArrayId> rowIds ) {
+		if ((tileCache == null) || (rowIds == null)) {
+			return;
+		}
+		for (final ByteArrayId rowId : rowIds) {
+			tileCache.invalidateTile(
+					adapterId,
+					indexId,
+					new ByteArrayId(
+							new AccumuloRowId(
+									rowId.getBytes()).getInsertionId()));
+		}
+	}
+
+	@Override
+	public <T> List<ByteArrayId> ingestInternal(
+			final WritableDataAdapter<T> writableAdapter,
+			final Index index,
+			final T entry,
+			final VisibilityWriter<T> customFieldVisibilityWriter ) {
+		final List<ByteArrayId> rowIds = super.ingestInternal(
+				writableAdapter,
+				index,
+				entry,
+				customFieldVisibilityWriter);
+		invalidateTiles(
+				writableAdapter.getAdapterId(),
+				index.getId(),
+				rowIds);
+		return rowIds;
+	}
+
+	@Override
+	public <T> void ingest(
+			final WritableDataAdapter<T> dataWriter,
+			final Index index,
+			final Iterator<T> entryIterator,
+			final IngestCallback<T> ingestCallback,
+			final VisibilityWriter<T> customFieldVisibilityWriter ) {
+		if (tileCache == null) {
+			super.ingest(
+					dataWriter,
+					index,
+					entryIterator,
+					ingestCallback,
+					customFieldVisibilityWriter);
+			return;
+		}
+		super.ingest(
+				dataWriter,
+				index,
+				entryIterator,
+				new IngestCallback<T>() {
+					@Override
+					public void entryIngested(
+							final DataStoreEntryInfo entryInfo,
+							final T entry ) {
+						invalidateTiles(
+								dataWriter.getAdapterId(),
+								index.getId(),
+								entryInfo.getRowIds());
+						if (ingestCallback != null) {
+							ingestCallback.entryIngested(
+									entryInfo,
+									entry);
+						}
+					}
+				},
+				customFieldVisibilityWriter);
+	}
+
+	@Override
+	public <T> IndexWriter createIndexWriter(
+			final Index index ) {
+		final IndexWriter writer = super.createIndexWriter(index);
+		if (tileCache == null) {
+			return writer;
+		}
+		return new TileInvalidatingIndexWriter(
+				writer);
+	}
+
+	@Override
+	public boolean deleteEntry(
+			final Index index,
+			final ByteArrayId dataId,
+			final ByteArrayId adapterId,
+			final String... authorizations ) {
+		final boolean deleted = super.deleteEntry(
+				index,
+				dataId,
+				adapterId,
+				authorizations);
+		if (tileCache != null) {
+			tileCache.invalidateAdapter(adapterId);
+		}
+		return deleted;
+	}
+
+	@Override
+	public <T> void deleteEntries(
+			final DataAdapter<T> adapter,
+			final Index index,
+			final String... additionalAuthorizations )
+			throws IOException {
+		super.deleteEntries(
+				adapter,
+				index,
+				additionalAuthorizations);
+		if (tileCache != null) {
+			tileCache.invalidateAdapter(adapter.getAdapterId());
+		}
+	}
+
+	/**
+	 * This invalidates the tiles that are written when they are written and
+	 * again when they are flushed, so that a tile queried in between is not
+	 * cached as it was before it was written
+	 */
+	private class TileInvalidatingIndexWriter implements
+			IndexWriter
+	{
+		private final IndexWriter writer;
+		private final List<ByteArrayId[]> pendingTiles = new ArrayList<ByteArrayId[]>();
+
+		private TileInvalidatingIndexWriter(
+				final IndexWriter writer ) {
+			this.writer = writer;
+		}
+
+		@Override
+		public <T> List<ByteArrayId> write(
+				final WritableDataAdapter<T> writableAdapter,
+				final T entry ) {
+			final List<ByteArrayId> rowIds = writer.write(
+					writableAdapter,
+					entry);
+			invalidateTiles(
+					writableAdapter.getAdapterId(),
+					getIndex().getId(),
+					rowIds);
+			if (rowIds != null) {
+				synchronized (pendingTiles) {
+					for (final ByteArrayId rowId : rowIds) {
+						pendingTiles.add(new ByteArrayId[] {
+							writableAdapter.getAdapterId(),
+							rowId
+						});
+					}
+				}
+			}
+			return rowIds;
+		}
+
+		@Override
+		public <T> void setupAdapter(
+				final WritableDataAdapter<T> writableAdapter ) {
+			writer.setupAdapter(writableAdapter);
+		}
+
+		@Override
+		public Index getIndex() {
+			return writer.getIndex();
+		}
+
+		@Override
+		public void flush() {
+			writer.flush();
+			invalidatePendingTiles();
+		}
+
+		@Override
+		public void close()
+				throws IOException {
+			writer.close();
+			invalidatePendingTiles();
+		}
+
+		private void invalidatePendingTiles() {
+			synchronized (pendingTiles) {
+				for (final ByteArrayId[] tile : pendingTiles) {
+					tileCache.invalidateTile(
+							tile[0],
+							getIndex().getId(),
+							new ByteArrayId(
+									new AccumuloRowId(
+											tile[1].getBytes()).getInsertionId()));
+				}
+				pendingTiles.clear();
+			}
+		}
+	}
 }
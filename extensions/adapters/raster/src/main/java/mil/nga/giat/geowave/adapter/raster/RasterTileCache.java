@@ -0,0 +1,254 @@
+package mil.nga.giat.geowave.adapter.raster;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import mil.nga.giat.geowave.core.index.ByteArrayId;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.opengis.coverage.grid.GridCoverage;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+
+/**
+ * This cache retains the decoded raster tiles of a data adapter within an index
+ * keyed by the insertion ID of each tile, so that repeated requests over the
+ * same area do not need to query and decode the same tiles again. The cache is
+ * bounded by the estimated size in bytes of the decoded tiles rather than by
+ * the number of tiles, and the least recently used tiles are evicted first. An
+ * insertion ID that was queried and has no tile is cached as well, so that an
+ * area only partially covered by tiles can still be served from the cache.
+ * 
+ * Every invalidation advances the invalidation epoch of the cache. A query
+ * records the epoch before it scans and passes it along with the tiles it
+ * caches, so that a tile which is invalidated while the scan is in progress is
+ * not cached again from the results of the scan, which may predate the write.
+ */
+public class RasterTileCache
+{
+	// an estimate of the memory used by the key and the entry itself
+	private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+	private final Cache<TileKey, CachedTile> cache;
+	private final AtomicLong invalidationEpoch = new AtomicLong();
+
+	/**
+	 * @param maxSizeBytes
+	 *            the maximum estimated size in bytes of the cached tiles
+	 * @param expirationSeconds
+	 *            the time after which a tile is no longer used from the cache,
+	 *            to bound how long tiles that are written by other processes
+	 *            can be stale, or 0 for tiles to remain until they are evicted
+	 *            or invalidated
+	 */
+	public RasterTileCache(
+			final long maxSizeBytes,
+			final long expirationSeconds ) {
+		final CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().maximumWeight(
+				maxSizeBytes).recordStats();
+		if (expirationSeconds > 0) {
+			builder.expireAfterWrite(
+					expirationSeconds,
+					TimeUnit.SECONDS);
+		}
+		cache = builder.weigher(
+				new Weigher<TileKey, CachedTile>() {
+					@Override
+					public int weigh(
+							final TileKey key,
+							final CachedTile value ) {
+						return value.sizeInBytes;
+					}
+				}).build();
+	}
+
+	/**
+	 * @return the cached tiles for every insertion ID, excluding those that
+	 *         have no tile, or null if any of the insertion IDs is not cached
+	 */
+	public List<GridCoverage> getTiles(
+			final ByteArrayId adapterId,
+			final ByteArrayId indexId,
+			final Collection<ByteArrayId> insertionIds ) {
+		final List<GridCoverage> tiles = new ArrayList<GridCoverage>(
+				insertionIds.size());
+		for (final ByteArrayId insertionId : insertionIds) {
+			final CachedTile cachedTile = cache.getIfPresent(new TileKey(
+					adapterId,
+					indexId,
+					insertionId));
+			if (cachedTile == null) {
+				return null;
+			}
+			if (cachedTile.tile != null) {
+				tiles.add(cachedTile.tile);
+			}
+		}
+		return tiles;
+	}
+
+	/**
+	 * @return the current invalidation epoch, which must be recorded before a
+	 *         query whose tiles are cached
+	 */
+	public long getInvalidationEpoch() {
+		return invalidationEpoch.get();
+	}
+
+	/**
+	 * Cache the tile that was queried for an insertion ID, unless any tile has
+	 * been invalidated since the query began
+	 * 
+	 * @param tile
+	 *            the decoded tile, or null if the insertion ID has no tile
+	 * @param epoch
+	 *            the invalidation epoch recorded before the query began
+	 */
+	public void putTile(
+			final ByteArrayId adapterId,
+			final ByteArrayId indexId,
+			final ByteArrayId insertionId,
+			final GridCoverage tile,
+			final long epoch ) {
+		if (invalidationEpoch.get() != epoch) {
+			return;
+		}
+		final TileKey key = new TileKey(
+				adapterId,
+				indexId,
+				insertionId);
+		cache.put(
+				key,
+				new CachedTile(
+						tile));
+		// an invalidation that began after the check above may have already
+		// removed the key, so remove the tile that was just cached as well
+		if (invalidationEpoch.get() != epoch) {
+			cache.invalidate(key);
+		}
+	}
+
+	/**
+	 * Invalidate the tile of an insertion ID, which is necessary whenever it is
+	 * written
+	 */
+	public void invalidateTile(
+			final ByteArrayId adapterId,
+			final ByteArrayId indexId,
+			final ByteArrayId insertionId ) {
+		invalidationEpoch.incrementAndGet();
+		cache.invalidate(new TileKey(
+				adapterId,
+				indexId,
+				insertionId));
+	}
+
+	/**
+	 * Invalidate every tile of a data adapter
+	 */
+	public void invalidateAdapter(
+			final ByteArrayId adapterId ) {
+		invalidationEpoch.incrementAndGet();
+		final Iterator<TileKey> it = cache.asMap().keySet().iterator();
+		while (it.hasNext()) {
+			if (it.next().adapterId.equals(adapterId)) {
+				it.remove();
+			}
+		}
+	}
+
+	public void invalidateAll() {
+		invalidationEpoch.incrementAndGet();
+		cache.invalidateAll();
+	}
+
+	/**
+	 * @return the hit and miss counts of the cache, from which the hit rate can
+	 *         be determined
+	 */
+	public CacheStats getStats() {
+		return cache.stats();
+	}
+
+	public long getSizeInBytes() {
+		long size = 0;
+		for (final CachedTile cachedTile : cache.asMap().values()) {
+			size += cachedTile.sizeInBytes;
+		}
+		return size;
+	}
+
+	private static int getSizeInBytes(
+			final GridCoverage tile ) {
+		if (!(tile instanceof GridCoverage2D)) {
+			return ENTRY_OVERHEAD_BYTES;
+		}
+		final RenderedImage image = ((GridCoverage2D) tile).getRenderedImage();
+		final SampleModel sampleModel = image.getSampleModel();
+		final long imageBytes = ((long) image.getWidth() * image.getHeight() * sampleModel.getNumBands() * DataBuffer.getDataTypeSize(sampleModel.getDataType())) / 8;
+		return (int) Math.min(
+				Integer.MAX_VALUE,
+				imageBytes + ENTRY_OVERHEAD_BYTES);
+	}
+
+	private static class CachedTile
+	{
+		private final GridCoverage tile;
+		private final int sizeInBytes;
+
+		private CachedTile(
+				final GridCoverage tile ) {
+			this.tile = tile;
+			sizeInBytes = (tile == null) ? ENTRY_OVERHEAD_BYTES : getSizeInBytes(tile);
+		}
+	}
+
+	private static class TileKey
+	{
+		private final ByteArrayId adapterId;
+		private final ByteArrayId indexId;
+		private final ByteArrayId insertionId;
+
+		private TileKey(
+				final ByteArrayId adapterId,
+				final ByteArrayId indexId,
+				final ByteArrayId insertionId ) {
+			this.adapterId = adapterId;
+			this.indexId = indexId;
+			this.insertionId = insertionId;
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = (prime * result) + adapterId.hashCode();
+			result = (prime * result) + indexId.hashCode();
+			result = (prime * result) + insertionId.hashCode();
+			return result;
+		}
+
+		@Override
+		public boolean equals(
+				final Object obj ) {
+			if (this == obj) {
+				return true;
+			}
+			if ((obj == null) || (getClass() != obj.getClass())) {
+				return false;
+			}
+			final TileKey other = (TileKey) obj;
+			return adapterId.equals(other.adapterId) && indexId.equals(other.indexId) && insertionId.equals(other.insertionId);
+		}
+	}
+}
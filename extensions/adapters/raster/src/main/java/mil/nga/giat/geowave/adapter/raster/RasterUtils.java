@@ -663,6 +663,51 @@ public class RasterUtils
 		return emptyImage;
 	}
 
+	/**
+	 * Split the extent of a request along one dimension into strips whose
+	 * interior edges lie on the cell boundaries of a tile grid. The cells of
+	 * the index include their minimum and exclude their maximum, so each tile
+	 * within the extent is within exactly one strip and no tile is scanned
+	 * twice.
+	 * 
+	 * @param min
+	 *            the minimum of the request
+	 * @param max
+	 *            the maximum of the request
+	 * @param gridOrigin
+	 *            the minimum of the dimension that the cells are counted from
+	 * @param cellSize
+	 *            the size of each cell of the tile grid
+	 * @param maxStrips
+	 *            the maximum number of strips
+	 * @return the edges of the strips in order, from the minimum to the maximum
+	 *         of the request
+	 */
+	public static double[] getTileAlignedStripEdges(
+			final double min,
+			final double max,
+			final double gridOrigin,
+			final double cellSize,
+			final int maxStrips ) {
+		final long firstCell = (long) Math.floor((min - gridOrigin) / cellSize);
+		final long lastCell = Math.max(
+				firstCell,
+				(long) Math.ceil((max - gridOrigin) / cellSize) - 1);
+		final long cells = (lastCell - firstCell) + 1;
+		final int strips = (int) Math.max(
+				1,
+				Math.min(
+						maxStrips,
+						cells));
+		final double[] edges = new double[strips + 1];
+		edges[0] = min;
+		for (int s = 1; s < strips; s++) {
+			edges[s] = gridOrigin + ((firstCell + ((cells * s) / strips)) * cellSize);
+		}
+		edges[strips] = max;
+		return edges;
+	}
+
 	public static WritableRaster createRasterTypeDouble(
 			final int numBands,
 			final int tileSize ) {
@@ -1275,20 +1275,7 @@ public class RasterDataAdapter implements
 
 	protected static byte[] getSampleModelBinary(
 			final SampleModel sampleModel ) {
-		final SerializableState serializableSampleModel = SerializerFactory.getState(sampleModel);
-		try {
-			final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			final ObjectOutputStream oos = new ObjectOutputStream(
-					baos);
-			oos.writeObject(serializableSampleModel);
-			return baos.toByteArray();
-		}
-		catch (final IOException e) {
-			LOGGER.warn(
-					"Unable to serialize sample model",
-					e);
-		}
-		return new byte[] {};
+		return RasterPersistenceUtils.getSampleModelBinary(sampleModel);
 	}
 
 	protected static byte[] getNoDataBinary(
@@ -1339,14 +1326,7 @@ public class RasterDataAdapter implements
 		final byte[] sampleModelBinary = new byte[sampleModelLength];
 		buf.get(sampleModelBinary);
 		try {
-			final ByteArrayInputStream bais = new ByteArrayInputStream(
-					sampleModelBinary);
-			final ObjectInputStream ois = new ObjectInputStream(
-					bais);
-			final Object o = ois.readObject();
-			if ((o instanceof SerializableState) && (((SerializableState) o).getObject() instanceof SampleModel)) {
-				sampleModel = (SampleModel) ((SerializableState) o).getObject();
-			}
+			sampleModel = RasterPersistenceUtils.getSampleModel(sampleModelBinary);
 		}
 		catch (final Exception e) {
 			LOGGER.warn(
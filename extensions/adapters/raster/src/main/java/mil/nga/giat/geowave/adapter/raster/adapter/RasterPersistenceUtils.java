@@ -0,0 +1,685 @@
+package mil.nga.giat.geowave.adapter.raster.adapter;
+
+import java.awt.image.BandedSampleModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferDouble;
+import java.awt.image.DataBufferFloat;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.media.jai.remote.SerializableState;
+import javax.media.jai.remote.SerializerFactory;
+
+import org.apache.log4j.Logger;
+
+/**
+ * This class serializes data buffers and sample models using a compact binary
+ * format of typed primitive arrays rather than JAI serializable state and Java
+ * object serialization. The format begins with a version header so that
+ * binaries written by Java object serialization, which always begin with the
+ * stream magic number, continue to be read. Data buffers are Deflate
+ * compressed when they are large enough to benefit and the compressed form is
+ * smaller, at the level given by the {@link #COMPRESSION_LEVEL_PROP} system
+ * property. Data buffer and sample model classes without a native encoding
+ * fall back to Java object serialization.
+ */
+public class RasterPersistenceUtils
+{
+	private final static Logger LOGGER = Logger.getLogger(RasterPersistenceUtils.class);
+	private static final byte NATIVE_FORMAT_VERSION = 1;
+	private static final byte[] SERIALIZATION_STREAM_MAGIC = new byte[] {
+		(byte) 0xac,
+		(byte) 0xed
+	};
+
+	/**
+	 * The system property for the Deflate compression level of data buffers,
+	 * from 0 (not compressed) to 9 (best compression), which defaults to 1
+	 * (best speed)
+	 */
+	public static final String COMPRESSION_LEVEL_PROP = "RASTER_COMPRESSION_LEVEL";
+	public static final int DEFAULT_COMPRESSION_LEVEL = Deflater.BEST_SPEED;
+
+	private static final byte COMPRESSION_NONE = 0;
+	private static final byte COMPRESSION_DEFLATE = 1;
+	// smaller tiles are not worth the cost of compressing
+	private static final int MIN_COMPRESSION_BYTES = 1024;
+	private static final int COMPRESSION_LEVEL = getCompressionLevel(System.getProperty(COMPRESSION_LEVEL_PROP));
+
+	private static final byte SAMPLE_MODEL_COMPONENT = 0;
+	private static final byte SAMPLE_MODEL_PIXEL_INTERLEAVED = 1;
+	private static final byte SAMPLE_MODEL_BANDED = 2;
+	private static final byte SAMPLE_MODEL_SINGLE_PIXEL_PACKED = 3;
+	private static final byte SAMPLE_MODEL_MULTI_PIXEL_PACKED = 4;
+
+	private RasterPersistenceUtils() {}
+
+	public static byte[] getDataBufferBinary(
+			final DataBuffer dataBuffer ) {
+		return getDataBufferBinary(
+				dataBuffer,
+				COMPRESSION_LEVEL);
+	}
+
+	/**
+	 * @param compressionLevel
+	 *            the Deflate compression level, or 0 to not compress the data
+	 *            buffer
+	 */
+	public static byte[] getDataBufferBinary(
+			final DataBuffer dataBuffer,
+			final int compressionLevel ) {
+		final int elementSize = getNativeElementSize(dataBuffer);
+		if (elementSize <= 0) {
+			return getSerializedBinary(dataBuffer);
+		}
+		final int numBanks = dataBuffer.getNumBanks();
+		final int[] offsets = dataBuffer.getOffsets();
+		int payloadLength = 0;
+		for (int b = 0; b < numBanks; b++) {
+			payloadLength += 4 + (getBankLength(
+					dataBuffer,
+					b) * elementSize);
+		}
+		// version, compression and data type followed by the size, the number
+		// of banks and the bank offsets
+		final int headerLength = 3 + 8 + (4 * numBanks);
+		final ByteBuffer buf = ByteBuffer.allocate(headerLength + payloadLength);
+		buf.put(NATIVE_FORMAT_VERSION);
+		buf.put(COMPRESSION_NONE);
+		buf.put((byte) dataBuffer.getDataType());
+		buf.putInt(dataBuffer.getSize());
+		buf.putInt(numBanks);
+		for (int b = 0; b < numBanks; b++) {
+			buf.putInt(offsets[b]);
+		}
+		for (int b = 0; b < numBanks; b++) {
+			putBank(
+					dataBuffer,
+					b,
+					buf);
+		}
+		final byte[] binary = buf.array();
+		if ((compressionLevel != Deflater.NO_COMPRESSION) && (payloadLength >= MIN_COMPRESSION_BYTES)) {
+			final byte[] compressed = compress(
+					binary,
+					headerLength,
+					payloadLength,
+					compressionLevel);
+			if (compressed != null) {
+				return compressed;
+			}
+		}
+		return binary;
+	}
+
+	public static DataBuffer getDataBuffer(
+			final byte[] binary )
+			throws IOException,
+			ClassNotFoundException {
+		if (isSerializedBinary(binary)) {
+			final Object o = readSerializedState(binary);
+			if (o instanceof DataBuffer) {
+				return (DataBuffer) o;
+			}
+			return null;
+		}
+		if (binary.length == 0) {
+			throw new IOException(
+					"Data buffer binary is empty");
+		}
+		final ByteBuffer buf = ByteBuffer.wrap(binary);
+		final byte version = buf.get();
+		if (version != NATIVE_FORMAT_VERSION) {
+			throw new IOException(
+					"Unsupported data buffer format version " + version);
+		}
+		final byte compression = buf.get();
+		final int dataType = buf.get();
+		final int size = buf.getInt();
+		final int numBanks = buf.getInt();
+		final int[] offsets = new int[numBanks];
+		for (int b = 0; b < numBanks; b++) {
+			offsets[b] = buf.getInt();
+		}
+		final ByteBuffer payload;
+		if (compression == COMPRESSION_DEFLATE) {
+			payload = decompress(buf);
+		}
+		else {
+			payload = buf;
+		}
+		switch (dataType) {
+			case DataBuffer.TYPE_BYTE: {
+				final byte[][] banks = new byte[numBanks][];
+				for (int b = 0; b < numBanks; b++) {
+					banks[b] = new byte[payload.getInt()];
+					payload.get(banks[b]);
+				}
+				return new DataBufferByte(
+						banks,
+						size,
+						offsets);
+			}
+			case DataBuffer.TYPE_USHORT:
+			case DataBuffer.TYPE_SHORT: {
+				final short[][] banks = new short[numBanks][];
+				for (int b = 0; b < numBanks; b++) {
+					banks[b] = new short[payload.getInt()];
+					payload.asShortBuffer().get(
+							banks[b]);
+					skip(
+							payload,
+							banks[b].length * 2);
+				}
+				if (dataType == DataBuffer.TYPE_USHORT) {
+					return new DataBufferUShort(
+							banks,
+							size,
+							offsets);
+				}
+				return new DataBufferShort(
+						banks,
+						size,
+						offsets);
+			}
+			case DataBuffer.TYPE_INT: {
+				final int[][] banks = new int[numBanks][];
+				for (int b = 0; b < numBanks; b++) {
+					banks[b] = new int[payload.getInt()];
+					payload.asIntBuffer().get(
+							banks[b]);
+					skip(
+							payload,
+							banks[b].length * 4);
+				}
+				return new DataBufferInt(
+						banks,
+						size,
+						offsets);
+			}
+			case DataBuffer.TYPE_FLOAT: {
+				final float[][] banks = new float[numBanks][];
+				for (int b = 0; b < numBanks; b++) {
+					banks[b] = new float[payload.getInt()];
+					payload.asFloatBuffer().get(
+							banks[b]);
+					skip(
+							payload,
+							banks[b].length * 4);
+				}
+				return new DataBufferFloat(
+						banks,
+						size,
+						offsets);
+			}
+			case DataBuffer.TYPE_DOUBLE: {
+				final double[][] banks = new double[numBanks][];
+				for (int b = 0; b < numBanks; b++) {
+					banks[b] = new double[payload.getInt()];
+					payload.asDoubleBuffer().get(
+							banks[b]);
+					skip(
+							payload,
+							banks[b].length * 8);
+				}
+				return new DataBufferDouble(
+						banks,
+						size,
+						offsets);
+			}
+			default:
+				throw new IOException(
+						"Unsupported data buffer type " + dataType);
+		}
+	}
+
+	public static byte[] getSampleModelBinary(
+			final SampleModel sampleModel ) {
+		final Class<?> sampleModelClass = sampleModel.getClass();
+		final byte sampleModelType;
+		final int[][] intArrays;
+		final int[] intParams;
+		if (sampleModelClass == ComponentSampleModel.class) {
+			final ComponentSampleModel componentSampleModel = (ComponentSampleModel) sampleModel;
+			sampleModelType = SAMPLE_MODEL_COMPONENT;
+			intParams = new int[] {
+				componentSampleModel.getPixelStride(),
+				componentSampleModel.getScanlineStride()
+			};
+			intArrays = new int[][] {
+				componentSampleModel.getBankIndices(),
+				componentSampleModel.getBandOffsets()
+			};
+		}
+		else if (sampleModelClass == PixelInterleavedSampleModel.class) {
+			final PixelInterleavedSampleModel pixelInterleavedSampleModel = (PixelInterleavedSampleModel) sampleModel;
+			sampleModelType = SAMPLE_MODEL_PIXEL_INTERLEAVED;
+			intParams = new int[] {
+				pixelInterleavedSampleModel.getPixelStride(),
+				pixelInterleavedSampleModel.getScanlineStride()
+			};
+			intArrays = new int[][] {
+				pixelInterleavedSampleModel.getBandOffsets()
+			};
+		}
+		else if (sampleModelClass == BandedSampleModel.class) {
+			final BandedSampleModel bandedSampleModel = (BandedSampleModel) sampleModel;
+			sampleModelType = SAMPLE_MODEL_BANDED;
+			intParams = new int[] {
+				bandedSampleModel.getScanlineStride()
+			};
+			intArrays = new int[][] {
+				bandedSampleModel.getBankIndices(),
+				bandedSampleModel.getBandOffsets()
+			};
+		}
+		else if (sampleModelClass == SinglePixelPackedSampleModel.class) {
+			final SinglePixelPackedSampleModel singlePixelPackedSampleModel = (SinglePixelPackedSampleModel) sampleModel;
+			sampleModelType = SAMPLE_MODEL_SINGLE_PIXEL_PACKED;
+			intParams = new int[] {
+				singlePixelPackedSampleModel.getScanlineStride()
+			};
+			intArrays = new int[][] {
+				singlePixelPackedSampleModel.getBitMasks()
+			};
+		}
+		else if (sampleModelClass == MultiPixelPackedSampleModel.class) {
+			final MultiPixelPackedSampleModel multiPixelPackedSampleModel = (MultiPixelPackedSampleModel) sampleModel;
+			sampleModelType = SAMPLE_MODEL_MULTI_PIXEL_PACKED;
+			intParams = new int[] {
+				multiPixelPackedSampleModel.getPixelBitStride(),
+				multiPixelPackedSampleModel.getScanlineStride(),
+				multiPixelPackedSampleModel.getDataBitOffset()
+			};
+			intArrays = new int[][] {};
+		}
+		else {
+			return getSerializedBinary(sampleModel);
+		}
+		int byteCount = 2 + 12 + (4 * intParams.length);
+		for (final int[] intArray : intArrays) {
+			byteCount += 4 + (4 * intArray.length);
+		}
+		final ByteBuffer buf = ByteBuffer.allocate(byteCount);
+		buf.put(NATIVE_FORMAT_VERSION);
+		buf.put(sampleModelType);
+		buf.putInt(sampleModel.getDataType());
+		buf.putInt(sampleModel.getWidth());
+		buf.putInt(sampleModel.getHeight());
+		for (final int intParam : intParams) {
+			buf.putInt(intParam);
+		}
+		for (final int[] intArray : intArrays) {
+			buf.putInt(intArray.length);
+			for (final int value : intArray) {
+				buf.putInt(value);
+			}
+		}
+		return buf.array();
+	}
+
+	public static SampleModel getSampleModel(
+			final byte[] binary )
+			throws IOException,
+			ClassNotFoundException {
+		if (isSerializedBinary(binary)) {
+			final Object o = readSerializedState(binary);
+			if (o instanceof SampleModel) {
+				return (SampleModel) o;
+			}
+			return null;
+		}
+		if (binary.length == 0) {
+			throw new IOException(
+					"Sample model binary is empty");
+		}
+		final ByteBuffer buf = ByteBuffer.wrap(binary);
+		final byte version = buf.get();
+		if (version != NATIVE_FORMAT_VERSION) {
+			throw new IOException(
+					"Unsupported sample model format version " + version);
+		}
+		final byte sampleModelType = buf.get();
+		final int dataType = buf.getInt();
+		final int width = buf.getInt();
+		final int height = buf.getInt();
+		switch (sampleModelType) {
+			case SAMPLE_MODEL_COMPONENT: {
+				final int pixelStride = buf.getInt();
+				final int scanlineStride = buf.getInt();
+				return new ComponentSampleModel(
+						dataType,
+						width,
+						height,
+						pixelStride,
+						scanlineStride,
+						getIntArray(buf),
+						getIntArray(buf));
+			}
+			case SAMPLE_MODEL_PIXEL_INTERLEAVED: {
+				final int pixelStride = buf.getInt();
+				final int scanlineStride = buf.getInt();
+				return new PixelInterleavedSampleModel(
+						dataType,
+						width,
+						height,
+						pixelStride,
+						scanlineStride,
+						getIntArray(buf));
+			}
+			case SAMPLE_MODEL_BANDED: {
+				final int scanlineStride = buf.getInt();
+				return new BandedSampleModel(
+						dataType,
+						width,
+						height,
+						scanlineStride,
+						getIntArray(buf),
+						getIntArray(buf));
+			}
+			case SAMPLE_MODEL_SINGLE_PIXEL_PACKED: {
+				final int scanlineStride = buf.getInt();
+				return new SinglePixelPackedSampleModel(
+						dataType,
+						width,
+						height,
+						scanlineStride,
+						getIntArray(buf));
+			}
+			case SAMPLE_MODEL_MULTI_PIXEL_PACKED: {
+				final int pixelBitStride = buf.getInt();
+				final int scanlineStride = buf.getInt();
+				final int dataBitOffset = buf.getInt();
+				return new MultiPixelPackedSampleModel(
+						dataType,
+						width,
+						height,
+						pixelBitStride,
+						scanlineStride,
+						dataBitOffset);
+			}
+			default:
+				throw new IOException(
+						"Unsupported sample model type " + sampleModelType);
+		}
+	}
+
+	protected static int getCompressionLevel(
+			final String compressionLevel ) {
+		if (compressionLevel == null) {
+			return DEFAULT_COMPRESSION_LEVEL;
+		}
+		try {
+			final int level = Integer.parseInt(compressionLevel.trim());
+			if ((level >= Deflater.NO_COMPRESSION) && (level <= Deflater.BEST_COMPRESSION)) {
+				return level;
+			}
+		}
+		catch (final NumberFormatException e) {
+			// the level is logged below
+		}
+		LOGGER.warn("Invalid raster compression level '" + compressionLevel + "', using " + DEFAULT_COMPRESSION_LEVEL);
+		return DEFAULT_COMPRESSION_LEVEL;
+	}
+
+	/**
+	 * @return the number of bytes per element of the data buffer in the
+	 *         native format, or 0 if the data buffer has no native encoding
+	 */
+	private static int getNativeElementSize(
+			final DataBuffer dataBuffer ) {
+		// subclasses (such as those provided by JAI) may hold additional
+		// state, so only the exact JDK classes are encoded natively
+		final Class<?> dataBufferClass = dataBuffer.getClass();
+		if (dataBufferClass == DataBufferByte.class) {
+			return 1;
+		}
+		else if ((dataBufferClass == DataBufferUShort.class) || (dataBufferClass == DataBufferShort.class)) {
+			return 2;
+		}
+		else if ((dataBufferClass == DataBufferInt.class) || (dataBufferClass == DataBufferFloat.class)) {
+			return 4;
+		}
+		else if (dataBufferClass == DataBufferDouble.class) {
+			return 8;
+		}
+		return 0;
+	}
+
+	private static int getBankLength(
+			final DataBuffer dataBuffer,
+			final int bank ) {
+		if (dataBuffer instanceof DataBufferByte) {
+			return ((DataBufferByte) dataBuffer).getData(bank).length;
+		}
+		else if (dataBuffer instanceof DataBufferUShort) {
+			return ((DataBufferUShort) dataBuffer).getData(bank).length;
+		}
+		else if (dataBuffer instanceof DataBufferShort) {
+			return ((DataBufferShort) dataBuffer).getData(bank).length;
+		}
+		else if (dataBuffer instanceof DataBufferInt) {
+			return ((DataBufferInt) dataBuffer).getData(bank).length;
+		}
+		else if (dataBuffer instanceof DataBufferFloat) {
+			return ((DataBufferFloat) dataBuffer).getData(bank).length;
+		}
+		return ((DataBufferDouble) dataBuffer).getData(bank).length;
+	}
+
+	private static void putBank(
+			final DataBuffer dataBuffer,
+			final int bank,
+			final ByteBuffer buf ) {
+		if (dataBuffer instanceof DataBufferByte) {
+			final byte[] data = ((DataBufferByte) dataBuffer).getData(bank);
+			buf.putInt(data.length);
+			buf.put(data);
+		}
+		else if (dataBuffer instanceof DataBufferUShort) {
+			final short[] data = ((DataBufferUShort) dataBuffer).getData(bank);
+			buf.putInt(data.length);
+			buf.asShortBuffer().put(
+					data);
+			skip(
+					buf,
+					data.length * 2);
+		}
+		else if (dataBuffer instanceof DataBufferShort) {
+			final short[] data = ((DataBufferShort) dataBuffer).getData(bank);
+			buf.putInt(data.length);
+			buf.asShortBuffer().put(
+					data);
+			skip(
+					buf,
+					data.length * 2);
+		}
+		else if (dataBuffer instanceof DataBufferInt) {
+			final int[] data = ((DataBufferInt) dataBuffer).getData(bank);
+			buf.putInt(data.length);
+			buf.asIntBuffer().put(
+					data);
+			skip(
+					buf,
+					data.length * 4);
+		}
+		else if (dataBuffer instanceof DataBufferFloat) {
+			final float[] data = ((DataBufferFloat) dataBuffer).getData(bank);
+			buf.putInt(data.length);
+			buf.asFloatBuffer().put(
+					data);
+			skip(
+					buf,
+					data.length * 4);
+		}
+		else {
+			final double[] data = ((DataBufferDouble) dataBuffer).getData(bank);
+			buf.putInt(data.length);
+			buf.asDoubleBuffer().put(
+					data);
+			skip(
+					buf,
+					data.length * 8);
+		}
+	}
+
+	private static void skip(
+			final ByteBuffer buf,
+			final int length ) {
+		buf.position(buf.position() + length);
+	}
+
+	private static int[] getIntArray(
+			final ByteBuffer buf ) {
+		final int[] intArray = new int[buf.getInt()];
+		for (int i = 0; i < intArray.length; i++) {
+			intArray[i] = buf.getInt();
+		}
+		return intArray;
+	}
+
+	/**
+	 * @return the binary with the payload compressed and the uncompressed
+	 *         payload length following the header, or null if the compressed
+	 *         binary would not be smaller
+	 */
+	private static byte[] compress(
+			final byte[] binary,
+			final int headerLength,
+			final int payloadLength,
+			final int compressionLevel ) {
+		final Deflater deflater = new Deflater(
+				compressionLevel);
+		try {
+			deflater.setInput(
+					binary,
+					headerLength,
+					payloadLength);
+			deflater.finish();
+			// the compressed binary must be smaller than the uncompressed
+			// binary including the extra length field
+			final byte[] compressed = new byte[binary.length];
+			int compressedLength = headerLength + 4;
+			while (!deflater.finished() && (compressedLength < compressed.length)) {
+				compressedLength += deflater.deflate(
+						compressed,
+						compressedLength,
+						compressed.length - compressedLength);
+			}
+			if (!deflater.finished()) {
+				return null;
+			}
+			System.arraycopy(
+					binary,
+					0,
+					compressed,
+					0,
+					headerLength);
+			compressed[1] = COMPRESSION_DEFLATE;
+			ByteBuffer.wrap(
+					compressed).putInt(
+					headerLength,
+					payloadLength);
+			final byte[] result = new byte[compressedLength];
+			System.arraycopy(
+					compressed,
+					0,
+					result,
+					0,
+					compressedLength);
+			return result;
+		}
+		finally {
+			deflater.end();
+		}
+	}
+
+	private static ByteBuffer decompress(
+			final ByteBuffer buf )
+			throws IOException {
+		final byte[] payload = new byte[buf.getInt()];
+		final Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(
+					buf.array(),
+					buf.position(),
+					buf.remaining());
+			int length = 0;
+			while (length < payload.length) {
+				final int inflated = inflater.inflate(
+						payload,
+						length,
+						payload.length - length);
+				if ((inflated == 0) && (inflater.finished() || inflater.needsInput())) {
+					throw new IOException(
+							"Compressed data buffer is truncated");
+				}
+				length += inflated;
+			}
+		}
+		catch (final DataFormatException e) {
+			throw new IOException(
+					"Unable to decompress data buffer",
+					e);
+		}
+		finally {
+			inflater.end();
+		}
+		return ByteBuffer.wrap(payload);
+	}
+
+	private static boolean isSerializedBinary(
+			final byte[] binary ) {
+		return (binary.length >= 2) && (binary[0] == SERIALIZATION_STREAM_MAGIC[0]) && (binary[1] == SERIALIZATION_STREAM_MAGIC[1]);
+	}
+
+	private static byte[] getSerializedBinary(
+			final Object object ) {
+		final SerializableState serializableState = SerializerFactory.getState(object);
+		try {
+			final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			final ObjectOutputStream oos = new ObjectOutputStream(
+					baos);
+			oos.writeObject(serializableState);
+			return baos.toByteArray();
+		}
+		catch (final IOException e) {
+			LOGGER.warn(
+					"Unable to serialize " + object.getClass().getName(),
+					e);
+		}
+		return new byte[] {};
+	}
+
+	private static Object readSerializedState(
+			final byte[] binary )
+			throws IOException,
+			ClassNotFoundException {
+		final ByteArrayInputStream bais = new ByteArrayInputStream(
+				binary);
+		final ObjectInputStream ois = new ObjectInputStream(
+				bais);
+		final Object o = ois.readObject();
+		if (o instanceof SerializableState) {
+			return ((SerializableState) o).getObject();
+		}
+		return null;
+	}
+}
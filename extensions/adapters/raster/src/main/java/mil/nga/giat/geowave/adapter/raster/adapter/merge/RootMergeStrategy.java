@@ -1,11 +1,6 @@
 package mil.nga.giat.geowave.adapter.raster.adapter.merge;
 
 import java.awt.image.SampleModel;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -15,11 +10,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
-import javax.media.jai.remote.SerializableState;
-import javax.media.jai.remote.SerializerFactory;
-
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import mil.nga.giat.geowave.adapter.raster.adapter.RasterDataAdapter;
+import mil.nga.giat.geowave.adapter.raster.adapter.RasterPersistenceUtils;
 import mil.nga.giat.geowave.adapter.raster.adapter.RasterTile;
 import mil.nga.giat.geowave.core.index.ByteArrayId;
 import mil.nga.giat.geowave.core.index.Mergeable;
@@ -200,9 +192,6 @@ public class RootMergeStrategy<T extends Persistable> implements
 		}
 	}
 
-	@SuppressFBWarnings(value = {
-		"DLS_DEAD_LOCAL_STORE"
-	}, justification = "Incorrect warning, sampleModelBinary used")
 	@Override
 	public byte[] toBinary() {
 		int byteCount = 16;
@@ -213,14 +202,8 @@ public class RootMergeStrategy<T extends Persistable> implements
 		final Set<Integer> successfullySerializedModelIds = new HashSet<Integer>();
 		for (final Entry<Integer, SampleModel> entry : sampleModels.entrySet()) {
 			final SampleModel sampleModel = entry.getValue();
-			final SerializableState serializableSampleModel = SerializerFactory.getState(sampleModel);
-			byte[] sampleModelBinary = new byte[0];
-			try {
-				final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-				final ObjectOutputStream oos = new ObjectOutputStream(
-						baos);
-				oos.writeObject(serializableSampleModel);
-				sampleModelBinary = baos.toByteArray();
+			final byte[] sampleModelBinary = RasterPersistenceUtils.getSampleModelBinary(sampleModel);
+			if (sampleModelBinary.length > 0) {
 				byteCount += sampleModelBinary.length;
 				byteCount += 8;
 				sampleModelBinaries.add(sampleModelBinary);
@@ -228,11 +211,6 @@ public class RootMergeStrategy<T extends Persistable> implements
 				successfullySerializedModels++;
 				successfullySerializedModelIds.add(entry.getKey());
 			}
-			catch (final IOException e) {
-				LOGGER.warn(
-						"Unable to serialize sample model",
-						e);
-			}
 		}
 
 		for (final Entry<ByteArrayId, Integer> entry : adapterIdToSampleModelKey.entrySet()) {
@@ -316,14 +294,9 @@ public class RootMergeStrategy<T extends Persistable> implements
 			if (sampleModelBinary.length > 0) {
 				try {
 					buf.get(sampleModelBinary);
-					final ByteArrayInputStream bais = new ByteArrayInputStream(
-							sampleModelBinary);
-					final ObjectInputStream ois = new ObjectInputStream(
-							bais);
-					final Object o = ois.readObject();
+					final SampleModel sampleModel = RasterPersistenceUtils.getSampleModel(sampleModelBinary);
 					final int sampleModelKey = buf.getInt();
-					if ((o instanceof SerializableState) && (((SerializableState) o).getObject() instanceof SampleModel)) {
-						final SampleModel sampleModel = (SampleModel) ((SerializableState) o).getObject();
+					if (sampleModel != null) {
 						sampleModels.put(
 								sampleModelKey,
 								sampleModel);
@@ -18,6 +18,8 @@ public class GeoWaveRasterConfig
 {
 
 	static private final Map<String, GeoWaveRasterConfig> CONFIG_CACHE = new Hashtable<String, GeoWaveRasterConfig>();
+	// bounds how long the cached tiles written by other processes can be stale
+	static private final int DEFAULT_TILE_CACHE_EXPIRATION_SECONDS = 60;
 
 	protected static enum ConfigParameter {
 		ZOOKEEPER_URLS(
@@ -35,7 +37,19 @@ public class GeoWaveRasterConfig
 		INTERPOLATION(
 				"interpolationOverride"),
 		EQUALIZE_HISTOGRAM(
-				"equalizeHistogramOverride");
+				"equalizeHistogramOverride"),
+		// the following two are optional parameters that enable and bound the
+		// cache of decoded tiles, which is disabled by default, and tiles
+		// expire from the cache after a minute unless the expiration is set
+		TILE_CACHE_SIZE_MB(
+				"tileCacheSizeMB"),
+		TILE_CACHE_EXPIRATION_SECONDS(
+				"tileCacheExpirationSeconds"),
+		// this optional parameter enables pipelined rendering, in which each
+		// request is split into this many partitions that are scanned
+		// concurrently and mosaicked as their tiles arrive
+		RENDERING_PARTITIONS(
+				"renderingPartitions");
 		private String configName;
 
 		private ConfigParameter(
@@ -64,6 +78,12 @@ public class GeoWaveRasterConfig
 
 	private Integer interpolationOverride = null;
 
+	private Integer tileCacheSizeMB = null;
+
+	private Integer tileCacheExpirationSeconds = null;
+
+	private Integer renderingPartitions = null;
+
 	protected GeoWaveRasterConfig() {}
 
 	public static GeoWaveRasterConfig createConfig(
@@ -158,6 +178,15 @@ public class GeoWaveRasterConfig
 		result.interpolationOverride = readValueInteger(
 				dom,
 				ConfigParameter.INTERPOLATION.getConfigName());
+		result.tileCacheSizeMB = readValueInteger(
+				dom,
+				ConfigParameter.TILE_CACHE_SIZE_MB.getConfigName());
+		result.tileCacheExpirationSeconds = readValueInteger(
+				dom,
+				ConfigParameter.TILE_CACHE_EXPIRATION_SECONDS.getConfigName());
+		result.renderingPartitions = readValueInteger(
+				dom,
+				ConfigParameter.RENDERING_PARTITIONS.getConfigName());
 		CONFIG_CACHE.put(
 				xmlURL.toString(),
 				result);
@@ -214,6 +243,34 @@ public class GeoWaveRasterConfig
 		return equalizeHistogramOverride;
 	}
 
+	public boolean isTileCacheEnabled() {
+		return (tileCacheSizeMB != null) && (tileCacheSizeMB > 0);
+	}
+
+	public int getTileCacheSizeMB() {
+		if (!isTileCacheEnabled()) {
+			throw new IllegalStateException(
+					"Tile Cache is not enabled for this config");
+		}
+		return tileCacheSizeMB;
+	}
+
+	public int getTileCacheExpirationSeconds() {
+		return (tileCacheExpirationSeconds != null) ? tileCacheExpirationSeconds : DEFAULT_TILE_CACHE_EXPIRATION_SECONDS;
+	}
+
+	public boolean isPipelinedRenderingEnabled() {
+		return (renderingPartitions != null) && (renderingPartitions > 0);
+	}
+
+	public int getRenderingPartitions() {
+		if (!isPipelinedRenderingEnabled()) {
+			throw new IllegalStateException(
+					"Pipelined Rendering is not enabled for this config");
+		}
+		return renderingPartitions;
+	}
+
 	static private String readValueString(
 			final Document dom,
 			final String elemName ) {
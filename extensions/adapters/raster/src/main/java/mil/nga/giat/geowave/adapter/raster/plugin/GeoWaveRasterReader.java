@@ -20,6 +20,7 @@ import javax.media.jai.ImageLayout;
 import javax.media.jai.Interpolation;
 
 import mil.nga.giat.geowave.adapter.raster.RasterDataStore;
+import mil.nga.giat.geowave.adapter.raster.RasterTileCache;
 import mil.nga.giat.geowave.adapter.raster.RasterUtils;
 import mil.nga.giat.geowave.adapter.raster.Resolution;
 import mil.nga.giat.geowave.adapter.raster.adapter.RasterDataAdapter;
@@ -29,13 +30,16 @@ import mil.nga.giat.geowave.adapter.raster.stats.OverviewStatistics;
 import mil.nga.giat.geowave.core.geotime.IndexType;
 import mil.nga.giat.geowave.core.geotime.store.statistics.BoundingBoxDataStatistics;
 import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.core.index.NumericIndexStrategy;
 import mil.nga.giat.geowave.core.store.CloseableIterator;
 import mil.nga.giat.geowave.core.store.adapter.AdapterStore;
 import mil.nga.giat.geowave.core.store.adapter.DataAdapter;
 import mil.nga.giat.geowave.core.store.adapter.statistics.DataStatistics;
 import mil.nga.giat.geowave.core.store.adapter.statistics.DataStatisticsStore;
 import mil.nga.giat.geowave.core.store.index.Index;
+import mil.nga.giat.geowave.core.store.query.Query;
 import mil.nga.giat.geowave.datastore.accumulo.AccumuloOperations;
+import mil.nga.giat.geowave.datastore.accumulo.AccumuloOptions;
 import mil.nga.giat.geowave.datastore.accumulo.BasicAccumuloOperations;
 import mil.nga.giat.geowave.datastore.accumulo.metadata.AccumuloAdapterStore;
 import mil.nga.giat.geowave.datastore.accumulo.metadata.AccumuloDataStatisticsStore;
@@ -188,8 +192,19 @@ public class GeoWaveRasterReader extends
 		geowaveStatisticsStore = new AccumuloDataStatisticsStore(
 				accumuloOperations);
 
+		final AccumuloOptions accumuloOptions = new AccumuloOptions();
+		if (config.isPipelinedRenderingEnabled()) {
+			// each partition of a request is scanned on its own thread
+			accumuloOptions.setQueryThreads(config.getRenderingPartitions());
+		}
 		geowaveDataStore = new RasterDataStore(
-				accumuloOperations);
+				accumuloOperations,
+				accumuloOptions);
+		if (config.isTileCacheEnabled()) {
+			geowaveDataStore.setTileCache(new RasterTileCache(
+					config.getTileCacheSizeMB() * 1024L * 1024L,
+					config.getTileCacheExpirationSeconds()));
+		}
 
 		rasterIndex = IndexType.SPATIAL_RASTER.createDefaultIndex();
 		crs = GeoWaveGTRasterFormat.DEFAULT_CRS;
@@ -478,6 +493,10 @@ public class GeoWaveRasterReader extends
 				backgroundColor,
 				outputTransparentColor);
 		LOGGER.info("GeoWave Raster Reader needs : " + ((new Date()).getTime() - start.getTime()) + " millisecs");
+		if (LOGGER.isDebugEnabled() && (geowaveDataStore.getTileCache() != null)) {
+			final RasterTileCache tileCache = geowaveDataStore.getTileCache();
+			LOGGER.debug("GeoWave Raster Reader tile cache hit rate : " + tileCache.getStats().hitRate() + " with " + tileCache.getSizeInBytes() + " bytes cached");
+		}
 		return coverage;
 	}
 
@@ -607,27 +626,29 @@ public class GeoWaveRasterReader extends
 		}
 
 		final double[][] resolutionLevels = getResolutionLevels(coverageName);
-		Histogram histogram = null;
-		boolean equalizeHistogram;
-		if (config.isEqualizeHistogramOverrideSet()) {
-			equalizeHistogram = config.isEqualizeHistogramOverride();
-		}
-		else {
-			equalizeHistogram = adapter.isEqualizeHistogram();
-		}
-		if (equalizeHistogram) {
-			histogram = getHistogram(
-					coverageName,
-					resolutionLevels[imageChoice.intValue()][0],
-					resolutionLevels[imageChoice.intValue()][1]);
-		}
 
+		// with pipelined rendering the tiles are already being scanned while
+		// the histogram is read
 		try (final CloseableIterator<GridCoverage> gridCoverageIt = queryForTiles(
 				pixelDimension,
 				state.getRequestEnvelopeTransformed(),
 				resolutionLevels[imageChoice.intValue()][0],
 				resolutionLevels[imageChoice.intValue()][1],
 				adapter)) {
+			Histogram histogram = null;
+			boolean equalizeHistogram;
+			if (config.isEqualizeHistogramOverrideSet()) {
+				equalizeHistogram = config.isEqualizeHistogramOverride();
+			}
+			else {
+				equalizeHistogram = adapter.isEqualizeHistogram();
+			}
+			if (equalizeHistogram) {
+				histogram = getHistogram(
+						coverageName,
+						resolutionLevels[imageChoice.intValue()][0],
+						resolutionLevels[imageChoice.intValue()][1]);
+			}
 
 			Interpolation interpolation;
 			if (config.isInterpolationOverrideSet()) {
@@ -696,6 +717,40 @@ public class GeoWaveRasterReader extends
 			final double levelResY,
 			final RasterDataAdapter adapter )
 			throws IOException {
+		final double[] targetResolutionPerDimension = new double[] {
+			levelResX * adapter.getTileSize(),
+			levelResY * adapter.getTileSize()
+		};
+		if (config.isPipelinedRenderingEnabled()) {
+			// split the request into strips that are each a whole number of
+			// tiles wide on the tile grid of the queried tier, which are
+			// scanned concurrently and mosaicked as their tiles arrive
+			final NumericIndexStrategy tierStrategy = geowaveDataStore.getTierIndexStrategy(
+					rasterIndex,
+					targetResolutionPerDimension);
+			final NumericIndexStrategy gridStrategy = (tierStrategy != null) ? tierStrategy : rasterIndex.getIndexStrategy();
+			final double[] stripEdges = RasterUtils.getTileAlignedStripEdges(
+					requestEnvelope.getMinimum(0),
+					requestEnvelope.getMaximum(0),
+					gridStrategy.getOrderedDimensionDefinitions()[0].getBounds().getMin(),
+					gridStrategy.getHighestPrecisionIdRangePerDimension()[0],
+					config.getRenderingPartitions());
+			final List<Query> queries = new ArrayList<Query>(
+					stripEdges.length - 1);
+			for (int s = 0; s < (stripEdges.length - 1); s++) {
+				queries.add(new IndexOnlySpatialQuery(
+						new GeometryFactory().toGeometry(new Envelope(
+								stripEdges[s],
+								stripEdges[s + 1],
+								requestEnvelope.getMinimum(1),
+								requestEnvelope.getMaximum(1)))));
+			}
+			return geowaveDataStore.queryConcurrently(
+					adapter,
+					rasterIndex,
+					queries,
+					targetResolutionPerDimension);
+		}
 		return geowaveDataStore.query(
 				adapter,
 				rasterIndex,
@@ -705,10 +760,7 @@ public class GeoWaveRasterReader extends
 								requestEnvelope.getMaximum(0),
 								requestEnvelope.getMinimum(1),
 								requestEnvelope.getMaximum(1)))),
-				new double[] {
-					levelResX * adapter.getTileSize(),
-					levelResY * adapter.getTileSize()
-				});
+				targetResolutionPerDimension);
 	}
 
 	private GridCoverage2D transformResult(
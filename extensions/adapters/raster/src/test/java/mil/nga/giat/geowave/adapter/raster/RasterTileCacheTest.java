@@ -0,0 +1,154 @@
+package mil.nga.giat.geowave.adapter.raster;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.core.index.sfc.data.BasicNumericDataset;
+import mil.nga.giat.geowave.core.index.sfc.data.NumericData;
+import mil.nga.giat.geowave.core.index.sfc.data.NumericRange;
+
+import org.junit.Test;
+
+public class RasterTileCacheTest
+{
+	private static final ByteArrayId ADAPTER_ID = new ByteArrayId(
+			"adapter");
+	private static final ByteArrayId INDEX_ID = new ByteArrayId(
+			"index");
+	private static final ByteArrayId TILE_1 = new ByteArrayId(
+			"tile1");
+	private static final ByteArrayId TILE_2 = new ByteArrayId(
+			"tile2");
+
+	@Test
+	public void testTilesAreOnlyServedWhenAllAreCached() {
+		final RasterTileCache cache = new RasterTileCache(
+				1024 * 1024,
+				60);
+		final List<ByteArrayId> insertionIds = Arrays.asList(
+				TILE_1,
+				TILE_2);
+		final long epoch = cache.getInvalidationEpoch();
+		cache.putTile(
+				ADAPTER_ID,
+				INDEX_ID,
+				TILE_1,
+				null,
+				epoch);
+		assertNull(cache.getTiles(
+				ADAPTER_ID,
+				INDEX_ID,
+				insertionIds));
+		cache.putTile(
+				ADAPTER_ID,
+				INDEX_ID,
+				TILE_2,
+				null,
+				epoch);
+		final List<?> tiles = cache.getTiles(
+				ADAPTER_ID,
+				INDEX_ID,
+				insertionIds);
+		assertNotNull(tiles);
+		// neither insertion ID has a tile
+		assertTrue(tiles.isEmpty());
+
+		cache.invalidateTile(
+				ADAPTER_ID,
+				INDEX_ID,
+				TILE_2);
+		assertNull(cache.getTiles(
+				ADAPTER_ID,
+				INDEX_ID,
+				insertionIds));
+	}
+
+	@Test
+	public void testInvalidationDuringQueryIsNotCached() {
+		final RasterTileCache cache = new RasterTileCache(
+				1024 * 1024,
+				60);
+		// the epoch is recorded before the scan, and the tile is written while
+		// the scan is in progress
+		final long epoch = cache.getInvalidationEpoch();
+		cache.invalidateTile(
+				ADAPTER_ID,
+				INDEX_ID,
+				TILE_1);
+		cache.putTile(
+				ADAPTER_ID,
+				INDEX_ID,
+				TILE_1,
+				null,
+				epoch);
+		assertNull(cache.getTiles(
+				ADAPTER_ID,
+				INDEX_ID,
+				Arrays.asList(TILE_1)));
+
+		// a query that begins after the invalidation is cached
+		cache.putTile(
+				ADAPTER_ID,
+				INDEX_ID,
+				TILE_1,
+				null,
+				cache.getInvalidationEpoch());
+		assertNotNull(cache.getTiles(
+				ADAPTER_ID,
+				INDEX_ID,
+				Arrays.asList(TILE_1)));
+
+		cache.invalidateAdapter(ADAPTER_ID);
+		assertNull(cache.getTiles(
+				ADAPTER_ID,
+				INDEX_ID,
+				Arrays.asList(TILE_1)));
+	}
+
+	@Test
+	public void testTilesTouchingTheConstraintsOverlap() {
+		final BasicNumericDataset constraints = createRange(
+				0,
+				10);
+		assertTrue(RasterDataStore.overlaps(
+				createRange(
+						10,
+						20),
+				constraints));
+		assertTrue(RasterDataStore.overlaps(
+				createRange(
+						-10,
+						0),
+				constraints));
+		assertTrue(RasterDataStore.overlaps(
+				createRange(
+						2,
+						4),
+				constraints));
+		assertFalse(RasterDataStore.overlaps(
+				createRange(
+						10.5,
+						20),
+				constraints));
+	}
+
+	private static BasicNumericDataset createRange(
+			final double min,
+			final double max ) {
+		return new BasicNumericDataset(
+				new NumericData[] {
+					new NumericRange(
+							min,
+							max),
+					new NumericRange(
+							min,
+							max)
+				});
+	}
+}
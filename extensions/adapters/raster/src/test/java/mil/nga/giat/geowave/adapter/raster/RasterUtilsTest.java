@@ -0,0 +1,131 @@
+package mil.nga.giat.geowave.adapter.raster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import mil.nga.giat.geowave.core.geotime.IndexType;
+import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.core.index.HierarchicalNumericIndexStrategy;
+import mil.nga.giat.geowave.core.index.HierarchicalNumericIndexStrategy.SubStrategy;
+import mil.nga.giat.geowave.core.index.NumericIndexStrategy;
+import mil.nga.giat.geowave.core.index.sfc.data.BasicNumericDataset;
+import mil.nga.giat.geowave.core.index.sfc.data.NumericData;
+import mil.nga.giat.geowave.core.index.sfc.data.NumericRange;
+
+import org.junit.Test;
+
+public class RasterUtilsTest
+{
+	@Test
+	public void testStripsFetchEachTileOnce() {
+		NumericIndexStrategy tierStrategy = null;
+		for (final SubStrategy subStrategy : ((HierarchicalNumericIndexStrategy) IndexType.SPATIAL_RASTER.createDefaultIndexStrategy()).getSubStrategies()) {
+			final double cellWidth = subStrategy.getIndexStrategy().getHighestPrecisionIdRangePerDimension()[0];
+			if ((cellWidth > 0.5) && (cellWidth < 2)) {
+				tierStrategy = subStrategy.getIndexStrategy();
+			}
+		}
+		assertNotNull(tierStrategy);
+		final double cellWidth = tierStrategy.getHighestPrecisionIdRangePerDimension()[0];
+		final double origin = tierStrategy.getOrderedDimensionDefinitions()[0].getBounds().getMin();
+		final double minX = 10.3;
+		final double maxX = 23.7;
+		final double minY = 5.1;
+		final double maxY = 6.2;
+		final double[] edges = RasterUtils.getTileAlignedStripEdges(
+				minX,
+				maxX,
+				origin,
+				cellWidth,
+				4);
+		assertEquals(
+				5,
+				edges.length);
+		assertEquals(
+				minX,
+				edges[0],
+				0);
+		assertEquals(
+				maxX,
+				edges[4],
+				0);
+
+		final List<ByteArrayId> requestTiles = tierStrategy.getInsertionIds(createConstraints(
+				minX,
+				maxX,
+				minY,
+				maxY));
+		final Set<ByteArrayId> stripTiles = new HashSet<ByteArrayId>();
+		int fetchedTiles = 0;
+		for (int s = 0; s < (edges.length - 1); s++) {
+			assertTrue(edges[s] < edges[s + 1]);
+			final List<ByteArrayId> tiles = tierStrategy.getInsertionIds(createConstraints(
+					edges[s],
+					edges[s + 1],
+					minY,
+					maxY));
+			assertTrue(tiles.size() > 0);
+			fetchedTiles += tiles.size();
+			stripTiles.addAll(tiles);
+		}
+		// every tile of the request is fetched by exactly one strip
+		assertEquals(
+				requestTiles.size(),
+				fetchedTiles);
+		assertEquals(
+				new HashSet<ByteArrayId>(
+						requestTiles),
+				stripTiles);
+	}
+
+	@Test
+	public void testNoMoreStripsThanTiles() {
+		final double[] edges = RasterUtils.getTileAlignedStripEdges(
+				0.5,
+				2.5,
+				-180,
+				1,
+				8);
+		// the request covers the cells from 0 to 1, 1 to 2 and 2 to 3
+		assertEquals(
+				4,
+				edges.length);
+		assertEquals(
+				1,
+				edges[1],
+				0);
+		assertEquals(
+				2,
+				edges[2],
+				0);
+		assertEquals(
+				2,
+				RasterUtils.getTileAlignedStripEdges(
+						0.2,
+						0.8,
+						-180,
+						1,
+						8).length);
+	}
+
+	private static BasicNumericDataset createConstraints(
+			final double minX,
+			final double maxX,
+			final double minY,
+			final double maxY ) {
+		return new BasicNumericDataset(
+				new NumericData[] {
+					new NumericRange(
+							minX,
+							maxX),
+					new NumericRange(
+							minY,
+							maxY)
+				});
+	}
+}
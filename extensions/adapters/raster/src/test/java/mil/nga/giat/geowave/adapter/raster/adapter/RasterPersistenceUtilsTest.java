@@ -0,0 +1,306 @@
+package mil.nga.giat.geowave.adapter.raster.adapter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BandedSampleModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferDouble;
+import java.awt.image.DataBufferFloat;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.zip.Deflater;
+
+import javax.media.jai.remote.SerializerFactory;
+
+import org.junit.Test;
+
+public class RasterPersistenceUtilsTest
+{
+	// large enough to be compressed
+	private static final int LARGE_SIZE = 4096;
+	private static final int SMALL_SIZE = 16;
+
+	@Test
+	public void testDataBufferRoundTrip()
+			throws IOException,
+			ClassNotFoundException {
+		for (final int size : new int[] {
+			SMALL_SIZE,
+			LARGE_SIZE
+		}) {
+			for (final DataBuffer dataBuffer : createDataBuffers(size)) {
+				assertDataBufferEquals(
+						dataBuffer,
+						RasterPersistenceUtils.getDataBuffer(RasterPersistenceUtils.getDataBufferBinary(dataBuffer)));
+			}
+		}
+	}
+
+	@Test
+	public void testDataBufferCompressionLevels()
+			throws IOException,
+			ClassNotFoundException {
+		for (final DataBuffer dataBuffer : createDataBuffers(LARGE_SIZE)) {
+			final byte[] uncompressed = RasterPersistenceUtils.getDataBufferBinary(
+					dataBuffer,
+					Deflater.NO_COMPRESSION);
+			final byte[] bestCompression = RasterPersistenceUtils.getDataBufferBinary(
+					dataBuffer,
+					Deflater.BEST_COMPRESSION);
+			// the compression flag follows the version
+			assertEquals(
+					0,
+					uncompressed[1]);
+			assertEquals(
+					1,
+					bestCompression[1]);
+			assertTrue(bestCompression.length < uncompressed.length);
+			assertDataBufferEquals(
+					dataBuffer,
+					RasterPersistenceUtils.getDataBuffer(uncompressed));
+			assertDataBufferEquals(
+					dataBuffer,
+					RasterPersistenceUtils.getDataBuffer(bestCompression));
+		}
+	}
+
+	@Test
+	public void testCompressionLevelProperty() {
+		assertEquals(
+				RasterPersistenceUtils.DEFAULT_COMPRESSION_LEVEL,
+				RasterPersistenceUtils.getCompressionLevel(null));
+		assertEquals(
+				9,
+				RasterPersistenceUtils.getCompressionLevel("9"));
+		assertEquals(
+				0,
+				RasterPersistenceUtils.getCompressionLevel(" 0 "));
+		assertEquals(
+				RasterPersistenceUtils.DEFAULT_COMPRESSION_LEVEL,
+				RasterPersistenceUtils.getCompressionLevel("10"));
+		assertEquals(
+				RasterPersistenceUtils.DEFAULT_COMPRESSION_LEVEL,
+				RasterPersistenceUtils.getCompressionLevel("fast"));
+	}
+
+	@Test
+	public void testSampleModelRoundTrip()
+			throws IOException,
+			ClassNotFoundException {
+		for (final SampleModel sampleModel : createSampleModels()) {
+			assertSampleModelEquals(
+					sampleModel,
+					RasterPersistenceUtils.getSampleModel(RasterPersistenceUtils.getSampleModelBinary(sampleModel)));
+		}
+	}
+
+	@Test
+	public void testPreviousFormat()
+			throws IOException,
+			ClassNotFoundException {
+		// data buffers and sample models were previously persisted as JAI
+		// serializable state through Java object serialization
+		for (final DataBuffer dataBuffer : createDataBuffers(SMALL_SIZE)) {
+			assertDataBufferEquals(
+					dataBuffer,
+					RasterPersistenceUtils.getDataBuffer(getPreviousFormatBinary(dataBuffer)));
+		}
+		for (final SampleModel sampleModel : createSampleModels()) {
+			assertSampleModelEquals(
+					sampleModel,
+					RasterPersistenceUtils.getSampleModel(getPreviousFormatBinary(sampleModel)));
+		}
+	}
+
+	private static byte[] getPreviousFormatBinary(
+			final Object object )
+			throws IOException {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final ObjectOutputStream oos = new ObjectOutputStream(
+				baos);
+		oos.writeObject(SerializerFactory.getState(object));
+		oos.close();
+		return baos.toByteArray();
+	}
+
+	/**
+	 * @return a data buffer of every type with two banks, the second of which
+	 *         has an offset
+	 */
+	private static DataBuffer[] createDataBuffers(
+			final int size ) {
+		final int[] offsets = new int[] {
+			0,
+			3
+		};
+		final byte[][] bytes = new byte[2][size + 3];
+		final short[][] shorts = new short[2][size + 3];
+		final int[][] ints = new int[2][size + 3];
+		final float[][] floats = new float[2][size + 3];
+		final double[][] doubles = new double[2][size + 3];
+		for (int b = 0; b < 2; b++) {
+			for (int i = 0; i < (size + 3); i++) {
+				// repeating values so that large buffers compress
+				final int value = ((i % 50) * (b + 1)) - 20;
+				bytes[b][i] = (byte) value;
+				shorts[b][i] = (short) (value * 100);
+				ints[b][i] = value * 100000;
+				floats[b][i] = value / 3f;
+				doubles[b][i] = value / 7.0;
+			}
+		}
+		return new DataBuffer[] {
+			new DataBufferByte(
+					bytes,
+					size,
+					offsets),
+			new DataBufferUShort(
+					shorts,
+					size,
+					offsets),
+			new DataBufferShort(
+					shorts,
+					size,
+					offsets),
+			new DataBufferInt(
+					ints,
+					size,
+					offsets),
+			new DataBufferFloat(
+					floats,
+					size,
+					offsets),
+			new DataBufferDouble(
+					doubles,
+					size,
+					offsets)
+		};
+	}
+
+	private static SampleModel[] createSampleModels() {
+		return new SampleModel[] {
+			new ComponentSampleModel(
+					DataBuffer.TYPE_FLOAT,
+					32,
+					16,
+					2,
+					64,
+					new int[] {
+						0,
+						0
+					},
+					new int[] {
+						0,
+						1
+					}),
+			new PixelInterleavedSampleModel(
+					DataBuffer.TYPE_BYTE,
+					32,
+					16,
+					3,
+					96,
+					new int[] {
+						2,
+						1,
+						0
+					}),
+			new BandedSampleModel(
+					DataBuffer.TYPE_DOUBLE,
+					32,
+					16,
+					32,
+					new int[] {
+						1,
+						0
+					},
+					new int[] {
+						0,
+						0
+					}),
+			new SinglePixelPackedSampleModel(
+					DataBuffer.TYPE_INT,
+					32,
+					16,
+					32,
+					new int[] {
+						0xff0000,
+						0xff00,
+						0xff
+					}),
+			new MultiPixelPackedSampleModel(
+					DataBuffer.TYPE_BYTE,
+					32,
+					16,
+					4,
+					16,
+					8)
+		};
+	}
+
+	private static void assertDataBufferEquals(
+			final DataBuffer expected,
+			final DataBuffer actual ) {
+		assertEquals(
+				expected.getClass(),
+				actual.getClass());
+		assertEquals(
+				expected.getDataType(),
+				actual.getDataType());
+		assertEquals(
+				expected.getSize(),
+				actual.getSize());
+		assertEquals(
+				expected.getNumBanks(),
+				actual.getNumBanks());
+		assertArrayEquals(
+				expected.getOffsets(),
+				actual.getOffsets());
+		for (int b = 0; b < expected.getNumBanks(); b++) {
+			for (int i = 0; i < expected.getSize(); i++) {
+				assertEquals(
+						expected.getElemDouble(
+								b,
+								i),
+						actual.getElemDouble(
+								b,
+								i),
+						0);
+			}
+		}
+	}
+
+	private static void assertSampleModelEquals(
+			final SampleModel expected,
+			final SampleModel actual ) {
+		assertEquals(
+				expected.getClass(),
+				actual.getClass());
+		assertEquals(
+				expected,
+				actual);
+		assertEquals(
+				expected.getDataType(),
+				actual.getDataType());
+		assertEquals(
+				expected.getWidth(),
+				actual.getWidth());
+		assertEquals(
+				expected.getHeight(),
+				actual.getHeight());
+		assertArrayEquals(
+				expected.getSampleSize(),
+				actual.getSampleSize());
+	}
+}
@@ -3,8 +3,13 @@ package mil.nga.giat.geowave.adapter.vector;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import mil.nga.giat.geowave.adapter.vector.PackedFeatureAttributes.PackedReader;
+import mil.nga.giat.geowave.adapter.vector.PackedFeatureAttributes.PackedWriter;
 import mil.nga.giat.geowave.adapter.vector.plugin.GeoWaveGTDataStore;
 import mil.nga.giat.geowave.adapter.vector.plugin.visibility.AdaptorProxyFieldLevelVisibilityHandler;
 import mil.nga.giat.geowave.adapter.vector.plugin.visibility.JsonDefinitionColumnVisibilityManagement;
@@ -20,12 +25,15 @@ import mil.nga.giat.geowave.core.index.StringUtils;
 import mil.nga.giat.geowave.core.store.adapter.AbstractDataAdapter;
 import mil.nga.giat.geowave.core.store.adapter.AdapterPersistenceEncoding;
 import mil.nga.giat.geowave.core.store.adapter.IndexFieldHandler;
+import mil.nga.giat.geowave.core.store.adapter.IndexedAdapterPersistenceEncoding;
 import mil.nga.giat.geowave.core.store.adapter.NativeFieldHandler;
 import mil.nga.giat.geowave.core.store.adapter.NativeFieldHandler.RowBuilder;
 import mil.nga.giat.geowave.core.store.adapter.PersistentIndexFieldHandler;
 import mil.nga.giat.geowave.core.store.adapter.statistics.DataStatistics;
 import mil.nga.giat.geowave.core.store.adapter.statistics.DataStatisticsVisibilityHandler;
 import mil.nga.giat.geowave.core.store.adapter.statistics.StatisticalDataAdapter;
+import mil.nga.giat.geowave.core.store.data.PersistentDataset;
+import mil.nga.giat.geowave.core.store.data.PersistentValue;
 import mil.nga.giat.geowave.core.store.data.field.FieldReader;
 import mil.nga.giat.geowave.core.store.data.field.FieldUtils;
 import mil.nga.giat.geowave.core.store.data.field.FieldVisibilityHandler;
@@ -33,6 +41,8 @@ import mil.nga.giat.geowave.core.store.data.field.FieldWriter;
 import mil.nga.giat.geowave.core.store.data.visibility.VisibilityManagement;
 import mil.nga.giat.geowave.core.store.index.CommonIndexModel;
 import mil.nga.giat.geowave.core.store.index.CommonIndexValue;
+import mil.nga.giat.geowave.core.store.index.Index;
+import mil.nga.giat.geowave.datastore.accumulo.FieldSubsettingDataAdapter;
 import mil.nga.giat.geowave.datastore.accumulo.mapreduce.HadoopDataAdapter;
 import mil.nga.giat.geowave.datastore.accumulo.mapreduce.HadoopWritableSerializer;
 
@@ -89,14 +99,25 @@ import org.opengis.referencing.operation.MathTransform;
  * constraints cannot be changed, as they are critical components to the
  * efficiency of query processing.
  * 
+ * With the packed encoding, the attributes that are not indexed and share a
+ * visibility are persisted together as a single field rather than as a field
+ * per attribute, which reduces the number of key/value pairs of each feature.
+ * Attributes with a distinct visibility are persisted as their own fields so
+ * that they remain readable to users who hold only their visibility. The
+ * packed field contains an offset for each attribute so that queries for a
+ * subset of the attributes only read the attributes that were requested.
+ * 
  */
 @SuppressWarnings("unchecked")
 public class FeatureDataAdapter extends
 		AbstractDataAdapter<SimpleFeature> implements
 		StatisticalDataAdapter<SimpleFeature>,
-		HadoopDataAdapter<SimpleFeature, FeatureWritable>
+		HadoopDataAdapter<SimpleFeature, FeatureWritable>,
+		FieldSubsettingDataAdapter<SimpleFeature>
 {
 	private final static Logger LOGGER = Logger.getLogger(FeatureDataAdapter.class);
+	public static final ByteArrayId PACKED_ATTRIBUTES_FIELD_ID = new ByteArrayId(
+			"GEOWAVE_PACKED_ATTRIBUTES");
 	// the original coordinate system will always be represented internally by
 	// the persisted type
 	private SimpleFeatureType persistedType;
@@ -111,10 +132,17 @@ public class FeatureDataAdapter extends
 	private String visibilityAttributeName = "GEOWAVE_VISIBILITY";
 	private VisibilityManagement<SimpleFeature> fieldVisibilityManagement;
 	private TimeDescriptors timeDescriptors = null;
+	private boolean packedEncoding = false;
+	// the packed field is encoded for every feature, so its writer and reader
+	// are built once per feature type
+	private FieldWriter<SimpleFeature, Object> packedWriter = null;
+	private FieldReader<Object> packedReader = null;
 
 	// should change this anytime the serialized image changes. Stay negative.
 	// so 0xa0, 0xa1, 0xa2 etc.
-	final static byte VERSION = (byte) 0xa0;
+	final static byte VERSION = (byte) 0xa1;
+	// the packed encoding flag was added after this version
+	final static byte UNPACKED_VERSION = (byte) 0xa0;
 
 	protected FeatureDataAdapter() {}
 
@@ -194,6 +222,7 @@ public class FeatureDataAdapter extends
 		else {
 			reprojectedType = persistedType;
 		}
+		resetPackedFields();
 		resetTimeDescriptors();
 		statsManager = new StatsManager(
 				this,
@@ -276,12 +305,84 @@ public class FeatureDataAdapter extends
 		builder.init(reprojectedType);
 		builder.setNamespaceURI(namespaceURI);
 		reprojectedType = builder.buildFeatureType();
+		resetPackedFields();
+	}
+
+	private void resetPackedFields() {
+		packedWriter = null;
+		packedReader = null;
+	}
+
+	public boolean isPackedEncoding() {
+		return packedEncoding;
+	}
+
+	/**
+	 * Persist the attributes that are not indexed and share a visibility
+	 * together as a single field, which must be set before any features are
+	 * written with this adapter
+	 */
+	public void setPackedEncoding(
+			final boolean packedEncoding ) {
+		this.packedEncoding = packedEncoding;
+	}
+
+	/**
+	 * With the packed encoding, an attribute with a different visibility than
+	 * most attributes of the feature is persisted on its own rather than within
+	 * the packed field
+	 */
+	@Override
+	public ByteArrayId[] getPersistedFieldIds(
+			final ByteArrayId fieldId ) {
+		if (packedEncoding) {
+			return new ByteArrayId[] {
+				PACKED_ATTRIBUTES_FIELD_ID,
+				fieldId
+			};
+		}
+		return new ByteArrayId[] {
+			fieldId
+		};
+	}
+
+	@Override
+	public FieldReader<Object> getReader(
+			final ByteArrayId persistedFieldId,
+			final Set<ByteArrayId> fieldIds ) {
+		if (!PACKED_ATTRIBUTES_FIELD_ID.equals(persistedFieldId)) {
+			return getReader(persistedFieldId);
+		}
+		if ((fieldIds == null) && (packedReader != null)) {
+			return packedReader;
+		}
+		final List<AttributeDescriptor> descriptors = reprojectedType.getAttributeDescriptors();
+		final FieldReader<Object>[] readers = new FieldReader[descriptors.size()];
+		for (int i = 0; i < readers.length; i++) {
+			final ByteArrayId attributeId = new ByteArrayId(
+					StringUtils.stringToBinary(descriptors.get(
+							i).getLocalName()));
+			if ((fieldIds == null) || fieldIds.contains(attributeId)) {
+				readers[i] = getReader(attributeId);
+			}
+		}
+		final FieldReader<Object> reader = new PackedReader(
+				readers);
+		if (fieldIds == null) {
+			packedReader = reader;
+		}
+		return reader;
 	}
 
 	@SuppressWarnings("unchecked")
 	@Override
 	public FieldReader<Object> getReader(
 			final ByteArrayId fieldId ) {
+		if (PACKED_ATTRIBUTES_FIELD_ID.equals(fieldId)) {
+			return getReader(
+					fieldId,
+					null);
+		}
 		final AttributeDescriptor descriptor = reprojectedType.getDescriptor(StringUtils.stringFromBinary(fieldId.getBytes()));
 		final Class<?> bindingClass = descriptor.getType().getBinding();
 		return (FieldReader<Object>) FieldUtils.getDefaultReaderForClass(bindingClass);
@@ -291,6 +392,24 @@ public class FeatureDataAdapter extends
 	@Override
 	public FieldWriter<SimpleFeature, Object> getWriter(
 			final ByteArrayId fieldId ) {
+		if (PACKED_ATTRIBUTES_FIELD_ID.equals(fieldId)) {
+			if (packedWriter != null) {
+				return packedWriter;
+			}
+			final List<AttributeDescriptor> descriptors = reprojectedType.getAttributeDescriptors();
+			final ByteArrayId[] attributeIds = new ByteArrayId[descriptors.size()];
+			final FieldWriter<SimpleFeature, Object>[] writers = new FieldWriter[descriptors.size()];
+			for (int i = 0; i < writers.length; i++) {
+				attributeIds[i] = new ByteArrayId(
+						StringUtils.stringToBinary(descriptors.get(
+								i).getLocalName()));
+				writers[i] = getWriter(attributeIds[i]);
+			}
+			packedWriter = new PackedWriter(
+					attributeIds,
+					writers);
+			return packedWriter;
+		}
 
 		final AttributeDescriptor descriptor = reprojectedType.getDescriptor(StringUtils.stringFromBinary(fieldId.getBytes()));
 
@@ -350,10 +469,19 @@ public class FeatureDataAdapter extends
 			namespaceBytes = new byte[0];
 		}
 		final byte[] encodedTypeBytes = StringUtils.stringToBinary(encodedType);
-		// 25 bytes is the 6 four byte length fields and one byte for the
-		// version
-		final ByteBuffer buf = ByteBuffer.allocate(encodedTypeBytes.length + typeNameBytes.length + namespaceBytes.length + fieldVisibilityAtributeNameBytes.length + visibilityManagementClassNameBytes.length + attrBytes.length + axisBytes.length + 25);
-		buf.put(VERSION);
+		// 24 bytes is the 6 four byte length fields, plus one byte for the
+		// version and, only for packed adapters, one byte for the packed
+		// encoding flag so that adapters that are not packed remain readable
+		// by versions that precede it
+		final int headerLength = packedEncoding ? 26 : 25;
+		final ByteBuffer buf = ByteBuffer.allocate(encodedTypeBytes.length + typeNameBytes.length + namespaceBytes.length + fieldVisibilityAtributeNameBytes.length + visibilityManagementClassNameBytes.length + attrBytes.length + axisBytes.length + headerLength);
+		if (packedEncoding) {
+			buf.put(VERSION);
+			buf.put((byte) 1);
+		}
+		else {
+			buf.put(UNPACKED_VERSION);
+		}
 		buf.putInt(typeNameBytes.length);
 		buf.putInt(namespaceBytes.length);
 		buf.putInt(fieldVisibilityAtributeNameBytes.length);
@@ -378,7 +506,15 @@ public class FeatureDataAdapter extends
 		final ByteBuffer buf = ByteBuffer.wrap(bytes);
 		// for now...do a gentle migration
 		final byte versionId = buf.get();
-		if (versionId != VERSION) {
+		// adapters persisted before the packed encoding flag was added are
+		// never packed
+		int headerLength = 25;
+		packedEncoding = false;
+		if (versionId == VERSION) {
+			packedEncoding = buf.get() != 0;
+			headerLength = 26;
+		}
+		else if (versionId != UNPACKED_VERSION) {
 			LOGGER.warn("Mismatched Feature Data Adapter version");
 		}
 		final byte[] typeNameBytes = new byte[buf.getInt()];
@@ -410,9 +546,7 @@ public class FeatureDataAdapter extends
 					"Cannot instantiate " + visibilityManagementClassName,
 					ex);
 		}
-		// 25 bytes is the 6 four byte length fields and one byte for the
-		// version
-		final byte[] encodedTypeBytes = new byte[bytes.length - axisBytes.length - typeNameBytes.length - namespaceBytes.length - fieldVisibilityAtributeNameBytes.length - visibilityManagementClassNameBytes.length - attrBytes.length - 25];
+		final byte[] encodedTypeBytes = new byte[bytes.length - axisBytes.length - typeNameBytes.length - namespaceBytes.length - fieldVisibilityAtributeNameBytes.length - visibilityManagementClassNameBytes.length - attrBytes.length - headerLength];
 		buf.get(encodedTypeBytes);
 
 		final String encodedType = StringUtils.stringFromBinary(encodedTypeBytes);
@@ -494,13 +628,110 @@ public class FeatureDataAdapter extends
 			final SimpleFeature entry,
 			final CommonIndexModel indexModel ) {
 
-		return super.encode(
-				FeatureDataUtils.defaultCRSTransform(
-						entry,
-						persistedType,
-						reprojectedType,
-						transform),
+		final SimpleFeature reprojectedEntry = FeatureDataUtils.defaultCRSTransform(
+				entry,
+				persistedType,
+				reprojectedType,
+				transform);
+		final AdapterPersistenceEncoding encoding = super.encode(
+				reprojectedEntry,
 				indexModel);
+		if (!packedEncoding) {
+			return encoding;
+		}
+		// only the attributes with the visibility that is shared by the most
+		// attributes are packed, in the order of the feature type, so that an
+		// attribute is never hidden by the visibility of another attribute
+		final List<PersistentValue<Object>> attributeValues = encoding.getAdapterExtendedData().getValues();
+		final List<ByteArrayId> visibilities = new ArrayList<ByteArrayId>();
+		final Map<ByteArrayId, Integer> visibilityCounts = new HashMap<ByteArrayId, Integer>();
+		ByteArrayId packedVisibility = null;
+		for (final PersistentValue<Object> value : attributeValues) {
+			final FieldWriter<SimpleFeature, Object> writer = getWriter(value.getId());
+			if (writer == null) {
+				// the attribute is not written, such as the visibility
+				// attribute
+				visibilities.add(null);
+				continue;
+			}
+			final byte[] visibilityBytes = writer.getVisibility(
+					reprojectedEntry,
+					value.getId(),
+					value.getValue());
+			final ByteArrayId visibility = new ByteArrayId(
+					visibilityBytes == null ? new byte[] {} : visibilityBytes);
+			visibilities.add(visibility);
+			final Integer count = visibilityCounts.get(visibility);
+			final int newCount = count == null ? 1 : count + 1;
+			visibilityCounts.put(
+					visibility,
+					newCount);
+			if ((packedVisibility == null) || (newCount > visibilityCounts.get(packedVisibility))) {
+				packedVisibility = visibility;
+			}
+		}
+		final PersistentDataset<Object> extendedData = new PersistentDataset<Object>();
+		final Object[] values = new Object[reprojectedType.getAttributeCount()];
+		for (int i = 0; i < attributeValues.size(); i++) {
+			final PersistentValue<Object> value = attributeValues.get(i);
+			final int index = reprojectedType.indexOf(StringUtils.stringFromBinary(value.getId().getBytes()));
+			final ByteArrayId visibility = visibilities.get(i);
+			if (visibility == null) {
+				continue;
+			}
+			if ((index >= 0) && visibility.equals(packedVisibility)) {
+				values[index] = value.getValue();
+			}
+			else {
+				extendedData.addValue(value);
+			}
+		}
+		extendedData.addValue(new PersistentValue<Object>(
+				PACKED_ATTRIBUTES_FIELD_ID,
+				values));
+		return new AdapterPersistenceEncoding(
+				encoding.getAdapterId(),
+				encoding.getDataId(),
+				encoding.getCommonData(),
+				extendedData);
+	}
+
+	@Override
+	public SimpleFeature decode(
+			final IndexedAdapterPersistenceEncoding data,
+			final Index index ) {
+		final Object packedValues = data.getAdapterExtendedData().getValue(
+				PACKED_ATTRIBUTES_FIELD_ID);
+		if (packedValues == null) {
+			return super.decode(
+					data,
+					index);
+		}
+		final PersistentDataset<Object> extendedData = new PersistentDataset<Object>();
+		for (final PersistentValue<Object> value : data.getAdapterExtendedData().getValues()) {
+			if (!PACKED_ATTRIBUTES_FIELD_ID.equals(value.getId())) {
+				extendedData.addValue(value);
+			}
+		}
+		final Object[] values = (Object[]) packedValues;
+		for (int i = 0; (i < values.length) && (i < reprojectedType.getAttributeCount()); i++) {
+			if (values[i] != null) {
+				extendedData.addValue(new PersistentValue<Object>(
+						new ByteArrayId(
+								StringUtils.stringToBinary(reprojectedType.getDescriptor(
+										i).getLocalName())),
+						values[i]));
+			}
+		}
+		return super.decode(
+				new IndexedAdapterPersistenceEncoding(
+						data.getAdapterId(),
+						data.getDataId(),
+						data.getIndexInsertionId(),
+						data.getDuplicateCount(),
+						data.getCommonData(),
+						extendedData),
+				index);
 	}
 
 	@Override
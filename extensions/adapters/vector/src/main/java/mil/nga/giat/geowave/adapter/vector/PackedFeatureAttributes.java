@@ -0,0 +1,149 @@
+package mil.nga.giat.geowave.adapter.vector;
+
+import java.nio.ByteBuffer;
+
+import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.core.store.data.field.FieldReader;
+import mil.nga.giat.geowave.core.store.data.field.FieldWriter;
+
+import org.opengis.feature.simple.SimpleFeature;
+
+/**
+ * This reads and writes the attributes of a feature that are not indexed and
+ * share a visibility as a single packed value. The value of the packed field
+ * is an array with an element for every attribute of the feature type, which
+ * is null for the attributes that are indexed, null, persisted on their own or
+ * skipped. The binary form is the number of attributes followed by a table of
+ * the offset of each attribute's value (or -1 if it has no value) and then the
+ * values themselves, so that any attribute can be read without reading the
+ * others.
+ */
+public class PackedFeatureAttributes
+{
+	private static final int NO_VALUE = -1;
+
+	public static class PackedReader implements
+			FieldReader<Object>
+	{
+		private final FieldReader<Object>[] readers;
+
+		/**
+		 * @param readers
+		 *            a reader for every attribute of the feature type, which is
+		 *            null for the attributes that should be skipped
+		 */
+		public PackedReader(
+				final FieldReader<Object>[] readers ) {
+			this.readers = readers;
+		}
+
+		@Override
+		public Object readField(
+				final byte[] fieldData ) {
+			final ByteBuffer buf = ByteBuffer.wrap(fieldData);
+			final int attributeCount = buf.getInt();
+			final int[] offsets = new int[attributeCount];
+			for (int i = 0; i < attributeCount; i++) {
+				offsets[i] = buf.getInt();
+			}
+			final int dataStart = buf.position();
+			final Object[] values = new Object[readers.length];
+			for (int i = 0; (i < attributeCount) && (i < readers.length); i++) {
+				if ((readers[i] == null) || (offsets[i] == NO_VALUE)) {
+					continue;
+				}
+				// the value ends where the next value starts
+				int end = fieldData.length - dataStart;
+				for (int j = i + 1; j < attributeCount; j++) {
+					if (offsets[j] != NO_VALUE) {
+						end = offsets[j];
+						break;
+					}
+				}
+				final byte[] valueBytes = new byte[end - offsets[i]];
+				System.arraycopy(
+						fieldData,
+						dataStart + offsets[i],
+						valueBytes,
+						0,
+						valueBytes.length);
+				values[i] = readers[i].readField(valueBytes);
+			}
+			return values;
+		}
+	}
+
+	public static class PackedWriter implements
+			FieldWriter<SimpleFeature, Object>
+	{
+		private final ByteArrayId[] attributeIds;
+		private final FieldWriter<SimpleFeature, Object>[] writers;
+
+		/**
+		 * @param attributeIds
+		 *            the ID of every attribute of the feature type
+		 * @param writers
+		 *            a writer for every attribute of the feature type, which
+		 *            also determines the visibility of the attribute
+		 */
+		public PackedWriter(
+				final ByteArrayId[] attributeIds,
+				final FieldWriter<SimpleFeature, Object>[] writers ) {
+			this.attributeIds = attributeIds;
+			this.writers = writers;
+		}
+
+		@Override
+		public byte[] writeField(
+				final Object fieldValue ) {
+			final Object[] values = (Object[]) fieldValue;
+			final byte[][] valueBytes = new byte[values.length][];
+			int dataLength = 0;
+			for (int i = 0; i < values.length; i++) {
+				if ((values[i] != null) && (writers[i] != null)) {
+					valueBytes[i] = writers[i].writeField(values[i]);
+					dataLength += valueBytes[i].length;
+				}
+			}
+			final ByteBuffer buf = ByteBuffer.allocate(4 + (values.length * 4) + dataLength);
+			buf.putInt(values.length);
+			int offset = 0;
+			for (int i = 0; i < values.length; i++) {
+				if (valueBytes[i] != null) {
+					buf.putInt(offset);
+					offset += valueBytes[i].length;
+				}
+				else {
+					buf.putInt(NO_VALUE);
+				}
+			}
+			for (final byte[] bytes : valueBytes) {
+				if (bytes != null) {
+					buf.put(bytes);
+				}
+			}
+			return buf.array();
+		}
+
+		/**
+		 * Only attributes that share a visibility are packed together, so the
+		 * visibility of the packed value is that of any attribute it contains
+		 */
+		@Override
+		public byte[] getVisibility(
+				final SimpleFeature rowValue,
+				final ByteArrayId fieldId,
+				final Object fieldValue ) {
+			final Object[] values = (Object[]) fieldValue;
+			for (int i = 0; i < values.length; i++) {
+				if ((values[i] != null) && (writers[i] != null)) {
+					return writers[i].getVisibility(
+							rowValue,
+							attributeIds[i],
+							values[i]);
+				}
+			}
+			return new byte[] {};
+		}
+	}
+}
@@ -10,10 +10,12 @@ import mil.nga.giat.geowave.adapter.vector.query.DistributedRenderQuery;
 import mil.nga.giat.geowave.adapter.vector.query.SpatialDecimationQuery;
 import mil.nga.giat.geowave.adapter.vector.wms.DistributableRenderer;
 import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.core.index.PersistenceUtils;
 import mil.nga.giat.geowave.core.store.CloseableIterator;
 import mil.nga.giat.geowave.core.store.adapter.AdapterStore;
 import mil.nga.giat.geowave.core.store.adapter.DataAdapter;
 import mil.nga.giat.geowave.core.store.adapter.MemoryAdapterStore;
+import mil.nga.giat.geowave.core.store.adapter.statistics.DataStatistics;
 import mil.nga.giat.geowave.core.store.adapter.statistics.DataStatisticsStore;
 import mil.nga.giat.geowave.core.store.index.Index;
 import mil.nga.giat.geowave.core.store.index.IndexStore;
@@ -23,6 +25,7 @@ import mil.nga.giat.geowave.datastore.accumulo.AccumuloOperations;
 import mil.nga.giat.geowave.datastore.accumulo.AccumuloOptions;
 import mil.nga.giat.geowave.datastore.accumulo.util.CloseableIteratorWrapper;
 
+import org.apache.log4j.Logger;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.filter.Filter;
@@ -40,6 +43,7 @@ import com.google.common.collect.Iterators;
 public class VectorDataStore extends
 		AccumuloDataStore
 {
+	private final static Logger LOGGER = Logger.getLogger(VectorDataStore.class);
 
 	public VectorDataStore(
 			final IndexStore indexStore,
@@ -135,6 +139,80 @@ public class VectorDataStore extends
 		return new CloseableIterator.Empty<SimpleFeature>();
 	}
 
+	/**
+	 * Aggregate the features that match a query and a CQL filter within the
+	 * tablet servers, rather than returning every feature to the client
+	 * 
+	 * @return a new statistics object with every matching feature aggregated
+	 */
+	@SuppressWarnings("unchecked")
+	public <S extends DataStatistics<SimpleFeature>> S aggregate(
+			final FeatureDataAdapter adapter,
+			final Index index,
+			final Query query,
+			final Filter filter,
+			final S aggregation,
+			final String... authorizations ) {
+		if (filter == null) {
+			return aggregate(
+					adapter,
+					index,
+					query,
+					aggregation,
+					authorizations);
+		}
+		store(adapter);
+		final List<ByteArrayId> adapterIds = Arrays.asList(new ByteArrayId[] {
+			adapter.getAdapterId()
+		});
+		final AccumuloCqlConstraintsQuery accumuloQuery;
+		if (query == null) {
+			accumuloQuery = new AccumuloCqlConstraintsQuery(
+					adapterIds,
+					index,
+					filter,
+					adapter,
+					authorizations);
+		}
+		else if (query.isSupported(index)) {
+			accumuloQuery = new AccumuloCqlConstraintsQuery(
+					adapterIds,
+					index,
+					query.getIndexConstraints(index.getIndexStrategy()),
+					query.createFilters(index.getIndexModel()),
+					filter,
+					adapter,
+					authorizations);
+		}
+		else {
+			throw new IllegalArgumentException(
+					"Index does not support the query");
+		}
+		accumuloQuery.setAggregation(
+				adapter,
+				aggregation);
+		try (CloseableIterator<?> it = accumuloQuery.query(
+				accumuloOperations,
+				new MemoryAdapterStore(
+						new DataAdapter[] {
+							adapter
+						}),
+				null)) {
+			if (it.hasNext()) {
+				return (S) it.next();
+			}
+		}
+		catch (final IOException e) {
+			LOGGER.warn(
+					"Unable to close aggregation scanner",
+					e);
+		}
+		// the table does not exist, so there is nothing to aggregate
+		return (S) PersistenceUtils.fromBinary(
+				PersistenceUtils.toBinary(aggregation),
+				DataStatistics.class);
+	}
+
 	public CloseableIterator<SimpleFeature> query(
 			final FeatureDataAdapter adapter,
 			final Index index,
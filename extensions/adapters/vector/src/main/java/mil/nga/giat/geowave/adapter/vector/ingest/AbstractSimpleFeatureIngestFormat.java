@@ -22,10 +22,20 @@ abstract public class AbstractSimpleFeatureIngestFormat<I> implements
 		return myInstance;
 	}
 
+	private AbstractSimpleFeatureIngestPlugin<I> newInstance() {
+		final AbstractSimpleFeatureIngestPlugin<I> plugin = newPluginInstance();
+		plugin.setFilterProvider(cqlFilterOptionProvider);
+		return plugin;
+	}
+
 	abstract protected AbstractSimpleFeatureIngestPlugin<I> newPluginInstance();
 
+	/**
+	 * @return a new plugin each time, because the plugins are not thread safe
+	 *         and Kafka messages may be ingested by several consumer threads
+	 */
 	public AvroFormatPlugin<I, SimpleFeature> getAvroFormatPlugin() {
-		return getInstance();
+		return newInstance();
 	}
 
 	@Override
@@ -33,9 +43,13 @@ abstract public class AbstractSimpleFeatureIngestFormat<I> implements
 		return getInstance();
 	}
 
+	/**
+	 * @return a new plugin each time, because the plugins are not thread safe
+	 *         and local files may be parsed by several threads
+	 */
 	@Override
 	public LocalFileIngestPlugin<SimpleFeature> getLocalFileIngestPlugin() {
-		return getInstance();
+		return newInstance();
 	}
 
 	@Override
@@ -3,9 +3,12 @@ package mil.nga.giat.geowave.adapter.vector;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.text.ParseException;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
@@ -15,11 +18,17 @@ import mil.nga.giat.geowave.adapter.vector.util.FeatureDataUtils;
 import mil.nga.giat.geowave.adapter.vector.utils.DateUtilities;
 import mil.nga.giat.geowave.core.geotime.IndexType;
 import mil.nga.giat.geowave.core.geotime.store.dimension.GeometryWrapper;
+import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.core.index.StringUtils;
 import mil.nga.giat.geowave.core.store.adapter.AdapterPersistenceEncoding;
 import mil.nga.giat.geowave.core.store.adapter.IndexFieldHandler;
+import mil.nga.giat.geowave.core.store.adapter.IndexedAdapterPersistenceEncoding;
+import mil.nga.giat.geowave.core.store.data.PersistentDataset;
 import mil.nga.giat.geowave.core.store.data.PersistentValue;
+import mil.nga.giat.geowave.core.store.data.field.FieldWriter;
 import mil.nga.giat.geowave.core.store.data.visibility.GlobalVisibilityHandler;
 import mil.nga.giat.geowave.core.store.index.CommonIndexValue;
+import mil.nga.giat.geowave.core.store.index.Index;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
@@ -445,4 +454,218 @@ public class FeatureDataAdapterTest
 				GeoWaveGTDataStore.DEFAULT_CRS.getCoordinateSystem());
 	}
 
+	@Test
+	public void testPackedEncoding() {
+		final FeatureDataAdapter dataAdapter = new FeatureDataAdapter(
+				schema,
+				new GlobalVisibilityHandler<SimpleFeature, Object>(
+						"default"));
+		dataAdapter.setPackedEncoding(true);
+
+		final FeatureDataAdapter dataAdapterCopy = new FeatureDataAdapter();
+		dataAdapterCopy.fromBinary(dataAdapter.toBinary());
+		assertTrue(dataAdapterCopy.isPackedEncoding());
+		assertEquals(
+				FeatureDataAdapter.PACKED_ATTRIBUTES_FIELD_ID,
+				dataAdapterCopy.getPersistedFieldIds(new ByteArrayId(
+						"pop"))[0]);
+
+		final Index index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+		final AdapterPersistenceEncoding persistenceEncoding = dataAdapterCopy.encode(
+				newFeature,
+				index.getIndexModel());
+		// every attribute that is not indexed is within the single packed
+		// field
+		final List<PersistentValue<Object>> extendedValues = persistenceEncoding.getAdapterExtendedData().getValues();
+		assertEquals(
+				1,
+				extendedValues.size());
+		assertEquals(
+				FeatureDataAdapter.PACKED_ATTRIBUTES_FIELD_ID,
+				extendedValues.get(
+						0).getId());
+
+		final FieldWriter<SimpleFeature, Object> writer = dataAdapterCopy.getWriter(FeatureDataAdapter.PACKED_ATTRIBUTES_FIELD_ID);
+		// the packed writer is built once rather than for every feature
+		assertSame(
+				writer,
+				dataAdapterCopy.getWriter(FeatureDataAdapter.PACKED_ATTRIBUTES_FIELD_ID));
+		final byte[] packedBytes = writer.writeField(extendedValues.get(
+				0).getValue());
+		assertEquals(
+				"default",
+				StringUtils.stringFromBinary(writer.getVisibility(
+						newFeature,
+						FeatureDataAdapter.PACKED_ATTRIBUTES_FIELD_ID,
+						extendedValues.get(
+								0).getValue())));
+
+		final PersistentDataset<Object> extendedData = new PersistentDataset<Object>();
+		extendedData.addValue(new PersistentValue<Object>(
+				FeatureDataAdapter.PACKED_ATTRIBUTES_FIELD_ID,
+				dataAdapterCopy.getReader(
+						FeatureDataAdapter.PACKED_ATTRIBUTES_FIELD_ID).readField(
+						packedBytes)));
+		final SimpleFeature decodedFeature = dataAdapterCopy.decode(
+				new IndexedAdapterPersistenceEncoding(
+						persistenceEncoding.getAdapterId(),
+						persistenceEncoding.getDataId(),
+						null,
+						0,
+						persistenceEncoding.getCommonData(),
+						extendedData),
+				index);
+		assertEquals(
+				newFeature.getID(),
+				decodedFeature.getID());
+		assertEquals(
+				newFeature.getDefaultGeometry(),
+				decodedFeature.getDefaultGeometry());
+		assertEquals(
+				Long.valueOf(100),
+				decodedFeature.getAttribute("pop"));
+		assertEquals(
+				time1,
+				decodedFeature.getAttribute("when"));
+		assertEquals(
+				time2,
+				decodedFeature.getAttribute("whennot"));
+
+		// reading a subset of the attributes skips the others
+		final Object[] subset = (Object[]) dataAdapterCopy.getReader(
+				FeatureDataAdapter.PACKED_ATTRIBUTES_FIELD_ID,
+				Collections.singleton(new ByteArrayId(
+						"pop"))).readField(
+				packedBytes);
+		assertEquals(
+				Long.valueOf(100),
+				subset[schema.indexOf("pop")]);
+		assertNull(subset[schema.indexOf("when")]);
+		assertNull(subset[schema.indexOf("whennot")]);
+	}
+
+	@Test
+	public void testUnpackedVersion() {
+		final FeatureDataAdapter dataAdapter = new FeatureDataAdapter(
+				schema);
+		// adapters that are not packed remain readable by versions that
+		// precede the packed encoding
+		assertEquals(
+				FeatureDataAdapter.UNPACKED_VERSION,
+				dataAdapter.defaultTypeDataToBinary()[0]);
+		final FeatureDataAdapter dataAdapterCopy = new FeatureDataAdapter();
+		dataAdapterCopy.fromBinary(dataAdapter.toBinary());
+		assertFalse(dataAdapterCopy.isPackedEncoding());
+		assertEquals(
+				schema.getAttributeCount(),
+				dataAdapterCopy.getType().getAttributeCount());
+
+		dataAdapter.setPackedEncoding(true);
+		assertEquals(
+				FeatureDataAdapter.VERSION,
+				dataAdapter.defaultTypeDataToBinary()[0]);
+	}
+
+	@Test
+	public void testPackedEncodingKeepsDistinctVisibilities()
+			throws SchemaException {
+		final SimpleFeatureType visibilitySchema = DataUtilities.createType(
+				"sp.geostuff",
+				"geometry:Geometry:srid=4326,pop:java.lang.Long,when:Date,pid:String,GEOWAVE_VISIBILITY:String");
+		final SimpleFeatureBuilder featureBuilder = new SimpleFeatureBuilder(
+				visibilitySchema);
+		featureBuilder.set(
+				"geometry",
+				factory.createPoint(new Coordinate(
+						27.25,
+						41.25)));
+		featureBuilder.set(
+				"pop",
+				Long.valueOf(100));
+		featureBuilder.set(
+				"when",
+				time1);
+		featureBuilder.set(
+				"pid",
+				"a");
+		featureBuilder.set(
+				"GEOWAVE_VISIBILITY",
+				"{\"pop\":\"secret\",\".*\":\"default\"}");
+		final SimpleFeature feature = featureBuilder.buildFeature("1");
+
+		final FeatureDataAdapter dataAdapter = new FeatureDataAdapter(
+				visibilitySchema);
+		dataAdapter.setPackedEncoding(true);
+		final Index index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+		final AdapterPersistenceEncoding persistenceEncoding = dataAdapter.encode(
+				feature,
+				index.getIndexModel());
+
+		// the attribute with a distinct visibility is persisted on its own so
+		// that it is not hidden behind the visibility of the other attributes
+		final PersistentDataset<Object> extendedData = persistenceEncoding.getAdapterExtendedData();
+		assertEquals(
+				2,
+				extendedData.getValues().size());
+		assertEquals(
+				Long.valueOf(100),
+				extendedData.getValue(new ByteArrayId(
+						"pop")));
+		final Object[] packedValues = (Object[]) extendedData.getValue(FeatureDataAdapter.PACKED_ATTRIBUTES_FIELD_ID);
+		assertNull(packedValues[visibilitySchema.indexOf("pop")]);
+		assertEquals(
+				time1,
+				packedValues[visibilitySchema.indexOf("when")]);
+		assertEquals(
+				"a",
+				packedValues[visibilitySchema.indexOf("pid")]);
+		assertEquals(
+				"default",
+				StringUtils.stringFromBinary(dataAdapter.getWriter(
+						FeatureDataAdapter.PACKED_ATTRIBUTES_FIELD_ID).getVisibility(
+						feature,
+						FeatureDataAdapter.PACKED_ATTRIBUTES_FIELD_ID,
+						packedValues)));
+		assertEquals(
+				"secret",
+				StringUtils.stringFromBinary(dataAdapter.getWriter(
+						new ByteArrayId(
+								"pop")).getVisibility(
+						feature,
+						new ByteArrayId(
+								"pop"),
+						Long.valueOf(100))));
+
+		// a query for the attribute fetches both the packed field and the
+		// attribute's own field
+		final ByteArrayId[] persistedFieldIds = dataAdapter.getPersistedFieldIds(new ByteArrayId(
+				"pop"));
+		assertEquals(
+				2,
+				persistedFieldIds.length);
+		assertEquals(
+				new ByteArrayId(
+						"pop"),
+				persistedFieldIds[1]);
+
+		final SimpleFeature decodedFeature = dataAdapter.decode(
+				new IndexedAdapterPersistenceEncoding(
+						persistenceEncoding.getAdapterId(),
+						persistenceEncoding.getDataId(),
+						null,
+						0,
+						persistenceEncoding.getCommonData(),
+						extendedData),
+				index);
+		assertEquals(
+				Long.valueOf(100),
+				decodedFeature.getAttribute("pop"));
+		assertEquals(
+				time1,
+				decodedFeature.getAttribute("when"));
+		assertEquals(
+				"a",
+				decodedFeature.getAttribute("pid"));
+	}
+
 }
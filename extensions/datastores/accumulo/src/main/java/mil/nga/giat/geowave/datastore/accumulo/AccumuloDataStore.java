@@ -5,14 +5,21 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import mil.nga.giat.geowave.core.index.ByteArrayId;
 import mil.nga.giat.geowave.core.index.ByteArrayRange;
 import mil.nga.giat.geowave.core.index.ByteArrayUtils;
+import mil.nga.giat.geowave.core.index.PersistenceUtils;
+import mil.nga.giat.geowave.core.index.RowCountEstimator;
 import mil.nga.giat.geowave.core.index.StringUtils;
 import mil.nga.giat.geowave.core.store.CloseableIterator;
 import mil.nga.giat.geowave.core.store.DataStore;
@@ -20,6 +27,7 @@ import mil.nga.giat.geowave.core.store.DataStoreEntryInfo;
 import mil.nga.giat.geowave.core.store.IndexWriter;
 import mil.nga.giat.geowave.core.store.IngestCallback;
 import mil.nga.giat.geowave.core.store.IngestCallbackList;
+import mil.nga.giat.geowave.core.store.QuerySubscriber;
 import mil.nga.giat.geowave.core.store.ScanCallback;
 import mil.nga.giat.geowave.core.store.adapter.AdapterStore;
 import mil.nga.giat.geowave.core.store.adapter.DataAdapter;
@@ -29,6 +37,8 @@ import mil.nga.giat.geowave.core.store.adapter.WritableDataAdapter;
 import mil.nga.giat.geowave.core.store.adapter.statistics.DataStatistics;
 import mil.nga.giat.geowave.core.store.adapter.statistics.DataStatisticsStore;
 import mil.nga.giat.geowave.core.store.adapter.statistics.StatsCompositionTool;
+import mil.nga.giat.geowave.core.store.adapter.statistics.RowRangeHistogramStatistics;
+import mil.nga.giat.geowave.core.store.adapter.statistics.TierOccupancyDataStatistics;
 import mil.nga.giat.geowave.core.store.data.VisibilityWriter;
 import mil.nga.giat.geowave.core.store.data.visibility.UnconstrainedVisibilityHandler;
 import mil.nga.giat.geowave.core.store.data.visibility.UniformVisibilityWriter;
@@ -48,16 +58,19 @@ import mil.nga.giat.geowave.datastore.accumulo.query.QueryFilterIterator;
 import mil.nga.giat.geowave.datastore.accumulo.query.SingleEntryFilterIterator;
 import mil.nga.giat.geowave.datastore.accumulo.util.AccumuloUtils;
 import mil.nga.giat.geowave.datastore.accumulo.util.AltIndexIngestCallback;
+import mil.nga.giat.geowave.datastore.accumulo.util.AsyncQuerySubscription;
 import mil.nga.giat.geowave.datastore.accumulo.util.CloseableIteratorWrapper;
 import mil.nga.giat.geowave.datastore.accumulo.util.DataAdapterAndIndexCache;
 import mil.nga.giat.geowave.datastore.accumulo.util.IteratorWrapper;
 import mil.nga.giat.geowave.datastore.accumulo.util.IteratorWrapper.Callback;
 import mil.nga.giat.geowave.datastore.accumulo.util.IteratorWrapper.Converter;
+import mil.nga.giat.geowave.datastore.accumulo.util.ParallelCloseableIterator;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
 import org.apache.accumulo.core.client.BatchDeleter;
 import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.Connector;
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.client.MutationsRejectedException;
 import org.apache.accumulo.core.client.Scanner;
@@ -72,6 +85,7 @@ import org.apache.hadoop.io.Text;
 import org.apache.log4j.Logger;
 
 import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
@@ -96,6 +110,9 @@ public class AccumuloDataStore implements
 	protected final DataStatisticsStore statisticsStore;
 	protected final AccumuloOperations accumuloOperations;
 	protected final AccumuloOptions accumuloOptions;
+	private ExecutorService asyncQueryExecutor;
+	private AccumuloIngestSession ingestSession;
+	private final DataAdapterAndIndexCache preparedTierOccupancyStatistics = new DataAdapterAndIndexCache();
 
 	public AccumuloDataStore(
 			final AccumuloOperations accumuloOperations ) {
@@ -210,54 +227,34 @@ public class AccumuloDataStore implements
 		store(writableAdapter);
 		store(index);
 
+		if (accumuloOptions.isUseIngestSession()) {
+			return getIngestSession().ingest(
+					writableAdapter,
+					index,
+					entry,
+					customFieldVisibilityWriter);
+		}
+
 		Writer writer = null;
 		StatsCompositionTool<T> statisticsTool = null;
 		try {
 			final String indexName = StringUtils.stringFromBinary(index.getId().getBytes());
 			final String altIdxTableName = indexName + AccumuloUtils.ALT_INDEX_TABLE;
-			final byte[] adapterId = writableAdapter.getAdapterId().getBytes();
 
-			boolean useAltIndex = accumuloOptions.isUseAltIndex();
-
-			if (useAltIndex) {
-				if (accumuloOperations.tableExists(indexName)) {
-					if (!accumuloOperations.tableExists(altIdxTableName)) {
-						useAltIndex = false;
-						LOGGER.warn("Requested alternate index table [" + altIdxTableName + "] does not exist.");
-					}
-				}
-				else {
-					if (accumuloOperations.tableExists(altIdxTableName)) {
-						accumuloOperations.deleteTable(altIdxTableName);
-						LOGGER.warn("Deleting current alternate index table [" + altIdxTableName + "] as main table does not yet exist.");
-					}
-				}
-			}
+			final boolean useAltIndex = isAltIndexUsable(indexName);
 
-			statisticsTool = getStatsCompositionTool(writableAdapter);
+			statisticsTool = getStatsCompositionTool(
+					writableAdapter,
+					index);
 
 			writer = accumuloOperations.createWriter(
 					indexName,
 					accumuloOptions.isCreateTable());
 
-			if (accumuloOptions.isUseLocalityGroups() && !accumuloOperations.localityGroupExists(
-					indexName,
-					adapterId)) {
-				accumuloOperations.addLocalityGroup(
-						indexName,
-						adapterId);
-			}
-			if (writableAdapter instanceof AttachedIteratorDataAdapter) {
-				if (!DataAdapterAndIndexCache.getInstance(
-						AttachedIteratorDataAdapter.ATTACHED_ITERATOR_CACHE_ID).add(
-						writableAdapter.getAdapterId(),
-						indexName)) {
-					accumuloOperations.attachIterators(
-							indexName,
-							accumuloOptions.isCreateTable(),
-							((AttachedIteratorDataAdapter) writableAdapter).getAttachedIteratorConfig(index));
-				}
-			}
+			prepareIndexTable(
+					writableAdapter,
+					index,
+					indexName);
 			final DataStoreEntryInfo entryInfo = AccumuloUtils.write(
 					writableAdapter,
 					index,
@@ -329,6 +326,190 @@ public class AccumuloDataStore implements
 		}
 	}
 
+	protected synchronized AccumuloIngestSession getIngestSession() {
+		if (ingestSession == null) {
+			ingestSession = new AccumuloIngestSession(
+					this,
+					accumuloOperations,
+					accumuloOptions,
+					accumuloOptions.isPersistDataStatistics() ? statisticsStore : null);
+		}
+		return ingestSession;
+	}
+
+	/**
+	 * Flush any entries, alternate index entries and statistics that have been
+	 * buffered by single entry ingest when the ingest session is enabled
+	 */
+	public void flushIngestSession() {
+		final AccumuloIngestSession session;
+		synchronized (this) {
+			session = ingestSession;
+		}
+		if (session != null) {
+			session.flush();
+		}
+	}
+
+	/**
+	 * Flush and release all of the writers pooled by single entry ingest when
+	 * the ingest session is enabled
+	 */
+	public void closeIngestSession() {
+		final AccumuloIngestSession session;
+		synchronized (this) {
+			session = ingestSession;
+			ingestSession = null;
+		}
+		if (session != null) {
+			session.close();
+		}
+	}
+
+	/**
+	 * Determine whether the alternate index table should be written to along
+	 * with the given index table, removing an alternate index table that was
+	 * left behind by a main table that no longer exists
+	 */
+	protected boolean isAltIndexUsable(
+			final String indexName ) {
+		if (!accumuloOptions.isUseAltIndex()) {
+			return false;
+		}
+		final String altIdxTableName = indexName + AccumuloUtils.ALT_INDEX_TABLE;
+		if (accumuloOperations.tableExists(indexName)) {
+			if (!accumuloOperations.tableExists(altIdxTableName)) {
+				LOGGER.warn("Requested alternate index table [" + altIdxTableName + "] does not exist.");
+				return false;
+			}
+		}
+		else {
+			if (accumuloOperations.tableExists(altIdxTableName)) {
+				accumuloOperations.deleteTable(altIdxTableName);
+				LOGGER.warn("Deleting current alternate index table [" + altIdxTableName + "] as main table does not yet exist.");
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Set up the locality group and attached iterators that an adapter requires
+	 * within an index table
+	 */
+	protected void prepareIndexTable(
+			final WritableDataAdapter<?> writableAdapter,
+			final Index index,
+			final String indexName )
+			throws AccumuloException,
+			AccumuloSecurityException,
+			TableNotFoundException {
+		final byte[] adapterId = writableAdapter.getAdapterId().getBytes();
+		if (accumuloOptions.isUseLocalityGroups() && !accumuloOperations.localityGroupExists(
+				indexName,
+				adapterId)) {
+			accumuloOperations.addLocalityGroup(
+					indexName,
+					adapterId);
+		}
+		if (writableAdapter instanceof AttachedIteratorDataAdapter) {
+			if (!DataAdapterAndIndexCache.getInstance(
+					AttachedIteratorDataAdapter.ATTACHED_ITERATOR_CACHE_ID).add(
+					writableAdapter.getAdapterId(),
+					indexName)) {
+				accumuloOperations.attachIterators(
+						indexName,
+						accumuloOptions.isCreateTable(),
+						((AttachedIteratorDataAdapter) writableAdapter).getAttachedIteratorConfig(index));
+			}
+		}
+		prepareTierOccupancyStatistics(
+				writableAdapter.getAdapterId(),
+				index,
+				indexName);
+	}
+
+	/**
+	 * Record whether the tier occupancy statistics of the data adapter within
+	 * the index cover every row, once for each data adapter and index written
+	 * by this data store. If the statistics are maintained and do not exist
+	 * yet, they are complete only if the data adapter has no rows in the index.
+	 * If they are not maintained, any existing statistics are marked
+	 * incomplete, because the rows that are about to be written are not
+	 * counted.
+	 */
+	private void prepareTierOccupancyStatistics(
+			final ByteArrayId adapterId,
+			final Index index,
+			final String indexName ) {
+		final boolean maintained = accumuloOptions.isPersistDataStatistics() && accumuloOptions.isUseTierOccupancyStatistics();
+		if (preparedTierOccupancyStatistics.add(
+				adapterId,
+				indexName + (maintained ? "_MAINTAINED" : ""))) {
+			return;
+		}
+		final boolean exists = statisticsStore.getDataStatistics(
+				adapterId,
+				TierOccupancyDataStatistics.composeId(index.getId())) != null;
+		final TierOccupancyDataStatistics<?> marker;
+		if (maintained && !exists) {
+			marker = TierOccupancyDataStatistics.createCoverageMarker(
+					adapterId,
+					index,
+					!hasRows(
+							adapterId,
+							indexName));
+		}
+		else if (!maintained && exists) {
+			marker = TierOccupancyDataStatistics.createCoverageMarker(
+					adapterId,
+					index,
+					false);
+		}
+		else {
+			marker = null;
+		}
+		if (marker != null) {
+			statisticsStore.incorporateStatistics(marker);
+		}
+	}
+
+	/**
+	 * 
+	 * @return whether the index has any row of the data adapter that is visible
+	 *         to the user, or true if it cannot be determined
+	 */
+	private boolean hasRows(
+			final ByteArrayId adapterId,
+			final String indexName ) {
+		if (!(accumuloOperations instanceof BasicAccumuloOperations)) {
+			return true;
+		}
+		final Connector connector = ((BasicAccumuloOperations) accumuloOperations).getConnector();
+		try {
+			// rows written under any visibility of the user must be found
+			final List<String> authorizations = new ArrayList<String>();
+			for (final byte[] authorization : connector.securityOperations().getUserAuthorizations(
+					connector.whoami())) {
+				authorizations.add(StringUtils.stringFromBinary(authorization));
+			}
+			final Scanner scanner = accumuloOperations.createScanner(
+					indexName,
+					authorizations.toArray(new String[authorizations.size()]));
+			scanner.fetchColumnFamily(new Text(
+					adapterId.getBytes()));
+			return scanner.iterator().hasNext();
+		}
+		catch (final TableNotFoundException e) {
+			return false;
+		}
+		catch (final AccumuloException | AccumuloSecurityException e) {
+			LOGGER.warn(
+					"Unable to determine whether the index has rows of the data adapter",
+					e);
+			return true;
+		}
+	}
+
 	@Override
 	public <T> void ingest(
 			final WritableDataAdapter<T> dataWriter,
@@ -405,50 +586,19 @@ public class AccumuloDataStore implements
 			store(dataWriter);
 			store(index);
 
-			final String tableName = StringUtils.stringFromBinary(index.getId().getBytes());
-			final String altIdxTableName = tableName + AccumuloUtils.ALT_INDEX_TABLE;
-			final byte[] adapterId = dataWriter.getAdapterId().getBytes();
-
-			boolean useAltIndex = accumuloOptions.isUseAltIndex();
+			final String indexName = StringUtils.stringFromBinary(index.getId().getBytes());
+			final String altIdxTableName = indexName + AccumuloUtils.ALT_INDEX_TABLE;
 
-			if (useAltIndex) {
-				if (accumuloOperations.tableExists(tableName)) {
-					if (!accumuloOperations.tableExists(altIdxTableName)) {
-						useAltIndex = false;
-						LOGGER.warn("Requested alternate index table [" + altIdxTableName + "] does not exist.");
-					}
-				}
-				else {
-					if (accumuloOperations.tableExists(altIdxTableName)) {
-						accumuloOperations.deleteTable(altIdxTableName);
-						LOGGER.warn("Deleting current alternate index table [" + altIdxTableName + "] as main table does not yet exist.");
-					}
-				}
-			}
+			final boolean useAltIndex = isAltIndexUsable(indexName);
 
-			final String indexName = StringUtils.stringFromBinary(index.getId().getBytes());
 			final mil.nga.giat.geowave.datastore.accumulo.Writer writer = accumuloOperations.createWriter(
 					indexName,
 					accumuloOptions.isCreateTable());
 
-			if (accumuloOptions.isUseLocalityGroups() && !accumuloOperations.localityGroupExists(
-					tableName,
-					adapterId)) {
-				accumuloOperations.addLocalityGroup(
-						tableName,
-						adapterId);
-			}
-			if (dataWriter instanceof AttachedIteratorDataAdapter) {
-				if (!DataAdapterAndIndexCache.getInstance(
-						AttachedIteratorDataAdapter.ATTACHED_ITERATOR_CACHE_ID).add(
-						dataWriter.getAdapterId(),
-						indexName)) {
-					accumuloOperations.attachIterators(
-							indexName,
-							accumuloOptions.isCreateTable(),
-							((AttachedIteratorDataAdapter) dataWriter).getAttachedIteratorConfig(index));
-				}
-			}
+			prepareIndexTable(
+					dataWriter,
+					index,
+					indexName);
 			final List<IngestCallback<T>> callbacks = new ArrayList<IngestCallback<T>>();
 			Writer altIdxWriter = null;
 			if (useAltIndex) {
@@ -460,7 +610,9 @@ public class AccumuloDataStore implements
 						altIdxWriter,
 						dataWriter));
 			}
-			final StatsCompositionTool<T> statsCompositionTool = this.getStatsCompositionTool(dataWriter);
+			final StatsCompositionTool<T> statsCompositionTool = this.getStatsCompositionTool(
+					dataWriter,
+					index);
 			callbacks.add(statsCompositionTool);
 
 			if (ingestCallback != null) {
@@ -656,7 +808,9 @@ public class AccumuloDataStore implements
 				Integer.MAX_VALUE,
 				authorizations);
 
-		final StatsCompositionTool<Object> statsCompositionTool = getStatsCompositionTool(adapter);
+		final StatsCompositionTool<Object> statsCompositionTool = getStatsCompositionTool(
+				adapter,
+				index);
 		final boolean success = (rows.size() > 0) && deleteRowsForSingleEntry(
 				tableName,
 				rows,
@@ -1017,6 +1171,7 @@ public class AccumuloDataStore implements
 				new ArrayList<Object>().iterator());
 	}
 
+	@SuppressWarnings("unchecked")
 	private CloseableIterator<?> query(
 			final List<ByteArrayId> adapterIds,
 			final Query query,
@@ -1028,12 +1183,13 @@ public class AccumuloDataStore implements
 			final String... authorizations ) {
 		// query the indices that are supported for this query object, and these
 		// data adapter Ids
-		final List<CloseableIterator<?>> results = new ArrayList<CloseableIterator<?>>();
-		int indexCount = 0;
+		final List<AccumuloConstraintsQuery> accumuloQueries = new ArrayList<AccumuloConstraintsQuery>();
 		// all queries will use the same instance of the dedupe filter for
 		// client side filtering because the filter needs to be applied across
 		// indices
-		final MultiIndexDedupeFilter clientDedupeFilter = new MultiIndexDedupeFilter();
+		final long dedupeMaxMemoryBytes = (queryOptions != null) ? queryOptions.getDedupeMaxMemoryBytes() : 0;
+		final MultiIndexDedupeFilter clientDedupeFilter = new MultiIndexDedupeFilter(
+				dedupeMaxMemoryBytes);
 		while (indices.hasNext()) {
 			final Index index = indices.next();
 			final AccumuloConstraintsQuery accumuloQuery;
@@ -1063,17 +1219,46 @@ public class AccumuloDataStore implements
 				// results should contain subset of fieldIds
 				accumuloQuery.setFieldIds(queryOptions.getFieldIds());
 			}
-			results.add(accumuloQuery.query(
+			if (dedupeMaxMemoryBytes > 0) {
+				accumuloQuery.setDedupeMaxMemoryBytes(dedupeMaxMemoryBytes);
+			}
+			if ((query != null) && accumuloOptions.isUseTierOccupancyStatistics()) {
+				accumuloQuery.setOccupiedTierAndBinIds(getOccupiedTierAndBinIds(
+						adapterIds,
+						index,
+						adapterStore,
+						authorizations));
+			}
+			if ((query != null) && accumuloOptions.isUseRowRangeHistogramStatistics()) {
+				accumuloQuery.setRowCountEstimator(
+						getRowCountEstimator(
+								adapterIds,
+								index,
+								adapterStore,
+								authorizations),
+						accumuloOptions.getRangeSeekCostInRows());
+			}
+			accumuloQueries.add(accumuloQuery);
+		}
+		// if there aren't multiple indices, the client-side dedupe filter can
+		// just cache rows that are duplicated within the index and not
+		// everything; this must be set before any of the scans can start
+		clientDedupeFilter.setMultiIndexSupportEnabled(accumuloQueries.size() > 1);
+		final List<CloseableIterator<Object>> results = new ArrayList<CloseableIterator<Object>>();
+		for (final AccumuloConstraintsQuery accumuloQuery : accumuloQueries) {
+			results.add((CloseableIterator<Object>) accumuloQuery.query(
 					accumuloOperations,
 					adapterStore,
 					limit,
 					true));
-			indexCount++;
 		}
-		// if there aren't multiple indices, the client-side dedupe filter can
-		// just cache rows that are duplicated within the index and not
-		// everything
-		clientDedupeFilter.setMultiIndexSupportEnabled(indexCount > 1);
+		if (accumuloOptions.isUseParallelQuery() && (results.size() > 1)) {
+			// scan the indices concurrently and merge results as they arrive
+			return new ParallelCloseableIterator<Object>(
+					results,
+					accumuloOptions.getQueryThreads(),
+					accumuloOptions.getQueryQueueSize());
+		}
 		// concatenate iterators
 		return new CloseableIteratorWrapper<Object>(
 				new Closeable() {
@@ -1088,6 +1273,19 @@ public class AccumuloDataStore implements
 				Iterators.concat(results.iterator()));
 	}
 
+	protected synchronized ExecutorService getAsyncQueryExecutor() {
+		if (asyncQueryExecutor == null) {
+			asyncQueryExecutor = Executors.newFixedThreadPool(
+					Math.max(
+							1,
+							accumuloOptions.getAsyncQueryThreads()),
+					new ThreadFactoryBuilder().setDaemon(
+							true).setNameFormat(
+							"geowave-async-query-%d").build());
+		}
+		return asyncQueryExecutor;
+	}
+
 	@Override
 	public CloseableIterator<?> query(
 			final Query query ) {
@@ -1096,6 +1294,52 @@ public class AccumuloDataStore implements
 				query);
 	}
 
+	@Override
+	public <T> void queryAsync(
+			final DataAdapter<T> adapter,
+			final Index index,
+			final Query query,
+			final QuerySubscriber<T> subscriber,
+			final String... authorizations ) {
+		if ((query != null) && !query.isSupported(index)) {
+			throw new IllegalArgumentException(
+					"Index does not support the query");
+		}
+		new AsyncQuerySubscription<T>(
+				new Callable<CloseableIterator<T>>() {
+					@Override
+					public CloseableIterator<T> call() {
+						return query(
+								adapter,
+								index,
+								query,
+								null,
+								null,
+								authorizations);
+					}
+				},
+				subscriber,
+				getAsyncQueryExecutor(),
+				accumuloOptions.getAsyncQueryBatchSize()).start();
+	}
+
+	@Override
+	public void queryAsync(
+			final Query query,
+			final QuerySubscriber<Object> subscriber ) {
+		new AsyncQuerySubscription<Object>(
+				new Callable<CloseableIterator<Object>>() {
+					@SuppressWarnings("unchecked")
+					@Override
+					public CloseableIterator<Object> call() {
+						return (CloseableIterator<Object>) query(query);
+					}
+				},
+				subscriber,
+				getAsyncQueryExecutor(),
+				accumuloOptions.getAsyncQueryBatchSize()).start();
+	}
+
 	@Override
 	public <T> CloseableIterator<T> query(
 			final Index index,
@@ -1228,6 +1472,89 @@ public class AccumuloDataStore implements
 				authorizations);
 	}
 
+	/**
+	 * Aggregate the entries of a data adapter that match a query within the
+	 * tablet servers, rather than returning every entry to the client
+	 * 
+	 * @param adapter
+	 *            the data adapter of the entries to aggregate
+	 * @param index
+	 *            the index to query
+	 * @param query
+	 *            the query to aggregate the matching entries of, or null to
+	 *            aggregate every entry
+	 * @param aggregation
+	 *            the statistics to aggregate the entries into, which is not
+	 *            modified
+	 * @param authorizations
+	 *            the authorizations to scan with
+	 * @return a new statistics object with every matching entry aggregated
+	 */
+	@SuppressWarnings("unchecked")
+	public <T, S extends DataStatistics<T>> S aggregate(
+			final DataAdapter<T> adapter,
+			final Index index,
+			final Query query,
+			final S aggregation,
+			final String... authorizations ) {
+		if ((query != null) && !query.isSupported(index)) {
+			throw new IllegalArgumentException(
+					"Index does not support the query");
+		}
+		final List<ByteArrayId> adapterIds = Arrays.asList(new ByteArrayId[] {
+			adapter.getAdapterId()
+		});
+		final AccumuloConstraintsQuery accumuloQuery = new AccumuloConstraintsQuery(
+				adapterIds,
+				index,
+				(query == null) ? null : query.getIndexConstraints(index.getIndexStrategy()),
+				(query == null) ? null : query.createFilters(index.getIndexModel()),
+				null,
+				null,
+				authorizations);
+		if (query != null) {
+			if (accumuloOptions.isUseTierOccupancyStatistics()) {
+				accumuloQuery.setOccupiedTierAndBinIds(getOccupiedTierAndBinIds(
+						adapterIds,
+						index,
+						adapterStore,
+						authorizations));
+			}
+			if (accumuloOptions.isUseRowRangeHistogramStatistics()) {
+				accumuloQuery.setRowCountEstimator(
+						getRowCountEstimator(
+								adapterIds,
+								index,
+								adapterStore,
+								authorizations),
+						accumuloOptions.getRangeSeekCostInRows());
+			}
+		}
+		accumuloQuery.setAggregation(
+				adapter,
+				aggregation);
+		try (CloseableIterator<?> it = accumuloQuery.query(
+				accumuloOperations,
+				new MemoryAdapterStore(
+						new DataAdapter[] {
+							adapter
+						}),
+				null)) {
+			if (it.hasNext()) {
+				return (S) it.next();
+			}
+		}
+		catch (final IOException e) {
+			LOGGER.warn(
+					"Unable to close aggregation scanner",
+					e);
+		}
+		// the table does not exist, so there is nothing to aggregate
+		return (S) PersistenceUtils.fromBinary(
+				PersistenceUtils.toBinary(aggregation),
+				DataStatistics.class);
+	}
+
 	public <T> void deleteEntries(
 			final DataAdapter<T> adapter,
 			final Index index,
@@ -1257,11 +1584,139 @@ public class AccumuloDataStore implements
 				additionalAuthorizations);
 	}
 
-	private <T> StatsCompositionTool<T> getStatsCompositionTool(
-			final DataAdapter<T> adapter ) {
+	/**
+	 * Get the tiers and bins of the index that contain rows of any of the data
+	 * adapters, or of any data adapter if none are given
+	 * 
+	 * @return the tier ID followed by the bin ID of each tier and bin that
+	 *         contains rows, or null if any of the data adapters does not have
+	 *         complete tier occupancy statistics for the index
+	 */
+	protected Set<ByteArrayId> getOccupiedTierAndBinIds(
+			final List<ByteArrayId> adapterIds,
+			final Index index,
+			final AdapterStore adapterStore,
+			final String... authorizations ) {
+		final List<DataStatistics<?>> statistics = getIndexStatistics(
+				adapterIds,
+				TierOccupancyDataStatistics.composeId(index.getId()),
+				adapterStore,
+				authorizations);
+		if (statistics == null) {
+			return null;
+		}
+		final Set<ByteArrayId> occupiedTierAndBinIds = new HashSet<ByteArrayId>();
+		for (final DataStatistics<?> stats : statistics) {
+			if (!(stats instanceof TierOccupancyDataStatistics) || !((TierOccupancyDataStatistics<?>) stats).isComplete()) {
+				return null;
+			}
+			occupiedTierAndBinIds.addAll(((TierOccupancyDataStatistics<?>) stats).getOccupiedTierAndBinIds());
+		}
+		return occupiedTierAndBinIds;
+	}
+
+	/**
+	 * Get an estimator of the rows of any of the data adapters, or of any data
+	 * adapter if none are given, within ranges of row IDs of the index
+	 * 
+	 * @return the combined row range histograms of the data adapters, or null
+	 *         if the index does not use a tiered index strategy or any of the
+	 *         data adapters does not have row range histogram statistics for
+	 *         the index
+	 */
+	protected RowCountEstimator getRowCountEstimator(
+			final List<ByteArrayId> adapterIds,
+			final Index index,
+			final AdapterStore adapterStore,
+			final String... authorizations ) {
+		final List<DataStatistics<?>> statistics = getIndexStatistics(
+				adapterIds,
+				RowRangeHistogramStatistics.composeId(index.getId()),
+				adapterStore,
+				authorizations);
+		if (statistics == null) {
+			return null;
+		}
+		// merge into a new instance so that cached statistics are not modified
+		final RowRangeHistogramStatistics<?> estimator = RowRangeHistogramStatistics.create(
+				index.getId(),
+				index);
+		if (estimator == null) {
+			return null;
+		}
+		for (final DataStatistics<?> stats : statistics) {
+			if (!(stats instanceof RowRangeHistogramStatistics)) {
+				return null;
+			}
+			estimator.merge(stats);
+		}
+		return estimator;
+	}
+
+	/**
+	 * 
+	 * @return the statistics of each of the data adapters, or of every data
+	 *         adapter if none are given, or null if any of them is missing
+	 */
+	private List<DataStatistics<?>> getIndexStatistics(
+			final List<ByteArrayId> adapterIds,
+			final ByteArrayId statisticsId,
+			final AdapterStore adapterStore,
+			final String... authorizations ) {
+		final List<ByteArrayId> queriedAdapterIds = new ArrayList<ByteArrayId>();
+		if ((adapterIds != null) && !adapterIds.isEmpty()) {
+			queriedAdapterIds.addAll(adapterIds);
+		}
+		else {
+			try (CloseableIterator<DataAdapter<?>> adapters = adapterStore.getAdapters()) {
+				while (adapters.hasNext()) {
+					queriedAdapterIds.add(adapters.next().getAdapterId());
+				}
+			}
+			catch (final IOException e) {
+				LOGGER.warn(
+						"Unable to close adapter iterator",
+						e);
+			}
+		}
+		final List<DataStatistics<?>> statistics = new ArrayList<DataStatistics<?>>();
+		for (final ByteArrayId adapterId : queriedAdapterIds) {
+			final DataStatistics<?> stats = statisticsStore.getDataStatistics(
+					adapterId,
+					statisticsId,
+					authorizations);
+			if (stats == null) {
+				return null;
+			}
+			statistics.add(stats);
+		}
+		return statistics;
+	}
+
+	protected <T> StatsCompositionTool<T> getStatsCompositionTool(
+			final DataAdapter<T> adapter,
+			final Index index ) {
 		return new StatsCompositionTool<T>(
 				adapter,
-				accumuloOptions.isPersistDataStatistics() ? statisticsStore : null);
+				accumuloOptions.isPersistDataStatistics() ? statisticsStore : null,
+				index,
+				getIndexStatisticsTypes());
+	}
+
+	/**
+	 * 
+	 * @return the types of the statistics of each data adapter within an index
+	 *         that are maintained as entries are written and deleted
+	 */
+	protected List<String> getIndexStatisticsTypes() {
+		final List<String> statisticsTypes = new ArrayList<String>();
+		if (accumuloOptions.isUseTierOccupancyStatistics()) {
+			statisticsTypes.add(TierOccupancyDataStatistics.STATS_TYPE);
+		}
+		if (accumuloOptions.isUseRowRangeHistogramStatistics()) {
+			statisticsTypes.add(RowRangeHistogramStatistics.STATS_TYPE);
+		}
+		return statisticsTypes;
 	}
 
 	private <T> void synchronizeStatsWithStore(
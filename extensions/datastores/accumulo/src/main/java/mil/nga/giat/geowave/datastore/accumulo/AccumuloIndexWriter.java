@@ -17,6 +17,7 @@ import mil.nga.giat.geowave.core.store.adapter.statistics.DataStatistics;
 import mil.nga.giat.geowave.core.store.adapter.statistics.DataStatisticsBuilder;
 import mil.nga.giat.geowave.core.store.adapter.statistics.DataStatisticsStore;
 import mil.nga.giat.geowave.core.store.adapter.statistics.StatisticalDataAdapter;
+import mil.nga.giat.geowave.core.store.adapter.statistics.StatsCompositionTool;
 import mil.nga.giat.geowave.core.store.index.Index;
 import mil.nga.giat.geowave.datastore.accumulo.metadata.AccumuloDataStatisticsStore;
 import mil.nga.giat.geowave.datastore.accumulo.util.AccumuloUtils;
@@ -31,7 +32,7 @@ import org.apache.log4j.Logger;
  * This class can write many entries for a single index by retaining a single
  * open writer. The first entry that is written will open a writer and it is the
  * responsibility of the caller to close this writer when complete.
- *
+ * 
  */
 public class AccumuloIndexWriter implements
 		IndexWriter
@@ -50,6 +51,7 @@ public class AccumuloIndexWriter implements
 
 	protected boolean persistStats;
 	protected final Map<ByteArrayId, List<DataStatisticsBuilder>> statsMap = new HashMap<ByteArrayId, List<DataStatisticsBuilder>>();
+	protected final Map<ByteArrayId, List<? extends DataStatistics<?>>> indexStatsMap = new HashMap<ByteArrayId, List<? extends DataStatistics<?>>>();
 
 	public AccumuloIndexWriter(
 			final Index index,
@@ -196,6 +198,8 @@ public class AccumuloIndexWriter implements
 					e);
 		}
 		DataStoreEntryInfo entryInfo;
+		// the entry is encoded under the lock as well, because data adapters
+		// are not required to be thread safe
 		synchronized (this) {
 			dataStore.store(writableAdapter);
 			dataStore.store(index);
@@ -249,11 +253,44 @@ public class AccumuloIndexWriter implements
 								entry);
 					}
 				}
+				final List<DataStatistics<T>> indexStats = getIndexStatistics(adapterIdObj);
+				if (indexStats != null) {
+					for (final DataStatistics<T> s : indexStats) {
+						s.entryIngested(
+								entryInfo,
+								entry);
+					}
+				}
 			}
 		}
 		return entryInfo.getRowIds();
 	}
 
+	/**
+	 * 
+	 * @return the statistics of the data adapter within the index, or null if
+	 *         there are none
+	 */
+	private <T> List<DataStatistics<T>> getIndexStatistics(
+			final ByteArrayId adapterId ) {
+		// each data adapter only writes entries of a single type, so the
+		// statistics that were created for it are of that type
+		@SuppressWarnings("unchecked")
+		List<DataStatistics<T>> indexStats = (List<DataStatistics<T>>) indexStatsMap.get(adapterId);
+		if (indexStats == null) {
+			indexStats = StatsCompositionTool.createIndexStatistics(
+					adapterId,
+					index,
+					dataStore.getIndexStatisticsTypes());
+			if (indexStats != null) {
+				indexStatsMap.put(
+						adapterId,
+						indexStats);
+			}
+		}
+		return indexStats;
+	}
+
 	@Override
 	public void close() {
 		// thread safe close
@@ -273,6 +310,9 @@ public class AccumuloIndexWriter implements
 						}
 					}
 				}
+				for (final List<? extends DataStatistics<?>> indexStats : indexStatsMap.values()) {
+					accumulatedStats.addAll(indexStats);
+				}
 				if (!accumulatedStats.isEmpty()) {
 					final DataStatisticsStore statsStore = new AccumuloDataStatisticsStore(
 							accumuloOperations);
@@ -281,6 +321,7 @@ public class AccumuloIndexWriter implements
 					}
 				}
 				statsMap.clear();
+				indexStatsMap.clear();
 			}
 		}
 	}
@@ -342,6 +383,9 @@ public class AccumuloIndexWriter implements
 						}
 					}
 				}
+				for (final List<? extends DataStatistics<?>> indexStats : indexStatsMap.values()) {
+					accumulatedStats.addAll(indexStats);
+				}
 				if (!accumulatedStats.isEmpty()) {
 					final DataStatisticsStore statsStore = new AccumuloDataStatisticsStore(
 							accumuloOperations);
@@ -350,6 +394,7 @@ public class AccumuloIndexWriter implements
 					}
 				}
 				statsMap.clear();
+				indexStatsMap.clear();
 			}
 		}
 	}
@@ -0,0 +1,288 @@
+package mil.nga.giat.geowave.datastore.accumulo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.core.index.StringUtils;
+import mil.nga.giat.geowave.core.store.DataStoreEntryInfo;
+import mil.nga.giat.geowave.core.store.adapter.WritableDataAdapter;
+import mil.nga.giat.geowave.core.store.adapter.statistics.DataStatisticsStore;
+import mil.nga.giat.geowave.core.store.adapter.statistics.StatsCompositionTool;
+import mil.nga.giat.geowave.core.store.data.VisibilityWriter;
+import mil.nga.giat.geowave.core.store.index.Index;
+import mil.nga.giat.geowave.datastore.accumulo.util.AccumuloUtils;
+
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.log4j.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * This class backs the single entry ingest methods of the data store when the
+ * ingest session is enabled. Rather than opening and closing a writer and
+ * persisting statistics for every entry, the writers, alternate index writers
+ * and statistics for each adapter and index are retained and flushed together
+ * once the configured number of entries or amount of time has been reached.
+ * Entries that are still buffered once the amount of time has elapsed are
+ * flushed in the background, even if nothing else is ingested.
+ */
+public class AccumuloIngestSession
+{
+	private final static Logger LOGGER = Logger.getLogger(AccumuloIngestSession.class);
+
+	private final AccumuloDataStore dataStore;
+	private final AccumuloOperations accumuloOperations;
+	private final AccumuloOptions accumuloOptions;
+	private final DataStatisticsStore statisticsStore;
+	private final Map<SessionKey, SessionWriter<?>> writers = new HashMap<SessionKey, SessionWriter<?>>();
+	private int entriesSinceFlush = 0;
+	private long lastFlushTime = System.currentTimeMillis();
+	private ScheduledExecutorService flushExecutor;
+	private ScheduledFuture<?> scheduledFlush;
+
+	protected AccumuloIngestSession(
+			final AccumuloDataStore dataStore,
+			final AccumuloOperations accumuloOperations,
+			final AccumuloOptions accumuloOptions,
+			final DataStatisticsStore statisticsStore ) {
+		this.dataStore = dataStore;
+		this.accumuloOperations = accumuloOperations;
+		this.accumuloOptions = accumuloOptions;
+		this.statisticsStore = statisticsStore;
+	}
+
+	public synchronized <T> List<ByteArrayId> ingest(
+			final WritableDataAdapter<T> writableAdapter,
+			final Index index,
+			final T entry,
+			final VisibilityWriter<T> customFieldVisibilityWriter ) {
+		final SessionWriter<T> sessionWriter;
+		try {
+			sessionWriter = getSessionWriter(
+					writableAdapter,
+					index);
+		}
+		catch (final TableNotFoundException | AccumuloException | AccumuloSecurityException e) {
+			LOGGER.error(
+					"Unable to ingest data entry",
+					e);
+			return new ArrayList<ByteArrayId>();
+		}
+		final DataStoreEntryInfo entryInfo = AccumuloUtils.write(
+				writableAdapter,
+				index,
+				entry,
+				sessionWriter.writer,
+				customFieldVisibilityWriter);
+		if (sessionWriter.altIdxWriter != null) {
+			AccumuloUtils.writeAltIndex(
+					writableAdapter,
+					entryInfo,
+					entry,
+					sessionWriter.altIdxWriter);
+		}
+		sessionWriter.statisticsTool.entryIngested(
+				entryInfo,
+				entry);
+
+		entriesSinceFlush++;
+		if ((entriesSinceFlush >= accumuloOptions.getIngestSessionMaxEntries()) || ((System.currentTimeMillis() - lastFlushTime) >= accumuloOptions.getIngestSessionMaxLatencyMillis())) {
+			flush();
+		}
+		else if (scheduledFlush == null) {
+			scheduleFlush();
+		}
+		return entryInfo.getRowIds();
+	}
+
+	/**
+	 * Flush the entries buffered from now on once the maximum latency has
+	 * elapsed, unless they have been flushed by then
+	 */
+	private void scheduleFlush() {
+		if (flushExecutor == null) {
+			flushExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(
+					true).setNameFormat(
+					"geowave-ingest-session-flush-%d").build());
+		}
+		scheduledFlush = flushExecutor.schedule(
+				new Runnable() {
+					@Override
+					public void run() {
+						synchronized (AccumuloIngestSession.this) {
+							scheduledFlush = null;
+							if (entriesSinceFlush > 0) {
+								try {
+									flush();
+								}
+								catch (final RuntimeException e) {
+									LOGGER.error(
+											"Unable to flush ingest session",
+											e);
+								}
+							}
+						}
+					}
+				},
+				accumuloOptions.getIngestSessionMaxLatencyMillis(),
+				TimeUnit.MILLISECONDS);
+	}
+
+	private void cancelScheduledFlush() {
+		if (scheduledFlush != null) {
+			scheduledFlush.cancel(false);
+			scheduledFlush = null;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> SessionWriter<T> getSessionWriter(
+			final WritableDataAdapter<T> writableAdapter,
+			final Index index )
+			throws TableNotFoundException,
+			AccumuloException,
+			AccumuloSecurityException {
+		final SessionKey key = new SessionKey(
+				writableAdapter.getAdapterId(),
+				index.getId());
+		SessionWriter<T> sessionWriter = (SessionWriter<T>) writers.get(key);
+		if (sessionWriter == null) {
+			final String indexName = StringUtils.stringFromBinary(index.getId().getBytes());
+			final boolean useAltIndex = dataStore.isAltIndexUsable(indexName);
+
+			final Writer writer = accumuloOperations.createWriter(
+					indexName,
+					accumuloOptions.isCreateTable());
+			dataStore.prepareIndexTable(
+					writableAdapter,
+					index,
+					indexName);
+			final Writer altIdxWriter = useAltIndex ? accumuloOperations.createWriter(
+					indexName + AccumuloUtils.ALT_INDEX_TABLE,
+					accumuloOptions.isCreateTable()) : null;
+
+			sessionWriter = new SessionWriter<T>(
+					writer,
+					altIdxWriter,
+					new StatsCompositionTool<T>(
+							writableAdapter,
+							statisticsStore,
+							index,
+							dataStore.getIndexStatisticsTypes()));
+			writers.put(
+					key,
+					sessionWriter);
+		}
+		return sessionWriter;
+	}
+
+	/**
+	 * Write all buffered mutations and persist the statistics accumulated since
+	 * the last flush
+	 */
+	public synchronized void flush() {
+		for (final SessionWriter<?> sessionWriter : writers.values()) {
+			sessionWriter.writer.flush();
+			if (sessionWriter.altIdxWriter != null) {
+				sessionWriter.altIdxWriter.flush();
+			}
+			sessionWriter.statisticsTool.flush();
+		}
+		entriesSinceFlush = 0;
+		lastFlushTime = System.currentTimeMillis();
+		cancelScheduledFlush();
+	}
+
+	/**
+	 * Flush and close all of the retained writers, and stop flushing in the
+	 * background
+	 */
+	public synchronized void close() {
+		cancelScheduledFlush();
+		if (flushExecutor != null) {
+			flushExecutor.shutdownNow();
+			flushExecutor = null;
+		}
+		for (final SessionWriter<?> sessionWriter : writers.values()) {
+			sessionWriter.writer.close();
+			if (sessionWriter.altIdxWriter != null) {
+				sessionWriter.altIdxWriter.close();
+			}
+			sessionWriter.statisticsTool.flush();
+		}
+		writers.clear();
+		entriesSinceFlush = 0;
+		lastFlushTime = System.currentTimeMillis();
+	}
+
+	private static class SessionWriter<T>
+	{
+		private final Writer writer;
+		private final Writer altIdxWriter;
+		private final StatsCompositionTool<T> statisticsTool;
+
+		private SessionWriter(
+				final Writer writer,
+				final Writer altIdxWriter,
+				final StatsCompositionTool<T> statisticsTool ) {
+			this.writer = writer;
+			this.altIdxWriter = altIdxWriter;
+			this.statisticsTool = statisticsTool;
+		}
+	}
+
+	private static class SessionKey
+	{
+		private final ByteArrayId adapterId;
+		private final ByteArrayId indexId;
+
+		private SessionKey(
+				final ByteArrayId adapterId,
+				final ByteArrayId indexId ) {
+			this.adapterId = adapterId;
+			this.indexId = indexId;
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = (prime * result) + ((adapterId == null) ? 0 : adapterId.hashCode());
+			result = (prime * result) + ((indexId == null) ? 0 : indexId.hashCode());
+			return result;
+		}
+
+		@Override
+		public boolean equals(
+				final Object obj ) {
+			if (this == obj) {
+				return true;
+			}
+			if ((obj == null) || (getClass() != obj.getClass())) {
+				return false;
+			}
+			final SessionKey other = (SessionKey) obj;
+			if (adapterId == null) {
+				if (other.adapterId != null) {
+					return false;
+				}
+			}
+			else if (!adapterId.equals(other.adapterId)) {
+				return false;
+			}
+			if (indexId == null) {
+				return other.indexId == null;
+			}
+			return indexId.equals(other.indexId);
+		}
+	}
+}
@@ -12,6 +12,17 @@ public class AccumuloOptions
 	protected boolean createTable = true;
 	protected boolean useLocalityGroups = true;
 	protected boolean useAltIndex = true;
+	protected boolean useParallelQuery = false;
+	protected int queryThreads = 4;
+	protected int queryQueueSize = 1000;
+	protected int asyncQueryThreads = 4;
+	protected int asyncQueryBatchSize = 100;
+	protected boolean useIngestSession = false;
+	protected int ingestSessionMaxEntries = 1000;
+	protected long ingestSessionMaxLatencyMillis = 1000;
+	protected boolean useTierOccupancyStatistics = false;
+	protected boolean useRowRangeHistogramStatistics = false;
+	protected double rangeSeekCostInRows = 50;
 
 	public boolean isPersistDataStatistics() {
 		return persistDataStatistics;
@@ -66,4 +77,156 @@ public class AccumuloOptions
 			final boolean useAltIndex ) {
 		this.useAltIndex = useAltIndex;
 	}
+
+	public boolean isUseParallelQuery() {
+		return useParallelQuery;
+	}
+
+	/**
+	 * When enabled, a query that spans multiple indices will scan each index
+	 * concurrently and merge the results as they arrive rather than scanning
+	 * each index one after another.
+	 */
+	public void setUseParallelQuery(
+			final boolean useParallelQuery ) {
+		this.useParallelQuery = useParallelQuery;
+	}
+
+	public int getQueryThreads() {
+		return queryThreads;
+	}
+
+	/**
+	 * The maximum number of indices that a single parallel query scans at the
+	 * same time. Each query has its own threads, which are released once the
+	 * query is read to the end or closed.
+	 */
+	public void setQueryThreads(
+			final int queryThreads ) {
+		this.queryThreads = queryThreads;
+	}
+
+	public int getQueryQueueSize() {
+		return queryQueueSize;
+	}
+
+	public void setQueryQueueSize(
+			final int queryQueueSize ) {
+		this.queryQueueSize = queryQueueSize;
+	}
+
+	public int getAsyncQueryThreads() {
+		return asyncQueryThreads;
+	}
+
+	/**
+	 * The number of threads shared by every asynchronous query of the data
+	 * store to read and deliver results
+	 */
+	public void setAsyncQueryThreads(
+			final int asyncQueryThreads ) {
+		this.asyncQueryThreads = asyncQueryThreads;
+	}
+
+	public int getAsyncQueryBatchSize() {
+		return asyncQueryBatchSize;
+	}
+
+	/**
+	 * The maximum number of entries that an asynchronous query delivers at a
+	 * time, after which its thread is given to the next query that has results
+	 * requested
+	 */
+	public void setAsyncQueryBatchSize(
+			final int asyncQueryBatchSize ) {
+		this.asyncQueryBatchSize = asyncQueryBatchSize;
+	}
+
+	public boolean isUseIngestSession() {
+		return useIngestSession;
+	}
+
+	/**
+	 * When enabled, single entry ingest will retain its writers and statistics
+	 * between calls and only flush them once the maximum number of entries or
+	 * the maximum latency has been reached, or when the data store's ingest
+	 * session is explicitly flushed or closed.
+	 */
+	public void setUseIngestSession(
+			final boolean useIngestSession ) {
+		this.useIngestSession = useIngestSession;
+	}
+
+	public int getIngestSessionMaxEntries() {
+		return ingestSessionMaxEntries;
+	}
+
+	public void setIngestSessionMaxEntries(
+			final int ingestSessionMaxEntries ) {
+		this.ingestSessionMaxEntries = ingestSessionMaxEntries;
+	}
+
+	public long getIngestSessionMaxLatencyMillis() {
+		return ingestSessionMaxLatencyMillis;
+	}
+
+	public void setIngestSessionMaxLatencyMillis(
+			final long ingestSessionMaxLatencyMillis ) {
+		this.ingestSessionMaxLatencyMillis = ingestSessionMaxLatencyMillis;
+	}
+
+	public boolean isUseTierOccupancyStatistics() {
+		return useTierOccupancyStatistics;
+	}
+
+	/**
+	 * When enabled, constraint queries against an index with a tiered index
+	 * strategy will only query the tiers and bins that the persisted tier
+	 * occupancy statistics of the queried data adapters record as containing
+	 * rows, and will split the maximum range decomposition among them. This is
+	 * only correct if every row of those data adapters has been written through
+	 * this data store or its index writers with data statistics persisted, as
+	 * rows written in any other way (such as bulk ingest) are not counted. If
+	 * any of the data adapters has no tier occupancy statistics for the index,
+	 * every tier and bin is queried.
+	 */
+	public void setUseTierOccupancyStatistics(
+			final boolean useTierOccupancyStatistics ) {
+		this.useTierOccupancyStatistics = useTierOccupancyStatistics;
+	}
+
+	public boolean isUseRowRangeHistogramStatistics() {
+		return useRowRangeHistogramStatistics;
+	}
+
+	/**
+	 * When enabled, constraint queries against an index with a tiered index
+	 * strategy will split the maximum range decomposition among the tiers and
+	 * bins in proportion to the rows that the persisted row range histogram
+	 * statistics of the queried data adapters estimate to be within the query,
+	 * and will merge adjacent ranges that are separated by fewer rows than the
+	 * range seek cost. The statistics are only maintained while this is
+	 * enabled. Rows written without them are still queried, but the ranges will
+	 * not be decomposed to suit them. If any of the data adapters has no row
+	 * range histogram statistics for the index, the query is decomposed
+	 * uniformly. This takes precedence over tier occupancy statistics.
+	 */
+	public void setUseRowRangeHistogramStatistics(
+			final boolean useRowRangeHistogramStatistics ) {
+		this.useRowRangeHistogramStatistics = useRowRangeHistogramStatistics;
+	}
+
+	public double getRangeSeekCostInRows() {
+		return rangeSeekCostInRows;
+	}
+
+	/**
+	 * The number of rows that can be scanned in about the time it takes to seek
+	 * to another range, used to decide whether ranges should be merged when
+	 * decomposing queries with row range histogram statistics.
+	 */
+	public void setRangeSeekCostInRows(
+			final double rangeSeekCostInRows ) {
+		this.rangeSeekCostInRows = rangeSeekCostInRows;
+	}
 }
@@ -0,0 +1,43 @@
+package mil.nga.giat.geowave.datastore.accumulo;
+
+import java.util.Set;
+
+import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.core.store.adapter.DataAdapter;
+import mil.nga.giat.geowave.core.store.data.field.FieldReader;
+
+/**
+ * This is implemented by data adapters that can persist several of their fields
+ * together as a single field, so that a query for a subset of the fields
+ * fetches the persisted field and reads only the fields that were requested
+ * from it.
+ * 
+ * @param <T>
+ *            The type for the entries handled by this adapter
+ */
+public interface FieldSubsettingDataAdapter<T> extends
+		DataAdapter<T>
+{
+	/**
+	 * 
+	 * @param fieldId
+	 *            the ID of a field of the adapter
+	 * @return the IDs of the persisted fields that may contain the field, which
+	 *         include the field ID itself if it may be persisted on its own
+	 */
+	public ByteArrayId[] getPersistedFieldIds(
+			ByteArrayId fieldId );
+
+	/**
+	 * 
+	 * @param persistedFieldId
+	 *            the ID of a persisted field
+	 * @param fieldIds
+	 *            the IDs of the fields that are requested
+	 * @return a reader for the persisted field that skips any field that was
+	 *         not requested
+	 */
+	public FieldReader<Object> getReader(
+			ByteArrayId persistedFieldId,
+			Set<ByteArrayId> fieldIds );
+}
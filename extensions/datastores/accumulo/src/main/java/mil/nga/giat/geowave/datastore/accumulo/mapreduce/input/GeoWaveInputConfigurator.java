@@ -32,6 +32,7 @@ public class GeoWaveInputConfigurator extends
 		AUTHORIZATION,
 		MIN_SPLITS,
 		MAX_SPLITS,
+		TARGET_ROWS_PER_SPLIT,
 		OUTPUT_WRITABLE // used to inform the input format to output a Writable
 						// from the HadoopDataAdapter
 	}
@@ -88,6 +89,15 @@ public class GeoWaveInputConfigurator extends
 				InputConfig.MAX_SPLITS);
 	}
 
+	private static Integer getTargetRowsPerSplitInternal(
+			final Class<?> implementingClass,
+			final Configuration configuration ) {
+		return getIntegerConfigInternal(
+				implementingClass,
+				configuration,
+				InputConfig.TARGET_ROWS_PER_SPLIT);
+	}
+
 	private static Integer getIntegerConfigInternal(
 			final Class<?> implementingClass,
 			final Configuration configuration,
@@ -208,6 +218,32 @@ public class GeoWaveInputConfigurator extends
 		}
 	}
 
+	public static Integer getTargetRowsPerSplit(
+			final Class<?> implementingClass,
+			final JobContext context ) {
+		return getTargetRowsPerSplitInternal(
+				implementingClass,
+				getConfiguration(context));
+	}
+
+	public static void setTargetRowsPerSplit(
+			final Class<?> implementingClass,
+			final Configuration config,
+			final Integer targetRowsPerSplit ) {
+		if (targetRowsPerSplit != null) {
+			config.set(
+					enumToConfKey(
+							implementingClass,
+							InputConfig.TARGET_ROWS_PER_SPLIT),
+					targetRowsPerSplit.toString());
+		}
+		else {
+			config.unset(enumToConfKey(
+					implementingClass,
+					InputConfig.TARGET_ROWS_PER_SPLIT));
+		}
+	}
+
 	public static void addAuthorization(
 			final Class<?> implementingClass,
 			final Configuration config,
@@ -4,6 +4,8 @@ import java.io.IOException;
 import java.math.BigInteger;
 import java.net.InetAddress;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -17,9 +19,13 @@ import java.util.TreeSet;
 
 import mil.nga.giat.geowave.core.index.ByteArrayId;
 import mil.nga.giat.geowave.core.index.NumericIndexStrategy;
+import mil.nga.giat.geowave.core.index.RowCountEstimator;
 import mil.nga.giat.geowave.core.index.sfc.data.MultiDimensionalNumericData;
 import mil.nga.giat.geowave.core.store.adapter.AdapterStore;
 import mil.nga.giat.geowave.core.store.adapter.DataAdapter;
+import mil.nga.giat.geowave.core.store.adapter.statistics.DataStatistics;
+import mil.nga.giat.geowave.core.store.adapter.statistics.DataStatisticsStore;
+import mil.nga.giat.geowave.core.store.adapter.statistics.RowRangeHistogramStatistics;
 import mil.nga.giat.geowave.core.store.index.Index;
 import mil.nga.giat.geowave.core.store.query.DistributableQuery;
 import mil.nga.giat.geowave.core.store.query.QueryOptions;
@@ -29,6 +35,7 @@ import mil.nga.giat.geowave.datastore.accumulo.mapreduce.JobContextAdapterStore;
 import mil.nga.giat.geowave.datastore.accumulo.mapreduce.JobContextIndexStore;
 import mil.nga.giat.geowave.datastore.accumulo.mapreduce.input.GeoWaveInputConfigurator.InputConfig;
 import mil.nga.giat.geowave.datastore.accumulo.mapreduce.input.GeoWaveInputFormat.IntermediateSplitInfo.RangeLocationPair;
+import mil.nga.giat.geowave.datastore.accumulo.metadata.AccumuloDataStatisticsStore;
 import mil.nga.giat.geowave.datastore.accumulo.util.AccumuloUtils;
 
 import org.apache.accumulo.core.client.AccumuloException;
@@ -78,6 +85,7 @@ public class GeoWaveInputFormat<T> extends
 	private static final Class<?> CLASS = GeoWaveInputFormat.class;
 	protected static final Logger LOGGER = Logger.getLogger(CLASS);
 	private static final BigInteger TWO = BigInteger.valueOf(2L);
+	protected static final int MAX_TARGET_SPLIT_COUNT = 1000;
 
 	/**
 	 * Configures a {@link AccumuloOperations} for this job.
@@ -190,6 +198,21 @@ public class GeoWaveInputFormat<T> extends
 				maxSplits);
 	}
 
+	/**
+	 * Size the splits to contain about this many rows each, within the minimum
+	 * and maximum split counts, when the row range histogram statistics of
+	 * every queried data adapter are available. Unless the minimum or maximum
+	 * split count allows more, there are at most 1000 splits.
+	 */
+	public static void setTargetRowsPerSplit(
+			final Configuration config,
+			final Integer targetRowsPerSplit ) {
+		GeoWaveInputConfigurator.setTargetRowsPerSplit(
+				CLASS,
+				config,
+				targetRowsPerSplit);
+	}
+
 	public static void setIsOutputWritable(
 			final Configuration config,
 			final Boolean isOutputWritable ) {
@@ -369,6 +392,13 @@ public class GeoWaveInputFormat<T> extends
 				context);
 	}
 
+	protected static Integer getTargetRowsPerSplit(
+			final JobContext context ) {
+		return GeoWaveInputConfigurator.getTargetRowsPerSplit(
+				CLASS,
+				context);
+	}
+
 	protected static Instance getInstance(
 			final JobContext context ) {
 		return GeoWaveInputConfigurator.getInstance(
@@ -386,11 +416,29 @@ public class GeoWaveInputFormat<T> extends
 			InterruptedException {
 		LOGGER.setLevel(getLogLevel(context));
 		validateOptions(context);
-		final Integer minSplits = getMinimumSplitCount(context);
-		final Integer maxSplits = getMaximumSplitCount(context);
+		Integer minSplits = getMinimumSplitCount(context);
+		Integer maxSplits = getMaximumSplitCount(context);
+		final Integer targetRowsPerSplit = getTargetRowsPerSplit(context);
+		final boolean sizeByRows = (targetRowsPerSplit != null) && (targetRowsPerSplit > 0);
+		// the splits are only ordered by their estimated rows when they are
+		// sized by them, so that other jobs are split as they always have been
 		final TreeSet<IntermediateSplitInfo> splits = getIntermediateSplits(
 				context,
-				maxSplits);
+				maxSplits,
+				sizeByRows);
+		if (sizeByRows && hasRowEstimates(splits)) {
+			double totalEstimatedRows = 0;
+			for (final IntermediateSplitInfo split : splits) {
+				totalEstimatedRows += split.getTotalEstimatedRows();
+			}
+			final int targetSplits = getTargetSplitCount(
+					totalEstimatedRows,
+					targetRowsPerSplit,
+					minSplits,
+					maxSplits);
+			minSplits = targetSplits;
+			maxSplits = targetSplits;
+		}
 		// this is an incremental algorithm, it may be better use the target
 		// split count to drive it (ie. to get 3 splits this will split 1 large
 		// range into two down the middle and then split one of those ranges
@@ -411,14 +459,15 @@ public class GeoWaveInputFormat<T> extends
 		else if (((maxSplits != null) && (maxSplits > 0)) && (splits.size() > maxSplits)) {
 			// merge splits to fit within max splits
 			do {
-				// this is the naive approach, remove the lowest two ranges and
-				// merge them, decreasing the size by 1
-
-				// TODO Ideally merge takes into account locations (as well as
-				// possibly the index as a secondary criteria) to limit the
-				// number of locations/indices
+				// remove the lowest range and merge it with the next lowest
+				// range that shares one of its locations, decreasing the size
+				// by 1, so that splits remain local to as few tablet servers as
+				// possible
 				final IntermediateSplitInfo lowestSplit = splits.pollFirst();
-				final IntermediateSplitInfo nextLowestSplit = splits.pollFirst();
+				final IntermediateSplitInfo nextLowestSplit = pollMergeCandidate(
+						splits,
+						lowestSplit,
+						splits.size() - maxSplits + 1);
 				lowestSplit.merge(nextLowestSplit);
 				splits.add(lowestSplit);
 			}
@@ -432,13 +481,150 @@ public class GeoWaveInputFormat<T> extends
 		return retVal;
 	}
 
+	/**
+	 * 
+	 * @return the number of splits that would contain about the target number
+	 *         of rows each, within the minimum and maximum split counts, and no
+	 *         more than {@link #MAX_TARGET_SPLIT_COUNT} unless either count
+	 *         allows more
+	 */
+	protected static int getTargetSplitCount(
+			final double totalEstimatedRows,
+			final int targetRowsPerSplit,
+			final Integer minSplits,
+			final Integer maxSplits ) {
+		final boolean hasMaxSplits = (maxSplits != null) && (maxSplits > 0);
+		// the split count is bounded before it is narrowed to an int
+		int targetSplits = (int) Math.min(
+				Math.ceil(totalEstimatedRows / targetRowsPerSplit),
+				hasMaxSplits ? maxSplits : MAX_TARGET_SPLIT_COUNT);
+		if (minSplits != null) {
+			targetSplits = Math.max(
+					targetSplits,
+					minSplits);
+		}
+		if (hasMaxSplits) {
+			targetSplits = Math.min(
+					targetSplits,
+					maxSplits);
+		}
+		return Math.max(
+				1,
+				targetSplits);
+	}
+
+	/**
+	 * Remove the split to merge with the given split, which is the lowest split
+	 * that shares a location with it among the lowest splits that would be
+	 * merged anyway, or the lowest split if none of them do
+	 */
+	protected static IntermediateSplitInfo pollMergeCandidate(
+			final TreeSet<IntermediateSplitInfo> splits,
+			final IntermediateSplitInfo split,
+			final int maxCandidates ) {
+		final Set<String> locations = split.getLocations();
+		final Iterator<IntermediateSplitInfo> it = splits.iterator();
+		for (int i = 0; (i < maxCandidates) && it.hasNext(); i++) {
+			final IntermediateSplitInfo candidate = it.next();
+			for (final String location : candidate.getLocations()) {
+				if (locations.contains(location)) {
+					it.remove();
+					return candidate;
+				}
+			}
+		}
+		return splits.pollFirst();
+	}
+
+	private static boolean hasRowEstimates(
+			final Collection<IntermediateSplitInfo> splits ) {
+		for (final IntermediateSplitInfo split : splits) {
+			if (!split.hasRowEstimates()) {
+				return false;
+			}
+		}
+		return !splits.isEmpty();
+	}
+
+	/**
+	 * Combine the row range histogram statistics of the queried data adapters
+	 * for each index, so that splits can be sized by their estimated rows
+	 * rather than the extent of their ranges
+	 * 
+	 * @return the estimator for each index, or an empty map if the statistics
+	 *         of any data adapter within any of the indices are missing
+	 */
+	protected static Map<ByteArrayId, RowCountEstimator> getRowCountEstimators(
+			final JobContext context,
+			final Index[] indices,
+			final DistributableQuery query ) {
+		final Map<ByteArrayId, RowCountEstimator> estimators = new HashMap<ByteArrayId, RowCountEstimator>();
+		try {
+			final AccumuloOperations accumuloOperations = getAccumuloOperations(context);
+			final DataStatisticsStore statisticsStore = new AccumuloDataStatisticsStore(
+					accumuloOperations);
+			final List<ByteArrayId> adapterIds = getAdapterIds(
+					context,
+					getDataAdapterStore(
+							context,
+							accumuloOperations));
+			final String[] authorizations = getAuthorizations(context);
+			if (adapterIds.isEmpty()) {
+				return Collections.emptyMap();
+			}
+			for (final Index index : indices) {
+				if ((query != null) && !query.isSupported(index)) {
+					continue;
+				}
+				final RowRangeHistogramStatistics<?> estimator = RowRangeHistogramStatistics.create(
+						index.getId(),
+						index);
+				if (estimator == null) {
+					return Collections.emptyMap();
+				}
+				for (final ByteArrayId adapterId : adapterIds) {
+					final DataStatistics<?> stats = statisticsStore.getDataStatistics(
+							adapterId,
+							RowRangeHistogramStatistics.composeId(index.getId()),
+							authorizations);
+					if (!(stats instanceof RowRangeHistogramStatistics)) {
+						LOGGER.info("Row range histogram statistics are not available for adapter '" + adapterId.getString() + "' in index '" + index.getId().getString() + "', splits will be sized by the extent of their ranges");
+						return Collections.emptyMap();
+					}
+					estimator.merge(stats);
+				}
+				estimators.put(
+						index.getId(),
+						estimator);
+			}
+		}
+		catch (AccumuloException | AccumuloSecurityException e) {
+			LOGGER.warn(
+					"Unable to read row range histogram statistics, splits will be sized by the extent of their ranges",
+					e);
+			return Collections.emptyMap();
+		}
+		return estimators;
+	}
+
 	private TreeSet<IntermediateSplitInfo> getIntermediateSplits(
 			final JobContext context,
-			final Integer maxSplits )
+			final Integer maxSplits,
+			final boolean estimateRows )
 			throws IOException {
 		final Index[] indices = getIndices(context);
 		final DistributableQuery query = getQuery(context);
 		final String tableNamespace = getTableNamespace(context);
+		final Map<ByteArrayId, RowCountEstimator> rowCountEstimators;
+		if (estimateRows) {
+			rowCountEstimators = getRowCountEstimators(
+					context,
+					indices,
+					query);
+		}
+		else {
+			rowCountEstimators = Collections.emptyMap();
+		}
 
 		final TreeSet<IntermediateSplitInfo> splits = new TreeSet<IntermediateSplitInfo>();
 		for (final Index index : indices) {
@@ -542,7 +728,8 @@ public class GeoWaveInputFormat<T> extends
 					for (final Range range : extentRanges.getValue()) {
 						rangeList.add(new RangeLocationPair(
 								keyExtent.clip(range),
-								location));
+								location,
+								rowCountEstimators.get(index.getId())));
 					}
 					splitInfo.put(
 							index,
@@ -575,13 +762,45 @@ public class GeoWaveInputFormat<T> extends
 		{
 			private final Range range;
 			private final String location;
+			private final RowCountEstimator rowCountEstimator;
 			private final Map<Integer, BigInteger> rangePerCardinalityCache = new HashMap<Integer, BigInteger>();
+			private Double estimatedRows = null;
 
 			public RangeLocationPair(
 					final Range range,
 					final String location ) {
+				this(
+						range,
+						location,
+						null);
+			}
+
+			public RangeLocationPair(
+					final Range range,
+					final String location,
+					final RowCountEstimator rowCountEstimator ) {
 				this.location = location;
 				this.range = range;
+				this.rowCountEstimator = rowCountEstimator;
+			}
+
+			protected boolean hasRowEstimate() {
+				return rowCountEstimator != null;
+			}
+
+			protected double getEstimatedRows() {
+				if (estimatedRows == null) {
+					// an unbounded key is shorter than a tier and bin ID, for
+					// which every row is counted
+					final byte[] start = range.isInfiniteStartKey() ? new byte[] {} : range.getStartKey().getRowData().toArray();
+					final byte[] end = range.isInfiniteStopKey() ? new byte[] {} : range.getEndKey().getRowData().toArray();
+					estimatedRows = rowCountEstimator.getEstimatedRowCount(
+							new ByteArrayId(
+									start),
+							new ByteArrayId(
+									end));
+				}
+				return estimatedRows;
 			}
 
 			protected BigInteger getRangeAtCardinality(
@@ -608,6 +827,7 @@ public class GeoWaveInputFormat<T> extends
 
 		private final Map<Index, List<RangeLocationPair>> splitInfo;
 		private final Map<Integer, BigInteger> totalRangePerCardinalityCache = new HashMap<Integer, BigInteger>();
+		private Double totalEstimatedRows = null;
 
 		public IntermediateSplitInfo(
 				final Map<Index, List<RangeLocationPair>> splitInfo ) {
@@ -749,7 +969,8 @@ public class GeoWaveInputFormat<T> extends
 										new Text(
 												splitKey)),
 								false),
-						pairToSplit.rangeLocationPair.location));
+						pairToSplit.rangeLocationPair.location,
+						pairToSplit.rangeLocationPair.rowCountEstimator));
 				orderedSplits.add(new IndexRangeLocation(
 						new RangeLocationPair(
 								new Range(
@@ -759,7 +980,8 @@ public class GeoWaveInputFormat<T> extends
 										true,
 										pairToSplit.rangeLocationPair.range.getEndKey(),
 										pairToSplit.rangeLocationPair.range.isEndKeyInclusive()),
-								pairToSplit.rangeLocationPair.location),
+								pairToSplit.rangeLocationPair.location,
+								pairToSplit.rangeLocationPair.rowCountEstimator),
 						pairToSplit.index));
 			}
 			else if (orderedSplits.size() > 1) {
@@ -823,7 +1045,8 @@ public class GeoWaveInputFormat<T> extends
 													new Text(
 															splitKey)),
 											false),
-									p.location));
+									p.location,
+									p.rowCountEstimator));
 							otherRangeList.add(new RangeLocationPair(
 									new Range(
 											new Key(
@@ -832,7 +1055,8 @@ public class GeoWaveInputFormat<T> extends
 											true,
 											p.range.getEndKey(),
 											p.range.isEndKeyInclusive()),
-									p.location));
+									p.location,
+									p.rowCountEstimator));
 							otherSplitInfo.put(
 									e.getKey(),
 									otherRangeList);
@@ -877,6 +1101,40 @@ public class GeoWaveInputFormat<T> extends
 					locations.toArray(new String[locations.size()]));
 		}
 
+		protected synchronized Set<String> getLocations() {
+			final Set<String> locations = new HashSet<String>();
+			for (final List<RangeLocationPair> pList : splitInfo.values()) {
+				for (final RangeLocationPair p : pList) {
+					locations.add(p.location);
+				}
+			}
+			return locations;
+		}
+
+		private synchronized boolean hasRowEstimates() {
+			for (final List<RangeLocationPair> pList : splitInfo.values()) {
+				for (final RangeLocationPair p : pList) {
+					if (!p.hasRowEstimate()) {
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+
+		private synchronized double getTotalEstimatedRows() {
+			if (totalEstimatedRows == null) {
+				double sum = 0;
+				for (final List<RangeLocationPair> pList : splitInfo.values()) {
+					for (final RangeLocationPair p : pList) {
+						sum += p.getEstimatedRows();
+					}
+				}
+				totalEstimatedRows = sum;
+			}
+			return totalEstimatedRows;
+		}
+
 		private synchronized int getMaxCardinality() {
 			int maxCardinality = 1;
 			for (final List<RangeLocationPair> pList : splitInfo.values()) {
@@ -892,6 +1150,17 @@ public class GeoWaveInputFormat<T> extends
 		@Override
 		public int compareTo(
 				final IntermediateSplitInfo o ) {
+			// the estimates are only available when the splits are sized by
+			// them, and then for every split or none of them, and are
+			// preferred because they reflect where the data is
+			if (hasRowEstimates() && o.hasRowEstimates()) {
+				final int retVal = Double.compare(
+						getTotalEstimatedRows(),
+						o.getTotalEstimatedRows());
+				if (retVal != 0) {
+					return retVal;
+				}
+			}
 			final int maxCardinality = Math.max(
 					getMaxCardinality(),
 					o.getMaxCardinality());
@@ -963,6 +1232,7 @@ public class GeoWaveInputFormat<T> extends
 
 		private synchronized void clearCache() {
 			totalRangePerCardinalityCache.clear();
+			totalEstimatedRows = null;
 		}
 	}
 
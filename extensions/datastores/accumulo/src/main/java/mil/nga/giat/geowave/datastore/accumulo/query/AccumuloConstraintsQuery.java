@@ -1,26 +1,44 @@
 package mil.nga.giat.geowave.datastore.accumulo.query;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
 
 import mil.nga.giat.geowave.core.index.ByteArrayId;
 import mil.nga.giat.geowave.core.index.ByteArrayRange;
 import mil.nga.giat.geowave.core.index.ByteArrayUtils;
 import mil.nga.giat.geowave.core.index.PersistenceUtils;
+import mil.nga.giat.geowave.core.index.RowCountEstimator;
 import mil.nga.giat.geowave.core.index.sfc.data.MultiDimensionalNumericData;
+import mil.nga.giat.geowave.core.index.sfc.tiered.TieredSFCIndexStrategy;
+import mil.nga.giat.geowave.core.store.CloseableIterator;
+import mil.nga.giat.geowave.core.store.DataStoreEntryInfo;
 import mil.nga.giat.geowave.core.store.ScanCallback;
+import mil.nga.giat.geowave.core.store.adapter.AdapterStore;
+import mil.nga.giat.geowave.core.store.adapter.DataAdapter;
+import mil.nga.giat.geowave.core.store.adapter.statistics.DataStatistics;
 import mil.nga.giat.geowave.core.store.filter.DedupeFilter;
 import mil.nga.giat.geowave.core.store.filter.DistributableFilterList;
 import mil.nga.giat.geowave.core.store.filter.DistributableQueryFilter;
+import mil.nga.giat.geowave.core.store.filter.FilterList;
 import mil.nga.giat.geowave.core.store.filter.QueryFilter;
 import mil.nga.giat.geowave.core.store.index.Index;
 import mil.nga.giat.geowave.core.store.query.Query;
+import mil.nga.giat.geowave.datastore.accumulo.AccumuloOperations;
+import mil.nga.giat.geowave.datastore.accumulo.AccumuloRowId;
 import mil.nga.giat.geowave.datastore.accumulo.util.AccumuloUtils;
+import mil.nga.giat.geowave.datastore.accumulo.util.FieldReaderCache;
 
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.client.ScannerBase;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.user.WholeRowIterator;
 
+import com.google.common.collect.Iterators;
+
 /**
  * This class represents basic numeric contraints applied to an Accumulo Query
  * 
@@ -32,6 +50,12 @@ public class AccumuloConstraintsQuery extends
 	protected final MultiDimensionalNumericData constraints;
 	protected final List<DistributableQueryFilter> distributableFilters;
 	protected boolean queryFiltersEnabled;
+	protected Set<ByteArrayId> occupiedTierAndBinIds;
+	protected RowCountEstimator rowCountEstimator;
+	protected double seekCostInRows;
+	protected DataAdapter<?> aggregationAdapter;
+	protected DataStatistics<?> aggregation;
+	private List<ByteArrayRange> ranges;
 
 	public AccumuloConstraintsQuery(
 			final Index index,
@@ -187,12 +211,212 @@ public class AccumuloConstraintsQuery extends
 		}
 	}
 
+	@Override
+	public CloseableIterator<?> query(
+			final AccumuloOperations accumuloOperations,
+			final AdapterStore adapterStore,
+			final Integer limit,
+			final boolean withKeys ) {
+		if (isPruned() && getRanges().isEmpty()) {
+			// none of the tiers and bins intersecting the constraints contain
+			// any rows, while no ranges at all would imply a full table scan
+			if (aggregation != null) {
+				return new CloseableIterator.Wrapper(
+						Iterators.singletonIterator(copyAggregation()));
+			}
+			return new CloseableIterator.Empty();
+		}
+		return super.query(
+				accumuloOperations,
+				adapterStore,
+				limit,
+				withKeys);
+	}
+
+	@Override
+	protected Iterator initIterator(
+			final AdapterStore adapterStore,
+			final ScannerBase scanner ) {
+		if (aggregation == null) {
+			return super.initIterator(
+					adapterStore,
+					scanner);
+		}
+		// if any filters must be applied by the client, every row has to be
+		// returned to be aggregated by the client
+		if (clientFilters.size() == 1) {
+			final IteratorSetting iteratorSettings = new IteratorSetting(
+					AggregationIterator.AGGREGATION_ITERATOR_PRIORITY,
+					AggregationIterator.AGGREGATION_ITERATOR_NAME,
+					AggregationIterator.class);
+			iteratorSettings.addOption(
+					AggregationIterator.AGGREGATION,
+					ByteArrayUtils.byteArrayToString(PersistenceUtils.toBinary(aggregation)));
+			iteratorSettings.addOption(
+					AggregationIterator.ADAPTER,
+					ByteArrayUtils.byteArrayToString(PersistenceUtils.toBinary(aggregationAdapter)));
+			iteratorSettings.addOption(
+					AggregationIterator.INDEX,
+					ByteArrayUtils.byteArrayToString(PersistenceUtils.toBinary(index)));
+			scanner.addScanIterator(iteratorSettings);
+		}
+		return Iterators.singletonIterator(aggregate(scanner.iterator()));
+	}
+
+	/**
+	 * Merge the aggregates returned by the tablet servers and aggregate any
+	 * other rows after they pass the client filters
+	 */
+	@SuppressWarnings({
+		"rawtypes",
+		"unchecked"
+	})
+	private DataStatistics<?> aggregate(
+			final Iterator<Entry<Key, Value>> scannerIt ) {
+		final DataStatistics result = copyAggregation();
+		final QueryFilter clientFilter = new FilterList<QueryFilter>(
+				clientFilters);
+		final FieldReaderCache readerCache = createReaderCache();
+		final ScanCallback<Object> aggregationCallback = new ScanCallback<Object>() {
+			@Override
+			public void entryScanned(
+					final DataStoreEntryInfo entryInfo,
+					final Object entry ) {
+				result.entryIngested(
+						entryInfo,
+						entry);
+				if (scanCallback != null) {
+					((ScanCallback<Object>) scanCallback).entryScanned(
+							entryInfo,
+							entry);
+				}
+			}
+		};
+		while (scannerIt.hasNext()) {
+			final Entry<Key, Value> row = scannerIt.next();
+			if (AggregationIterator.AGGREGATION_COLUMN_FAMILY.equals(row.getKey().getColumnFamily())) {
+				result.merge(PersistenceUtils.fromBinary(
+						row.getValue().get(),
+						DataStatistics.class));
+			}
+			else {
+				AccumuloUtils.decodeRow(
+						row.getKey(),
+						row.getValue(),
+						new AccumuloRowId(
+								row.getKey().getRow().copyBytes()),
+						(DataAdapter) aggregationAdapter,
+						null,
+						clientFilter,
+						index,
+						aggregationCallback,
+						readerCache);
+			}
+		}
+		return result;
+	}
+
+	private DataStatistics<?> copyAggregation() {
+		return PersistenceUtils.fromBinary(
+				PersistenceUtils.toBinary(aggregation),
+				DataStatistics.class);
+	}
+
 	@Override
 	protected List<ByteArrayRange> getRanges() {
-		return AccumuloUtils.constraintsToByteArrayRanges(
-				constraints,
-				index.getIndexStrategy(),
-				MAX_RANGE_DECOMPOSITION);
+		if (ranges == null) {
+			if (isPruned() && (rowCountEstimator != null)) {
+				ranges = ((TieredSFCIndexStrategy) index.getIndexStrategy()).getQueryRanges(
+						constraints,
+						MAX_RANGE_DECOMPOSITION,
+						rowCountEstimator,
+						seekCostInRows);
+			}
+			else if (isPruned()) {
+				ranges = ((TieredSFCIndexStrategy) index.getIndexStrategy()).getQueryRanges(
+						constraints,
+						MAX_RANGE_DECOMPOSITION,
+						occupiedTierAndBinIds);
+			}
+			else {
+				ranges = AccumuloUtils.constraintsToByteArrayRanges(
+						constraints,
+						index.getIndexStrategy(),
+						MAX_RANGE_DECOMPOSITION);
+			}
+		}
+		return ranges;
+	}
+
+	private boolean isPruned() {
+		return ((occupiedTierAndBinIds != null) || (rowCountEstimator != null)) && (constraints != null) && !constraints.isEmpty() && (index.getIndexStrategy() instanceof TieredSFCIndexStrategy);
+	}
+
+	/**
+	 * Only query the tiers and bins of a tiered index strategy that are known
+	 * to contain rows, given as the tier ID followed by the bin ID
+	 * 
+	 * @param occupiedTierAndBinIds
+	 *            the tiers and bins that contain rows, or null to query every
+	 *            tier and bin
+	 */
+	public void setOccupiedTierAndBinIds(
+			final Set<ByteArrayId> occupiedTierAndBinIds ) {
+		this.occupiedTierAndBinIds = occupiedTierAndBinIds;
+		ranges = null;
+	}
+
+	/**
+	 * Decompose the constraints of a tiered index strategy according to the
+	 * estimated distribution of rows, which takes precedence over the occupied
+	 * tiers and bins
+	 * 
+	 * @param rowCountEstimator
+	 *            estimates the rows within ranges of row IDs, or null to
+	 *            decompose the constraints uniformly
+	 * @param seekCostInRows
+	 *            the number of rows that can be scanned in the time it takes to
+	 *            seek to another range
+	 */
+	public void setRowCountEstimator(
+			final RowCountEstimator rowCountEstimator,
+			final double seekCostInRows ) {
+		this.rowCountEstimator = rowCountEstimator;
+		this.seekCostInRows = seekCostInRows;
+		ranges = null;
+	}
+
+	/**
+	 * Aggregate the entries of a data adapter that match this query rather than
+	 * returning them, so that the query returns a single statistics object. The
+	 * entries are aggregated within the tablet servers unless a filter can only
+	 * be applied by the client.
+	 * 
+	 * @param adapter
+	 *            the data adapter of the entries to aggregate, entries of any
+	 *            other adapter are ignored
+	 * @param aggregation
+	 *            the statistics to aggregate the entries into, which is not
+	 *            modified
+	 */
+	public void setAggregation(
+			final DataAdapter<?> adapter,
+			final DataStatistics<?> aggregation ) {
+		aggregationAdapter = adapter;
+		this.aggregation = aggregation;
+	}
+
+	/**
+	 * Bound the memory used by the distributed de-duplication filter, a value
+	 * that is not positive will retain every visited ID
+	 */
+	public void setDedupeMaxMemoryBytes(
+			final long dedupeMaxMemoryBytes ) {
+		// the distributed dedupe filter is always first in the list
+		distributableFilters.set(
+				0,
+				new DedupeFilter(
+						dedupeMaxMemoryBytes));
 	}
 
 	public boolean isQueryFiltersEnabled() {
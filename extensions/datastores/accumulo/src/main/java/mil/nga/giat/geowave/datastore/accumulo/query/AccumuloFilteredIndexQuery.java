@@ -19,9 +19,11 @@ import mil.nga.giat.geowave.core.store.filter.QueryFilter;
 import mil.nga.giat.geowave.core.store.index.CommonIndexValue;
 import mil.nga.giat.geowave.core.store.index.Index;
 import mil.nga.giat.geowave.datastore.accumulo.AccumuloOperations;
+import mil.nga.giat.geowave.datastore.accumulo.FieldSubsettingDataAdapter;
 import mil.nga.giat.geowave.datastore.accumulo.util.CloseableIteratorWrapper;
 import mil.nga.giat.geowave.datastore.accumulo.util.CloseableIteratorWrapper.ScannerClosableWrapper;
 import mil.nga.giat.geowave.datastore.accumulo.util.EntryIteratorWrapper;
+import mil.nga.giat.geowave.datastore.accumulo.util.FieldReaderCache;
 
 import org.apache.accumulo.core.client.ScannerBase;
 import org.apache.hadoop.io.Text;
@@ -141,7 +143,26 @@ public abstract class AccumuloFilteredIndexQuery extends
 				scanner.iterator(),
 				new FilterList<QueryFilter>(
 						clientFilters),
-				scanCallback);
+				scanCallback,
+				createReaderCache());
+	}
+
+	/**
+	 * @return a cache of the field readers for decoding rows, which only reads
+	 *         the requested fields of adapters that persist several fields
+	 *         together
+	 */
+	protected FieldReaderCache createReaderCache() {
+		if ((fieldIds == null) || fieldIds.isEmpty()) {
+			return new FieldReaderCache();
+		}
+		final Set<ByteArrayId> fieldIdSet = new HashSet<ByteArrayId>();
+		for (final String fieldId : fieldIds) {
+			fieldIdSet.add(new ByteArrayId(
+					StringUtils.stringToBinary(fieldId)));
+		}
+		return new FieldReaderCache(
+				fieldIdSet);
 	}
 
 	private void handleSubsetOfFieldIds(
@@ -154,9 +175,9 @@ public abstract class AccumuloFilteredIndexQuery extends
 		}
 
 		while (dataAdapters.hasNext()) {
-
+			final DataAdapter<?> adapter = dataAdapters.next();
 			final Text colFam = new Text(
-					dataAdapters.next().getAdapterId().getBytes());
+					adapter.getAdapterId().getBytes());
 
 			// dimension fields must be included
 			for (ByteArrayId dimension : uniqueDimensions) {
@@ -168,10 +189,18 @@ public abstract class AccumuloFilteredIndexQuery extends
 
 			// configure scanner to fetch only the specified fieldIds
 			for (String fieldId : fieldIds) {
-				scanner.fetchColumn(
-						colFam,
-						new Text(
-								StringUtils.stringToBinary(fieldId)));
+				final ByteArrayId fieldIdBytes = new ByteArrayId(
+						StringUtils.stringToBinary(fieldId));
+				// the field may be persisted together with other fields
+				final ByteArrayId[] persistedFieldIds = adapter instanceof FieldSubsettingDataAdapter ? ((FieldSubsettingDataAdapter<?>) adapter).getPersistedFieldIds(fieldIdBytes) : new ByteArrayId[] {
+					fieldIdBytes
+				};
+				for (final ByteArrayId persistedFieldId : persistedFieldIds) {
+					scanner.fetchColumn(
+							colFam,
+							new Text(
+									persistedFieldId.getBytes()));
+				}
 			}
 		}
 
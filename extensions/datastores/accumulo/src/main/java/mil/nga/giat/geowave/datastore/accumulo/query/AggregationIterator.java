@@ -0,0 +1,241 @@
+package mil.nga.giat.geowave.datastore.accumulo.query;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+import mil.nga.giat.geowave.core.index.ByteArrayUtils;
+import mil.nga.giat.geowave.core.index.PersistenceUtils;
+import mil.nga.giat.geowave.core.index.StringUtils;
+import mil.nga.giat.geowave.core.store.DataStoreEntryInfo;
+import mil.nga.giat.geowave.core.store.ScanCallback;
+import mil.nga.giat.geowave.core.store.adapter.DataAdapter;
+import mil.nga.giat.geowave.core.store.adapter.statistics.DataStatistics;
+import mil.nga.giat.geowave.core.store.index.Index;
+import mil.nga.giat.geowave.datastore.accumulo.AccumuloRowId;
+import mil.nga.giat.geowave.datastore.accumulo.util.AccumuloUtils;
+import mil.nga.giat.geowave.datastore.accumulo.util.FieldReaderCache;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.WrappingIterator;
+import org.apache.hadoop.io.Text;
+
+/**
+ * This iterator folds the whole rows that pass the query filters into a data
+ * statistics object within the tablet server, so that only the aggregate is
+ * returned rather than every matching entry. The aggregation, the data adapter
+ * used to decode the rows and the index are deserialized from byte arrays
+ * passed as options with the keys "aggregation", "adapter" and "index". The
+ * aggregate is returned as a single entry with the aggregation column family
+ * keyed by the last row that was folded into it. Rows that are duplicated
+ * across the index are returned unchanged, because they can only be
+ * de-duplicated by the client and are aggregated there.
+ */
+public class AggregationIterator extends
+		WrappingIterator
+{
+	public static final String AGGREGATION_ITERATOR_NAME = "GEOWAVE_AGGREGATION_ITERATOR";
+	// this must run after the query filter or whole row iterator
+	public static final int AGGREGATION_ITERATOR_PRIORITY = 25;
+	public static final String AGGREGATION = "aggregation";
+	public static final String ADAPTER = "adapter";
+	public static final String INDEX = "index";
+	public static final Text AGGREGATION_COLUMN_FAMILY = new Text(
+			StringUtils.stringToBinary("GEOWAVE_AGGREGATION"));
+
+	private byte[] aggregationBytes;
+	private DataAdapter<?> adapter;
+	private Index index;
+	private final FieldReaderCache readerCache = new FieldReaderCache();
+
+	private DataStatistics<?> aggregation;
+	private Text lastRow;
+	private Key topKey;
+	private Value topValue;
+	private Key pendingKey;
+	private Value pendingValue;
+
+	public AggregationIterator() {
+		super();
+	}
+
+	protected AggregationIterator(
+			final SortedKeyValueIterator<Key, Value> source,
+			final byte[] aggregationBytes,
+			final DataAdapter<?> adapter,
+			final Index index ) {
+		setSource(source);
+		this.aggregationBytes = aggregationBytes;
+		this.adapter = adapter;
+		this.index = index;
+	}
+
+	@Override
+	public void init(
+			final SortedKeyValueIterator<Key, Value> source,
+			final Map<String, String> options,
+			final IteratorEnvironment env )
+			throws IOException {
+		super.init(
+				source,
+				options,
+				env);
+		if (options == null) {
+			throw new IllegalArgumentException(
+					"Arguments must be set for " + AggregationIterator.class.getName());
+		}
+		try {
+			aggregationBytes = ByteArrayUtils.byteArrayFromString(options.get(AGGREGATION));
+			// ensure the aggregation can be deserialized before any rows are
+			// scanned
+			PersistenceUtils.fromBinary(
+					aggregationBytes,
+					DataStatistics.class);
+			adapter = PersistenceUtils.fromBinary(
+					ByteArrayUtils.byteArrayFromString(options.get(ADAPTER)),
+					DataAdapter.class);
+			index = PersistenceUtils.fromBinary(
+					ByteArrayUtils.byteArrayFromString(options.get(INDEX)),
+					Index.class);
+		}
+		catch (final Exception e) {
+			throw new IllegalArgumentException(
+					e);
+		}
+	}
+
+	@Override
+	public Key getTopKey() {
+		return topKey;
+	}
+
+	@Override
+	public Value getTopValue() {
+		return topValue;
+	}
+
+	@Override
+	public boolean hasTop() {
+		return topKey != null;
+	}
+
+	@Override
+	public void next()
+			throws IOException {
+		findTop();
+	}
+
+	@Override
+	public void seek(
+			final Range range,
+			final Collection<ByteSequence> columnFamilies,
+			final boolean inclusive )
+			throws IOException {
+		aggregation = null;
+		lastRow = null;
+		pendingKey = null;
+		pendingValue = null;
+		super.seek(
+				range,
+				columnFamilies,
+				inclusive);
+		findTop();
+	}
+
+	@SuppressWarnings({
+		"rawtypes",
+		"unchecked"
+	})
+	private void findTop()
+			throws IOException {
+		topKey = null;
+		topValue = null;
+		if (pendingKey != null) {
+			topKey = pendingKey;
+			topValue = pendingValue;
+			pendingKey = null;
+			pendingValue = null;
+			return;
+		}
+		final SortedKeyValueIterator<Key, Value> source = getSource();
+		while (source.hasTop()) {
+			final Key key = new Key(
+					source.getTopKey());
+			final Value value = new Value(
+					source.getTopValue());
+			source.next();
+			final AccumuloRowId rowId = new AccumuloRowId(
+					key.getRow().copyBytes());
+			if (rowId.getNumberOfDuplicates() > 0) {
+				// the client must de-duplicate this row, so return the
+				// aggregate so far followed by the row itself
+				if (lastRow != null) {
+					setTopToAggregation();
+					pendingKey = key;
+					pendingValue = value;
+				}
+				else {
+					topKey = key;
+					topValue = value;
+				}
+				return;
+			}
+			if (aggregation == null) {
+				aggregation = PersistenceUtils.fromBinary(
+						aggregationBytes,
+						DataStatistics.class);
+			}
+			final DataStatistics folded = aggregation;
+			if (AccumuloUtils.decodeRow(
+					key,
+					value,
+					rowId,
+					(DataAdapter) adapter,
+					null,
+					null,
+					index,
+					new ScanCallback<Object>() {
+						@Override
+						public void entryScanned(
+								final DataStoreEntryInfo entryInfo,
+								final Object entry ) {
+							folded.entryIngested(
+									entryInfo,
+									entry);
+						}
+					},
+					readerCache) != null) {
+				lastRow = key.getRow();
+			}
+		}
+		if (lastRow != null) {
+			setTopToAggregation();
+		}
+	}
+
+	private void setTopToAggregation() {
+		topKey = new Key(
+				lastRow,
+				AGGREGATION_COLUMN_FAMILY);
+		topValue = new Value(
+				PersistenceUtils.toBinary(aggregation));
+		aggregation = null;
+		lastRow = null;
+	}
+
+	@Override
+	public SortedKeyValueIterator<Key, Value> deepCopy(
+			final IteratorEnvironment env ) {
+		return new AggregationIterator(
+				getSource().deepCopy(
+						env),
+				aggregationBytes,
+				adapter,
+				index);
+	}
+}
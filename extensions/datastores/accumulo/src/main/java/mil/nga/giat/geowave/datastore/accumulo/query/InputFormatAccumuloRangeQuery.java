@@ -92,7 +92,8 @@ public class InputFormatAccumuloRangeQuery extends
 				scanner.iterator(),
 				isOutputWritable,
 				new FilterList<QueryFilter>(
-						clientFilters));
+						clientFilters),
+				createReaderCache());
 	}
 
 }
@@ -3,6 +3,7 @@ package mil.nga.giat.geowave.datastore.accumulo.util;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -10,7 +11,6 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
-import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -56,6 +56,8 @@ import mil.nga.giat.geowave.datastore.accumulo.metadata.AccumuloAdapterStore;
 import mil.nga.giat.geowave.datastore.accumulo.metadata.AccumuloIndexStore;
 import mil.nga.giat.geowave.datastore.accumulo.query.AccumuloConstraintsQuery;
 import mil.nga.giat.geowave.datastore.accumulo.util.CloseableIteratorWrapper.ScannerClosableWrapper;
+import mil.nga.giat.geowave.datastore.accumulo.util.FieldReaderCache.AdapterFieldReaders;
+import mil.nga.giat.geowave.datastore.accumulo.util.FieldReaderCache.CachedField;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
@@ -194,10 +196,10 @@ public class AccumuloUtils
 				null,
 				clientFilter,
 				index,
+				null,
 				null);
 	}
 
-	@SuppressWarnings("unchecked")
 	public static <T> T decodeRow(
 			final Key key,
 			final Value value,
@@ -205,6 +207,25 @@ public class AccumuloUtils
 			final QueryFilter clientFilter,
 			final Index index,
 			final ScanCallback<T> scanCallback ) {
+		return decodeRow(
+				key,
+				value,
+				adapterStore,
+				clientFilter,
+				index,
+				scanCallback,
+				null);
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <T> T decodeRow(
+			final Key key,
+			final Value value,
+			final AdapterStore adapterStore,
+			final QueryFilter clientFilter,
+			final Index index,
+			final ScanCallback<T> scanCallback,
+			final FieldReaderCache readerCache ) {
 		final AccumuloRowId rowId = new AccumuloRowId(
 				key.getRow().copyBytes());
 		return (T) decodeRowObj(
@@ -215,7 +236,8 @@ public class AccumuloUtils
 				adapterStore,
 				clientFilter,
 				index,
-				scanCallback);
+				scanCallback,
+				readerCache);
 	}
 
 	public static Object decodeRow(
@@ -225,6 +247,24 @@ public class AccumuloUtils
 			final AdapterStore adapterStore,
 			final QueryFilter clientFilter,
 			final Index index ) {
+		return decodeRow(
+				key,
+				value,
+				rowId,
+				adapterStore,
+				clientFilter,
+				index,
+				null);
+	}
+
+	public static Object decodeRow(
+			final Key key,
+			final Value value,
+			final AccumuloRowId rowId,
+			final AdapterStore adapterStore,
+			final QueryFilter clientFilter,
+			final Index index,
+			final FieldReaderCache readerCache ) {
 		return decodeRowObj(
 				key,
 				value,
@@ -233,7 +273,8 @@ public class AccumuloUtils
 				adapterStore,
 				clientFilter,
 				index,
-				null);
+				null,
+				readerCache);
 	}
 
 	private static <T> Object decodeRowObj(
@@ -244,7 +285,9 @@ public class AccumuloUtils
 			final AdapterStore adapterStore,
 			final QueryFilter clientFilter,
 			final Index index,
-			final ScanCallback<T> scanCallback ) {
+			final ScanCallback<T> scanCallback,
+			final FieldReaderCache readerCache ) {
+		// the data store entry info is only needed by the scan callback
 		final Pair<T, DataStoreEntryInfo> pair = decodeRow(
 				key,
 				value,
@@ -253,12 +296,13 @@ public class AccumuloUtils
 				adapterStore,
 				clientFilter,
 				index,
-				scanCallback);
+				scanCallback,
+				readerCache,
+				scanCallback != null);
 		return pair != null ? pair.getLeft() : null;
 
 	}
 
-	@SuppressWarnings("unchecked")
 	public static <T> Pair<T, DataStoreEntryInfo> decodeRow(
 			final Key k,
 			final Value v,
@@ -268,21 +312,73 @@ public class AccumuloUtils
 			final QueryFilter clientFilter,
 			final Index index,
 			final ScanCallback<T> scanCallback ) {
+		return decodeRow(
+				k,
+				v,
+				rowId,
+				dataAdapter,
+				adapterStore,
+				clientFilter,
+				index,
+				scanCallback,
+				null);
+	}
+
+	/**
+	 * Decode a row that has been packed by the whole row iterator. The fields
+	 * are read directly from the encoded value rather than being unpacked into
+	 * keys and values first.
+	 * 
+	 * @param readerCache
+	 *            the adapters and field readers resolved from previous rows, or
+	 *            null to resolve them for this row only
+	 */
+	public static <T> Pair<T, DataStoreEntryInfo> decodeRow(
+			final Key k,
+			final Value v,
+			final AccumuloRowId rowId,
+			final DataAdapter<T> dataAdapter,
+			final AdapterStore adapterStore,
+			final QueryFilter clientFilter,
+			final Index index,
+			final ScanCallback<T> scanCallback,
+			final FieldReaderCache readerCache ) {
+		return decodeRow(
+				k,
+				v,
+				rowId,
+				dataAdapter,
+				adapterStore,
+				clientFilter,
+				index,
+				scanCallback,
+				readerCache,
+				true);
+	}
+
+	/**
+	 * @param includeEntryInfo
+	 *            whether to build the data store entry info, otherwise the
+	 *            right side of the returned pair is null, which must only be
+	 *            false if there is no scan callback
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> Pair<T, DataStoreEntryInfo> decodeRow(
+			final Key k,
+			final Value v,
+			final AccumuloRowId rowId,
+			final DataAdapter<T> dataAdapter,
+			final AdapterStore adapterStore,
+			final QueryFilter clientFilter,
+			final Index index,
+			final ScanCallback<T> scanCallback,
+			final FieldReaderCache readerCache,
+			final boolean includeEntryInfo ) {
 		if ((dataAdapter == null) && (adapterStore == null)) {
 			LOGGER.error("Could not decode row from iterator. Either adapter or adapter store must be non-null.");
 			return null;
 		}
-		DataAdapter<T> adapter = dataAdapter;
-		SortedMap<Key, Value> rowMapping;
-		try {
-			rowMapping = WholeRowIterator.decodeRow(
-					k,
-					v);
-		}
-		catch (final IOException e) {
-			LOGGER.error("Could not decode row from iterator. Ensure whole row iterators are being used.");
-			return null;
-		}
+		final FieldReaderCache cache = (readerCache != null) ? readerCache : new FieldReaderCache();
 		// build a persistence encoding object first, pass it through the
 		// client filters and if its accepted, use the data adapter to
 		// decode the persistence model into the native data type
@@ -290,86 +386,129 @@ public class AccumuloUtils
 		final PersistentDataset<Object> extendedData = new PersistentDataset<Object>();
 		// for now we are assuming all entries in a row are of the same type
 		// and use the same adapter
-		boolean adapterMatchVerified;
-		ByteArrayId adapterId;
-		if (adapter != null) {
-			adapterId = adapter.getAdapterId();
-			adapterMatchVerified = false;
-		}
-		else {
-			adapterMatchVerified = true;
-			adapterId = null;
+		AdapterFieldReaders readers = null;
+		if (dataAdapter != null) {
+			readers = cache.getReaders(
+					dataAdapter,
+					index);
 		}
-		final List<FieldInfo> fieldInfoList = new ArrayList<FieldInfo>(
-				rowMapping.size());
-
-		for (final Entry<Key, Value> entry : rowMapping.entrySet()) {
-			// the column family is the data element's type ID
-			if (adapterId == null) {
-				adapterId = new ByteArrayId(
-						entry.getKey().getColumnFamilyData().getBackingArray());
+		List<FieldInfo> fieldInfoList = null;
+		// the value is encoded by the whole row iterator as the number of
+		// entries followed by the length prefixed column family, column
+		// qualifier and column visibility, the timestamp and the length
+		// prefixed value of each entry
+		final byte[] rowBytes = v.get();
+		final ByteBuffer buf = ByteBuffer.wrap(rowBytes);
+		try {
+			final int numEntries = buf.getInt();
+			if (includeEntryInfo) {
+				fieldInfoList = new ArrayList<FieldInfo>(
+						numEntries);
 			}
-
-			if (adapter == null) {
-				adapter = (DataAdapter<T>) adapterStore.getAdapter(adapterId);
-				if (adapter == null) {
-					LOGGER.error("DataAdapter does not exist");
-					return null;
+			for (int i = 0; i < numEntries; i++) {
+				final int cfLength = buf.getInt();
+				final int cfOffset = skip(
+						buf,
+						cfLength);
+				final int cqLength = buf.getInt();
+				final int cqOffset = skip(
+						buf,
+						cqLength);
+				final int cvLength = buf.getInt();
+				final int cvOffset = skip(
+						buf,
+						cvLength);
+				// the timestamp is not used
+				skip(
+						buf,
+						8);
+				final int valueLength = buf.getInt();
+				final int valueOffset = skip(
+						buf,
+						valueLength);
+
+				// the column family is the data element's type ID
+				if (readers == null) {
+					readers = cache.getReaders(
+							rowBytes,
+							cfOffset,
+							cfLength,
+							adapterStore,
+							index);
+					if (readers == null) {
+						LOGGER.error("DataAdapter does not exist");
+						return null;
+					}
 				}
-			}
-			if (!adapterMatchVerified) {
-				if (!adapterId.equals(adapter.getAdapterId())) {
+				else if ((i == 0) && !readers.matchesAdapterId(
+						rowBytes,
+						cfOffset,
+						cfLength)) {
 					return null;
 				}
-				adapterMatchVerified = true;
-			}
-			final ByteArrayId fieldId = new ByteArrayId(
-					entry.getKey().getColumnQualifierData().getBackingArray());
-			final CommonIndexModel indexModel;
-			if (adapter instanceof ModelConvertingDataAdapter) {
-				indexModel = ((ModelConvertingDataAdapter) adapter).convertModel(index.getIndexModel());
-			}
-			else {
-				indexModel = index.getIndexModel();
-			}
-			// first check if this field is part of the index model
-			final FieldReader<? extends CommonIndexValue> indexFieldReader = indexModel.getReader(fieldId);
-			final byte byteValue[] = entry.getValue().get();
-			if (indexFieldReader != null) {
-				final CommonIndexValue indexValue = indexFieldReader.readField(byteValue);
-				indexValue.setVisibility(entry.getKey().getColumnVisibilityData().getBackingArray());
-				final PersistentValue<CommonIndexValue> val = new PersistentValue<CommonIndexValue>(
-						fieldId,
-						indexValue);
-				indexData.addValue(val);
-				fieldInfoList.add(getFieldInfo(
-						val,
-						byteValue,
-						indexValue.getVisibility()));
-			}
-			else {
-				// next check if this field is part of the adapter's
-				// extended data model
-				final FieldReader<?> extFieldReader = adapter.getReader(fieldId);
-				if (extFieldReader == null) {
+				final CachedField field = readers.getField(
+						rowBytes,
+						cqOffset,
+						cqLength);
+				if (field == null) {
 					// if it still isn't resolved, log an error, and
 					// continue
 					LOGGER.error("field reader not found for data entry, the value will be ignored");
 					continue;
 				}
-				final Object value = extFieldReader.readField(byteValue);
-				final PersistentValue<Object> val = new PersistentValue<Object>(
-						fieldId,
-						value);
-				extendedData.addValue(val);
-				fieldInfoList.add(getFieldInfo(
-						val,
-						byteValue,
-						entry.getKey().getColumnVisibility().getBytes()));
+				final byte byteValue[] = FieldReaderCache.copy(
+						rowBytes,
+						valueOffset,
+						valueLength);
+				if (field.isIndexField()) {
+					final CommonIndexValue indexValue = ((FieldReader<? extends CommonIndexValue>) field.getReader()).readField(byteValue);
+					indexValue.setVisibility(FieldReaderCache.copy(
+							rowBytes,
+							cvOffset,
+							cvLength));
+					final PersistentValue<CommonIndexValue> val = new PersistentValue<CommonIndexValue>(
+							field.getFieldId(),
+							indexValue);
+					indexData.addValue(val);
+					if (fieldInfoList != null) {
+						fieldInfoList.add(getFieldInfo(
+								val,
+								byteValue,
+								indexValue.getVisibility()));
+					}
+				}
+				else {
+					final Object value = field.getReader().readField(
+							byteValue);
+					final PersistentValue<Object> val = new PersistentValue<Object>(
+							field.getFieldId(),
+							value);
+					extendedData.addValue(val);
+					if (fieldInfoList != null) {
+						fieldInfoList.add(getFieldInfo(
+								val,
+								byteValue,
+								FieldReaderCache.copy(
+										rowBytes,
+										cvOffset,
+										cvLength)));
+					}
+				}
 			}
 		}
+		catch (final BufferUnderflowException | IllegalArgumentException e) {
+			LOGGER.error(
+					"Could not decode row from iterator. Ensure whole row iterators are being used.",
+					e);
+			return null;
+		}
+		if (readers == null) {
+			// there were no entries in the row
+			return null;
+		}
+		final DataAdapter<T> adapter = (DataAdapter<T>) readers.getAdapter();
 		final IndexedAdapterPersistenceEncoding encodedRow = new IndexedAdapterPersistenceEncoding(
-				adapterId,
+				readers.getAdapterId(),
 				new ByteArrayId(
 						rowId.getDataId()),
 				new ByteArrayId(
@@ -378,30 +517,47 @@ public class AccumuloUtils
 				indexData,
 				extendedData);
 		if ((clientFilter == null) || clientFilter.accept(encodedRow)) {
-			// cannot get here unless adapter is found (not null)
-			if (adapter == null) {
-				LOGGER.error("Error, adapter was null when it should not be");
+			final T decodedEntry = adapter.decode(
+					encodedRow,
+					index);
+			if (!includeEntryInfo) {
+				return Pair.of(
+						decodedEntry,
+						(DataStoreEntryInfo) null);
 			}
-			else {
-				final Pair<T, DataStoreEntryInfo> pair = Pair.of(
-						adapter.decode(
-								encodedRow,
-								index),
-						new DataStoreEntryInfo(
-								Arrays.asList(new ByteArrayId(
-										k.getRowData().getBackingArray())),
-								fieldInfoList));
-				if (scanCallback != null) {
-					scanCallback.entryScanned(
-							pair.getRight(),
-							pair.getLeft());
-				}
-				return pair;
+			final DataStoreEntryInfo entryInfo = new DataStoreEntryInfo(
+					Arrays.asList(new ByteArrayId(
+							k.getRowData().getBackingArray())),
+					fieldInfoList);
+			if (scanCallback != null) {
+				scanCallback.entryScanned(
+						entryInfo,
+						decodedEntry);
 			}
+			return Pair.of(
+					decodedEntry,
+					entryInfo);
 		}
 		return null;
 	}
 
+	/**
+	 * Advance the buffer past a field of the given length
+	 * 
+	 * @return the offset of the field within the buffer
+	 */
+	private static int skip(
+			final ByteBuffer buf,
+			final int length ) {
+		final int offset = buf.position();
+		if (length < 0) {
+			throw new IllegalArgumentException(
+					"Invalid field length " + length);
+		}
+		buf.position(offset + length);
+		return offset;
+	}
+
 	public static <T> DataStoreEntryInfo write(
 			final WritableDataAdapter<T> writableAdapter,
 			final Index index,
@@ -0,0 +1,201 @@
+package mil.nga.giat.geowave.datastore.accumulo.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import mil.nga.giat.geowave.core.store.CloseableIterator;
+import mil.nga.giat.geowave.core.store.QuerySubscriber;
+import mil.nga.giat.geowave.core.store.QuerySubscription;
+
+import org.apache.log4j.Logger;
+
+/**
+ * This subscription reads the results of a query on a shared executor only
+ * while its subscriber has outstanding demand. Each time it runs it reads and
+ * delivers at most one batch of results and then gives up its thread, so that
+ * many concurrent queries can share a small number of threads, and a query
+ * whose subscriber has not requested any results does not hold a thread at all.
+ * The query itself is only created when the first results are requested, and
+ * its iterator is closed once the results are exhausted, the query fails or the
+ * subscription is cancelled.
+ * 
+ * @param <T>
+ *            A generic type for the entries that are queried
+ */
+public class AsyncQuerySubscription<T> implements
+		QuerySubscription,
+		Runnable
+{
+	private final static Logger LOGGER = Logger.getLogger(AsyncQuerySubscription.class);
+
+	private final Callable<CloseableIterator<T>> query;
+	private final QuerySubscriber<T> subscriber;
+	private final Executor executor;
+	private final int batchSize;
+	private final AtomicLong demand = new AtomicLong();
+	// only one worker may run this subscription at a time
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private volatile boolean cancelled = false;
+	private volatile Throwable requestError = null;
+	private CloseableIterator<T> results = null;
+	private volatile boolean done = false;
+
+	public AsyncQuerySubscription(
+			final Callable<CloseableIterator<T>> query,
+			final QuerySubscriber<T> subscriber,
+			final Executor executor,
+			final int batchSize ) {
+		this.query = query;
+		this.subscriber = subscriber;
+		this.executor = executor;
+		this.batchSize = Math.max(
+				1,
+				batchSize);
+	}
+
+	/**
+	 * Give the subscription to the subscriber, after which the subscriber
+	 * requests results as it is ready for them
+	 */
+	public void start() {
+		subscriber.onSubscribe(this);
+	}
+
+	@Override
+	public void request(
+			final long entries ) {
+		if (entries <= 0) {
+			requestError = new IllegalArgumentException(
+					"The number of requested entries must be positive");
+		}
+		else {
+			long current;
+			long updated;
+			do {
+				current = demand.get();
+				updated = current + entries;
+				// demand that overflows is unbounded
+				if (updated < 0) {
+					updated = Long.MAX_VALUE;
+				}
+			}
+			while (!demand.compareAndSet(
+					current,
+					updated));
+		}
+		schedule();
+	}
+
+	@Override
+	public void cancel() {
+		cancelled = true;
+		// the worker closes the results so that they are never closed while
+		// they are being read
+		schedule();
+	}
+
+	private void schedule() {
+		if (scheduled.compareAndSet(
+				false,
+				true)) {
+			executor.execute(this);
+		}
+	}
+
+	@Override
+	public void run() {
+		try {
+			if (!done) {
+				deliverBatch();
+			}
+		}
+		finally {
+			scheduled.set(false);
+		}
+		// demand or a cancellation that arrived while this was running would
+		// not have scheduled another run
+		if (!done && (cancelled || (requestError != null) || (demand.get() > 0))) {
+			schedule();
+		}
+	}
+
+	private void deliverBatch() {
+		if (cancelled) {
+			finish();
+			return;
+		}
+		if (requestError != null) {
+			finish();
+			subscriber.onError(requestError);
+			return;
+		}
+		final long requested = demand.get();
+		if (requested <= 0) {
+			return;
+		}
+		final List<T> batch = new ArrayList<T>(
+				(int) Math.min(
+						requested,
+						batchSize));
+		final boolean hasMore;
+		try {
+			if (results == null) {
+				results = query.call();
+			}
+			while ((batch.size() < requested) && (batch.size() < batchSize) && results.hasNext()) {
+				batch.add(results.next());
+			}
+			hasMore = results.hasNext();
+		}
+		catch (final Exception e) {
+			LOGGER.error(
+					"Unable to complete query",
+					e);
+			finish();
+			subscriber.onError(e);
+			return;
+		}
+		if (requested != Long.MAX_VALUE) {
+			demand.addAndGet(-batch.size());
+		}
+		if (!batch.isEmpty()) {
+			try {
+				subscriber.onNext(batch);
+			}
+			catch (final RuntimeException e) {
+				LOGGER.error(
+						"Query subscriber failed to receive results, cancelling query",
+						e);
+				cancelled = true;
+				finish();
+				return;
+			}
+		}
+		if (!hasMore) {
+			finish();
+			if (!cancelled) {
+				subscriber.onComplete();
+			}
+		}
+	}
+
+	private void finish() {
+		done = true;
+		if (results != null) {
+			try {
+				results.close();
+			}
+			catch (final IOException e) {
+				LOGGER.warn(
+						"Unable to close query results",
+						e);
+			}
+			results = null;
+		}
+	}
+}
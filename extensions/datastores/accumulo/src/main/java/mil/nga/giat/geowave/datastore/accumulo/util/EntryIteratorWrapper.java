@@ -29,6 +29,7 @@ public class EntryIteratorWrapper<T> implements
 	private final Iterator<Entry<Key, Value>> scannerIt;
 	private final QueryFilter clientFilter;
 	private final ScanCallback<T> scanCallback;
+	private final FieldReaderCache readerCache;
 
 	private T nextValue;
 
@@ -37,11 +38,12 @@ public class EntryIteratorWrapper<T> implements
 			final Index index,
 			final Iterator<Entry<Key, Value>> scannerIt,
 			final QueryFilter clientFilter ) {
-		this.adapterStore = adapterStore;
-		this.index = index;
-		this.scannerIt = scannerIt;
-		this.clientFilter = clientFilter;
-		this.scanCallback = null;
+		this(
+				adapterStore,
+				index,
+				scannerIt,
+				clientFilter,
+				null);
 	}
 
 	public EntryIteratorWrapper(
@@ -50,11 +52,28 @@ public class EntryIteratorWrapper<T> implements
 			final Iterator<Entry<Key, Value>> scannerIt,
 			final QueryFilter clientFilter,
 			final ScanCallback<T> scanCallback ) {
+		this(
+				adapterStore,
+				index,
+				scannerIt,
+				clientFilter,
+				scanCallback,
+				new FieldReaderCache());
+	}
+
+	public EntryIteratorWrapper(
+			final AdapterStore adapterStore,
+			final Index index,
+			final Iterator<Entry<Key, Value>> scannerIt,
+			final QueryFilter clientFilter,
+			final ScanCallback<T> scanCallback,
+			final FieldReaderCache readerCache ) {
 		this.adapterStore = adapterStore;
 		this.index = index;
 		this.scannerIt = scannerIt;
 		this.clientFilter = clientFilter;
 		this.scanCallback = scanCallback;
+		this.readerCache = readerCache;
 	}
 
 	private void findNext() {
@@ -81,7 +100,8 @@ public class EntryIteratorWrapper<T> implements
 				adapterStore,
 				clientFilter,
 				index,
-				scanCallback);
+				scanCallback,
+				readerCache);
 	}
 
 	@Override
@@ -0,0 +1,273 @@
+package mil.nga.giat.geowave.datastore.accumulo.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.core.store.adapter.AdapterStore;
+import mil.nga.giat.geowave.core.store.adapter.DataAdapter;
+import mil.nga.giat.geowave.core.store.data.field.FieldReader;
+import mil.nga.giat.geowave.core.store.index.CommonIndexModel;
+import mil.nga.giat.geowave.core.store.index.Index;
+import mil.nga.giat.geowave.datastore.accumulo.FieldSubsettingDataAdapter;
+import mil.nga.giat.geowave.datastore.accumulo.ModelConvertingDataAdapter;
+
+/**
+ * This caches the data adapters and field readers that are resolved while
+ * decoding rows so that they are looked up once per query rather than once per
+ * field of every row. Lookups are made directly against the column family and
+ * column qualifier bytes of the encoded row so that no IDs need to be allocated
+ * for fields that have already been seen. An instance is not thread-safe and
+ * should be used by a single row iterator over a single index.
+ */
+public class FieldReaderCache
+{
+	private final List<AdapterFieldReaders> adapters = new ArrayList<AdapterFieldReaders>();
+	private final Set<ByteArrayId> fieldIds;
+
+	public FieldReaderCache() {
+		this(
+				null);
+	}
+
+	/**
+	 * @param fieldIds
+	 *            the fields requested by the query, which adapters that persist
+	 *            several fields together use to skip the others, or null to
+	 *            read every field
+	 */
+	public FieldReaderCache(
+			final Set<ByteArrayId> fieldIds ) {
+		this.fieldIds = fieldIds;
+	}
+
+	protected AdapterFieldReaders getReaders(
+			final DataAdapter<?> adapter,
+			final Index index ) {
+		final byte[] adapterId = adapter.getAdapterId().getBytes();
+		AdapterFieldReaders readers = getCachedReaders(
+				adapterId,
+				0,
+				adapterId.length);
+		if ((readers == null) || (readers.adapter != adapter)) {
+			// a different instance of a cached adapter replaces it
+			if (readers != null) {
+				adapters.remove(readers);
+			}
+			readers = new AdapterFieldReaders(
+					adapter,
+					index,
+					fieldIds);
+			adapters.add(readers);
+		}
+		return readers;
+	}
+
+	protected AdapterFieldReaders getReaders(
+			final byte[] buffer,
+			final int offset,
+			final int length,
+			final AdapterStore adapterStore,
+			final Index index ) {
+		AdapterFieldReaders readers = getCachedReaders(
+				buffer,
+				offset,
+				length);
+		if (readers == null) {
+			final DataAdapter<?> adapter = adapterStore.getAdapter(new ByteArrayId(
+					copy(
+							buffer,
+							offset,
+							length)));
+			if (adapter == null) {
+				return null;
+			}
+			readers = new AdapterFieldReaders(
+					adapter,
+					index,
+					fieldIds);
+			adapters.add(readers);
+		}
+		return readers;
+	}
+
+	private AdapterFieldReaders getCachedReaders(
+			final byte[] buffer,
+			final int offset,
+			final int length ) {
+		for (final AdapterFieldReaders readers : adapters) {
+			if (readers.matchesAdapterId(
+					buffer,
+					offset,
+					length)) {
+				return readers;
+			}
+		}
+		return null;
+	}
+
+	protected static byte[] copy(
+			final byte[] buffer,
+			final int offset,
+			final int length ) {
+		final byte[] bytes = new byte[length];
+		System.arraycopy(
+				buffer,
+				offset,
+				bytes,
+				0,
+				length);
+		return bytes;
+	}
+
+	private static boolean equals(
+			final byte[] bytes,
+			final byte[] buffer,
+			final int offset,
+			final int length ) {
+		if (bytes.length != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (bytes[i] != buffer[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	protected static class AdapterFieldReaders
+	{
+		private final DataAdapter<?> adapter;
+		private final byte[] adapterId;
+		private final CommonIndexModel indexModel;
+		private final Set<ByteArrayId> fieldIds;
+		private final List<CachedField> fields = new ArrayList<CachedField>();
+		// fields are stored in the order they are first seen, which is the
+		// sorted column qualifier order of the rows, so the next field in a
+		// row is almost always the one after the last match
+		private int nextFieldIndex = 0;
+
+		private AdapterFieldReaders(
+				final DataAdapter<?> adapter,
+				final Index index,
+				final Set<ByteArrayId> fieldIds ) {
+			this.adapter = adapter;
+			this.fieldIds = fieldIds;
+			adapterId = adapter.getAdapterId().getBytes();
+			if (adapter instanceof ModelConvertingDataAdapter) {
+				indexModel = ((ModelConvertingDataAdapter) adapter).convertModel(index.getIndexModel());
+			}
+			else {
+				indexModel = index.getIndexModel();
+			}
+		}
+
+		protected DataAdapter<?> getAdapter() {
+			return adapter;
+		}
+
+		protected ByteArrayId getAdapterId() {
+			return adapter.getAdapterId();
+		}
+
+		protected boolean matchesAdapterId(
+				final byte[] buffer,
+				final int offset,
+				final int length ) {
+			return FieldReaderCache.equals(
+					adapterId,
+					buffer,
+					offset,
+					length);
+		}
+
+		/**
+		 * @return the cached field for the column qualifier, or null if neither
+		 *         the index model nor the adapter can read it
+		 */
+		protected CachedField getField(
+				final byte[] buffer,
+				final int offset,
+				final int length ) {
+			final int size = fields.size();
+			for (int i = 0; i < size; i++) {
+				final int fieldIndex = (nextFieldIndex + i) % size;
+				final CachedField field = fields.get(fieldIndex);
+				if (FieldReaderCache.equals(
+						field.fieldIdBytes,
+						buffer,
+						offset,
+						length)) {
+					nextFieldIndex = (fieldIndex + 1) % size;
+					return field.reader != null ? field : null;
+				}
+			}
+			final ByteArrayId fieldId = new ByteArrayId(
+					copy(
+							buffer,
+							offset,
+							length));
+			// first check if this field is part of the index model, next
+			// check if this field is part of the adapter's extended data model
+			final FieldReader<?> indexFieldReader = indexModel.getReader(fieldId);
+			final CachedField field;
+			if (indexFieldReader != null) {
+				field = new CachedField(
+						fieldId,
+						indexFieldReader,
+						true);
+			}
+			else if ((fieldIds != null) && (adapter instanceof FieldSubsettingDataAdapter)) {
+				field = new CachedField(
+						fieldId,
+						((FieldSubsettingDataAdapter<?>) adapter).getReader(
+								fieldId,
+								fieldIds),
+						false);
+			}
+			else {
+				field = new CachedField(
+						fieldId,
+						adapter.getReader(fieldId),
+						false);
+			}
+			// unresolved fields are cached as well so that they are only
+			// looked up once
+			fields.add(field);
+			nextFieldIndex = fields.size();
+			return field.reader != null ? field : null;
+		}
+	}
+
+	protected static class CachedField
+	{
+		private final byte[] fieldIdBytes;
+		private final ByteArrayId fieldId;
+		private final FieldReader<?> reader;
+		private final boolean indexField;
+
+		private CachedField(
+				final ByteArrayId fieldId,
+				final FieldReader<?> reader,
+				final boolean indexField ) {
+			fieldIdBytes = fieldId.getBytes();
+			this.fieldId = fieldId;
+			this.reader = reader;
+			this.indexField = indexField;
+		}
+
+		protected ByteArrayId getFieldId() {
+			return fieldId;
+		}
+
+		protected FieldReader<?> getReader() {
+			return reader;
+		}
+
+		protected boolean isIndexField() {
+			return indexField;
+		}
+	}
+}
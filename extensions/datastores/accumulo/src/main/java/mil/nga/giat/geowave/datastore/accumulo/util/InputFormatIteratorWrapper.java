@@ -36,6 +36,7 @@ public class InputFormatIteratorWrapper<T> implements
 	private final QueryFilter clientFilter;
 	private final HadoopWritableSerializationTool serializationTool;
 	private final boolean isOutputWritable;
+	private final FieldReaderCache readerCache;
 	private Entry<GeoWaveInputKey, T> nextValue;
 
 	public InputFormatIteratorWrapper(
@@ -44,6 +45,23 @@ public class InputFormatIteratorWrapper<T> implements
 			final Iterator<Entry<Key, Value>> scannerIt,
 			final boolean isOutputWritable,
 			final QueryFilter clientFilter ) {
+		this(
+				adapterStore,
+				index,
+				scannerIt,
+				isOutputWritable,
+				clientFilter,
+				new FieldReaderCache());
+	}
+
+	public InputFormatIteratorWrapper(
+			final AdapterStore adapterStore,
+			final Index index,
+			final Iterator<Entry<Key, Value>> scannerIt,
+			final boolean isOutputWritable,
+			final QueryFilter clientFilter,
+			final FieldReaderCache readerCache ) {
+		this.readerCache = readerCache;
 		this.serializationTool = new HadoopWritableSerializationTool(
 				adapterStore);
 		this.index = index;
@@ -79,7 +97,8 @@ public class InputFormatIteratorWrapper<T> implements
 				rowId,
 				serializationTool.getAdapterStore(),
 				clientFilter,
-				index);
+				index,
+				readerCache);
 		if (value == null) {
 			return null;
 		}
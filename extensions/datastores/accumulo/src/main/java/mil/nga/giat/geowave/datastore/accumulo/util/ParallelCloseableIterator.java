@@ -0,0 +1,256 @@
+package mil.nga.giat.geowave.datastore.accumulo.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import mil.nga.giat.geowave.core.store.CloseableIterator;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * This iterator drains several closeable iterators concurrently and merges
+ * their results through a bounded queue in the order that they arrive. It is
+ * used to scan multiple indices at the same time so that the latency of a
+ * multi-index query is bound by the slowest index rather than the sum of all of
+ * them. The queue provides back-pressure so that producers will block when the
+ * consumer falls behind.
+ * 
+ * Each iterator owns the threads that drain its iterators, so a consumer that
+ * stops reading can only stall its own producers and never those of another
+ * query. The threads are released once every result has been read, the iterator
+ * is closed or a producer fails. The failure of any producer is rethrown to the
+ * consumer rather than ending the results early.
+ * 
+ * @param <E>
+ *            The type to iterate on
+ */
+public class ParallelCloseableIterator<E> implements
+		CloseableIterator<E>
+{
+	private final static Logger LOGGER = Logger.getLogger(ParallelCloseableIterator.class);
+	private static final Object END_OF_RESULTS = new Object();
+	private static final long POLL_INTERVAL_MILLIS = 100;
+
+	private final ExecutorService executor;
+	private final List<Producer> producers;
+	private final BlockingQueue<Object> queue;
+	private int remainingProducers;
+	private volatile boolean closed = false;
+	private Object nextValue = null;
+
+	/**
+	 * @param iterators
+	 *            the iterators to drain concurrently
+	 * @param maxThreads
+	 *            the maximum number of iterators drained at the same time
+	 * @param queueSize
+	 *            the maximum number of results waiting to be read
+	 */
+	public ParallelCloseableIterator(
+			final List<CloseableIterator<E>> iterators,
+			final int maxThreads,
+			final int queueSize ) {
+		queue = new ArrayBlockingQueue<Object>(
+				Math.max(
+						1,
+						queueSize));
+		remainingProducers = iterators.size();
+		producers = new ArrayList<Producer>(
+				iterators.size());
+		for (final CloseableIterator<E> iterator : iterators) {
+			producers.add(new Producer(
+					iterator));
+		}
+		executor = Executors.newFixedThreadPool(
+				Math.max(
+						1,
+						Math.min(
+								maxThreads,
+								iterators.size())),
+				new ThreadFactoryBuilder().setDaemon(
+						true).setNameFormat(
+						"geowave-query-%d").build());
+		for (final Producer producer : producers) {
+			executor.execute(producer);
+		}
+		// no more producers are submitted, so the threads end once the
+		// producers are done
+		executor.shutdown();
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (nextValue != null) {
+			return true;
+		}
+		while ((remainingProducers > 0) && !closed) {
+			final Object value;
+			try {
+				value = queue.poll(
+						POLL_INTERVAL_MILLIS,
+						TimeUnit.MILLISECONDS);
+			}
+			catch (final InterruptedException e) {
+				LOGGER.warn(
+						"Interrupted while waiting for query results",
+						e);
+				Thread.currentThread().interrupt();
+				close();
+				throw new RuntimeException(
+						"Interrupted while waiting for query results",
+						e);
+			}
+			if (value == END_OF_RESULTS) {
+				remainingProducers--;
+			}
+			else if (value instanceof ProducerFailure) {
+				close();
+				throw new RuntimeException(
+						"Unable to complete query",
+						((ProducerFailure) value).cause);
+			}
+			else if (value != null) {
+				nextValue = value;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public E next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		final E value = (E) nextValue;
+		nextValue = null;
+		return value;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException(
+				"Remove is not supported for a parallel query");
+	}
+
+	@Override
+	public void close() {
+		// producers check this flag on every result and close their own
+		// iterators
+		closed = true;
+		for (final Producer producer : producers) {
+			producer.closeIfNotStarted();
+		}
+		// interrupt the producers that are waiting on the queue or the scan
+		executor.shutdownNow();
+		queue.clear();
+		nextValue = null;
+	}
+
+	private static class ProducerFailure
+	{
+		private final RuntimeException cause;
+
+		private ProducerFailure(
+				final RuntimeException cause ) {
+			this.cause = cause;
+		}
+	}
+
+	private class Producer implements
+			Runnable
+	{
+		private final CloseableIterator<E> iterator;
+		// either the producer or close() takes ownership of the iterator
+		private final AtomicBoolean started = new AtomicBoolean();
+
+		private Producer(
+				final CloseableIterator<E> iterator ) {
+			this.iterator = iterator;
+		}
+
+		@Override
+		public void run() {
+			if (!started.compareAndSet(
+					false,
+					true)) {
+				return;
+			}
+			Object end = END_OF_RESULTS;
+			try {
+				while (!closed && iterator.hasNext()) {
+					if (!enqueue(iterator.next())) {
+						break;
+					}
+				}
+			}
+			catch (final RuntimeException e) {
+				if (!closed) {
+					LOGGER.error(
+							"Unable to complete query",
+							e);
+					end = new ProducerFailure(
+							e);
+				}
+			}
+			finally {
+				closeIterator(iterator);
+				enqueue(end);
+			}
+		}
+
+		private void closeIfNotStarted() {
+			if (started.compareAndSet(
+					false,
+					true)) {
+				closeIterator(iterator);
+			}
+		}
+
+		private boolean enqueue(
+				final Object value ) {
+			try {
+				while (!closed) {
+					if (queue.offer(
+							value,
+							POLL_INTERVAL_MILLIS,
+							TimeUnit.MILLISECONDS)) {
+						return true;
+					}
+				}
+			}
+			catch (final InterruptedException e) {
+				if (!closed) {
+					LOGGER.warn(
+							"Interrupted while queuing query results",
+							e);
+				}
+				Thread.currentThread().interrupt();
+			}
+			return false;
+		}
+	}
+
+	private static void closeIterator(
+			final CloseableIterator<?> iterator ) {
+		try {
+			iterator.close();
+		}
+		catch (final IOException e) {
+			LOGGER.warn(
+					"Unable to close iterator",
+					e);
+		}
+	}
+}
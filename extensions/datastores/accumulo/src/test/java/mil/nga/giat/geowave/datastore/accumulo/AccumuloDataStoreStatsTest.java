@@ -7,15 +7,26 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 
 import mil.nga.giat.geowave.core.geotime.IndexType;
 import mil.nga.giat.geowave.core.geotime.store.dimension.GeometryWrapper;
 import mil.nga.giat.geowave.core.geotime.store.query.SpatialQuery;
 import mil.nga.giat.geowave.core.geotime.store.statistics.BoundingBoxDataStatistics;
 import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.core.index.ByteArrayRange;
+import mil.nga.giat.geowave.core.index.PersistenceUtils;
 import mil.nga.giat.geowave.core.index.StringUtils;
+import mil.nga.giat.geowave.core.index.sfc.tiered.TieredSFCIndexStrategy;
 import mil.nga.giat.geowave.core.store.CloseableIterator;
+import mil.nga.giat.geowave.core.store.DataStoreEntryInfo;
+import mil.nga.giat.geowave.core.store.DataStoreEntryInfo.FieldInfo;
 import mil.nga.giat.geowave.core.store.adapter.AbstractDataAdapter;
 import mil.nga.giat.geowave.core.store.adapter.NativeFieldHandler;
 import mil.nga.giat.geowave.core.store.adapter.PersistentIndexFieldHandler;
@@ -26,6 +37,9 @@ import mil.nga.giat.geowave.core.store.adapter.statistics.DataStatistics;
 import mil.nga.giat.geowave.core.store.adapter.statistics.DataStatisticsVisibilityHandler;
 import mil.nga.giat.geowave.core.store.adapter.statistics.FieldTypeStatisticVisibility;
 import mil.nga.giat.geowave.core.store.adapter.statistics.StatisticalDataAdapter;
+import mil.nga.giat.geowave.core.store.adapter.statistics.StatsCompositionTool;
+import mil.nga.giat.geowave.core.store.adapter.statistics.RowRangeHistogramStatistics;
+import mil.nga.giat.geowave.core.store.adapter.statistics.TierOccupancyDataStatistics;
 import mil.nga.giat.geowave.core.store.data.PersistentValue;
 import mil.nga.giat.geowave.core.store.data.VisibilityWriter;
 import mil.nga.giat.geowave.core.store.data.field.FieldReader;
@@ -33,6 +47,7 @@ import mil.nga.giat.geowave.core.store.data.field.FieldUtils;
 import mil.nga.giat.geowave.core.store.data.field.FieldVisibilityHandler;
 import mil.nga.giat.geowave.core.store.data.field.FieldWriter;
 import mil.nga.giat.geowave.core.store.index.CommonIndexValue;
+import mil.nga.giat.geowave.core.store.index.CustomIdIndex;
 import mil.nga.giat.geowave.core.store.index.Index;
 import mil.nga.giat.geowave.datastore.accumulo.AccumuloDataStore;
 import mil.nga.giat.geowave.datastore.accumulo.AccumuloOperations;
@@ -41,6 +56,7 @@ import mil.nga.giat.geowave.datastore.accumulo.BasicAccumuloOperations;
 import mil.nga.giat.geowave.datastore.accumulo.metadata.AccumuloAdapterStore;
 import mil.nga.giat.geowave.datastore.accumulo.metadata.AccumuloDataStatisticsStore;
 import mil.nga.giat.geowave.datastore.accumulo.metadata.AccumuloIndexStore;
+import mil.nga.giat.geowave.datastore.accumulo.util.AccumuloUtils;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
@@ -164,6 +180,625 @@ public class AccumuloDataStoreStatsTest
 		runtest();
 	}
 
+	@Test
+	public void testTierOccupancyPruning() {
+		accumuloOptions.setCreateTable(true);
+		accumuloOptions.setUseAltIndex(false);
+		accumuloOptions.setPersistDataStatistics(true);
+		accumuloOptions.setUseTierOccupancyStatistics(true);
+
+		final Index index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+		final WritableDataAdapter<TestGeometry> adapter = new TestGeometryAdapter();
+		final ByteArrayId rowId = mockDataStore.ingest(
+				adapter,
+				index,
+				new TestGeometry(
+						factory.createPoint(new Coordinate(
+								25,
+								32)),
+						"test_pt"),
+				visWriterAAA).get(
+				0);
+		mockDataStore.ingest(
+				adapter,
+				index,
+				new TestGeometry(
+						factory.createPoint(new Coordinate(
+								26,
+								32)),
+						"test_pt_1"),
+				visWriterAAA);
+		mockDataStore.ingest(
+				adapter,
+				index,
+				new TestGeometry(
+						factory.toGeometry(new Envelope(
+								-60,
+								60,
+								-40,
+								40)),
+						"test_poly"),
+				visWriterAAA);
+
+		final TierOccupancyDataStatistics<?> tierStats = (TierOccupancyDataStatistics<?>) statsStore.getDataStatistics(
+				adapter.getAdapterId(),
+				TierOccupancyDataStatistics.composeId(index.getId()),
+				"aaa");
+		assertTrue(tierStats != null);
+		final Set<ByteArrayId> occupiedTierAndBinIds = tierStats.getOccupiedTierAndBinIds();
+		// the points share the highest precision tier, the polygon is in a
+		// much lower precision tier
+		assertEquals(
+				2,
+				occupiedTierAndBinIds.size());
+
+		final SpatialQuery query = new SpatialQuery(
+				factory.toGeometry(new Envelope(
+						24,
+						28,
+						31,
+						33)));
+		final List<ByteArrayRange> ranges = ((TieredSFCIndexStrategy) index.getIndexStrategy()).getQueryRanges(
+				query.getIndexConstraints(index.getIndexStrategy()),
+				5000,
+				occupiedTierAndBinIds);
+		assertFalse(ranges.isEmpty());
+		for (final ByteArrayRange range : ranges) {
+			boolean occupied = false;
+			for (final ByteArrayId tierAndBinId : occupiedTierAndBinIds) {
+				occupied |= (range.getStart().getBytes()[0] == tierAndBinId.getBytes()[0]);
+			}
+			assertTrue(occupied);
+		}
+		assertEquals(
+				3,
+				count(mockDataStore.query(
+						adapter,
+						index,
+						query,
+						-1,
+						"aaa")));
+
+		// nothing is in the region, but the polygon's tier is still queried
+		assertEquals(
+				0,
+				count(mockDataStore.query(
+						adapter,
+						index,
+						new SpatialQuery(
+								factory.toGeometry(new Envelope(
+										100,
+										101,
+										50,
+										51))),
+						-1,
+						"aaa")));
+
+		final ByteArrayId pointTierAndBinId = new ByteArrayId(
+				Arrays.copyOf(
+						rowId.getBytes(),
+						((TieredSFCIndexStrategy) index.getIndexStrategy()).getTierAndBinIdLength()));
+		assertEquals(
+				2,
+				tierStats.getRowCount(pointTierAndBinId));
+		assertTrue(mockDataStore.deleteEntry(
+				index,
+				new ByteArrayId(
+						"test_pt".getBytes(StringUtils.UTF8_CHAR_SET)),
+				adapter.getAdapterId(),
+				"aaa"));
+		assertEquals(
+				1,
+				((TierOccupancyDataStatistics<?>) statsStore.getDataStatistics(
+						adapter.getAdapterId(),
+						TierOccupancyDataStatistics.composeId(index.getId()),
+						"aaa")).getRowCount(pointTierAndBinId));
+		assertEquals(
+				2,
+				count(mockDataStore.query(
+						adapter,
+						index,
+						query,
+						-1,
+						"aaa")));
+		accumuloOptions.setUseTierOccupancyStatistics(false);
+	}
+
+	@Test
+	public void testTierOccupancyWithoutEveryRow()
+			throws AccumuloException,
+			AccumuloSecurityException {
+		// the existing rows of every visibility of the user are looked for
+		accumuloOperations.insureAuthorization(
+				"root",
+				"aaa");
+		accumuloOptions.setCreateTable(true);
+		accumuloOptions.setUseAltIndex(false);
+		accumuloOptions.setPersistDataStatistics(true);
+
+		final Index index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+		final WritableDataAdapter<TestGeometry> adapter = new TestGeometryAdapter();
+		final List<ByteArrayId> adapterIds = Arrays.asList(adapter.getAdapterId());
+		mockDataStore.ingest(
+				adapter,
+				index,
+				new TestGeometry(
+						factory.createPoint(new Coordinate(
+								25,
+								32)),
+						"test_pt"),
+				visWriterAAA);
+		// the statistics are only maintained when they are used
+		assertTrue(statsStore.getDataStatistics(
+				adapter.getAdapterId(),
+				TierOccupancyDataStatistics.composeId(index.getId()),
+				"aaa") == null);
+
+		accumuloOptions.setUseTierOccupancyStatistics(true);
+		mockDataStore.ingest(
+				adapter,
+				index,
+				new TestGeometry(
+						factory.toGeometry(new Envelope(
+								-60,
+								60,
+								-40,
+								40)),
+						"test_poly"),
+				visWriterAAA);
+		final TierOccupancyDataStatistics<?> tierStats = (TierOccupancyDataStatistics<?>) statsStore.getDataStatistics(
+				adapter.getAdapterId(),
+				TierOccupancyDataStatistics.composeId(index.getId()),
+				"aaa");
+		assertTrue(tierStats != null);
+		// the point written before the statistics were maintained is not
+		// counted, so no tier can be skipped
+		assertFalse(tierStats.isComplete());
+		assertTrue(mockDataStore.getOccupiedTierAndBinIds(
+				adapterIds,
+				index,
+				adapterStore,
+				"aaa") == null);
+		assertEquals(
+				2,
+				count(mockDataStore.query(
+						adapter,
+						index,
+						new SpatialQuery(
+								factory.toGeometry(new Envelope(
+										24,
+										28,
+										31,
+										33))),
+						-1,
+						"aaa")));
+
+		// rows written without maintaining complete statistics make them
+		// incomplete
+		final Index otherIndex = new CustomIdIndex(
+				index.getIndexStrategy(),
+				index.getIndexModel(),
+				new ByteArrayId(
+						"test_other_index"));
+		mockDataStore.ingest(
+				adapter,
+				otherIndex,
+				new TestGeometry(
+						factory.createPoint(new Coordinate(
+								25,
+								32)),
+						"test_pt"),
+				visWriterAAA);
+		assertTrue(((TierOccupancyDataStatistics<?>) statsStore.getDataStatistics(
+				adapter.getAdapterId(),
+				TierOccupancyDataStatistics.composeId(otherIndex.getId()),
+				"aaa")).isComplete());
+		accumuloOptions.setUseTierOccupancyStatistics(false);
+		mockDataStore.ingest(
+				adapter,
+				otherIndex,
+				new TestGeometry(
+						factory.createPoint(new Coordinate(
+								-25,
+								-32)),
+						"test_pt_1"),
+				visWriterAAA);
+		assertFalse(((TierOccupancyDataStatistics<?>) statsStore.getDataStatistics(
+				adapter.getAdapterId(),
+				TierOccupancyDataStatistics.composeId(otherIndex.getId()),
+				"aaa")).isComplete());
+	}
+
+	@Test
+	public void testRowRangeHistogramDecomposition() {
+		accumuloOptions.setCreateTable(true);
+		accumuloOptions.setUseAltIndex(false);
+		accumuloOptions.setPersistDataStatistics(true);
+
+		final Index index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+		final TieredSFCIndexStrategy indexStrategy = (TieredSFCIndexStrategy) index.getIndexStrategy();
+		final WritableDataAdapter<TestGeometry> adapter = new TestGeometryAdapter();
+		// the histogram is only maintained while the option is enabled, but
+		// the rows written before must still be queried
+		mockDataStore.ingest(
+				adapter,
+				index,
+				new TestGeometry(
+						factory.createPoint(new Coordinate(
+								-100,
+								-40)),
+						"test_pt_far"),
+				visWriterAAA);
+		assertNull(statsStore.getDataStatistics(
+				adapter.getAdapterId(),
+				RowRangeHistogramStatistics.composeId(index.getId()),
+				"aaa"));
+
+		accumuloOptions.setUseRowRangeHistogramStatistics(true);
+		ByteArrayId rowId = null;
+		for (int i = 0; i < 20; i++) {
+			rowId = mockDataStore.ingest(
+					adapter,
+					index,
+					new TestGeometry(
+							factory.createPoint(new Coordinate(
+									25 + (i * 0.01),
+									32)),
+							"test_pt_" + i),
+					visWriterAAA).get(
+					0);
+		}
+
+		final RowRangeHistogramStatistics<?> histogramStats = (RowRangeHistogramStatistics<?>) statsStore.getDataStatistics(
+				adapter.getAdapterId(),
+				RowRangeHistogramStatistics.composeId(index.getId()),
+				"aaa");
+		assertTrue(histogramStats != null);
+		final ByteArrayId pointTierAndBinId = new ByteArrayId(
+				Arrays.copyOf(
+						rowId.getBytes(),
+						indexStrategy.getTierAndBinIdLength()));
+		assertEquals(
+				20,
+				histogramStats.getEstimatedRowCount(
+						pointTierAndBinId,
+						pointTierAndBinId),
+				1e-9);
+
+		final SpatialQuery query = new SpatialQuery(
+				factory.toGeometry(new Envelope(
+						-110,
+						30,
+						-50,
+						40)));
+		final List<ByteArrayRange> ranges = indexStrategy.getQueryRanges(
+				query.getIndexConstraints(indexStrategy),
+				5000,
+				histogramStats,
+				50);
+		assertFalse(ranges.isEmpty());
+		// tiers without any estimated rows are still queried, but only with a
+		// single range
+		final Map<Byte, Integer> rangesPerTier = new HashMap<Byte, Integer>();
+		for (final ByteArrayRange range : ranges) {
+			final Byte tier = range.getStart().getBytes()[0];
+			final Integer tierRanges = rangesPerTier.get(tier);
+			rangesPerTier.put(
+					tier,
+					tierRanges == null ? 1 : tierRanges + 1);
+		}
+		for (final Entry<Byte, Integer> tierRanges : rangesPerTier.entrySet()) {
+			if (tierRanges.getKey() != pointTierAndBinId.getBytes()[0]) {
+				assertEquals(
+						1,
+						tierRanges.getValue().intValue());
+			}
+		}
+		assertEquals(
+				21,
+				count(mockDataStore.query(
+						adapter,
+						index,
+						query,
+						-1,
+						"aaa")));
+		assertEquals(
+				0,
+				count(mockDataStore.query(
+						adapter,
+						index,
+						new SpatialQuery(
+								factory.toGeometry(new Envelope(
+										100,
+										101,
+										50,
+										51))),
+						-1,
+						"aaa")));
+		accumuloOptions.setUseRowRangeHistogramStatistics(false);
+	}
+
+	@Test
+	public void testRowRangeHistogramBound() {
+		final RowRangeHistogramStatistics<TestGeometry> histogramStats = new RowRangeHistogramStatistics<TestGeometry>(
+				new ByteArrayId(
+						"adapter"),
+				new ByteArrayId(
+						"index"),
+				2);
+		final List<ByteArrayId> rowIds = new ArrayList<ByteArrayId>();
+		for (int i = 0; i <= RowRangeHistogramStatistics.MAX_HISTOGRAMS; i++) {
+			rowIds.add(new ByteArrayId(
+					new byte[] {
+						(byte) (i >> 8),
+						(byte) i,
+						(byte) 0x80
+					}));
+		}
+		histogramStats.entryIngested(
+				new DataStoreEntryInfo(
+						rowIds,
+						Collections.<FieldInfo> emptyList()),
+				null);
+		final RowRangeHistogramStatistics<?> copy = PersistenceUtils.fromBinary(
+				PersistenceUtils.toBinary(histogramStats),
+				RowRangeHistogramStatistics.class);
+		// a tracked tier and bin is estimated from its histogram, which only
+		// has rows in its upper half, while the rows of the tier and bin that
+		// is not tracked may be anywhere within it
+		final ByteArrayId trackedId = rowIds.get(0);
+		final ByteArrayId untrackedId = rowIds.get(RowRangeHistogramStatistics.MAX_HISTOGRAMS);
+		assertEquals(
+				1,
+				copy.getEstimatedRowCount(
+						new ByteArrayId(
+								Arrays.copyOf(
+										trackedId.getBytes(),
+										2)),
+						new ByteArrayId(
+								Arrays.copyOf(
+										trackedId.getBytes(),
+										2))),
+				1e-9);
+		assertEquals(
+				0,
+				copy.getEstimatedRowCount(
+						new ByteArrayId(
+								new byte[] {
+									0,
+									0,
+									0
+								}),
+						new ByteArrayId(
+								new byte[] {
+									0,
+									0,
+									0x40
+								})),
+				1e-9);
+		assertEquals(
+				1,
+				copy.getEstimatedRowCount(
+						new ByteArrayId(
+								new byte[] {
+									untrackedId.getBytes()[0],
+									untrackedId.getBytes()[1],
+									0
+								}),
+						new ByteArrayId(
+								new byte[] {
+									untrackedId.getBytes()[0],
+									untrackedId.getBytes()[1],
+									0x40
+								})),
+				1e-9);
+	}
+
+	@Test
+	public void testConcurrentStatistics()
+			throws InterruptedException {
+		final Index index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+		final WritableDataAdapter<TestGeometry> adapter = new TestGeometryAdapter();
+		final StatsCompositionTool<TestGeometry> statsTool = new StatsCompositionTool<TestGeometry>(
+				adapter,
+				statsStore,
+				index,
+				Arrays.asList(TierOccupancyDataStatistics.STATS_TYPE),
+				2);
+		// flush while entries are still being reported, so that the shards
+		// are merged with the statistics incorporated by earlier flushes
+		statsTool.setFlushIntervalMillis(1);
+		final List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			final VisibilityWriter<TestGeometry> visWriter = ((t % 2) == 0) ? visWriterAAA : visWriterBBB;
+			final int threadId = t;
+			threads.add(new Thread(
+					new Runnable() {
+						@Override
+						public void run() {
+							for (int i = 0; i < 100; i++) {
+								final TestGeometry entry = new TestGeometry(
+										factory.createPoint(new Coordinate(
+												threadId,
+												i % 50)),
+										"test_pt_" + threadId + "_" + i);
+								statsTool.entryIngested(
+										AccumuloUtils.getIngestInfo(
+												adapter,
+												index,
+												entry,
+												visWriter),
+										entry);
+							}
+						}
+					}));
+		}
+		for (final Thread thread : threads) {
+			thread.start();
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+		statsTool.flush();
+
+		for (final String visibility : new String[] {
+			"aaa",
+			"bbb"
+		}) {
+			final CountDataStatistics<?> countStats = (CountDataStatistics<?>) statsStore.getDataStatistics(
+					adapter.getAdapterId(),
+					CountDataStatistics.STATS_ID,
+					visibility);
+			assertEquals(
+					200,
+					countStats.getCount());
+			final BoundingBoxDataStatistics<?> bboxStats = (BoundingBoxDataStatistics<?>) statsStore.getDataStatistics(
+					adapter.getAdapterId(),
+					BoundingBoxDataStatistics.STATS_ID,
+					visibility);
+			assertEquals(
+					49,
+					bboxStats.getMaxY(),
+					0);
+		}
+		final BoundingBoxDataStatistics<?> bboxStats = (BoundingBoxDataStatistics<?>) statsStore.getDataStatistics(
+				adapter.getAdapterId(),
+				BoundingBoxDataStatistics.STATS_ID,
+				"aaa",
+				"bbb");
+		assertEquals(
+				0,
+				bboxStats.getMinX(),
+				0);
+		assertEquals(
+				3,
+				bboxStats.getMaxX(),
+				0);
+		final TierOccupancyDataStatistics<?> tierStats = (TierOccupancyDataStatistics<?>) statsStore.getDataStatistics(
+				adapter.getAdapterId(),
+				TierOccupancyDataStatistics.composeId(index.getId()),
+				"aaa",
+				"bbb");
+		assertTrue(tierStats != null);
+	}
+
+	@Test
+	public void testAggregation() {
+		accumuloOptions.setCreateTable(true);
+		accumuloOptions.setUseAltIndex(false);
+		accumuloOptions.setPersistDataStatistics(true);
+
+		final Index index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+		final WritableDataAdapter<TestGeometry> adapter = new TestGeometryAdapter();
+		for (int i = 0; i < 20; i++) {
+			mockDataStore.ingest(
+					adapter,
+					index,
+					new TestGeometry(
+							factory.createPoint(new Coordinate(
+									25 + (i * 0.01),
+									32)),
+							"test_pt_" + i),
+					visWriterAAA);
+		}
+		mockDataStore.ingest(
+				adapter,
+				index,
+				new TestGeometry(
+						factory.createPoint(new Coordinate(
+								-100,
+								-40)),
+						"test_pt_far"),
+				visWriterAAA);
+		// the polygon is written to more than one row, so it must be
+		// de-duplicated by the client rather than aggregated by the tablet
+		// server
+		final List<ByteArrayId> polygonRowIds = mockDataStore.ingest(
+				adapter,
+				index,
+				new TestGeometry(
+						factory.toGeometry(new Envelope(
+								20,
+								30,
+								28,
+								36)),
+						"test_poly"),
+				visWriterAAA);
+		assertTrue(polygonRowIds.size() > 1);
+
+		final SpatialQuery query = new SpatialQuery(
+				factory.toGeometry(new Envelope(
+						24,
+						27,
+						31,
+						33)));
+		final CountDataStatistics<TestGeometry> count = mockDataStore.aggregate(
+				adapter,
+				index,
+				query,
+				new CountDataStatistics<TestGeometry>(
+						adapter.getAdapterId()),
+				"aaa");
+		assertEquals(
+				21,
+				count.getCount());
+		assertEquals(
+				count(mockDataStore.query(
+						adapter,
+						index,
+						query,
+						-1,
+						"aaa")),
+				count.getCount());
+
+		final BoundingBoxDataStatistics<TestGeometry> bbox = mockDataStore.aggregate(
+				adapter,
+				index,
+				null,
+				new GeoBoundingBoxStatistics(
+						adapter.getAdapterId()),
+				"aaa");
+		assertEquals(
+				-100,
+				bbox.getMinX(),
+				1e-9);
+		assertEquals(
+				30,
+				bbox.getMaxX(),
+				1e-9);
+		assertEquals(
+				-40,
+				bbox.getMinY(),
+				1e-9);
+		assertEquals(
+				36,
+				bbox.getMaxY(),
+				1e-9);
+
+		assertFalse(mockDataStore.aggregate(
+				adapter,
+				index,
+				new SpatialQuery(
+						factory.toGeometry(new Envelope(
+								100,
+								101,
+								50,
+								51))),
+				new CountDataStatistics<TestGeometry>(
+						adapter.getAdapterId()),
+				"aaa").isSet());
+	}
+
+	private static int count(
+			final CloseableIterator<?> it ) {
+		int count = 0;
+		while (it.hasNext()) {
+			it.next();
+			count++;
+		}
+		return count;
+	}
+
 	private void runtest() {
 
 		final Index index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
@@ -1,26 +1,38 @@
 package mil.nga.giat.geowave.datastore.accumulo;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import mil.nga.giat.geowave.core.geotime.IndexType;
 import mil.nga.giat.geowave.core.geotime.store.dimension.GeometryWrapper;
 import mil.nga.giat.geowave.core.index.ByteArrayId;
 import mil.nga.giat.geowave.core.index.StringUtils;
 import mil.nga.giat.geowave.core.store.CloseableIterator;
+import mil.nga.giat.geowave.core.store.QuerySubscriber;
+import mil.nga.giat.geowave.core.store.QuerySubscription;
 import mil.nga.giat.geowave.core.store.adapter.AbstractDataAdapter;
 import mil.nga.giat.geowave.core.store.adapter.NativeFieldHandler;
 import mil.nga.giat.geowave.core.store.adapter.PersistentIndexFieldHandler;
 import mil.nga.giat.geowave.core.store.adapter.WritableDataAdapter;
 import mil.nga.giat.geowave.core.store.adapter.NativeFieldHandler.RowBuilder;
+import mil.nga.giat.geowave.core.store.adapter.statistics.TierOccupancyDataStatistics;
 import mil.nga.giat.geowave.core.store.data.PersistentValue;
 import mil.nga.giat.geowave.core.store.data.field.FieldReader;
 import mil.nga.giat.geowave.core.store.data.field.FieldUtils;
 import mil.nga.giat.geowave.core.store.data.field.FieldWriter;
 import mil.nga.giat.geowave.core.store.index.CommonIndexValue;
+import mil.nga.giat.geowave.core.store.index.CustomIdIndex;
 import mil.nga.giat.geowave.core.store.index.Index;
 import mil.nga.giat.geowave.datastore.accumulo.AccumuloDataStore;
 import mil.nga.giat.geowave.datastore.accumulo.AccumuloIndexWriter;
@@ -551,6 +563,228 @@ public class AccumuloOptionsTest
 				geom1.id);
 	}
 
+	@Test
+	public void testParallelQueryOption()
+			throws IOException {
+		final Index index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+		final Index secondIndex = new CustomIdIndex(
+				index.getIndexStrategy(),
+				index.getIndexModel(),
+				new ByteArrayId(
+						"SECOND_IDX"));
+		final WritableDataAdapter<TestGeometry> adapter = new TestGeometryAdapter();
+
+		accumuloOptions.setUseParallelQuery(true);
+		accumuloOptions.setQueryThreads(2);
+		accumuloOptions.setQueryQueueSize(2);
+
+		for (int i = 0; i < 20; i++) {
+			final TestGeometry geom = new TestGeometry(
+					factory.createPoint(new Coordinate(
+							i,
+							i)),
+					"test_pt_" + i);
+			mockDataStore.ingest(
+					adapter,
+					index,
+					geom);
+			mockDataStore.ingest(
+					adapter,
+					secondIndex,
+					geom);
+		}
+
+		// both indices are scanned concurrently and the shared dedupe filter
+		// should ensure each entry is only returned once
+		final Set<String> ids = new HashSet<String>();
+		int count = 0;
+		try (final CloseableIterator<?> it = mockDataStore.query(
+				Arrays.asList(new ByteArrayId[] {
+					adapter.getAdapterId()
+				}),
+				null)) {
+			while (it.hasNext()) {
+				ids.add(((TestGeometry) it.next()).id);
+				count++;
+			}
+		}
+		assertEquals(
+				20,
+				count);
+		assertEquals(
+				20,
+				ids.size());
+	}
+
+	@Test
+	public void testIngestSessionOption() {
+		final Index index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+		final WritableDataAdapter<TestGeometry> adapter = new TestGeometryAdapter();
+
+		accumuloOptions.setUseIngestSession(true);
+		accumuloOptions.setIngestSessionMaxEntries(3);
+		accumuloOptions.setIngestSessionMaxLatencyMillis(Long.MAX_VALUE);
+
+		for (int i = 0; i < 5; i++) {
+			final List<ByteArrayId> rowIds = mockDataStore.ingest(
+					adapter,
+					index,
+					new TestGeometry(
+							factory.createPoint(new Coordinate(
+									25,
+									32)),
+							"test_pt_" + i));
+			// the row ids are known even though the write may be buffered
+			assertEquals(
+					1,
+					rowIds.size());
+		}
+		mockDataStore.closeIngestSession();
+
+		for (int i = 0; i < 5; i++) {
+			final TestGeometry geom = mockDataStore.getEntry(
+					index,
+					new ByteArrayId(
+							"test_pt_" + i),
+					adapter.getAdapterId());
+			assertEquals(
+					"test_pt_" + i,
+					geom.id);
+		}
+	}
+
+	@Test
+	public void testIngestSessionFlushesWhenIdle()
+			throws InterruptedException {
+		final Index index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+		final WritableDataAdapter<TestGeometry> adapter = new TestGeometryAdapter();
+
+		accumuloOptions.setUseIngestSession(true);
+		accumuloOptions.setIngestSessionMaxEntries(1000);
+		accumuloOptions.setIngestSessionMaxLatencyMillis(100);
+		// the tier occupancy statistics are only persisted when the session
+		// is flushed
+		accumuloOptions.setUseTierOccupancyStatistics(true);
+
+		mockDataStore.ingest(
+				adapter,
+				index,
+				new TestGeometry(
+						factory.createPoint(new Coordinate(
+								25,
+								32)),
+						"test_pt"));
+		assertTrue(getTierOccupancy(
+				adapter,
+				index).isEmpty());
+
+		// nothing else is ingested, but the entry is flushed once the latency
+		// has elapsed
+		final long timeout = System.currentTimeMillis() + 10000;
+		while (getTierOccupancy(
+				adapter,
+				index).isEmpty() && (System.currentTimeMillis() < timeout)) {
+			Thread.sleep(50);
+		}
+		assertFalse(getTierOccupancy(
+				adapter,
+				index).isEmpty());
+		mockDataStore.closeIngestSession();
+	}
+
+	private TierOccupancyDataStatistics<?> getTierOccupancy(
+			final WritableDataAdapter<TestGeometry> adapter,
+			final Index index ) {
+		return (TierOccupancyDataStatistics<?>) statsStore.getDataStatistics(
+				adapter.getAdapterId(),
+				TierOccupancyDataStatistics.composeId(index.getId()));
+	}
+
+	@Test
+	public void testAsyncQueryOption()
+			throws InterruptedException {
+		final Index index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+		final WritableDataAdapter<TestGeometry> adapter = new TestGeometryAdapter();
+
+		accumuloOptions.setAsyncQueryThreads(1);
+		accumuloOptions.setAsyncQueryBatchSize(2);
+
+		for (int i = 0; i < 20; i++) {
+			mockDataStore.ingest(
+					adapter,
+					index,
+					new TestGeometry(
+							factory.createPoint(new Coordinate(
+									i,
+									i)),
+							"test_pt_" + i));
+		}
+
+		// the subscriber requests 3 entries at a time, and should never
+		// receive more than it has requested or more than a batch at once
+		final Set<String> ids = new HashSet<String>();
+		final List<Integer> batchSizes = new ArrayList<Integer>();
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		final CountDownLatch complete = new CountDownLatch(
+				1);
+		mockDataStore.queryAsync(
+				adapter,
+				index,
+				null,
+				new QuerySubscriber<TestGeometry>() {
+					private QuerySubscription subscription;
+					private int outstanding;
+
+					@Override
+					public void onSubscribe(
+							final QuerySubscription subscription ) {
+						this.subscription = subscription;
+						outstanding = 3;
+						subscription.request(3);
+					}
+
+					@Override
+					public void onNext(
+							final List<TestGeometry> entries ) {
+						batchSizes.add(entries.size());
+						if (entries.size() > outstanding) {
+							error.set(new IllegalStateException(
+									"More entries were delivered than requested"));
+						}
+						outstanding -= entries.size();
+						for (final TestGeometry entry : entries) {
+							ids.add(entry.id);
+						}
+						if (outstanding <= 0) {
+							outstanding = 3;
+							subscription.request(3);
+						}
+					}
+
+					@Override
+					public void onError(
+							final Throwable e ) {
+						error.set(e);
+						complete.countDown();
+					}
+
+					@Override
+					public void onComplete() {
+						complete.countDown();
+					}
+				});
+		Assert.assertTrue(complete.await(
+				30,
+				TimeUnit.SECONDS));
+		Assert.assertNull(error.get());
+		assertEquals(
+				20,
+				ids.size());
+		for (final Integer batchSize : batchSizes) {
+			Assert.assertTrue(batchSize <= 2);
+		}
+	}
+
 	private static class TestGeometry
 	{
 		private final Geometry geom;
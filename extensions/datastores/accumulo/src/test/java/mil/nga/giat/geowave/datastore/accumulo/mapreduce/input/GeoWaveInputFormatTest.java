@@ -0,0 +1,195 @@
+package mil.nga.giat.geowave.datastore.accumulo.mapreduce.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import mil.nga.giat.geowave.core.geotime.IndexType;
+import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.core.index.RowCountEstimator;
+import mil.nga.giat.geowave.core.store.index.Index;
+import mil.nga.giat.geowave.datastore.accumulo.mapreduce.input.GeoWaveInputFormat.IntermediateSplitInfo;
+import mil.nga.giat.geowave.datastore.accumulo.mapreduce.input.GeoWaveInputFormat.IntermediateSplitInfo.RangeLocationPair;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class GeoWaveInputFormatTest
+{
+	private static final Index INDEX = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+
+	@Test
+	public void testTargetSplitCount() {
+		assertEquals(
+				10,
+				GeoWaveInputFormat.getTargetSplitCount(
+						1000,
+						100,
+						null,
+						null));
+		assertEquals(
+				1,
+				GeoWaveInputFormat.getTargetSplitCount(
+						0,
+						100,
+						null,
+						null));
+		assertEquals(
+				20,
+				GeoWaveInputFormat.getTargetSplitCount(
+						1000,
+						100,
+						20,
+						null));
+		assertEquals(
+				4,
+				GeoWaveInputFormat.getTargetSplitCount(
+						1000,
+						100,
+						2,
+						4));
+		// the split count is bounded even without a maximum split count
+		assertEquals(
+				GeoWaveInputFormat.MAX_TARGET_SPLIT_COUNT,
+				GeoWaveInputFormat.getTargetSplitCount(
+						1e12,
+						1,
+						null,
+						null));
+		assertEquals(
+				5000,
+				GeoWaveInputFormat.getTargetSplitCount(
+						1e12,
+						1,
+						null,
+						5000));
+	}
+
+	@Test
+	public void testSplitsAreOrderedByEstimatedRowsOnlyWithEstimates() {
+		// the wider range holds fewer rows
+		final RowCountEstimator estimator = new RowCountEstimator() {
+			@Override
+			public double getEstimatedRowCount(
+					final ByteArrayId start,
+					final ByteArrayId end ) {
+				return start.getBytes()[0] == 0x10 ? 100 : 1;
+			}
+		};
+		TreeSet<IntermediateSplitInfo> splits = new TreeSet<IntermediateSplitInfo>();
+		final IntermediateSplitInfo narrowSplit = createSplit(
+				0x10,
+				0x11,
+				"host1",
+				estimator);
+		final IntermediateSplitInfo wideSplit = createSplit(
+				0x20,
+				0x30,
+				"host1",
+				estimator);
+		splits.add(narrowSplit);
+		splits.add(wideSplit);
+		assertSame(
+				wideSplit,
+				splits.first());
+
+		splits = new TreeSet<IntermediateSplitInfo>();
+		final IntermediateSplitInfo unestimatedNarrowSplit = createSplit(
+				0x10,
+				0x11,
+				"host1",
+				null);
+		final IntermediateSplitInfo unestimatedWideSplit = createSplit(
+				0x20,
+				0x30,
+				"host1",
+				null);
+		splits.add(unestimatedNarrowSplit);
+		splits.add(unestimatedWideSplit);
+		assertSame(
+				unestimatedNarrowSplit,
+				splits.first());
+	}
+
+	@Test
+	public void testMergeCandidateSharesLocation() {
+		final IntermediateSplitInfo lowestSplit = createSplit(
+				0x10,
+				0x11,
+				"host1",
+				null);
+		final IntermediateSplitInfo otherLocationSplit = createSplit(
+				0x20,
+				0x24,
+				"host2",
+				null);
+		final IntermediateSplitInfo sameLocationSplit = createSplit(
+				0x30,
+				0x39,
+				"host1",
+				null);
+		final TreeSet<IntermediateSplitInfo> splits = new TreeSet<IntermediateSplitInfo>();
+		splits.add(otherLocationSplit);
+		splits.add(sameLocationSplit);
+
+		// the split that shares a location is preferred among the candidates
+		assertSame(
+				sameLocationSplit,
+				GeoWaveInputFormat.pollMergeCandidate(
+						splits,
+						lowestSplit,
+						2));
+		assertEquals(
+				1,
+				splits.size());
+
+		// otherwise the lowest split is merged
+		splits.add(sameLocationSplit);
+		assertSame(
+				otherLocationSplit,
+				GeoWaveInputFormat.pollMergeCandidate(
+						splits,
+						lowestSplit,
+						1));
+		assertSame(
+				sameLocationSplit,
+				splits.first());
+	}
+
+	private static IntermediateSplitInfo createSplit(
+			final int start,
+			final int end,
+			final String location,
+			final RowCountEstimator estimator ) {
+		final List<RangeLocationPair> ranges = new ArrayList<RangeLocationPair>();
+		ranges.add(new RangeLocationPair(
+				new Range(
+						new Key(
+								new Text(
+										new byte[] {
+											(byte) start
+										})),
+						true,
+						new Key(
+								new Text(
+										new byte[] {
+											(byte) end
+										})),
+						false),
+				location,
+				estimator));
+		final Map<Index, List<RangeLocationPair>> splitInfo = new HashMap<Index, List<RangeLocationPair>>();
+		splitInfo.put(
+				INDEX,
+				ranges);
+		return new IntermediateSplitInfo(
+				splitInfo);
+	}
+}
@@ -0,0 +1,391 @@
+package mil.nga.giat.geowave.datastore.accumulo.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import mil.nga.giat.geowave.core.geotime.IndexType;
+import mil.nga.giat.geowave.core.geotime.store.dimension.GeometryWrapper;
+import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.core.index.StringUtils;
+import mil.nga.giat.geowave.core.store.DataStoreEntryInfo;
+import mil.nga.giat.geowave.core.store.DataStoreEntryInfo.FieldInfo;
+import mil.nga.giat.geowave.core.store.ScanCallback;
+import mil.nga.giat.geowave.core.store.adapter.AdapterPersistenceEncoding;
+import mil.nga.giat.geowave.core.store.adapter.DataAdapter;
+import mil.nga.giat.geowave.core.store.adapter.IndexedAdapterPersistenceEncoding;
+import mil.nga.giat.geowave.core.store.adapter.MemoryAdapterStore;
+import mil.nga.giat.geowave.core.store.data.IndexedPersistenceEncoding;
+import mil.nga.giat.geowave.core.store.data.field.FieldReader;
+import mil.nga.giat.geowave.core.store.data.field.FieldUtils;
+import mil.nga.giat.geowave.core.store.data.field.FieldWriter;
+import mil.nga.giat.geowave.core.store.dimension.DimensionField;
+import mil.nga.giat.geowave.core.store.filter.QueryFilter;
+import mil.nga.giat.geowave.core.store.index.CommonIndexModel;
+import mil.nga.giat.geowave.core.store.index.Index;
+import mil.nga.giat.geowave.datastore.accumulo.AccumuloRowId;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.user.WholeRowIterator;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+public class AccumuloUtilsTest
+{
+	protected static final Index INDEX = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+
+	@Test
+	public void testDecodeRowPopulatesEntryInfo()
+			throws IOException {
+		final TestStringAdapter adapter = new TestStringAdapter();
+		final Key key = getRowKey(
+				adapter,
+				"1");
+		final Value row = encodeRow(
+				key,
+				adapter,
+				"value1");
+
+		// the entry info is built even when there is no scan callback
+		final Pair<String, DataStoreEntryInfo> pair = AccumuloUtils.decodeRow(
+				key,
+				row,
+				new AccumuloRowId(
+						key),
+				adapter,
+				null,
+				null,
+				INDEX,
+				null);
+		assertNotNull(pair);
+		assertEquals(
+				"value1",
+				pair.getLeft());
+		final DataStoreEntryInfo entryInfo = pair.getRight();
+		assertNotNull(entryInfo);
+		assertEquals(
+				1,
+				entryInfo.getRowIds().size());
+		assertArrayEquals(
+				key.getRow().copyBytes(),
+				entryInfo.getRowIds().get(
+						0).getBytes());
+		assertEquals(
+				2,
+				entryInfo.getFieldInfo().size());
+		for (final FieldInfo<?> fieldInfo : entryInfo.getFieldInfo()) {
+			if (TestStringAdapter.VALUE_FIELD_ID.equals(fieldInfo.getDataValue().getId())) {
+				assertEquals(
+						"value1",
+						fieldInfo.getDataValue().getValue());
+				assertArrayEquals(
+						StringUtils.stringToBinary("aaa"),
+						fieldInfo.getVisibility());
+			}
+			else {
+				assertEquals(
+						getGeometryField().getFieldId(),
+						fieldInfo.getDataValue().getId());
+			}
+		}
+	}
+
+	@Test
+	public void testDecodeRowWithScanCallback()
+			throws IOException {
+		final TestStringAdapter adapter = new TestStringAdapter();
+		final Key key = getRowKey(
+				adapter,
+				"1");
+		final List<DataStoreEntryInfo> scannedEntryInfo = new ArrayList<DataStoreEntryInfo>();
+		final Pair<String, DataStoreEntryInfo> pair = AccumuloUtils.decodeRow(
+				key,
+				encodeRow(
+						key,
+						adapter,
+						"value1"),
+				new AccumuloRowId(
+						key),
+				adapter,
+				null,
+				null,
+				INDEX,
+				new ScanCallback<String>() {
+					@Override
+					public void entryScanned(
+							final DataStoreEntryInfo entryInfo,
+							final String entry ) {
+						assertEquals(
+								"value1",
+								entry);
+						scannedEntryInfo.add(entryInfo);
+					}
+				},
+				new FieldReaderCache());
+		assertEquals(
+				1,
+				scannedEntryInfo.size());
+		assertEquals(
+				scannedEntryInfo.get(0),
+				pair.getRight());
+	}
+
+	@Test
+	public void testDecodeRowFromAdapterStore()
+			throws IOException {
+		final TestStringAdapter adapter = new TestStringAdapter();
+		final Key key = getRowKey(
+				adapter,
+				"1");
+		assertEquals(
+				"value1",
+				AccumuloUtils.decodeRow(
+						key,
+						encodeRow(
+								key,
+								adapter,
+								"value1"),
+						new AccumuloRowId(
+								key),
+						new MemoryAdapterStore(
+								new DataAdapter<?>[] {
+									adapter
+								}),
+						null,
+						INDEX));
+
+		// an unknown adapter cannot be decoded
+		assertNull(AccumuloUtils.decodeRow(
+				key,
+				encodeRow(
+						key,
+						adapter,
+						"value1"),
+				new AccumuloRowId(
+						key),
+				new MemoryAdapterStore(
+						new DataAdapter<?>[] {}),
+				null,
+				INDEX));
+	}
+
+	@Test
+	public void testDecodeRowRejected()
+			throws IOException {
+		final TestStringAdapter adapter = new TestStringAdapter();
+		final Key key = getRowKey(
+				adapter,
+				"1");
+		final Value row = encodeRow(
+				key,
+				adapter,
+				"value1");
+
+		// the row is not decoded by the client filter
+		assertNull(AccumuloUtils.decodeRow(
+				key,
+				row,
+				new AccumuloRowId(
+						key),
+				adapter,
+				null,
+				new QueryFilter() {
+					@Override
+					public boolean accept(
+							final IndexedPersistenceEncoding persistenceEncoding ) {
+						return false;
+					}
+				},
+				INDEX,
+				null));
+
+		// the row is not decoded by a different adapter
+		assertNull(AccumuloUtils.decodeRow(
+				key,
+				row,
+				new AccumuloRowId(
+						key),
+				new TestStringAdapter(
+						new ByteArrayId(
+								"other")),
+				null,
+				null,
+				INDEX,
+				null));
+
+		// a value that was not encoded by the whole row iterator is not
+		// decoded
+		assertNull(AccumuloUtils.decodeRow(
+				key,
+				new Value(
+						new byte[] {
+							0,
+							0,
+							0,
+							1,
+							0,
+							0
+						}),
+				new AccumuloRowId(
+						key),
+				adapter,
+				null,
+				null,
+				INDEX,
+				null));
+	}
+
+	protected static Key getRowKey(
+			final DataAdapter<?> adapter,
+			final String dataId ) {
+		return new Key(
+				new Text(
+						new AccumuloRowId(
+								new byte[] {
+									1,
+									2,
+									3
+								},
+								StringUtils.stringToBinary(dataId),
+								adapter.getAdapterId().getBytes(),
+								0).getRowId()));
+	}
+
+	/**
+	 * Encode a row as the whole row iterator does, with the geometry of the
+	 * spatial index and the value of the test adapter
+	 */
+	@SuppressWarnings("unchecked")
+	protected static Value encodeRow(
+			final Key rowKey,
+			final DataAdapter<?> adapter,
+			final String value )
+			throws IOException {
+		final Text row = rowKey.getRow();
+		final Text adapterId = new Text(
+				adapter.getAdapterId().getBytes());
+		final DimensionField<GeometryWrapper> geometryField = getGeometryField();
+		final List<Key> keys = new ArrayList<Key>();
+		final List<Value> values = new ArrayList<Value>();
+		keys.add(new Key(
+				row,
+				adapterId,
+				new Text(
+						geometryField.getFieldId().getBytes())));
+		values.add(new Value(
+				((FieldWriter<Object, GeometryWrapper>) geometryField.getWriter()).writeField(new GeometryWrapper(
+						new GeometryFactory().createPoint(new Coordinate(
+								10,
+								20))))));
+		keys.add(new Key(
+				row,
+				adapterId,
+				new Text(
+						TestStringAdapter.VALUE_FIELD_ID.getBytes()),
+				new Text(
+						"aaa")));
+		values.add(new Value(
+				FieldUtils.getDefaultWriterForClass(
+						String.class).writeField(
+						value)));
+		return WholeRowIterator.encodeRow(
+				keys,
+				values);
+	}
+
+	@SuppressWarnings("unchecked")
+	protected static DimensionField<GeometryWrapper> getGeometryField() {
+		final CommonIndexModel indexModel = INDEX.getIndexModel();
+		return (DimensionField<GeometryWrapper>) indexModel.getDimensions()[0];
+	}
+
+	/**
+	 * An adapter for strings that are persisted as a single field, which counts
+	 * the field readers it is asked for
+	 */
+	protected static class TestStringAdapter implements
+			DataAdapter<String>
+	{
+		protected static final ByteArrayId VALUE_FIELD_ID = new ByteArrayId(
+				"value");
+		private final ByteArrayId adapterId;
+		protected int readerLookups = 0;
+
+		protected TestStringAdapter() {
+			this(
+					new ByteArrayId(
+							"string"));
+		}
+
+		protected TestStringAdapter(
+				final ByteArrayId adapterId ) {
+			this.adapterId = adapterId;
+		}
+
+		@Override
+		public ByteArrayId getAdapterId() {
+			return adapterId;
+		}
+
+		@Override
+		public boolean isSupported(
+				final String entry ) {
+			return true;
+		}
+
+		@Override
+		public ByteArrayId getDataId(
+				final String entry ) {
+			return new ByteArrayId(
+					entry);
+		}
+
+		@Override
+		public String decode(
+				final IndexedAdapterPersistenceEncoding data,
+				final Index index ) {
+			return (String) data.getAdapterExtendedData().getValue(
+					VALUE_FIELD_ID);
+		}
+
+		@Override
+		public AdapterPersistenceEncoding encode(
+				final String entry,
+				final CommonIndexModel indexModel ) {
+			throw new UnsupportedOperationException();
+		}
+
+		@SuppressWarnings({
+			"rawtypes",
+			"unchecked"
+		})
+		@Override
+		public FieldReader<Object> getReader(
+				final ByteArrayId fieldId ) {
+			readerLookups++;
+			if (VALUE_FIELD_ID.equals(fieldId)) {
+				return (FieldReader) FieldUtils.getDefaultReaderForClass(String.class);
+			}
+			return null;
+		}
+
+		@Override
+		public byte[] toBinary() {
+			return new byte[] {};
+		}
+
+		@Override
+		public void fromBinary(
+				final byte[] bytes ) {}
+	}
+}
@@ -0,0 +1,263 @@
+package mil.nga.giat.geowave.datastore.accumulo.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Set;
+
+import mil.nga.giat.geowave.core.index.ByteArrayId;
+import mil.nga.giat.geowave.core.store.adapter.DataAdapter;
+import mil.nga.giat.geowave.core.store.adapter.MemoryAdapterStore;
+import mil.nga.giat.geowave.core.store.data.field.FieldReader;
+import mil.nga.giat.geowave.datastore.accumulo.FieldSubsettingDataAdapter;
+import mil.nga.giat.geowave.datastore.accumulo.util.AccumuloUtilsTest.TestStringAdapter;
+import mil.nga.giat.geowave.datastore.accumulo.util.FieldReaderCache.AdapterFieldReaders;
+import mil.nga.giat.geowave.datastore.accumulo.util.FieldReaderCache.CachedField;
+
+import org.apache.accumulo.core.data.Key;
+import org.junit.Test;
+
+public class FieldReaderCacheTest
+{
+	@Test
+	public void testFieldsAreResolvedOnce() {
+		final TestStringAdapter adapter = new TestStringAdapter();
+		final FieldReaderCache cache = new FieldReaderCache();
+		final AdapterFieldReaders readers = cache.getReaders(
+				adapter,
+				AccumuloUtilsTest.INDEX);
+		assertSame(
+				readers,
+				cache.getReaders(
+						adapter,
+						AccumuloUtilsTest.INDEX));
+		final byte[] adapterId = adapter.getAdapterId().getBytes();
+		assertTrue(readers.matchesAdapterId(
+				adapterId,
+				0,
+				adapterId.length));
+
+		// the fields are looked up within a larger buffer
+		final byte[] valueFieldId = TestStringAdapter.VALUE_FIELD_ID.getBytes();
+		final byte[] geometryFieldId = AccumuloUtilsTest.getGeometryField().getFieldId().getBytes();
+		final byte[] unknownFieldId = new ByteArrayId(
+				"unknown").getBytes();
+		final byte[] buffer = new byte[valueFieldId.length + geometryFieldId.length + unknownFieldId.length];
+		System.arraycopy(
+				valueFieldId,
+				0,
+				buffer,
+				0,
+				valueFieldId.length);
+		System.arraycopy(
+				geometryFieldId,
+				0,
+				buffer,
+				valueFieldId.length,
+				geometryFieldId.length);
+		System.arraycopy(
+				unknownFieldId,
+				0,
+				buffer,
+				valueFieldId.length + geometryFieldId.length,
+				unknownFieldId.length);
+		for (int i = 0; i < 3; i++) {
+			final CachedField valueField = readers.getField(
+					buffer,
+					0,
+					valueFieldId.length);
+			assertNotNull(valueField);
+			assertFalse(valueField.isIndexField());
+			assertEquals(
+					TestStringAdapter.VALUE_FIELD_ID,
+					valueField.getFieldId());
+
+			final CachedField geometryField = readers.getField(
+					buffer,
+					valueFieldId.length,
+					geometryFieldId.length);
+			assertNotNull(geometryField);
+			assertTrue(geometryField.isIndexField());
+
+			// a field that cannot be read is not returned
+			assertNull(readers.getField(
+					buffer,
+					valueFieldId.length + geometryFieldId.length,
+					unknownFieldId.length));
+		}
+		// the index field is read by the index model and the others are only
+		// looked up from the adapter once
+		assertEquals(
+				2,
+				adapter.readerLookups);
+	}
+
+	@Test
+	public void testAdapterIsResolvedOnce() {
+		final TestStringAdapter adapter = new TestStringAdapter();
+		final CountingAdapterStore adapterStore = new CountingAdapterStore(
+				adapter);
+		final FieldReaderCache cache = new FieldReaderCache();
+		final byte[] adapterId = adapter.getAdapterId().getBytes();
+		final AdapterFieldReaders readers = cache.getReaders(
+				adapterId,
+				0,
+				adapterId.length,
+				adapterStore,
+				AccumuloUtilsTest.INDEX);
+		assertSame(
+				adapter,
+				readers.getAdapter());
+		assertSame(
+				readers,
+				cache.getReaders(
+						adapterId,
+						0,
+						adapterId.length,
+						adapterStore,
+						AccumuloUtilsTest.INDEX));
+		assertEquals(
+				1,
+				adapterStore.adapterLookups);
+
+		// an unknown adapter is not cached
+		final byte[] unknownAdapterId = new ByteArrayId(
+				"unknown").getBytes();
+		assertNull(cache.getReaders(
+				unknownAdapterId,
+				0,
+				unknownAdapterId.length,
+				adapterStore,
+				AccumuloUtilsTest.INDEX));
+
+		// a different instance of a cached adapter replaces it
+		final TestStringAdapter otherInstance = new TestStringAdapter();
+		final AdapterFieldReaders otherReaders = cache.getReaders(
+				otherInstance,
+				AccumuloUtilsTest.INDEX);
+		assertSame(
+				otherInstance,
+				otherReaders.getAdapter());
+		assertSame(
+				otherReaders,
+				cache.getReaders(
+						adapterId,
+						0,
+						adapterId.length,
+						adapterStore,
+						AccumuloUtilsTest.INDEX));
+	}
+
+	@Test
+	public void testRowsDecodedWithCache()
+			throws Exception {
+		final TestStringAdapter adapter = new TestStringAdapter();
+		final FieldReaderCache cache = new FieldReaderCache();
+		final MemoryAdapterStore adapterStore = new MemoryAdapterStore(
+				new DataAdapter<?>[] {
+					adapter
+				});
+		for (int i = 0; i < 10; i++) {
+			final Key key = AccumuloUtilsTest.getRowKey(
+					adapter,
+					Integer.toString(i));
+			assertEquals(
+					"value" + i,
+					AccumuloUtils.decodeRow(
+							key,
+							AccumuloUtilsTest.encodeRow(
+									key,
+									adapter,
+									"value" + i),
+							adapterStore,
+							null,
+							AccumuloUtilsTest.INDEX,
+							null,
+							cache));
+		}
+		assertEquals(
+				1,
+				adapter.readerLookups);
+	}
+
+	@Test
+	public void testSubsettingAdapterIsGivenRequestedFields() {
+		final Set<ByteArrayId> fieldIds = Collections.singleton(TestStringAdapter.VALUE_FIELD_ID);
+		final TestSubsettingAdapter adapter = new TestSubsettingAdapter();
+		final byte[] valueFieldId = TestStringAdapter.VALUE_FIELD_ID.getBytes();
+
+		assertNotNull(new FieldReaderCache(
+				fieldIds).getReaders(
+				adapter,
+				AccumuloUtilsTest.INDEX).getField(
+				valueFieldId,
+				0,
+				valueFieldId.length));
+		assertSame(
+				fieldIds,
+				adapter.requestedFieldIds);
+
+		// without requested fields the adapter reads every field
+		final TestSubsettingAdapter otherAdapter = new TestSubsettingAdapter();
+		assertNotNull(new FieldReaderCache().getReaders(
+				otherAdapter,
+				AccumuloUtilsTest.INDEX).getField(
+				valueFieldId,
+				0,
+				valueFieldId.length));
+		assertNull(otherAdapter.requestedFieldIds);
+		assertEquals(
+				1,
+				otherAdapter.readerLookups);
+	}
+
+	private static class CountingAdapterStore extends
+			MemoryAdapterStore
+	{
+		private static final long serialVersionUID = 1L;
+		private int adapterLookups = 0;
+
+		private CountingAdapterStore(
+				final DataAdapter<?> adapter ) {
+			super(
+					new DataAdapter<?>[] {
+						adapter
+					});
+		}
+
+		@Override
+		public DataAdapter<?> getAdapter(
+				final ByteArrayId adapterId ) {
+			adapterLookups++;
+			return super.getAdapter(adapterId);
+		}
+	}
+
+	private static class TestSubsettingAdapter extends
+			TestStringAdapter implements
+			FieldSubsettingDataAdapter<String>
+	{
+		private Set<ByteArrayId> requestedFieldIds;
+
+		@Override
+		public ByteArrayId[] getPersistedFieldIds(
+				final ByteArrayId fieldId ) {
+			return new ByteArrayId[] {
+				fieldId
+			};
+		}
+
+		@Override
+		public FieldReader<Object> getReader(
+				final ByteArrayId persistedFieldId,
+				final Set<ByteArrayId> fieldIds ) {
+			requestedFieldIds = fieldIds;
+			return getReader(persistedFieldId);
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package mil.nga.giat.geowave.datastore.accumulo.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mil.nga.giat.geowave.core.store.CloseableIterator;
+
+import org.junit.Test;
+
+public class ParallelCloseableIteratorTest
+{
+	@Test
+	public void testAllResults()
+			throws IOException {
+		final AtomicInteger closed = new AtomicInteger();
+		final List<CloseableIterator<Integer>> iterators = new ArrayList<CloseableIterator<Integer>>();
+		final Set<Integer> expected = new HashSet<Integer>();
+		for (int i = 0; i < 5; i++) {
+			final List<Integer> values = new ArrayList<Integer>();
+			for (int j = 0; j < 100; j++) {
+				values.add((i * 100) + j);
+			}
+			expected.addAll(values);
+			iterators.add(createIterator(
+					values.iterator(),
+					closed));
+		}
+		final Set<Integer> results = new HashSet<Integer>();
+		final ParallelCloseableIterator<Integer> it = new ParallelCloseableIterator<Integer>(
+				iterators,
+				2,
+				10);
+		while (it.hasNext()) {
+			assertTrue(results.add(it.next()));
+		}
+		it.close();
+		assertEquals(
+				expected,
+				results);
+		assertEquals(
+				5,
+				closed.get());
+	}
+
+	@Test
+	public void testFailureIsRethrown()
+			throws IOException {
+		final AtomicInteger closed = new AtomicInteger();
+		final Iterator<Integer> failing = new Iterator<Integer>() {
+			private int count = 0;
+
+			@Override
+			public boolean hasNext() {
+				if (count == 3) {
+					throw new IllegalStateException(
+							"scan failed");
+				}
+				return true;
+			}
+
+			@Override
+			public Integer next() {
+				return count++;
+			}
+
+			@Override
+			public void remove() {}
+		};
+		final ParallelCloseableIterator<Integer> it = new ParallelCloseableIterator<Integer>(
+				Arrays.asList(
+						createIterator(
+								Arrays.asList(
+										10,
+										11).iterator(),
+								closed),
+						createIterator(
+								failing,
+								closed)),
+				2,
+				10);
+		try {
+			while (it.hasNext()) {
+				it.next();
+			}
+			fail("the failure of a scan must not end the results early");
+		}
+		catch (final RuntimeException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		it.close();
+	}
+
+	@Test
+	public void testCloseReleasesProducers()
+			throws IOException,
+			InterruptedException {
+		final AtomicInteger closed = new AtomicInteger();
+		final List<CloseableIterator<Integer>> iterators = new ArrayList<CloseableIterator<Integer>>();
+		for (int i = 0; i < 3; i++) {
+			// endless results, so that the producers fill the queue and block
+			iterators.add(createIterator(
+					new Iterator<Integer>() {
+						@Override
+						public boolean hasNext() {
+							return true;
+						}
+
+						@Override
+						public Integer next() {
+							return 1;
+						}
+
+						@Override
+						public void remove() {}
+					},
+					closed));
+		}
+		// only one thread, so that the other iterators are never started
+		final ParallelCloseableIterator<Integer> it = new ParallelCloseableIterator<Integer>(
+				iterators,
+				1,
+				2);
+		assertTrue(it.hasNext());
+		it.close();
+		// the running producer closes its own iterator once it stops
+		final long deadline = System.currentTimeMillis() + 5000;
+		while ((closed.get() < 3) && (System.currentTimeMillis() < deadline)) {
+			Thread.sleep(10);
+		}
+		assertEquals(
+				3,
+				closed.get());
+	}
+
+	private static CloseableIterator<Integer> createIterator(
+			final Iterator<Integer> iterator,
+			final AtomicInteger closed ) {
+		return new CloseableIterator<Integer>() {
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public Integer next() {
+				return iterator.next();
+			}
+
+			@Override
+			public void remove() {}
+
+			@Override
+			public void close()
+					throws IOException {
+				closed.incrementAndGet();
+			}
+		};
+	}
+}